@@ -0,0 +1,64 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic on {@link Account}. Both operations recompute the balance from the running
+ * totals, so the cost is a couple of {@link BigDecimal} additions and one subtraction.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountBenchmark {
+
+    private Account account;
+    private Transaction transaction;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        account = Account.builder()
+                .accountRef("bench:wallet")
+                .accountType(AccountType.USER_WALLET)
+                .totalDeposit(new BigDecimal("1000000000.0000"))
+                .build();
+        transaction = Transaction.builder()
+                .reference("bench-ref")
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(new BigDecimal("125.5000"))
+                .build();
+    }
+
+    @Benchmark
+    public BigDecimal withdraw() {
+        account.withdraw(transaction);
+        return account.getAccountBalance();
+    }
+
+    @Benchmark
+    public BigDecimal deposit() {
+        account.deposit(transaction);
+        return account.getAccountBalance();
+    }
+}
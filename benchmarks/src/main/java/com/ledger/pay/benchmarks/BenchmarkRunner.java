@@ -0,0 +1,138 @@
+package com.ledger.pay.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Runs the suites with the GC profiler, writes the JMH
+ * JSON result and compares it with a baseline result, exiting with status 1 on a regression or
+ * on a suite the baseline has no numbers for.
+ * <p>
+ * Any regular JMH command-line arguments (include pattern, {@code -f}, {@code -wi}, ...) are
+ * passed through. Comparison is controlled with system properties:
+ * <ul>
+ *     <li>{@code bench.result} - where to write results, default {@code target/jmh-result.json}</li>
+ *     <li>{@code bench.baseline} - baseline to compare with, default {@code baseline.json}</li>
+ *     <li>{@code bench.tolerance} - allowed relative slowdown, default {@code 0.10}</li>
+ *     <li>{@code bench.alloc-tolerance} - allowed relative growth of bytes/op, default {@code 0.05}</li>
+ *     <li>{@code bench.update-baseline} - replace the baseline with this run instead of comparing</li>
+ * </ul>
+ * Without {@code bench.update-baseline} a missing baseline file is an error (status 2), checked
+ * before anything runs.
+ */
+public final class BenchmarkRunner {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+    // Ignore allocation noise below this many bytes per operation.
+    private static final double ALLOC_SLACK_BYTES = 16;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path result = Paths.get(System.getProperty("bench.result", "target/jmh-result.json"));
+        Path baseline = Paths.get(System.getProperty("bench.baseline", "baseline.json"));
+        double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", "0.10"));
+        double allocTolerance = Double.parseDouble(System.getProperty("bench.alloc-tolerance", "0.05"));
+        boolean updateBaseline = Boolean.getBoolean("bench.update-baseline");
+
+        if (!updateBaseline && !Files.exists(baseline)) {
+            System.err.println("No baseline at " + baseline.toAbsolutePath()
+                    + "; run with -Dbench.update-baseline=true to record one");
+            System.exit(2);
+        }
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        new Runner(options.build()).run();
+
+        if (updateBaseline) {
+            // Suites left out of this run keep their recorded numbers.
+            Map<String, JsonNode> runs = Files.exists(baseline) ? read(baseline) : new LinkedHashMap<>();
+            runs.putAll(read(result));
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(baseline.toFile(), runs.values());
+            System.out.println("Recorded baseline " + baseline);
+            return;
+        }
+        List<String> regressions = compare(read(baseline), read(result), tolerance, allocTolerance);
+        if (regressions.isEmpty()) {
+            System.out.println("No regressions against " + baseline);
+            return;
+        }
+        System.out.println("Regressions against " + baseline + ":");
+        regressions.forEach(line -> System.out.println("  " + line));
+        System.exit(1);
+    }
+
+    static List<String> compare(Map<String, JsonNode> baseline,
+                                Map<String, JsonNode> current,
+                                double tolerance,
+                                double allocTolerance) {
+        List<String> regressions = new ArrayList<>();
+        current.forEach((key, run) -> {
+            JsonNode base = baseline.get(key);
+            if (base == null) {
+                regressions.add(key + ": not in the baseline");
+                return;
+            }
+            JsonNode basePrimary = base.path("primaryMetric");
+            JsonNode runPrimary = run.path("primaryMetric");
+            double before = basePrimary.path("score").asDouble();
+            double after = runPrimary.path("score").asDouble();
+            // Differences inside the combined error margins are noise.
+            double noise = basePrimary.path("scoreError").asDouble(0) + runPrimary.path("scoreError").asDouble(0);
+            boolean higherIsBetter = "thrpt".equals(run.path("mode").asText());
+            double worse = higherIsBetter ? before - after : after - before;
+            if (worse > noise && worse > before * tolerance) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s", key, before, after,
+                        runPrimary.path("scoreUnit").asText()));
+            }
+
+            JsonNode baseAlloc = base.path("secondaryMetrics").path(ALLOC_NORM);
+            JsonNode runAlloc = run.path("secondaryMetrics").path(ALLOC_NORM);
+            if (!baseAlloc.isMissingNode() && !runAlloc.isMissingNode()) {
+                double allocBefore = baseAlloc.path("score").asDouble();
+                double allocAfter = runAlloc.path("score").asDouble();
+                double growth = allocAfter - allocBefore;
+                if (growth > ALLOC_SLACK_BYTES && growth > allocBefore * allocTolerance) {
+                    regressions.add(String.format("%s: %.0f -> %.0f B/op allocated", key, allocBefore, allocAfter));
+                }
+            }
+        });
+        return regressions;
+    }
+
+    private static Map<String, JsonNode> read(Path file) throws IOException {
+        Map<String, JsonNode> runs = new LinkedHashMap<>();
+        for (JsonNode run : MAPPER.readTree(file.toFile())) {
+            String key = run.path("benchmark").asText();
+            JsonNode params = run.path("params");
+            if (!params.isMissingNode()) {
+                key += params.toString();
+            }
+            runs.put(key, run);
+        }
+        return runs;
+    }
+}
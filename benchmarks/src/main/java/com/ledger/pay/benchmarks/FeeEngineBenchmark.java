@@ -0,0 +1,73 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.fees.FeeEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fee lookup on the transfer path against a schedule of a few hundred rules, with several threads
+ * reading the shared schedule as request threads do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class FeeEngineBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("125000.5000");
+
+    private FeeEngine feeEngine;
+    private Account wallet;
+    private Account merchant;
+
+    @Setup
+    public void setUp() {
+        List<FeeProperties.Rule> rules = new ArrayList<>();
+        for (String currency : List.of("NGN", "USD", "EUR", "GBP")) {
+            for (int band = 0; band < 20; band++) {
+                BigDecimal floor = BigDecimal.valueOf(1000L * band * band);
+                rules.add(new FeeProperties.Rule(null, "USER_WALLET", currency, floor, new BigDecimal("10"),
+                        new BigDecimal("0.0015"), null, new BigDecimal("2000")));
+                rules.add(new FeeProperties.Rule("merchant", null, currency, floor, new BigDecimal("25"),
+                        null, null, null));
+            }
+        }
+        feeEngine = new FeeEngine(new FeeProperties(true, null, "standard", List.of("NGN"), 5000, rules),
+                new SimpleMeterRegistry());
+        wallet = Account.builder().accountRef("user:bench:wallet").accountType(AccountType.USER_WALLET).build();
+        merchant = Account.builder().accountRef("user:bench:merchant").accountType(AccountType.USER_WALLET)
+                .metadata(Map.of(FeeEngine.PLAN_METADATA_KEY, "merchant")).build();
+    }
+
+    @Benchmark
+    public FeeEngine.Fee percentageFee() {
+        return feeEngine.quote(wallet, AMOUNT);
+    }
+
+    @Benchmark
+    public FeeEngine.Fee flatFeeOnPlan() {
+        return feeEngine.quote(merchant, AMOUNT);
+    }
+}
@@ -0,0 +1,58 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.config.FxProperties;
+import com.ledger.pay.fx.FxRates;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate lookup and conversion on the transfer path, with several threads reading the shared table
+ * as request threads do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class FxRatesBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("125.5000");
+
+    private FxRates fxRates;
+
+    @Setup
+    public void setUp() {
+        fxRates = new FxRates(new FxProperties(null, Duration.ofHours(24), 8, Map.of(
+                "USDNGN", new BigDecimal("1550.2500"),
+                "EURNGN", new BigDecimal("1690.1000"),
+                "GBPNGN", new BigDecimal("1975.4000"),
+                "EURUSD", new BigDecimal("1.0850"))), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public FxRates.Quote quote() {
+        return fxRates.quote(AMOUNT, "NGN", "USD");
+    }
+
+    @Benchmark
+    public String positionAccountRef() {
+        return fxRates.positionAccountRef("USD", 42L);
+    }
+}
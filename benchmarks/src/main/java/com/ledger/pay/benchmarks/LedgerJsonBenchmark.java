@@ -0,0 +1,99 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.controller.LedgerJson;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import dto.TransactionResponse;
+import dto.TransferDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JSON cost of {@code POST /api/v1/transfer}: the {@code *Databind} methods are what
+ * the default Jackson converter did before (reflect over the entity, bind the request record), the
+ * {@code *Streaming} ones go through {@link LedgerJson}. Run with the GC profiler for allocation per
+ * request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LedgerJsonBenchmark {
+
+    private static final byte[] REQUEST = """
+            {"sourceAccountRef": "user:alice:wallet", "destinationAccountRef": "user:bob:wallet",
+             "amount": 10000, "reference": "TXN_unique_456", "description": "Payment"}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("channel", "api");
+        transaction = Transaction.builder()
+                .reference("TXN_unique_456")
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(new BigDecimal("10000.0000"))
+                .description("Payment")
+                .idempotencyHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .metadata(metadata)
+                .build();
+        transaction.setId(2L);
+        transaction.setCreatedAt(LocalDateTime.of(2024, 1, 24, 10, 35));
+        transaction.setUpdatedAt(transaction.getCreatedAt());
+    }
+
+    @Benchmark
+    public byte[] responseDatabind() {
+        return mapper.writeValueAsBytes(transaction);
+    }
+
+    /**
+     * Includes building the response view from the entity, as the controller does.
+     */
+    @Benchmark
+    public int responseStreaming() throws IOException {
+        out.reset();
+        LedgerJson.write(new TransactionResponse(transaction.getId(), transaction.getReference(),
+                transaction.getType().name(), transaction.getStatus().name(), transaction.getAmount(),
+                transaction.getDescription(), transaction.getCreatedAt(), null, null), out);
+        return out.size();
+    }
+
+    @Benchmark
+    public TransferDto requestDatabind() {
+        return mapper.readValue(REQUEST, TransferDto.class);
+    }
+
+    @Benchmark
+    public TransferDto requestStreaming() throws IOException {
+        return LedgerJson.readTransfer(new ByteArrayInputStream(REQUEST));
+    }
+}
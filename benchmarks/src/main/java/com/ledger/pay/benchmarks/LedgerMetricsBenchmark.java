@@ -0,0 +1,58 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.observability.LedgerMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the metrics recorded on every ledger write. Runs with several threads because the
+ * counters and timers are shared by all request threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LedgerMetricsBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("125.5000");
+
+    private LedgerMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        metrics = new LedgerMetrics(new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void recordTransfer() {
+        metrics.recordTransfer();
+    }
+
+    @Benchmark
+    public void recordTransactionAmount() {
+        metrics.recordTransactionAmount("deposit", AMOUNT);
+    }
+
+    @Benchmark
+    public void timeTransfer() {
+        Timer.Sample sample = metrics.startTimer();
+        metrics.stopTimer(sample);
+    }
+}
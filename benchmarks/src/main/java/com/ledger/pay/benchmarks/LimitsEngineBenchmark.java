@@ -0,0 +1,72 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.config.LimitsProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.limits.LimitsEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Velocity check on the transfer path. Each thread uses its own account, as the mailboxes
+ * guarantee in the service, so the numbers show the uncontended striped-lock cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LimitsEngineBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("125.5000");
+    private static final AtomicInteger ACCOUNTS = new AtomicInteger();
+
+    private LimitsEngine engine;
+
+    @State(Scope.Thread)
+    public static class ThreadAccount {
+        Account account;
+
+        @Setup
+        public void setUp() {
+            account = Account.builder()
+                    .accountRef("user:bench-" + ACCOUNTS.incrementAndGet() + ":wallet")
+                    .accountType(AccountType.USER_WALLET)
+                    .build();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        engine = new LimitsEngine(new LimitsProperties(true, false, null, Map.of(AccountType.USER_WALLET,
+                new LimitsProperties.Rule(new BigDecimal("1000000"), new BigDecimal("1000000000000000"), Integer.MAX_VALUE))),
+                new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public void reserve(ThreadAccount state) {
+        engine.reserve(state.account, AMOUNT);
+    }
+
+    @Benchmark
+    public void checkOnly(ThreadAccount state) {
+        engine.checkOnly(state.account, AMOUNT);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ledger.pay.benchmarks;
+
+import com.ledger.pay.sharding.ShardRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ring lookup done for both accounts of every routed request, by ring size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ShardRingBenchmark {
+
+    private static final int ACCOUNTS = 4096;
+
+    @Param({"2", "4", "16"})
+    public int shards;
+
+    private ShardRing ring;
+    private String[] accountRefs;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        ring = new ShardRing(shards, 128);
+        accountRefs = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountRefs[i] = "user:" + i + ":wallet";
+        }
+    }
+
+    @Benchmark
+    public int shardOf() {
+        return ring.shardOf(accountRefs[next.getAndIncrement() & (ACCOUNTS - 1)]);
+    }
+}
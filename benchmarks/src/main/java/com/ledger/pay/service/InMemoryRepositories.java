@@ -0,0 +1,85 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.common.entity.BaseEntity;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed stand-ins for the Spring Data repositories used by {@link LedgerService}.
+ * <p>
+ * They implement only the finders and saves the write path calls, so a benchmark measures the
+ * JVM side of a transfer (hashing, entity building, balance math, payload assembly) without
+ * Postgres round trips, which the k6 suite already covers end to end. Each method is resolved when
+ * the stand-in is created: single-row finders returning {@link Optional}, the saves and
+ * {@code flush}. Calling anything else fails with the list of what this stand-in supports, so a
+ * new repository call on the write path shows up as a clear error instead of a wrong result.
+ */
+final class InMemoryRepositories {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private InMemoryRepositories() {
+    }
+
+    private interface Handler {
+        Object invoke(Object[] args);
+    }
+
+    /**
+     * @param rows rows looked up by the first argument of any {@code findBy...} method, so ids
+     *             must be added as strings for {@code findById}-style lookups
+     */
+    static <T> T of(Class<T> type, Map<String, ?> rows) {
+        Map<Method, Handler> handlers = new HashMap<>();
+        TreeSet<String> supported = new TreeSet<>();
+        for (Method method : type.getMethods()) {
+            Handler handler = handler(method, rows);
+            if (handler != null) {
+                handlers.put(method, handler);
+                supported.add(method.getName());
+            }
+        }
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            Handler handler = handlers.get(method);
+            if (handler != null) {
+                return handler.invoke(args);
+            }
+            return switch (method.getName()) {
+                case "hashCode" -> System.identityHashCode(self);
+                case "equals" -> self == args[0];
+                case "toString" -> "InMemory" + type.getSimpleName();
+                default -> throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName()
+                        + " has no in-memory implementation; supported: " + String.join(", ", supported));
+            };
+        });
+        return type.cast(proxy);
+    }
+
+    private static Handler handler(Method method, Map<String, ?> rows) {
+        String name = method.getName();
+        if ((name.startsWith("findBy") || name.startsWith("findFirstBy")) && method.getParameterCount() > 0
+                && method.getReturnType() == Optional.class) {
+            return args -> Optional.ofNullable(rows.get(String.valueOf(args[0])));
+        }
+        return switch (name) {
+            case "save", "saveAndFlush" -> args -> assignId(args[0]);
+            case "flush" -> args -> null;
+            default -> null;
+        };
+    }
+
+    private static Object assignId(Object entity) {
+        if (entity instanceof BaseEntity base && base.getId() == null) {
+            base.setId(IDS.incrementAndGet());
+            base.setCreatedAt(LocalDateTime.now());
+        }
+        return entity;
+    }
+}
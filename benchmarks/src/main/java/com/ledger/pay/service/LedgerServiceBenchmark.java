@@ -0,0 +1,185 @@
+package com.ledger.pay.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.AuditProperties;
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.config.FxProperties;
+import com.ledger.pay.config.LimitsProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Hold;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.observability.LedgerMetrics;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.HoldRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-path pieces of {@link LedgerService}. Lives in the service package to reach the
+ * package-private helpers; {@link #transfer} runs the whole method against
+ * {@link InMemoryRepositories}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LedgerServiceBenchmark {
+
+    private static final String SOURCE = "user:bench-source:wallet";
+    private static final String DESTINATION = "user:bench-destination:wallet";
+    private static final String USD_DESTINATION = "user:bench-destination:usd";
+    private static final BigDecimal AMOUNT = new BigDecimal("125.5000");
+    private static final String REPLAY_REFERENCE = "bench-replay";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LedgerService ledgerService;
+    private Account source;
+    private Account destination;
+    private Transaction transaction;
+    private Map<String, Hold> holds;
+    private long sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        source = Account.builder()
+                .accountRef(SOURCE)
+                .accountType(AccountType.USER_WALLET)
+                .build();
+        // Through deposit so the balance is set too; placeHold checks it before debiting anything.
+        source.deposit(new BigDecimal("1000000000000.0000"));
+        destination = Account.builder()
+                .accountRef(DESTINATION)
+                .accountType(AccountType.USER_WALLET)
+                .build();
+        Account usdDestination = Account.builder()
+                .accountRef(USD_DESTINATION)
+                .accountType(AccountType.USER_WALLET)
+                .currency("USD")
+                .build();
+        source.setId(1L);
+        destination.setId(2L);
+        usdDestination.setId(3L);
+
+        Map<String, Account> accounts = new ConcurrentHashMap<>(Map.of(SOURCE, source, DESTINATION, destination,
+                USD_DESTINATION, usdDestination, "1", source, "2", destination, "3", usdDestination));
+        FxRates fxRates = new FxRates(new FxProperties(null, Duration.ofHours(24), 8,
+                Map.of("USDNGN", new BigDecimal("1550.2500"))), new SimpleMeterRegistry());
+        long positionId = 100;
+        for (String currency : fxRates.current().currencies()) {
+            Account position = Account.builder()
+                    .accountRef(fxRates.positionAccountRef(currency, source.getId()))
+                    .accountType(AccountType.FX_POSITION)
+                    .currency(currency)
+                    .build();
+            position.setId(positionId++);
+            accounts.put(position.getAccountRef(), position);
+        }
+        Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+        holds = new ConcurrentHashMap<>();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        LedgerEntryRepository ledgerEntries = InMemoryRepositories.of(LedgerEntryRepository.class, Map.of());
+        ledgerService = new LedgerService(
+                InMemoryRepositories.of(AccountRepository.class, accounts),
+                InMemoryRepositories.of(TransactionRepository.class, transactions),
+                ledgerEntries,
+                InMemoryRepositories.of(OutboxRepository.class, Map.of()),
+                null,
+                new LedgerMetrics(registry),
+                new BalanceReadModel(registry),
+                InMemoryRepositories.of(HoldRepository.class, holds),
+                new LimitsEngine(new LimitsProperties(true, false, null, null), registry),
+                new HashChain(ledgerEntries, new AuditProperties(500_000, true, 0, 100), registry),
+                fxRates,
+                new FeeEngine(new FeeProperties(false, null, "standard", List.of(), 5000, List.of()), registry));
+
+        transaction = Transaction.builder()
+                .reference(REPLAY_REFERENCE)
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(AMOUNT)
+                .idempotencyHash(ledgerService.computeIdempotencyHash(
+                        SOURCE, DESTINATION, AMOUNT.toPlainString(), REPLAY_REFERENCE))
+                .build();
+        transaction.setId(1L);
+        transactions.put(REPLAY_REFERENCE, transaction);
+    }
+
+    @Benchmark
+    public String idempotencyHash() {
+        return ledgerService.computeIdempotencyHash(SOURCE, DESTINATION, AMOUNT.toPlainString(), "bench-ref");
+    }
+
+    @Benchmark
+    public byte[] outboxPayload() throws Exception {
+        return objectMapper.writeValueAsBytes(ledgerService.eventPayload(transaction, source, destination));
+    }
+
+    /**
+     * Full transfer with a fresh reference each call, i.e. the non-replay path.
+     */
+    @Benchmark
+    public Transaction transfer() {
+        return ledgerService.transfer(SOURCE, DESTINATION, AMOUNT, "bench-" + sequence++, "benchmark");
+    }
+
+    /**
+     * Same as {@link #transfer} into a USD wallet: adds the rate lookup, two position locks and two
+     * more entries. Compare with {@link #transfer} for the cost of conversion.
+     */
+    @Benchmark
+    public Transaction transferWithConversion() {
+        return ledgerService.transfer(SOURCE, USD_DESTINATION, AMOUNT, "bench-fx-" + sequence++, "benchmark", true);
+    }
+
+    @Benchmark
+    public Transaction transferReplay() {
+        return ledgerService.transfer(SOURCE, DESTINATION, AMOUNT, REPLAY_REFERENCE, "benchmark");
+    }
+
+    /**
+     * Two-phase payment: place a hold, then capture it in full.
+     */
+    @Benchmark
+    public Hold holdAndCapture() {
+        String reference = "bench-hold-" + sequence++;
+        Hold hold = ledgerService.placeHold(SOURCE, DESTINATION, AMOUNT, reference, "benchmark", Duration.ofMinutes(5));
+        holds.put(reference, hold);
+        try {
+            return ledgerService.captureHold(reference, null);
+        } finally {
+            holds.remove(reference);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+// Shared settings for all load-test scripts. Everything can be overridden with `k6 run -e NAME=value`.
+
+export const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+
+// Accounts created by sql/seed-accounts.sql: user:load-1:wallet .. user:load-<ACCOUNTS>:wallet
+export const ACCOUNTS = parseInt(__ENV.ACCOUNTS || '1000', 10);
+export const EXTERNAL_ACCOUNT = __ENV.EXTERNAL_ACCOUNT || 'external:load';
+// Balance deposited into every load account during setup()
+export const SEED_BALANCE = parseFloat(__ENV.SEED_BALANCE || '1000000');
+// Skip funding in setup(), for wallets funded by an earlier run (startup.sh keeps the replays off a cold node)
+export const SKIP_SEED = __ENV.SKIP_SEED === 'true';
+
+// Zipf exponent for picking accounts: 0 = uniform, ~1 = a few very hot wallets
+export const ZIPF_S = parseFloat(__ENV.ZIPF_S || '1.1');
+// Share of operations that are deposits, the rest are transfers
+export const DEPOSIT_RATIO = parseFloat(__ENV.DEPOSIT_RATIO || '0.2');
+// Share of operations that are immediately retried with the same reference
+export const RETRY_RATIO = parseFloat(__ENV.RETRY_RATIO || '0.05');
+// Accounts shared by the contention profile, all of them hot
+export const HOT_ACCOUNTS = parseInt(__ENV.HOT_ACCOUNTS || '10', 10);
+// Concurrent VUs the contention profile ramps to
+export const CONTENTION_VUS = parseInt(__ENV.CONTENTION_VUS || '1000', 10);
+
+// Requests sent together by the batch scenario
+export const BATCH_SIZE = parseInt(__ENV.BATCH_SIZE || '10', 10);
+
+// Workloads are generated from a seeded PRNG so two runs produce the same sequence of accounts.
+export const SEED = parseInt(__ENV.SEED || '42', 10);
+
+// Target rates for arrival-rate scenarios (requests per second)
+export const RATE = parseInt(__ENV.RATE || '200', 10);
+export const MAX_RATE = parseInt(__ENV.MAX_RATE || '3000', 10);
+
+export const RESULTS_DIR = __ENV.RESULTS_DIR || 'load-tests/results';
+
+export const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
@@ -0,0 +1,11 @@
+import { textSummary } from 'https://jslib.k6.io/k6-summary/0.0.2/index.js';
+import { RESULTS_DIR } from './config.js';
+
+// Writes the full end-of-test summary as JSON so runs of different builds can be compared.
+export function exportSummary(name, data) {
+    const stamp = new Date().toISOString().replace(/[:.]/g, '-');
+    return {
+        stdout: textSummary(data, { indent: ' ', enableColors: true }),
+        [`${RESULTS_DIR}/${name}-${stamp}.json`]: JSON.stringify(data, null, 2),
+    };
+}
@@ -0,0 +1,130 @@
+import http from 'k6/http';
+import { SharedArray } from 'k6/data';
+import { ACCOUNTS, BASE_URL, EXTERNAL_ACCOUNT, JSON_HEADERS, SEED, ZIPF_S } from './config.js';
+
+// Cumulative Zipf distribution over account ranks, built once and shared by all VUs.
+const zipfCdf = new SharedArray('zipf-cdf', function () {
+    const weights = [];
+    let total = 0;
+    for (let rank = 1; rank <= ACCOUNTS; rank++) {
+        const w = 1 / Math.pow(rank, ZIPF_S);
+        weights.push(w);
+        total += w;
+    }
+    let running = 0;
+    return weights.map((w) => (running += w / total));
+});
+
+// mulberry32: small seeded PRNG, one stream per VU so runs are repeatable.
+export function rng(vu) {
+    let state = (SEED ^ Math.imul(vu, 0x9e3779b1)) >>> 0;
+    return function () {
+        state = (state + 0x6d2b79f5) >>> 0;
+        let t = state;
+        t = Math.imul(t ^ (t >>> 15), t | 1);
+        t ^= t + Math.imul(t ^ (t >>> 7), t | 61);
+        return ((t ^ (t >>> 14)) >>> 0) / 4294967296;
+    };
+}
+
+export function accountRef(rank) {
+    return `user:load-${rank}:wallet`;
+}
+
+// Account rank 1..ACCOUNTS, rank 1 being the hottest
+export function zipfRank(random) {
+    const u = random();
+    let lo = 0;
+    let hi = zipfCdf.length - 1;
+    while (lo < hi) {
+        const mid = (lo + hi) >>> 1;
+        if (zipfCdf[mid] < u) {
+            lo = mid + 1;
+        } else {
+            hi = mid;
+        }
+    }
+    return lo + 1;
+}
+
+// Two distinct Zipf-distributed accounts for a transfer
+export function transferPair(random) {
+    const source = zipfRank(random);
+    let destination = zipfRank(random);
+    if (destination === source) {
+        destination = (source % ACCOUNTS) + 1;
+    }
+    return [accountRef(source), accountRef(destination)];
+}
+
+export function reference(prefix) {
+    return `${prefix}-${__VU}-${__ITER}-${Date.now()}-${Math.random().toString(36).substring(2, 9)}`;
+}
+
+export function transferRequest(source, destination, amount, ref) {
+    return {
+        method: 'POST',
+        url: `${BASE_URL}/api/v1/transfer`,
+        body: JSON.stringify({
+            sourceAccountRef: source,
+            destinationAccountRef: destination,
+            amount: amount,
+            reference: ref,
+            description: 'load test transfer',
+        }),
+        params: { ...JSON_HEADERS, tags: { name: 'transfer' } },
+    };
+}
+
+export function depositRequest(wallet, amount, ref) {
+    return {
+        method: 'POST',
+        url: `${BASE_URL}/api/v1/deposit`,
+        body: JSON.stringify({
+            externalAccountRef: EXTERNAL_ACCOUNT,
+            userWalletRef: wallet,
+            amount: amount,
+            reference: ref,
+            description: 'load test deposit',
+        }),
+        params: { ...JSON_HEADERS, tags: { name: 'deposit' } },
+    };
+}
+
+export function send(request) {
+    return http.request(request.method, request.url, request.body, request.params);
+}
+
+export function holdRequest(source, destination, amount, ref) {
+    return {
+        method: 'POST',
+        url: `${BASE_URL}/api/v1/holds`,
+        body: JSON.stringify({
+            sourceAccountRef: source,
+            destinationAccountRef: destination,
+            amount: amount,
+            reference: ref,
+            description: 'load test hold',
+            ttlSeconds: 300,
+        }),
+        params: { ...JSON_HEADERS, tags: { name: 'hold' } },
+    };
+}
+
+export function captureRequest(ref) {
+    return {
+        method: 'POST',
+        url: `${BASE_URL}/api/v1/holds/${encodeURIComponent(ref)}/capture`,
+        body: null,
+        params: { tags: { name: 'capture' } },
+    };
+}
+
+export function voidRequest(ref) {
+    return {
+        method: 'POST',
+        url: `${BASE_URL}/api/v1/holds/${encodeURIComponent(ref)}/void`,
+        body: null,
+        params: { tags: { name: 'void' } },
+    };
+}
@@ -0,0 +1,21 @@
+#!/usr/bin/env sh
+# Runs a load profile, stores the k6 summary under load-tests/results and, when DATABASE_URL is set,
+# finishes with the SQL integrity check.
+#   BASE_URL=http://localhost:8080 DATABASE_URL=postgres://... load-tests/run.sh saturation
+set -eu
+
+PROFILE="${1:-mixed}"
+RESULTS_DIR="${RESULTS_DIR:-load-tests/results}"
+mkdir -p "$RESULTS_DIR"
+
+status=0
+k6 run \
+    -e PROFILE="$PROFILE" \
+    -e RESULTS_DIR="$RESULTS_DIR" \
+    --out csv="$RESULTS_DIR/$PROFILE-$(date +%Y%m%dT%H%M%S).csv.gz" \
+    load-tests/suite.js || status=$?
+
+if [ -n "${DATABASE_URL:-}" ]; then
+    psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f load-tests/sql/integrity.sql || status=$?
+fi
+exit "$status"
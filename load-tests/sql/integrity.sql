@@ -0,0 +1,105 @@
+-- Post-run integrity check. Prints each check, then fails (non-zero psql exit with ON_ERROR_STOP)
+-- if any invariant is violated.
+--   psql "$DATABASE_URL" -v ON_ERROR_STOP=1 -f load-tests/sql/integrity.sql
+
+-- Full reconciliation summary (debits should equal credits)
+WITH ledger_check AS (
+    SELECT
+        COALESCE(SUM(CASE WHEN entry_type = 'DEBIT' THEN amount ELSE 0 END), 0) as total_debits,
+        COALESCE(SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE 0 END), 0) as total_credits
+    FROM ledger_entries
+)
+SELECT
+    total_debits,
+    total_credits,
+    total_debits = total_credits as balanced,
+    CASE WHEN total_debits = total_credits THEN 'HEALTHY' ELSE 'UNBALANCED' END as status
+FROM ledger_check;
+
+-- Negative wallet balances (should return zero rows)
+SELECT account_ref, account_balance
+FROM accounts
+WHERE account_type = 'USER_WALLET' AND account_balance < 0;
+
+-- Accounts whose stored balance drifted from their ledger entries (should return zero rows).
+-- Fee credits stay unchained until FeeRevenue flushes them into the revenue balance, so they are
+-- not counted yet.
+SELECT a.account_ref, a.account_balance,
+       COALESCE(SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END), 0) AS ledger_balance
+FROM accounts a
+LEFT JOIN ledger_entries e ON e.account_id = a.id
+    AND NOT (a.account_type = 'FEE_REVENUE' AND e.chain_sequence IS NULL)
+GROUP BY a.id, a.account_ref, a.account_balance
+HAVING a.account_balance <> COALESCE(SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END), 0);
+
+-- Completed transactions whose debits and credits do not balance, or that posted nothing
+-- (should return zero rows). Fees, NETTING and reversals post more than two entries, and an
+-- FX_TRANSFER balances within each currency, so entries are summed per transaction and currency.
+-- A NETTING window whose positions all cancel out posts no entries.
+SELECT t.reference, a.currency,
+       COALESCE(SUM(e.amount) FILTER (WHERE e.entry_type = 'DEBIT'), 0) AS debits,
+       COALESCE(SUM(e.amount) FILTER (WHERE e.entry_type = 'CREDIT'), 0) AS credits
+FROM transactions t
+LEFT JOIN ledger_entries e ON e.transaction_id = t.id
+LEFT JOIN accounts a ON a.id = e.account_id
+WHERE t.status = 'COMPLETED'
+GROUP BY t.id, t.reference, t.type, a.currency
+HAVING (COUNT(e.id) = 0 AND t.type <> 'NETTING')
+    OR COALESCE(SUM(CASE WHEN e.entry_type = 'DEBIT' THEN e.amount ELSE -e.amount END), 0) <> 0;
+
+-- Held balances that do not match the account's active holds (should return zero rows)
+SELECT a.account_ref, a.held_balance, COALESCE(SUM(h.amount), 0) AS active_holds
+FROM accounts a
+LEFT JOIN holds h ON h.source_account_id = a.id AND h.status = 'ACTIVE'
+GROUP BY a.id, a.account_ref, a.held_balance
+HAVING a.held_balance <> COALESCE(SUM(h.amount), 0);
+
+DO $$
+DECLARE
+    unbalanced BOOLEAN;
+    negative BIGINT;
+    drifted BIGINT;
+    incomplete BIGINT;
+    held BIGINT;
+BEGIN
+    SELECT COALESCE(SUM(CASE WHEN entry_type = 'DEBIT' THEN amount ELSE -amount END), 0) <> 0
+    INTO unbalanced FROM ledger_entries;
+
+    SELECT COUNT(*) INTO negative
+    FROM accounts WHERE account_type = 'USER_WALLET' AND account_balance < 0;
+
+    SELECT COUNT(*) INTO drifted FROM (
+        SELECT a.id
+        FROM accounts a
+        LEFT JOIN ledger_entries e ON e.account_id = a.id
+            AND NOT (a.account_type = 'FEE_REVENUE' AND e.chain_sequence IS NULL)
+        GROUP BY a.id, a.account_balance
+        HAVING a.account_balance <> COALESCE(SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END), 0)
+    ) d;
+
+    SELECT COUNT(DISTINCT i.id) INTO incomplete FROM (
+        SELECT t.id
+        FROM transactions t
+        LEFT JOIN ledger_entries e ON e.transaction_id = t.id
+        LEFT JOIN accounts a ON a.id = e.account_id
+        WHERE t.status = 'COMPLETED'
+        GROUP BY t.id, t.type, a.currency
+        HAVING (COUNT(e.id) = 0 AND t.type <> 'NETTING')
+            OR COALESCE(SUM(CASE WHEN e.entry_type = 'DEBIT' THEN e.amount ELSE -e.amount END), 0) <> 0
+    ) i;
+
+    SELECT COUNT(*) INTO held FROM (
+        SELECT a.id
+        FROM accounts a
+        LEFT JOIN holds h ON h.source_account_id = a.id AND h.status = 'ACTIVE'
+        GROUP BY a.id, a.held_balance
+        HAVING a.held_balance <> COALESCE(SUM(h.amount), 0)
+    ) m;
+
+    IF unbalanced OR negative > 0 OR drifted > 0 OR incomplete > 0 OR held > 0 THEN
+        RAISE EXCEPTION 'Ledger integrity check failed: unbalanced=%, negative wallets=%, drifted accounts=%, unbalanced transactions=%, mismatched holds=%',
+            unbalanced, negative, drifted, incomplete, held;
+    END IF;
+    RAISE NOTICE 'Ledger integrity check passed';
+END
+$$;
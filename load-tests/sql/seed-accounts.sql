@@ -0,0 +1,15 @@
+-- Creates the wallets used by load-tests/suite.js. They start empty; the suite funds them in setup().
+--   psql "$DATABASE_URL" -v accounts=1000 -f load-tests/sql/seed-accounts.sql
+\if :{?accounts}
+\else
+\set accounts 1000
+\endif
+
+INSERT INTO accounts (account_ref, account_type, currency, account_balance, total_deposit, total_withdrawal, version, created_at, updated_at)
+SELECT 'user:load-' || n || ':wallet', 'USER_WALLET', 'NGN', 0, 0, 0, 0, NOW(), NOW()
+FROM generate_series(1, :accounts) AS n
+ON CONFLICT (account_ref) DO NOTHING;
+
+INSERT INTO accounts (account_ref, account_type, currency, account_balance, total_deposit, total_withdrawal, version, created_at, updated_at)
+VALUES ('external:load', 'EXTERNAL', 'NGN', 0, 0, 0, 0, NOW(), NOW())
+ON CONFLICT (account_ref) DO NOTHING;
@@ -0,0 +1,25 @@
+-- Creates :schedules one-off scheduled transfers among the load wallets, all due at :due (default now), for
+-- measuring how long the scheduler takes to clear a salary-run sized backlog. Run seed-accounts.sql and fund the
+-- wallets first (any suite profile does this in setup()).
+--   psql "$DATABASE_URL" -v schedules=1000000 -v accounts=1000 -f load-tests/sql/seed-schedules.sql
+\if :{?schedules}
+\else
+\set schedules 1000000
+\endif
+\if :{?accounts}
+\else
+\set accounts 1000
+\endif
+\if :{?due}
+\else
+\set due 'now()'
+\endif
+
+INSERT INTO scheduled_transfers (reference, source_account_ref, destination_account_ref, amount, description,
+                                 recurrence, starts_at, next_run_at, occurrence, failures, status, created_at, updated_at)
+SELECT 'load-schedule-' || n,
+       'user:load-' || (n % :accounts + 1) || ':wallet',
+       'user:load-' || ((n + 1) % :accounts + 1) || ':wallet',
+       1.00, 'load test schedule', 'ONCE', :due, :due, 0, 0, 'ACTIVE', NOW(), NOW()
+FROM generate_series(1, :schedules) AS n
+ON CONFLICT (reference) DO NOTHING;
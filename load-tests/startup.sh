@@ -0,0 +1,117 @@
+#!/usr/bin/env sh
+# Compares startup time and first-minute latency of a plain start ("jit") with the fast-start mode
+# ("fast": AOT-processed context, class-data sharing archive and app.warmup). For each mode the
+# application is started, the time until /actuator/health/readiness reports UP is recorded, and the
+# coldstart profile runs for one minute straight away, like a load balancer sending traffic to a new pod.
+# Results land in RESULTS_DIR: startup.txt, one k6 summary per mode and p50/p99 per 10 seconds of the minute.
+#
+# Wallets are funded once up front, so the measured minute carries no seed deposits. Linux (GNU date).
+#   DATABASE_URL=postgres://... JIT_JAR=target/pay-0.0.1-SNAPSHOT-exec.jar \
+#   FAST_JAR=/path/to/pay-0.0.1-SNAPSHOT-exec.jar load-tests/startup.sh jit fast
+# FAST_JAR must come from ./mvnw -Pfast-start package; JIT_JAR defaults to the jar in target/.
+set -eu
+
+BASE_URL="${BASE_URL:-http://localhost:8080}"
+ACCOUNTS="${ACCOUNTS:-1000}"
+JIT_JAR="${JIT_JAR:-$(ls target/pay-*-exec.jar | head -n 1)}"
+RESULTS_DIR="${RESULTS_DIR:-load-tests/results/startup-$(date +%Y%m%dT%H%M%S)}"
+MODES="${*:-jit fast}"
+mkdir -p "$RESULTS_DIR"
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+wait_until_ready() {
+    for _ in $(seq 1 1200); do
+        if curl -fs "$BASE_URL/actuator/health/readiness" > /dev/null 2>&1; then
+            return 0
+        fi
+        sleep 0.1
+    done
+    echo "Application did not become ready" >&2
+    return 1
+}
+
+stop_app() {
+    kill "$1" 2> /dev/null || true
+    wait "$1" 2> /dev/null || true
+}
+
+# metric NAME [STATISTIC], in seconds for times; n/a when the meter does not exist.
+metric() {
+    value=$(curl -fs "$BASE_URL/actuator/metrics/$1" 2> /dev/null \
+        | sed -n "s/.*\"statistic\":\"${2:-VALUE}\",\"value\":\([0-9.E-]*\).*/\1/p")
+    echo "${value:-n/a}"
+}
+
+# Extracts the fast-start jar and records its class-data sharing archive with a training run that
+# exits once the context is refreshed.
+prepare_fast() {
+    : "${FAST_JAR:?jar built with ./mvnw -Pfast-start package}"
+    dir="$RESULTS_DIR/fast-app"
+    java -Djarmode=tools -jar "$FAST_JAR" extract --destination "$dir"
+    java -XX:ArchiveClassesAtExit="$dir/application.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+        -jar "$dir/$(basename "$FAST_JAR")" > "$RESULTS_DIR/cds-training.log" 2>&1
+}
+
+start() {
+    case "$1" in
+        jit)
+            java -jar "$JIT_JAR" > "$RESULTS_DIR/app-jit.log" 2>&1 &
+            ;;
+        fast)
+            java -XX:SharedArchiveFile="$RESULTS_DIR/fast-app/application.jsa" -Dspring.aot.enabled=true \
+                -jar "$RESULTS_DIR/fast-app/$(basename "$FAST_JAR")" --app.warmup.enabled=true \
+                > "$RESULTS_DIR/app-fast.log" 2>&1 &
+            ;;
+        *)
+            echo "Unknown mode $1, expected jit or fast" >&2
+            exit 1
+            ;;
+    esac
+    app=$!
+}
+
+# p50 and p99 of http_req_duration per 10 seconds, from k6's CSV output.
+windows() {
+    awk -F, 'NR > 1 && $1 == "http_req_duration" {
+        if (start == "") start = $2
+        print int(($2 - start) / 10), $3
+    }' "$1" | sort -k1,1n -k2,2g | awk '
+        function flush() { if (n) printf "%3ds-%3ds  n=%-6d p50=%8.1fms  p99=%8.1fms\n", w * 10, w * 10 + 10, n, v[int(n * 0.5) + 1], v[int(n * 0.99) + 1] }
+        $1 != w { flush(); w = $1; n = 0 }
+        { v[++n] = $2 }
+        END { flush() }'
+}
+
+if [ -n "${DATABASE_URL:-}" ]; then
+    psql "$DATABASE_URL" -q -v ON_ERROR_STOP=1 -v accounts="$ACCOUNTS" -f load-tests/sql/seed-accounts.sql
+fi
+case " $MODES " in
+    *" fast "*) prepare_fast ;;
+esac
+
+echo "Funding $ACCOUNTS wallets"
+start jit
+wait_until_ready
+k6 run -q -e BASE_URL="$BASE_URL" -e ACCOUNTS="$ACCOUNTS" -e PROFILE=smoke -e RESULTS_DIR="$RESULTS_DIR/seed" \
+    load-tests/suite.js > "$RESULTS_DIR/seed.log" 2>&1 || true
+stop_app "$app"
+
+status=0
+for mode in $MODES; do
+    echo "== $mode"
+    started=$(now_ms)
+    start "$mode"
+    wait_until_ready
+    ready=$(($(now_ms) - started))
+    echo "$mode: ready after ${ready}ms (application.ready.time $(metric application.ready.time)s," \
+        "warm-up $(metric ledger.warmup TOTAL_TIME)s)" | tee -a "$RESULTS_DIR/startup.txt"
+    k6 run -e PROFILE=coldstart -e SKIP_SEED=true \
+        -e BASE_URL="$BASE_URL" -e ACCOUNTS="$ACCOUNTS" -e RESULTS_DIR="$RESULTS_DIR/$mode" \
+        --out csv="$RESULTS_DIR/$mode.csv" load-tests/suite.js || status=$?
+    windows "$RESULTS_DIR/$mode.csv" | tee "$RESULTS_DIR/$mode-windows.txt"
+    stop_app "$app"
+done
+exit "$status"
@@ -0,0 +1,278 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Rate, Trend } from 'k6/metrics';
+import {
+    ACCOUNTS, BASE_URL, BATCH_SIZE, CONTENTION_VUS, DEPOSIT_RATIO, HOT_ACCOUNTS, MAX_RATE, RATE, RETRY_RATIO, SEED,
+    SEED_BALANCE, SKIP_SEED,
+} from './lib/config.js';
+import {
+    accountRef, captureRequest, depositRequest, holdRequest, reference, rng, send, transferPair, transferRequest,
+    voidRequest, zipfRank,
+} from './lib/workload.js';
+import { exportSummary } from './lib/summary.js';
+
+// Workload suite. Pick one or more profiles with -e PROFILE=mixed,saturation (default: mixed).
+//
+//   smoke       - a few VUs for 30s, checks the stack end to end
+//   mixed       - constant arrival rate of RATE req/s with the configured deposit/transfer mix
+//   saturation  - arrival rate stepped from 50 to MAX_RATE req/s, to find the knee of the latency curve
+//   batch       - bursts of BATCH_SIZE transfers sent in parallel by one VU
+//   retries     - every request sent several times with the same reference (idempotency)
+//   holds       - place a hold on a Zipf-distributed wallet, then capture (80%) or void (20%) it
+//   contention  - up to CONTENTION_VUS concurrent VUs transferring among HOT_ACCOUNTS wallets (row-lock waits)
+//   coldstart   - RATE req/s for the first minute of a freshly started node (see startup.sh)
+//
+// Accounts are Zipf distributed (ZIPF_S), so rank 1 is the hottest wallet. See lib/config.js for all knobs.
+
+const completed = new Counter('ledger_completed');
+const shed = new Counter('ledger_shed');
+const rejected = new Counter('ledger_rejected');
+const replayMismatch = new Counter('ledger_replay_mismatch');
+const hotAccountShare = new Rate('ledger_hot_account');
+const operationDuration = new Trend('ledger_operation_duration', true);
+
+const PROFILES = {
+    smoke: {
+        executor: 'constant-vus',
+        vus: 5,
+        duration: '30s',
+        exec: 'mixedOperation',
+    },
+    mixed: {
+        executor: 'constant-arrival-rate',
+        rate: RATE,
+        timeUnit: '1s',
+        duration: '2m',
+        preAllocatedVUs: 100,
+        maxVUs: 1000,
+        exec: 'mixedOperation',
+    },
+    saturation: {
+        executor: 'ramping-arrival-rate',
+        startRate: 50,
+        timeUnit: '1s',
+        preAllocatedVUs: 200,
+        maxVUs: 2000,
+        // Fixed steps so every build is measured at the same offered load.
+        stages: [0.1, 0.25, 0.5, 0.75, 1].flatMap((share) => [
+            { duration: '10s', target: Math.round(MAX_RATE * share) },
+            { duration: '30s', target: Math.round(MAX_RATE * share) },
+        ]).concat([{ duration: '10s', target: 0 }]),
+        exec: 'mixedOperation',
+    },
+    batch: {
+        executor: 'constant-arrival-rate',
+        rate: Math.max(1, Math.round(RATE / BATCH_SIZE)),
+        timeUnit: '1s',
+        duration: '1m',
+        preAllocatedVUs: 50,
+        maxVUs: 500,
+        exec: 'batchOperation',
+    },
+    holds: {
+        executor: 'constant-arrival-rate',
+        rate: RATE,
+        timeUnit: '1s',
+        duration: '2m',
+        preAllocatedVUs: 100,
+        maxVUs: 1000,
+        exec: 'holdOperation',
+    },
+    // Closed model: far more concurrent requests than platform request threads, most of them waiting
+    // on the same rows. Compare throughput with spring.threads.virtual.enabled=true and false.
+    contention: {
+        executor: 'ramping-vus',
+        startVUs: 0,
+        stages: [
+            { duration: '20s', target: CONTENTION_VUS },
+            { duration: '1m', target: CONTENTION_VUS },
+            { duration: '10s', target: 0 },
+        ],
+        exec: 'contentionOperation',
+    },
+    // Same mix as mixed, for one minute, started as soon as a new node reports ready.
+    coldstart: {
+        executor: 'constant-arrival-rate',
+        rate: RATE,
+        timeUnit: '1s',
+        duration: '1m',
+        preAllocatedVUs: 100,
+        maxVUs: 1000,
+        exec: 'mixedOperation',
+    },
+    retries: {
+        executor: 'per-vu-iterations',
+        vus: 20,
+        iterations: 10,
+        exec: 'retryOperation',
+    },
+};
+
+const selected = (__ENV.PROFILE || 'mixed').split(',').map((p) => p.trim());
+let offset = 0;
+const scenarios = {};
+for (const name of selected) {
+    if (!PROFILES[name]) {
+        throw new Error(`Unknown PROFILE ${name}, expected one of ${Object.keys(PROFILES).join(', ')}`);
+    }
+    // Several profiles run one after another rather than overlapping.
+    scenarios[name] = { ...PROFILES[name], startTime: `${offset}s` };
+    offset += profileSeconds(PROFILES[name]) + 5;
+}
+
+export const options = {
+    scenarios,
+    setupTimeout: '10m',
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        'http_req_duration{expected_response:true}': ['p(99)<1500'],
+        ledger_replay_mismatch: ['count==0'],
+        'checks{phase:integrity}': ['rate==1'],
+    },
+};
+
+// 429 is admission control or a full mailbox shedding load, an expected answer under saturation.
+http.setResponseCallback(http.expectedStatuses(200, 201, 429));
+
+const random = rng(__VU);
+
+// Funds every load wallet once. References depend only on SEED and the account, so repeated
+// runs with the same SEED replay the deposits instead of adding money again.
+export function setup() {
+    if (SKIP_SEED) {
+        return;
+    }
+    const requests = [];
+    for (let rank = 1; rank <= ACCOUNTS; rank++) {
+        requests.push(depositRequest(accountRef(rank), SEED_BALANCE, `seed-${SEED}-${rank}`));
+    }
+    for (let i = 0; i < requests.length; i += 50) {
+        const responses = http.batch(requests.slice(i, i + 50).map(asBatch));
+        responses.forEach((r) => check(r, { 'seed deposit accepted': (res) => res.status === 201 }));
+    }
+}
+
+export function mixedOperation() {
+    const request = nextRequest();
+    const response = timed(request);
+    if (response.status === 201 && random() < RETRY_RATIO) {
+        verifyReplay(request, response);
+    }
+}
+
+export function batchOperation() {
+    const requests = [];
+    for (let i = 0; i < BATCH_SIZE; i++) {
+        const [source, destination] = transferPair(random);
+        requests.push(transferRequest(source, destination, amount(), reference('batch')));
+    }
+    http.batch(requests.map(asBatch)).forEach(record);
+}
+
+export function holdOperation() {
+    const [source, destination] = transferPair(random);
+    const ref = reference('hold');
+    const placed = timed(holdRequest(source, destination, amount(), ref));
+    if (placed.status !== 201) {
+        return;
+    }
+    const second = timed(random() < 0.8 ? captureRequest(ref) : voidRequest(ref));
+    check(second, { 'hold settled': (r) => r.status === 200 || r.status === 429 });
+}
+
+export function contentionOperation() {
+    const source = 1 + Math.floor(random() * HOT_ACCOUNTS);
+    const destination = (source % HOT_ACCOUNTS) + 1;
+    timed(transferRequest(accountRef(source), accountRef(destination), amount(), reference('hot')));
+}
+
+export function retryOperation() {
+    const [source, destination] = transferPair(random);
+    const request = transferRequest(source, destination, amount(), reference('retry'));
+    const first = timed(request);
+    if (first.status !== 201) {
+        return;
+    }
+    for (let i = 0; i < 4; i++) {
+        verifyReplay(request, first);
+    }
+}
+
+// Post-run integrity check: debits must equal credits across live and archived entries.
+export function teardown() {
+    const response = http.get(`${BASE_URL}/api/v1/reconciliation/summary`);
+    check(response, {
+        'ledger is balanced': (r) => r.status === 200 && r.json('balanced') === true,
+    }, { phase: 'integrity' });
+    if (response.status === 200) {
+        console.log(`Reconciliation: ${response.body}`);
+    }
+}
+
+export function handleSummary(data) {
+    return exportSummary(`suite-${selected.join('+')}`, data);
+}
+
+function nextRequest() {
+    if (random() < DEPOSIT_RATIO) {
+        const rank = zipfRank(random);
+        hotAccountShare.add(rank === 1);
+        return depositRequest(accountRef(rank), amount(), reference('dep'));
+    }
+    const [source, destination] = transferPair(random);
+    hotAccountShare.add(source === accountRef(1));
+    return transferRequest(source, destination, amount(), reference('txn'));
+}
+
+function timed(request) {
+    const response = send(request);
+    record(response);
+    return response;
+}
+
+function record(response) {
+    operationDuration.add(response.timings.duration, { name: operationName(response.request.url) });
+    if (response.status === 201 || response.status === 200) {
+        completed.add(1);
+    } else if (response.status === 429) {
+        shed.add(1);
+    } else {
+        rejected.add(1);
+    }
+}
+
+// Resends a request and checks the API returns the original transaction instead of a new one.
+function verifyReplay(request, original) {
+    const replay = send({ ...request, params: { ...request.params, tags: { name: 'replay' } } });
+    const ok = check(replay, {
+        'replay is 201': (r) => r.status === 201,
+        'replay returns original transaction': (r) => r.status === 201 && r.json('id') === original.json('id'),
+    });
+    if (!ok && replay.status !== 429) {
+        replayMismatch.add(1);
+    }
+}
+
+function amount() {
+    // 1.00 - 500.00, two decimals
+    return Math.round((1 + random() * 499) * 100) / 100;
+}
+
+function operationName(url) {
+    return url.substring(url.lastIndexOf('/') + 1).replace(/^(?!deposit|transfer|holds|capture|void).*/, 'other');
+}
+
+function asBatch(request) {
+    return [request.method, request.url, request.body, request.params];
+}
+
+function profileSeconds(profile) {
+    if (profile.stages) {
+        return profile.stages.reduce((total, stage) => total + parseInt(stage.duration, 10), 0);
+    }
+    if (profile.duration) {
+        return parseInt(profile.duration, 10) * (profile.duration.endsWith('m') ? 60 : 1);
+    }
+    // per-vu-iterations: bounded by its maxDuration (10m default), assume it finishes within a minute
+    return 60;
+}
@@ -0,0 +1,78 @@
+package com.ledger.pay.admission;
+
+import com.ledger.pay.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wraps ledger writes in the {@link ConcurrencyLimiter} and exports its state.
+ */
+@Component
+@Slf4j
+public class AdmissionController {
+
+    private final boolean enabled;
+    private final ConcurrencyLimiter limiter;
+    private final Map<ConcurrencyLimiter.Lane, Counter> rejectedCounters = new EnumMap<>(ConcurrencyLimiter.Lane.class);
+
+    public AdmissionController(AdmissionProperties properties, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.limiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Settings(
+                properties.initialLimit(),
+                properties.minLimit(),
+                properties.maxLimit(),
+                properties.maxQueuePerLane(),
+                properties.maxWait().toNanos(),
+                properties.hotAccountThreshold(),
+                properties.hotShare(),
+                properties.prioritizeDeposits()));
+
+        Gauge.builder("ledger.admission.limit", limiter, ConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("ledger.admission.inflight", limiter, ConcurrencyLimiter::getInflight)
+                .description("Ledger operations currently admitted")
+                .register(registry);
+        for (ConcurrencyLimiter.Lane lane : ConcurrencyLimiter.Lane.values()) {
+            String tag = lane.name().toLowerCase();
+            Gauge.builder("ledger.admission.queued", limiter, l -> l.getQueued(lane))
+                    .tag("lane", tag)
+                    .description("Ledger operations waiting for admission")
+                    .register(registry);
+            rejectedCounters.put(lane, Counter.builder("ledger.admission.rejected")
+                    .tag("lane", tag)
+                    .description("Ledger operations shed by admission control")
+                    .register(registry));
+        }
+    }
+
+    public <T> T execute(ConcurrencyLimiter.Kind kind, String accountRef, Supplier<T> operation) {
+        if (!enabled) {
+            return operation.get();
+        }
+        ConcurrencyLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(kind, accountRef);
+        } catch (AdmissionRejectedException e) {
+            rejectedCounters.get(laneOf(e)).increment();
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("Interrupted while waiting for admission", null, 1);
+        }
+        try (permit) {
+            return operation.get();
+        }
+    }
+
+    private ConcurrencyLimiter.Lane laneOf(AdmissionRejectedException e) {
+        return e.getLane() != null ? e.getLane() : ConcurrencyLimiter.Lane.TRANSFER;
+    }
+}
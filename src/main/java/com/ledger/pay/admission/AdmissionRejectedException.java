@@ -0,0 +1,16 @@
+package com.ledger.pay.admission;
+
+import lombok.Getter;
+
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final ConcurrencyLimiter.Lane lane;
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, ConcurrencyLimiter.Lane lane, long retryAfterSeconds) {
+        super(message);
+        this.lane = lane;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,263 @@
+package com.ledger.pay.admission;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive admission gate in front of the ledger write path.
+ * <p>
+ * Requests are admitted while in-flight work is below the {@link GradientLimit}. Beyond that
+ * they wait in a bounded lane for at most {@code maxWaitNanos}; a full lane or an expired wait
+ * is rejected immediately so the caller can back off instead of piling onto Postgres.
+ * <p>
+ * Requests for accounts that already have {@code hotAccountThreshold} operations queued or in
+ * flight go to the HOT lane, which may only use {@code hotShare} of the limit. A single hot
+ * wallet then cannot take every slot from cold accounts that would not contend on row locks.
+ */
+public class ConcurrencyLimiter {
+
+    public enum Kind {
+        DEPOSIT,
+        TRANSFER
+    }
+
+    public enum Lane {
+        DEPOSIT,
+        TRANSFER,
+        HOT
+    }
+
+    public record Settings(int initialLimit,
+                           int minLimit,
+                           int maxLimit,
+                           int maxQueuePerLane,
+                           long maxWaitNanos,
+                           int hotAccountThreshold,
+                           double hotShare,
+                           boolean prioritizeDeposits) {
+    }
+
+    private final Settings settings;
+    private final GradientLimit limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Lane, ArrayDeque<Waiter>> queues = new EnumMap<>(Lane.class);
+    private final Map<String, Integer> accountLoad = new HashMap<>();
+
+    private long sequence;
+    private int inflight;
+    private int hotInflight;
+
+    public ConcurrencyLimiter(Settings settings) {
+        this.settings = settings;
+        this.limit = new GradientLimit(settings.initialLimit(), settings.minLimit(), settings.maxLimit());
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+        }
+    }
+
+    public Permit acquire(Kind kind, String accountRef) throws InterruptedException {
+        Waiter waiter;
+        lock.lock();
+        try {
+            int load = accountLoad.merge(accountRef, 1, Integer::sum);
+            Lane lane = load > settings.hotAccountThreshold()
+                    ? Lane.HOT
+                    : (kind == Kind.DEPOSIT ? Lane.DEPOSIT : Lane.TRANSFER);
+
+            if (queuedLocked() == 0 && hasCapacityLocked(lane)) {
+                return admitLocked(lane, accountRef);
+            }
+            ArrayDeque<Waiter> queue = queues.get(lane);
+            if (queue.size() >= settings.maxQueuePerLane()) {
+                releaseLoadLocked(accountRef);
+                throw rejectionLocked(lane, "queue full");
+            }
+            waiter = new Waiter(lane, accountRef, sequence++, lock.newCondition());
+            queue.addLast(waiter);
+            dispatchLocked();
+
+            long remaining = settings.maxWaitNanos();
+            while (waiter.permit == null) {
+                if (remaining <= 0) {
+                    queue.remove(waiter);
+                    releaseLoadLocked(accountRef);
+                    throw rejectionLocked(lane, "wait timed out");
+                }
+                try {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (waiter.permit != null) {
+                        waiter.permit.close();
+                    } else {
+                        queue.remove(waiter);
+                        releaseLoadLocked(accountRef);
+                    }
+                    throw e;
+                }
+            }
+            return waiter.permit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit.getLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInflight() {
+        lock.lock();
+        try {
+            return inflight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Permit admitLocked(Lane lane, String accountRef) {
+        inflight++;
+        if (lane == Lane.HOT) {
+            hotInflight++;
+        }
+        return new Permit(lane, accountRef, System.nanoTime());
+    }
+
+    private boolean hasCapacityLocked(Lane lane) {
+        int current = limit.getLimit();
+        if (inflight >= current) {
+            return false;
+        }
+        return lane != Lane.HOT || hotInflight < hotReserveLocked(current);
+    }
+
+    private int hotReserveLocked(int current) {
+        return Math.max(1, (int) (current * settings.hotShare()));
+    }
+
+    private void releaseLocked(Permit permit) {
+        inflight--;
+        if (permit.lane == Lane.HOT) {
+            hotInflight--;
+        }
+        releaseLoadLocked(permit.accountRef);
+        limit.onSample(System.nanoTime() - permit.admittedAt, inflight + 1);
+        dispatchLocked();
+    }
+
+    private void dispatchLocked() {
+        while (inflight < limit.getLimit()) {
+            Waiter next = nextWaiterLocked();
+            if (next == null) {
+                return;
+            }
+            queues.get(next.lane).pollFirst();
+            next.permit = admitLocked(next.lane, next.accountRef);
+            next.condition.signal();
+        }
+    }
+
+    private Waiter nextWaiterLocked() {
+        Waiter deposit = queues.get(Lane.DEPOSIT).peekFirst();
+        Waiter transfer = queues.get(Lane.TRANSFER).peekFirst();
+        Waiter normal;
+        if (deposit == null) {
+            normal = transfer;
+        } else if (transfer == null || settings.prioritizeDeposits()) {
+            normal = deposit;
+        } else {
+            normal = deposit.sequence < transfer.sequence ? deposit : transfer;
+        }
+
+        Waiter hot = queues.get(Lane.HOT).peekFirst();
+        boolean hotAllowed = hot != null && hotInflight < hotReserveLocked(limit.getLimit());
+        if (hotAllowed && (normal == null || hot.sequence < normal.sequence)) {
+            return hot;
+        }
+        return normal;
+    }
+
+    private void releaseLoadLocked(String accountRef) {
+        accountLoad.computeIfPresent(accountRef, (ref, load) -> load <= 1 ? null : load - 1);
+    }
+
+    private AdmissionRejectedException rejectionLocked(Lane lane, String reason) {
+        // Rough time for the current backlog to drain at the current limit.
+        long rttNanos = Math.max(limit.getShortRttNanos(), TimeUnit.MILLISECONDS.toNanos(1));
+        long drainNanos = rttNanos * (queuedLocked() + 1) / Math.max(1, limit.getLimit());
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(drainNanos) + 1);
+        return new AdmissionRejectedException(
+                "Server overloaded (" + lane.name().toLowerCase() + " " + reason + "), retry later", lane, retryAfter);
+    }
+
+    private int queuedLocked() {
+        int total = 0;
+        for (ArrayDeque<Waiter> queue : queues.values()) {
+            total += queue.size();
+        }
+        return total;
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final String accountRef;
+        private final long admittedAt;
+        private boolean released;
+
+        private Permit(Lane lane, String accountRef, long admittedAt) {
+            this.lane = lane;
+            this.accountRef = accountRef;
+            this.admittedAt = admittedAt;
+        }
+
+        public Lane lane() {
+            return lane;
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                if (!released) {
+                    released = true;
+                    releaseLocked(this);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Lane lane;
+        private final String accountRef;
+        private final long sequence;
+        private final Condition condition;
+        private Permit permit;
+
+        private Waiter(Lane lane, String accountRef, long sequence, Condition condition) {
+            this.lane = lane;
+            this.accountRef = accountRef;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ledger.pay.admission;
+
+/**
+ * Gradient style concurrency limit. The limit grows while short-term latency stays close
+ * to the long-term baseline and shrinks as soon as requests start queueing behind row locks
+ * or the connection pool, which shows up as a rising short-term RTT.
+ * <p>
+ * Not thread-safe, callers serialize access.
+ */
+public class GradientLimit {
+
+    private static final double SHORT_RTT_ALPHA = 0.5;
+    private static final double LONG_RTT_ALPHA = 0.01;
+    private static final double SMOOTHING = 0.2;
+    private static final double TOLERANCE = 1.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limit bounds: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public void onSample(long rttNanos, int inflight) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt = shortRtt * (1 - SHORT_RTT_ALPHA) + rttNanos * SHORT_RTT_ALPHA;
+        longRtt = longRtt * (1 - LONG_RTT_ALPHA) + rttNanos * LONG_RTT_ALPHA;
+
+        // After a long slow period let the baseline recover quickly instead of
+        // dragging the limit down for minutes.
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // Application limited: no point growing the limit if we are not using it.
+        if (inflight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double queueAllowance = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueAllowance;
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public long getShortRttNanos() {
+        return (long) shortRtt;
+    }
+
+    public long getLongRttNanos() {
+        return (long) longRtt;
+    }
+}
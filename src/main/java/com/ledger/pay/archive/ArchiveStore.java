@@ -0,0 +1,277 @@
+package com.ledger.pay.archive;
+
+import com.ledger.pay.config.PartitioningProperties;
+import dto.StatementLine;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Archived partitions on local disk, laid out as {@code <archive-dir>/<table>/<partition>/}
+ * with one {@link ColumnarArchive} file per column and a {@code manifest.properties}.
+ * <p>
+ * An archive is only read once its manifest is {@link State#SEALED}, which happens after the
+ * partition has been dropped from Postgres, so a row is never counted both live and archived.
+ */
+@Component
+public class ArchiveStore {
+
+    public static final String LEDGER_ENTRIES = "ledger_entries";
+    public static final String TRANSACTIONS = "transactions";
+
+    public static final List<ColumnarArchive.Column> LEDGER_COLUMNS = List.of(
+            new ColumnarArchive.Column("id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("transaction_id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("account_id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("entry_type", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("amount", ColumnarArchive.ColumnType.DECIMAL),
+            new ColumnarArchive.Column("created_at", ColumnarArchive.ColumnType.TIMESTAMP),
+            new ColumnarArchive.Column("reference", ColumnarArchive.ColumnType.STRING));
+
+    public static final List<ColumnarArchive.Column> TRANSACTION_COLUMNS = List.of(
+            new ColumnarArchive.Column("id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("reference", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("type", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("status", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("amount", ColumnarArchive.ColumnType.DECIMAL),
+            new ColumnarArchive.Column("description", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("idempotency_hash", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("metadata", ColumnarArchive.ColumnType.STRING),
+            new ColumnarArchive.Column("created_at", ColumnarArchive.ColumnType.TIMESTAMP));
+
+    /**
+     * Last chained entry of every account in a ledger archive, one row per account, written to
+     * {@link #CHAIN_HEADS} inside the archive.
+     */
+    public static final List<ColumnarArchive.Column> CHAIN_HEAD_COLUMNS = List.of(
+            new ColumnarArchive.Column("account_id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("chain_sequence", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("entry_hash", ColumnarArchive.ColumnType.STRING));
+
+    public static final String CHAIN_HEADS = "chain_heads";
+
+    private static final List<ColumnarArchive.Column> STATEMENT_COLUMNS = List.of(
+            LEDGER_COLUMNS.get(2), LEDGER_COLUMNS.get(5), LEDGER_COLUMNS.get(3),
+            LEDGER_COLUMNS.get(4), LEDGER_COLUMNS.get(6));
+
+    private static final String MANIFEST = "manifest.properties";
+
+    public enum State {
+        WRITTEN,
+        SEALED
+    }
+
+    /**
+     * @param from           lower bound of the partition, {@code null} for a {@code MINVALUE} partition
+     * @param firstAccountId lowest account in a ledger archive, {@code null} when not recorded
+     * @param lastAccountId  highest account in a ledger archive, {@code null} when not recorded
+     */
+    public record Manifest(String table,
+                           String partition,
+                           LocalDateTime from,
+                           LocalDateTime to,
+                           long rows,
+                           State state,
+                           BigDecimal debitTotal,
+                           BigDecimal creditTotal,
+                           Long firstAccountId,
+                           Long lastAccountId,
+                           Path dir) {
+
+        public boolean overlaps(LocalDateTime rangeFrom, LocalDateTime rangeTo) {
+            return (from == null || from.isBefore(rangeTo)) && to.isAfter(rangeFrom);
+        }
+
+        /**
+         * False only when the recorded account range rules the account out.
+         */
+        public boolean mayHold(long accountId) {
+            return firstAccountId == null || (accountId >= firstAccountId && accountId <= lastAccountId);
+        }
+
+        public Manifest withState(State newState) {
+            return new Manifest(table, partition, from, to, rows, newState, debitTotal, creditTotal,
+                    firstAccountId, lastAccountId, dir);
+        }
+    }
+
+    public record Totals(BigDecimal debits, BigDecimal credits) {
+    }
+
+    public record ChainHead(long sequence, String hash) {
+    }
+
+    private final Path root;
+
+    public ArchiveStore(PartitioningProperties properties) {
+        this.root = Paths.get(properties.archiveDir());
+    }
+
+    public Path partitionDir(String table, String partition) {
+        return root.resolve(table).resolve(partition);
+    }
+
+    public List<Manifest> manifests(String table) {
+        Path tableDir = root.resolve(table);
+        if (!Files.isDirectory(tableDir)) {
+            return List.of();
+        }
+        List<Manifest> manifests = new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(tableDir)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                Path file = dir.resolve(MANIFEST);
+                if (Files.exists(file)) {
+                    manifests.add(readManifest(table, dir, file));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        manifests.sort(Comparator.comparing(Manifest::to));
+        return manifests;
+    }
+
+    public List<Manifest> sealed(String table) {
+        return manifests(table).stream().filter(m -> m.state() == State.SEALED).toList();
+    }
+
+    public void writeManifest(Manifest manifest) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("table", manifest.table());
+        props.setProperty("partition", manifest.partition());
+        if (manifest.from() != null) {
+            props.setProperty("from", manifest.from().toString());
+        }
+        props.setProperty("to", manifest.to().toString());
+        props.setProperty("rows", Long.toString(manifest.rows()));
+        props.setProperty("state", manifest.state().name());
+        if (manifest.debitTotal() != null) {
+            props.setProperty("debitTotal", manifest.debitTotal().toPlainString());
+            props.setProperty("creditTotal", manifest.creditTotal().toPlainString());
+        }
+        if (manifest.firstAccountId() != null) {
+            props.setProperty("firstAccountId", manifest.firstAccountId().toString());
+            props.setProperty("lastAccountId", manifest.lastAccountId().toString());
+        }
+        Path tmp = manifest.dir().resolve(MANIFEST + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            props.store(out, null);
+        }
+        Files.move(tmp, manifest.dir().resolve(MANIFEST),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Ledger lines for one account from sealed archives overlapping {@code [from, to)}. Archives
+     * are picked by the date and account ranges of their manifests, so only those that can hold
+     * a matching line are decoded.
+     */
+    public List<StatementLine> ledgerEntries(long accountId, LocalDateTime from, LocalDateTime to) {
+        List<StatementLine> lines = new ArrayList<>();
+        for (Manifest manifest : sealed(LEDGER_ENTRIES)) {
+            if (!manifest.overlaps(from, to) || !manifest.mayHold(accountId)) {
+                continue;
+            }
+            try (ColumnarArchive.Reader reader = new ColumnarArchive.Reader(manifest.dir(), STATEMENT_COLUMNS)) {
+                Object[] row;
+                while ((row = reader.next()) != null) {
+                    long rowAccount = (Long) row[0];
+                    if (rowAccount > accountId) {
+                        // Rows are sorted by account, nothing more for this one.
+                        break;
+                    }
+                    LocalDateTime createdAt = (LocalDateTime) row[1];
+                    if (rowAccount == accountId && !createdAt.isBefore(from) && createdAt.isBefore(to)) {
+                        lines.add(new StatementLine(createdAt, (String) row[4], (String) row[2], (BigDecimal) row[3]));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archive " + manifest.dir(), e);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Debit and credit totals of all sealed ledger archives, taken from the manifests
+     * without decoding any rows.
+     */
+    public Totals ledgerTotals() {
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+        for (Manifest manifest : sealed(LEDGER_ENTRIES)) {
+            debits = debits.add(manifest.debitTotal());
+            credits = credits.add(manifest.creditTotal());
+        }
+        return new Totals(debits, credits);
+    }
+
+    /**
+     * Newest archived chain entry of each of {@code accountIds}. Archives written before chain
+     * heads were kept cover no account.
+     */
+    public Map<Long, ChainHead> chainHeads(Set<Long> accountIds) {
+        Map<Long, ChainHead> heads = new HashMap<>();
+        for (Manifest manifest : sealed(LEDGER_ENTRIES)) {
+            Path dir = manifest.dir().resolve(CHAIN_HEADS);
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (ColumnarArchive.Reader reader = new ColumnarArchive.Reader(dir, CHAIN_HEAD_COLUMNS)) {
+                Object[] row;
+                while ((row = reader.next()) != null) {
+                    long accountId = (Long) row[0];
+                    if (accountIds.contains(accountId)) {
+                        heads.merge(accountId, new ChainHead((Long) row[1], (String) row[2]),
+                                (current, candidate) -> candidate.sequence() > current.sequence() ? candidate : current);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read archive " + dir, e);
+            }
+        }
+        return heads;
+    }
+
+    private Manifest readManifest(String table, Path dir, Path file) {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String from = props.getProperty("from");
+        String debit = props.getProperty("debitTotal");
+        String credit = props.getProperty("creditTotal");
+        String firstAccount = props.getProperty("firstAccountId");
+        String lastAccount = props.getProperty("lastAccountId");
+        return new Manifest(table,
+                props.getProperty("partition"),
+                from == null ? null : LocalDateTime.parse(from),
+                LocalDateTime.parse(props.getProperty("to")),
+                Long.parseLong(props.getProperty("rows")),
+                State.valueOf(props.getProperty("state")),
+                debit == null ? BigDecimal.ZERO : new BigDecimal(debit),
+                credit == null ? BigDecimal.ZERO : new BigDecimal(credit),
+                firstAccount == null ? null : Long.valueOf(firstAccount),
+                lastAccount == null ? null : Long.valueOf(lastAccount),
+                dir);
+    }
+}
@@ -0,0 +1,225 @@
+package com.ledger.pay.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Minimal compressed columnar file format for archived partitions.
+ * <p>
+ * Each column lives in its own gzip file ({@code <name>.col}) so readers only decode the columns
+ * they need and similar values compress together. Longs and timestamps are delta encoded as
+ * zig-zag varints, which turns sorted ids and timestamps into one or two bytes per row. Decimals are
+ * stored as their unscaled value at {@link #DECIMAL_SCALE}, matching the {@code DECIMAL(19,4)}
+ * columns.
+ */
+public final class ColumnarArchive {
+
+    public static final int DECIMAL_SCALE = 4;
+
+    public enum ColumnType {
+        LONG,
+        DECIMAL,
+        TIMESTAMP,
+        STRING
+    }
+
+    public record Column(String name, ColumnType type) {
+    }
+
+    private ColumnarArchive() {
+    }
+
+    public static Path columnFile(Path dir, String column) {
+        return dir.resolve(column + ".col");
+    }
+
+    public static final class Writer implements Closeable {
+        private final List<Column> columns;
+        private final DataOutputStream[] outputs;
+        private final long[] previous;
+        private long rows;
+
+        public Writer(Path dir, List<Column> columns) throws IOException {
+            Files.createDirectories(dir);
+            this.columns = List.copyOf(columns);
+            this.outputs = new DataOutputStream[columns.size()];
+            this.previous = new long[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                OutputStream file = Files.newOutputStream(columnFile(dir, columns.get(i).name()));
+                outputs[i] = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(file, 64 * 1024)));
+            }
+        }
+
+        public void write(Object... values) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                DataOutputStream out = outputs[i];
+                Object value = values[i];
+                switch (columns.get(i).type()) {
+                    case LONG -> {
+                        long v = ((Number) value).longValue();
+                        writeVarLong(out, v - previous[i]);
+                        previous[i] = v;
+                    }
+                    case TIMESTAMP -> {
+                        long v = toEpochMicros((LocalDateTime) value);
+                        writeVarLong(out, v - previous[i]);
+                        previous[i] = v;
+                    }
+                    case DECIMAL -> writeVarLong(out, ((BigDecimal) value)
+                            .setScale(DECIMAL_SCALE).unscaledValue().longValueExact());
+                    case STRING -> {
+                        if (value == null) {
+                            writeVarLong(out, -1);
+                        } else {
+                            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                            writeVarLong(out, bytes.length);
+                            out.write(bytes);
+                        }
+                    }
+                }
+            }
+            rows++;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (DataOutputStream out : outputs) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Reads rows back in write order. Only the requested columns are opened and decoded.
+     */
+    public static final class Reader implements Closeable {
+        private final List<Column> columns;
+        private final DataInputStream[] inputs;
+        private final long[] previous;
+
+        public Reader(Path dir, List<Column> columns) throws IOException {
+            this.columns = List.copyOf(columns);
+            this.inputs = new DataInputStream[columns.size()];
+            this.previous = new long[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                InputStream file = Files.newInputStream(columnFile(dir, columns.get(i).name()));
+                inputs[i] = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file, 64 * 1024)));
+            }
+        }
+
+        /**
+         * @return the next row in column order, or {@code null} at the end of the file
+         */
+        public Object[] next() throws IOException {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < columns.size(); i++) {
+                DataInputStream in = inputs[i];
+                long raw;
+                try {
+                    raw = readVarLong(in);
+                } catch (EOFException e) {
+                    if (i == 0) {
+                        return null;
+                    }
+                    throw e;
+                }
+                row[i] = switch (columns.get(i).type()) {
+                    case LONG -> previous[i] += raw;
+                    case TIMESTAMP -> fromEpochMicros(previous[i] += raw);
+                    case DECIMAL -> BigDecimal.valueOf(raw, DECIMAL_SCALE);
+                    case STRING -> {
+                        if (raw < 0) {
+                            yield null;
+                        }
+                        byte[] bytes = new byte[(int) raw];
+                        in.readFully(bytes);
+                        yield new String(bytes, StandardCharsets.UTF_8);
+                    }
+                };
+            }
+            return row;
+        }
+
+        public List<Object[]> readAll() throws IOException {
+            List<Object[]> rows = new ArrayList<>();
+            Object[] row;
+            while ((row = next()) != null) {
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new UncheckedIOException(new IOException("Malformed varint"));
+            }
+        }
+        return (result >>> 1) ^ -(result & 1);
+    }
+
+    private static long toEpochMicros(LocalDateTime value) {
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), value);
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,383 @@
+package com.ledger.pay.archive;
+
+import com.ledger.pay.config.PartitioningProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Owns monthly range partitioning of {@code ledger_entries} and {@code transactions} by
+ * {@code created_at}, and moves closed partitions to the {@link ArchiveStore}.
+ * <p>
+ * Existing unpartitioned tables are converted in place: the old table is renamed to
+ * {@code <table>_legacy} and attached as the partition covering everything before the current
+ * month, so no rows are copied. The rename takes an exclusive lock on the table, so conversion
+ * only runs when asked for ({@link #convertIfNeeded}), never on startup. Postgres cannot enforce {@code transactions.reference}
+ * uniqueness across partitions, so references are claimed in the narrow, unpartitioned
+ * {@code transaction_references} table by an insert trigger. A duplicate still fails with a
+ * unique violation, which the idempotency path in {@code LedgerService} already handles.
+ */
+@Component
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true")
+@Slf4j
+public class PartitionManager {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final Pattern LOWER_BOUND = Pattern.compile("FROM \\('([^']+)'\\)");
+    private static final DateTimeFormatter PG_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss[.SSSSSS]");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final long CONVERSION_LOCK = 0x6c65646765720001L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ArchiveStore archiveStore;
+    private final PartitioningProperties properties;
+
+    public PartitionManager(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ArchiveStore archiveStore,
+                            PartitioningProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveStore = archiveStore;
+        this.properties = properties;
+    }
+
+    public record Partition(String name, LocalDateTime from, LocalDateTime to) {
+    }
+
+    /**
+     * Converts the tables that are not partitioned yet, each in one transaction together with its
+     * first partitions, and returns their names. Callers on several instances are serialized by an
+     * advisory lock; whoever comes second finds the tables converted.
+     */
+    public List<String> convertIfNeeded() {
+        List<String> converted = new ArrayList<>();
+        for (String table : List.of(ArchiveStore.LEDGER_ENTRIES, ArchiveStore.TRANSACTIONS)) {
+            Boolean done = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + CONVERSION_LOCK + ")");
+                if (isPartitioned(table)) {
+                    return false;
+                }
+                log.info("Converting {} to monthly partitions", table);
+                convert(table);
+                ensurePartitions(table);
+                return true;
+            });
+            if (Boolean.TRUE.equals(done)) {
+                converted.add(table);
+            }
+        }
+        return converted;
+    }
+
+    public boolean isConverted() {
+        return isPartitioned(ArchiveStore.LEDGER_ENTRIES) && isPartitioned(ArchiveStore.TRANSACTIONS);
+    }
+
+    /**
+     * Creates the partitions of the coming months for the tables already converted.
+     */
+    public void ensurePartitions() {
+        for (String table : List.of(ArchiveStore.LEDGER_ENTRIES, ArchiveStore.TRANSACTIONS)) {
+            if (isPartitioned(table)) {
+                ensurePartitions(table);
+            }
+        }
+    }
+
+    private void ensurePartitions(String table) {
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= properties.monthsAhead(); i++) {
+            LocalDate start = month.plusMonths(i);
+            String partition = table + "_p" + start.format(SUFFIX);
+            if (!tableExists(partition)) {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table
+                        + " FOR VALUES FROM ('" + start.atStartOfDay().format(BOUND) + "') TO ('"
+                        + start.plusMonths(1).atStartOfDay().format(BOUND) + "')");
+                log.info("Created partition {}", partition);
+            }
+            if (ArchiveStore.LEDGER_ENTRIES.equals(table)) {
+                // A unique index on the parent would have to include created_at, so chain
+                // positions are kept unique per partition.
+                jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_" + partition + "_chain_position ON "
+                        + partition + " (account_id, chain_sequence)");
+            }
+        }
+    }
+
+    /**
+     * Seals archives whose partition is already gone, i.e. a previous run was interrupted
+     * between dropping the partition and sealing the manifest.
+     */
+    public void recoverArchives() throws IOException {
+        for (String table : List.of(ArchiveStore.LEDGER_ENTRIES, ArchiveStore.TRANSACTIONS)) {
+            for (ArchiveStore.Manifest manifest : archiveStore.manifests(table)) {
+                if (manifest.state() == ArchiveStore.State.WRITTEN && !tableExists(manifest.partition())) {
+                    archiveStore.writeManifest(manifest.withState(ArchiveStore.State.SEALED));
+                    log.info("Sealed recovered archive {}", manifest.partition());
+                }
+            }
+        }
+    }
+
+    public void archiveClosedPartitions() throws IOException {
+        if (!properties.archiveEnabled()) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1)
+                .minusMonths(properties.retentionMonths()).atStartOfDay();
+        // Ledger entries first so their archive can still join the live transactions.
+        for (String table : List.of(ArchiveStore.LEDGER_ENTRIES, ArchiveStore.TRANSACTIONS)) {
+            for (Partition partition : partitions(table)) {
+                if (!partition.to().isAfter(cutoff)) {
+                    archive(table, partition);
+                }
+            }
+        }
+    }
+
+    public List<Partition> partitions(String table) {
+        return jdbcTemplate.query("""
+                        SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+                        FROM pg_inherits i
+                        JOIN pg_class c ON c.oid = i.inhrelid
+                        JOIN pg_class p ON p.oid = i.inhparent
+                        WHERE p.relname = ?
+                        """,
+                (rs, rowNum) -> toPartition(rs.getString(1), rs.getString(2)),
+                table).stream()
+                .filter(p -> p.to() != null)
+                .sorted(Comparator.comparing(Partition::to))
+                .toList();
+    }
+
+    private void archive(String table, Partition partition) throws IOException {
+        Path dir = archiveStore.partitionDir(table, partition.name());
+        Path tmp = dir.resolveSibling(partition.name() + ".tmp");
+        deleteRecursively(tmp);
+
+        long expected = jdbcTemplate.queryForObject("SELECT count(*) FROM " + partition.name(), Long.class);
+        BigDecimal[] totals = {BigDecimal.ZERO, BigDecimal.ZERO};
+        // Rows come sorted by account, so the first and last row bound the archive's accounts.
+        Long[] accounts = new Long[2];
+        long written;
+        boolean ledger = ArchiveStore.LEDGER_ENTRIES.equals(table);
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(tmp,
+                ledger ? ArchiveStore.LEDGER_COLUMNS : ArchiveStore.TRANSACTION_COLUMNS);
+             ColumnarArchive.Writer headWriter = ledger
+                     ? new ColumnarArchive.Writer(tmp.resolve(ArchiveStore.CHAIN_HEADS), ArchiveStore.CHAIN_HEAD_COLUMNS)
+                     : null) {
+            // Cursor-based streaming needs a transaction on Postgres.
+            transactionTemplate.executeWithoutResult(status -> {
+                JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+                streaming.setFetchSize(10_000);
+                if (ledger) {
+                    ChainHeads heads = new ChainHeads(headWriter);
+                    streaming.query("SELECT e.id, e.transaction_id, e.account_id, e.entry_type, e.amount, e.created_at, t.reference,"
+                            + " e.chain_sequence, e.entry_hash"
+                            + " FROM " + partition.name() + " e LEFT JOIN transactions t ON t.id = e.transaction_id"
+                            + " ORDER BY e.account_id, e.created_at, e.id", (ResultSet rs) -> {
+                        BigDecimal amount = rs.getBigDecimal(5);
+                        String entryType = rs.getString(4);
+                        if ("DEBIT".equals(entryType)) {
+                            totals[0] = totals[0].add(amount);
+                        } else {
+                            totals[1] = totals[1].add(amount);
+                        }
+                        write(writer, rs.getLong(1), rs.getLong(2), rs.getLong(3), entryType, amount,
+                                rs.getObject(6, LocalDateTime.class), rs.getString(7));
+                        if (accounts[0] == null) {
+                            accounts[0] = rs.getLong(3);
+                        }
+                        accounts[1] = rs.getLong(3);
+                        long sequence = rs.getLong(8);
+                        if (!rs.wasNull()) {
+                            heads.add(rs.getLong(3), sequence, rs.getString(9));
+                        }
+                    });
+                    heads.finish();
+                } else {
+                    streaming.query("SELECT id, reference, type, status, amount, description, idempotency_hash,"
+                            + " metadata::text, created_at FROM " + partition.name() + " ORDER BY id", (ResultSet rs) ->
+                            write(writer, rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                    rs.getBigDecimal(5), rs.getString(6), rs.getString(7), rs.getString(8),
+                                    rs.getObject(9, LocalDateTime.class)));
+                }
+            });
+            written = writer.rows();
+        }
+        if (written != expected) {
+            deleteRecursively(tmp);
+            throw new IllegalStateException("Archive of " + partition.name() + " wrote " + written
+                    + " rows, expected " + expected);
+        }
+
+        deleteRecursively(dir);
+        Files.move(tmp, dir, StandardCopyOption.ATOMIC_MOVE);
+        ArchiveStore.Manifest manifest = new ArchiveStore.Manifest(table, partition.name(), partition.from(),
+                partition.to(), written, ArchiveStore.State.WRITTEN,
+                ledger ? totals[0] : null, ledger ? totals[1] : null, accounts[0], accounts[1], dir);
+        archiveStore.writeManifest(manifest);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition.name());
+            jdbcTemplate.execute("DROP TABLE " + partition.name());
+            if (!ledger && properties.referenceRetentionMonths() > 0) {
+                LocalDateTime referenceCutoff = LocalDate.now().withDayOfMonth(1)
+                        .minusMonths(properties.referenceRetentionMonths()).atStartOfDay();
+                jdbcTemplate.update("DELETE FROM transaction_references WHERE created_at < ?", referenceCutoff);
+            }
+        });
+        archiveStore.writeManifest(manifest.withState(ArchiveStore.State.SEALED));
+        log.info("Archived {} ({} rows) to {}", partition.name(), written, dir);
+    }
+
+    private void convert(String table) {
+        String legacy = table + "_legacy";
+        String sequence = table + "_id_partitioned_seq";
+        String boundary = LocalDate.now().withDayOfMonth(1).atStartOfDay().format(BOUND);
+
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+        if (ArchiveStore.LEDGER_ENTRIES.equals(table)) {
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_ledger_txn RENAME TO idx_ledger_txn_legacy");
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_ledger_account RENAME TO idx_ledger_account_legacy");
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_ledger_account_sequence RENAME TO idx_ledger_account_sequence_legacy");
+            jdbcTemplate.execute("ALTER INDEX IF EXISTS uk_ledger_entries_chain_position RENAME TO uk_ledger_entries_chain_position_legacy");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP DEFAULT");
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        jdbcTemplate.execute("SELECT setval('" + sequence + "', COALESCE((SELECT MAX(id) FROM " + legacy + "), 0) + 1, false)");
+
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                + " PARTITION BY RANGE (created_at)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id, created_at)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + legacy
+                + " FOR VALUES FROM (MINVALUE) TO ('" + boundary + "')");
+
+        if (ArchiveStore.LEDGER_ENTRIES.equals(table)) {
+            jdbcTemplate.execute("CREATE INDEX idx_ledger_txn ON ledger_entries (transaction_id)");
+            jdbcTemplate.execute("CREATE INDEX idx_ledger_account ON ledger_entries (account_id, created_at)");
+            jdbcTemplate.execute("CREATE INDEX idx_ledger_account_sequence ON ledger_entries (account_id, chain_sequence)");
+            return;
+        }
+
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_reference ON transactions (reference)");
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS transaction_references (
+                    reference VARCHAR(100) PRIMARY KEY,
+                    transaction_id BIGINT NOT NULL,
+                    created_at TIMESTAMP(6) NOT NULL
+                )
+                """);
+        jdbcTemplate.execute("INSERT INTO transaction_references (reference, transaction_id, created_at)"
+                + " SELECT reference, id, created_at FROM " + legacy + " ON CONFLICT DO NOTHING");
+        jdbcTemplate.execute("""
+                CREATE OR REPLACE FUNCTION transactions_claim_reference() RETURNS trigger
+                LANGUAGE plpgsql AS $$
+                BEGIN
+                    INSERT INTO transaction_references (reference, transaction_id, created_at)
+                    VALUES (NEW.reference, NEW.id, NEW.created_at);
+                    RETURN NEW;
+                END
+                $$
+                """);
+        jdbcTemplate.execute("CREATE TRIGGER trg_transactions_claim_reference BEFORE INSERT ON transactions"
+                + " FOR EACH ROW EXECUTE FUNCTION transactions_claim_reference()");
+    }
+
+    private boolean isPartitioned(String table) {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = ?)",
+                Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private static Partition toPartition(String name, String bound) {
+        Matcher upper = UPPER_BOUND.matcher(bound);
+        Matcher lower = LOWER_BOUND.matcher(bound);
+        return new Partition(name,
+                lower.find() ? LocalDateTime.parse(lower.group(1), PG_TIMESTAMP) : null,
+                upper.find() ? LocalDateTime.parse(upper.group(1), PG_TIMESTAMP) : null);
+    }
+
+    /**
+     * Keeps the highest chain position of each account; rows arrive grouped by account.
+     */
+    private static final class ChainHeads {
+        private final ColumnarArchive.Writer writer;
+        private long accountId = -1;
+        private long sequence;
+        private String hash;
+
+        ChainHeads(ColumnarArchive.Writer writer) {
+            this.writer = writer;
+        }
+
+        void add(long accountId, long sequence, String hash) {
+            if (accountId != this.accountId) {
+                finish();
+                this.accountId = accountId;
+            } else if (sequence < this.sequence) {
+                return;
+            }
+            this.sequence = sequence;
+            this.hash = hash;
+        }
+
+        void finish() {
+            if (hash != null) {
+                write(writer, accountId, sequence, hash);
+                hash = null;
+            }
+        }
+    }
+
+    private static void write(ColumnarArchive.Writer writer, Object... values) {
+        try {
+            writer.write(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 hashes of ledger entries and Merkle roots over them.
+ * <p>
+ * An entry's hash covers the previous entry hash of the same account and the entry's own
+ * immutable fields: {@code prev|accountId|sequence|transactionId|entryType|amount}, with the
+ * amount at the column's scale of 4 so a value read back from the database hashes the same as
+ * the one written. {@code created_at} is left out: it is assigned by JPA auditing after the hash
+ * is computed, and the Merkle checkpoints already pin which entries belong to a period.
+ * <p>
+ * Instances reuse one {@link MessageDigest} and are not thread-safe.
+ */
+public final class EntryHash {
+
+    /**
+     * Previous hash of an account's first entry.
+     */
+    public static final String GENESIS = "0".repeat(64);
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final byte NODE = 1;
+
+    private final MessageDigest digest;
+
+    public EntryHash() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    public String hash(String prevHash, long accountId, long sequence, long transactionId,
+                       LedgerEntryType entryType, BigDecimal amount) {
+        String canonical = prevHash + '|' + accountId + '|' + sequence + '|' + transactionId + '|'
+                + entryType.name() + '|' + amount.setScale(4, RoundingMode.HALF_UP).toPlainString();
+        return HEX.formatHex(digest.digest(canonical.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Streaming Merkle root over entry hashes in id order, keeping one pending node per tree
+     * level, so a partition of any size is folded in O(log n) memory. Leaves are the entry hashes
+     * themselves; inner nodes are {@code SHA-256(0x01 | left | right)}. A level left with a single
+     * node at the end is carried up unchanged.
+     */
+    public static final class Merkle {
+        private final MessageDigest digest;
+        // Level i holds a subtree of 2^i leaves; 64 levels cover any long count.
+        private final byte[][] levels = new byte[64][];
+        private long leaves;
+
+        public Merkle() {
+            this.digest = new EntryHash().digest;
+        }
+
+        public void add(String entryHash) {
+            byte[] node = HEX.parseHex(entryHash);
+            int level = 0;
+            while (levels[level] != null) {
+                node = combine(levels[level], node);
+                levels[level++] = null;
+            }
+            levels[level] = node;
+            leaves++;
+        }
+
+        public long leaves() {
+            return leaves;
+        }
+
+        /**
+         * Root of the hashes added so far, or {@link #GENESIS} when there are none.
+         */
+        public String root() {
+            byte[] root = null;
+            for (byte[] node : levels) {
+                if (node != null) {
+                    root = root == null ? node : combine(node, root);
+                }
+            }
+            return root == null ? GENESIS : HEX.formatHex(root);
+        }
+
+        private byte[] combine(byte[] left, byte[] right) {
+            digest.update(NODE);
+            digest.update(left);
+            return digest.digest(right);
+        }
+    }
+}
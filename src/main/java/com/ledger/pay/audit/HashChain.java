@@ -0,0 +1,158 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.config.AuditProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Links ledger entries into one hash chain per account on the write path.
+ * <p>
+ * The head (sequence and hash of the latest entry) of recently written accounts is cached
+ * together with the account version it was committed with. Every entry changes its account's
+ * totals, so the version moves with the chain: if the version just loaded (under the row lock or
+ * optimistic check the write already takes) equals the cached one, the cached head is the
+ * account's real head and no read is needed. Otherwise the head is read once from
+ * {@code ledger_entries}.
+ * <p>
+ * Heads linked inside a transaction stay private to it and are published after commit, so a
+ * rolled-back batch never leaves the cache ahead of the table.
+ * <p>
+ * Account ids are only unique within a shard, so cached heads are keyed by shard and id.
+ */
+@Component
+public class HashChain {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final ConcurrentHashMap<Long, Head> heads = new ConcurrentHashMap<>();
+    private final int maxCachedAccounts;
+    private final Counter hits;
+    private final Counter misses;
+
+    public HashChain(LedgerEntryRepository ledgerEntryRepository, AuditProperties properties, MeterRegistry registry) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.maxCachedAccounts = Math.max(1, properties.chainCacheSize());
+        this.hits = lookup(registry, "hit");
+        this.misses = lookup(registry, "miss");
+        Gauge.builder("ledger.audit.chain.cached", heads, ConcurrentHashMap::size)
+                .description("Accounts whose hash chain head is cached")
+                .register(registry);
+    }
+
+    /**
+     * Sets the entry's sequence, previous hash and hash. The entry's account must be the instance
+     * the caller is updating and its transaction must already have an id.
+     */
+    public void link(LedgerEntry entry) {
+        Account account = entry.getAccount();
+        Long accountId = account.getId();
+        Map<Long, Pending> pending = pending();
+        Pending local = pending == null ? null : pending.get(accountId);
+        long sequence;
+        String prevHash;
+        if (local != null) {
+            sequence = local.sequence;
+            prevHash = local.hash;
+        } else {
+            Head cached = heads.get(key(ShardContext.current(), accountId));
+            if (cached != null && cached.version == account.getVersion()) {
+                hits.increment();
+                sequence = cached.sequence;
+                prevHash = cached.hash;
+            } else {
+                misses.increment();
+                LedgerEntry head = ledgerEntryRepository
+                        .findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(accountId)
+                        .orElse(null);
+                sequence = head == null ? 0 : head.getSequence();
+                prevHash = head == null ? EntryHash.GENESIS : head.getEntryHash();
+            }
+        }
+
+        entry.setSequence(sequence + 1);
+        entry.setPrevHash(prevHash);
+        entry.setEntryHash(new EntryHash().hash(prevHash, accountId, sequence + 1,
+                entry.getTransaction().getId(), entry.getEntryType(), entry.getAmount()));
+
+        if (pending == null) {
+            publish(key(ShardContext.current(), accountId),
+                    new Head(entry.getSequence(), entry.getEntryHash(), account.getVersion()));
+        } else {
+            pending.put(accountId, new Pending(account, entry.getSequence(), entry.getEntryHash()));
+        }
+    }
+
+    int cachedAccounts() {
+        return heads.size();
+    }
+
+    private Map<Long, Pending> pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, Pending> pending = (Map<Long, Pending>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<Long, Pending> heads = new HashMap<>();
+            int shard = ShardContext.current();
+            TransactionSynchronizationManager.bindResource(this, heads);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(HashChain.this);
+                    if (status == STATUS_COMMITTED) {
+                        // Versions are read now, after the commit flush incremented them.
+                        heads.forEach((id, head) -> publish(key(shard, id),
+                                new Head(head.sequence, head.hash, head.account.getVersion())));
+                    }
+                }
+            });
+            pending = heads;
+        }
+        return pending;
+    }
+
+    // Shard in the top byte; ids stay far below 2^56.
+    private static long key(int shard, long accountId) {
+        return (long) shard << 56 | accountId;
+    }
+
+    private void publish(long key, Head head) {
+        // Commits of the same account can publish out of order; keep the newer version.
+        heads.merge(key, head, (current, candidate) ->
+                candidate.version >= current.version ? candidate : current);
+        if (heads.size() > maxCachedAccounts) {
+            // A dropped head only costs one read on the account's next entry.
+            Iterator<Long> ids = heads.keySet().iterator();
+            for (int i = 0; i < maxCachedAccounts / 16 + 1 && ids.hasNext(); i++) {
+                ids.next();
+                ids.remove();
+            }
+        }
+    }
+
+    private static Counter lookup(MeterRegistry registry, String result) {
+        return Counter.builder("ledger.audit.chain.lookups")
+                .tag("result", result)
+                .description("Hash chain head lookups served from the cache or read from ledger_entries")
+                .register(registry);
+    }
+
+    private record Head(long sequence, String hash, int version) {
+    }
+
+    private record Pending(Account account, long sequence, String hash) {
+    }
+}
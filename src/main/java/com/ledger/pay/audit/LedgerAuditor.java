@@ -0,0 +1,402 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.archive.ArchiveStore;
+import com.ledger.pay.config.AuditProperties;
+import com.ledger.pay.domain.LedgerCheckpoint;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.repository.LedgerCheckpointRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkpoints and verifies the ledger's hash chains.
+ * <p>
+ * {@link #checkpointClosedPeriods} stores a Merkle root per closed month (one partition).
+ * {@link #verify} rechecks every account chain: each entry's hash is recomputed from its columns
+ * and linked to its predecessor. Chains are independent, so the account id space is cut into
+ * ranges that run on {@code app.audit.parallelism} workers, each streaming its range in chain
+ * order over the {@code (account_id, chain_sequence)} index. An incremental run only reads entries
+ * created since the last checkpoint and looks up the stored hash of each chain's previous entry to
+ * join them; a previous entry that is no longer in the table must be the chain head archived with
+ * its partition. A full run also recomputes the Merkle root of every checkpointed month that is
+ * still live.
+ */
+@Component
+@Slf4j
+public class LedgerAuditor {
+
+    private static final DateTimeFormatter PERIOD = DateTimeFormatter.ofPattern("yyyyMM");
+    // Entries are stamped just before insert; wait this long before sealing a month.
+    private static final Duration CLOSE_GRACE = Duration.ofHours(1);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int RANGES_PER_WORKER = 8;
+    private static final int LOOKUP_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streaming;
+    private final TransactionTemplate readOnly;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final ArchiveStore archiveStore;
+    private final int parallelism;
+    private final int maxReportedFailures;
+    private final MeterRegistry registry;
+    private final Counter verifiedCounter;
+    private final Counter failureCounter;
+
+    public LedgerAuditor(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         LedgerCheckpointRepository checkpointRepository,
+                         ArchiveStore archiveStore,
+                         AuditProperties properties,
+                         MeterRegistry registry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streaming.setFetchSize(10_000);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.checkpointRepository = checkpointRepository;
+        this.archiveStore = archiveStore;
+        this.parallelism = properties.parallelism() > 0
+                ? properties.parallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.maxReportedFailures = properties.maxReportedFailures();
+        this.registry = registry;
+        this.verifiedCounter = Counter.builder("ledger.audit.entries.verified")
+                .description("Ledger entries whose hash and chain link were rechecked")
+                .register(registry);
+        this.failureCounter = Counter.builder("ledger.audit.failures")
+                .description("Entries or checkpoints that failed verification")
+                .register(registry);
+    }
+
+    /**
+     * Writes a checkpoint for every month after the last checkpoint that ended more than an hour
+     * ago. Returns the checkpoints created.
+     */
+    public List<LedgerCheckpoint> checkpointClosedPeriods() {
+        LocalDateTime start = checkpointRepository.findTopByOrderByPeriodEndDesc()
+                .map(LedgerCheckpoint::getPeriodEnd)
+                .orElseGet(this::firstChainedMonth);
+        List<LedgerCheckpoint> created = new ArrayList<>();
+        if (start == null) {
+            return created;
+        }
+        LocalDateTime closedBefore = LocalDateTime.now().minus(CLOSE_GRACE);
+        for (LocalDateTime from = start; !from.plusMonths(1).isAfter(closedBefore); from = from.plusMonths(1)) {
+            LocalDateTime to = from.plusMonths(1);
+            Root root = root(from, to);
+            created.add(checkpointRepository.save(LedgerCheckpoint.builder()
+                    .period(from.format(PERIOD))
+                    .periodStart(from)
+                    .periodEnd(to)
+                    .entryCount(root.entries)
+                    .firstEntryId(root.firstId)
+                    .lastEntryId(root.lastId)
+                    .merkleRoot(root.hash)
+                    .build()));
+            log.info("Checkpointed ledger period {}: {} entries, root {}", from.format(PERIOD), root.entries, root.hash);
+        }
+        return created;
+    }
+
+    /**
+     * Rechecks the hash chains, from the start of the ledger when {@code full}, otherwise from the
+     * end of the last checkpoint. Reports at most {@code app.audit.max-reported-failures} failures
+     * but counts all of them.
+     */
+    public Report verify(boolean full) {
+        long start = System.nanoTime();
+        LocalDateTime since = full
+                ? EPOCH
+                : checkpointRepository.findTopByOrderByPeriodEndDesc().map(LedgerCheckpoint::getPeriodEnd).orElse(EPOCH);
+        Run run = new Run(maxReportedFailures);
+        long[] bounds = jdbcTemplate.queryForObject("SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id), 0) FROM accounts",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        int ranges = parallelism * RANGES_PER_WORKER;
+        long span = Math.max(1, (bounds[1] - bounds[0]) / ranges + 1);
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (long from = bounds[0]; from <= bounds[1]; from += span) {
+                long lo = from;
+                long hi = from + span;
+                tasks.add(workers.submit(() -> verifyChains(lo, hi, since, run)));
+            }
+            if (full) {
+                List<ArchiveStore.Manifest> archived = archiveStore.sealed(ArchiveStore.LEDGER_ENTRIES);
+                for (LedgerCheckpoint checkpoint : checkpointRepository.findAllByOrderByPeriodStartAsc()) {
+                    tasks.add(workers.submit(() -> verifyCheckpoint(checkpoint, archived, run)));
+                }
+            }
+            for (Future<?> task : tasks) {
+                await(task);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        checkArchivedBoundaries(run);
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("ledger.audit.verify")
+                .tag("mode", full ? "full" : "incremental")
+                .description("Time to verify the ledger hash chains")
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        Report report = run.report(full, since, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        log.info("Ledger {} verification checked {} entries on {} accounts in {} ms: {} failures",
+                full ? "full" : "incremental", report.entries(), report.accounts(), report.elapsedMillis(),
+                report.failureCount());
+        return report;
+    }
+
+    private void verifyChains(long fromAccountId, long toAccountId, LocalDateTime since, Run run) {
+        EntryHash hasher = new EntryHash();
+        Cursor cursor = new Cursor();
+        List<Boundary> boundaries = new ArrayList<>();
+        readOnly.executeWithoutResult(status -> {
+            streaming.query("SELECT id, account_id, chain_sequence, transaction_id, entry_type, amount, prev_hash, entry_hash"
+                    + " FROM ledger_entries WHERE account_id >= ? AND account_id < ? AND created_at >= ?"
+                    + " AND chain_sequence IS NOT NULL ORDER BY account_id, chain_sequence", (ResultSet rs) -> {
+                long id = rs.getLong(1);
+                long accountId = rs.getLong(2);
+                long sequence = rs.getLong(3);
+                String prevHash = rs.getString(7);
+                String hash = rs.getString(8);
+                String expected = hasher.hash(prevHash, accountId, sequence, rs.getLong(4),
+                        LedgerEntryType.valueOf(rs.getString(5)), rs.getBigDecimal(6));
+                if (!expected.equals(hash)) {
+                    run.fail(id, accountId, "hash does not match the entry's contents");
+                }
+                if (accountId == cursor.accountId) {
+                    if (sequence != cursor.sequence + 1) {
+                        run.fail(id, accountId, "sequence " + sequence + " follows " + cursor.sequence);
+                    } else if (!Objects.equals(prevHash, cursor.hash)) {
+                        run.fail(id, accountId, "previous hash does not match entry " + cursor.id);
+                    }
+                } else {
+                    run.accounts.increment();
+                    if (sequence == 1) {
+                        if (!EntryHash.GENESIS.equals(prevHash)) {
+                            run.fail(id, accountId, "first entry does not start from the genesis hash");
+                        }
+                    } else {
+                        boundaries.add(new Boundary(id, accountId, sequence - 1, prevHash));
+                    }
+                }
+                cursor.accountId = accountId;
+                cursor.sequence = sequence;
+                cursor.hash = hash;
+                cursor.id = id;
+                run.entries.increment();
+                verifiedCounter.increment();
+            }, fromAccountId, toAccountId, since);
+            for (int i = 0; i < boundaries.size(); i += LOOKUP_BATCH) {
+                checkBoundaries(boundaries.subList(i, Math.min(boundaries.size(), i + LOOKUP_BATCH)), run);
+            }
+        });
+    }
+
+    /**
+     * Joins the first entry read for each account to the stored hash of the entry before it.
+     * Predecessors gone from the table are left for {@link #checkArchivedBoundaries}.
+     */
+    private void checkBoundaries(List<Boundary> boundaries, Run run) {
+        long[] accountIds = new long[boundaries.size()];
+        long[] sequences = new long[boundaries.size()];
+        for (int i = 0; i < boundaries.size(); i++) {
+            accountIds[i] = boundaries.get(i).accountId;
+            sequences[i] = boundaries.get(i).previousSequence;
+        }
+        Map<Long, String> stored = new HashMap<>();
+        jdbcTemplate.query("SELECT e.account_id, e.entry_hash FROM unnest(?::bigint[], ?::bigint[]) AS k(account_id, seq)"
+                        + " JOIN ledger_entries e ON e.account_id = k.account_id AND e.chain_sequence = k.seq",
+                (ResultSet rs) -> {
+                    stored.put(rs.getLong(1), rs.getString(2));
+                }, accountIds, sequences);
+        for (Boundary boundary : boundaries) {
+            String previous = stored.get(boundary.accountId);
+            if (previous == null) {
+                run.unresolved.add(boundary);
+            } else if (!previous.equals(boundary.prevHash)) {
+                run.fail(boundary.entryId, boundary.accountId, "previous hash does not match the stored entry "
+                        + boundary.previousSequence + " of the chain");
+            }
+        }
+    }
+
+    /**
+     * A predecessor missing from the table is only accepted when it is the chain head archived
+     * with its partition; otherwise rows were removed from the chain.
+     */
+    private void checkArchivedBoundaries(Run run) {
+        if (run.unresolved.isEmpty()) {
+            return;
+        }
+        Set<Long> accountIds = new HashSet<>();
+        for (Boundary boundary : run.unresolved) {
+            accountIds.add(boundary.accountId);
+        }
+        Map<Long, ArchiveStore.ChainHead> heads = archiveStore.chainHeads(accountIds);
+        for (Boundary boundary : run.unresolved) {
+            ArchiveStore.ChainHead head = heads.get(boundary.accountId);
+            if (head == null || head.sequence() != boundary.previousSequence) {
+                run.fail(boundary.entryId, boundary.accountId, "entry " + boundary.previousSequence
+                        + " of the chain is missing and not archived");
+            } else if (!head.hash().equals(boundary.prevHash)) {
+                run.fail(boundary.entryId, boundary.accountId, "previous hash does not match the archived entry "
+                        + boundary.previousSequence + " of the chain");
+            } else {
+                run.anchored.increment();
+            }
+        }
+    }
+
+    private void verifyCheckpoint(LedgerCheckpoint checkpoint, List<ArchiveStore.Manifest> archived, Run run) {
+        if (archived.stream().anyMatch(m -> m.overlaps(checkpoint.getPeriodStart(), checkpoint.getPeriodEnd()))) {
+            run.checkpointsArchived.increment();
+            return;
+        }
+        Root root = root(checkpoint.getPeriodStart(), checkpoint.getPeriodEnd());
+        if (root.entries != checkpoint.getEntryCount() || !root.hash.equals(checkpoint.getMerkleRoot())) {
+            run.fail(null, null, "Merkle root of period " + checkpoint.getPeriod() + " no longer matches its checkpoint ("
+                    + root.entries + " entries, expected " + checkpoint.getEntryCount() + ")");
+        } else {
+            run.checkpointsVerified.increment();
+        }
+    }
+
+    private Root root(LocalDateTime from, LocalDateTime to) {
+        EntryHash.Merkle merkle = new EntryHash.Merkle();
+        long[] ids = {0, 0};
+        readOnly.executeWithoutResult(status -> streaming.query(
+                "SELECT id, entry_hash FROM ledger_entries WHERE created_at >= ? AND created_at < ?"
+                        + " AND entry_hash IS NOT NULL ORDER BY id", (ResultSet rs) -> {
+                    if (merkle.leaves() == 0) {
+                        ids[0] = rs.getLong(1);
+                    }
+                    ids[1] = rs.getLong(1);
+                    merkle.add(rs.getString(2));
+                }, from, to));
+        boolean empty = merkle.leaves() == 0;
+        return new Root(merkle.root(), merkle.leaves(), empty ? null : ids[0], empty ? null : ids[1]);
+    }
+
+    private LocalDateTime firstChainedMonth() {
+        // Every chain's first entry is its oldest, so this is the oldest chained entry.
+        LocalDateTime first = jdbcTemplate.queryForObject(
+                "SELECT MIN(created_at) FROM ledger_entries WHERE chain_sequence = 1", LocalDateTime.class);
+        return first == null ? null : first.toLocalDate().withDayOfMonth(1).atStartOfDay();
+    }
+
+    private static void await(Future<?> task) {
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying the ledger", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ledger verification failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public record Failure(Long entryId, Long accountId, String reason) {
+    }
+
+    /**
+     * @param since    entries created before this were not read
+     * @param anchored chains whose earlier entries are archived, so their first live link was
+     *                 checked against the archived chain head
+     */
+    public record Report(boolean full,
+                         LocalDateTime since,
+                         long entries,
+                         long accounts,
+                         long anchored,
+                         long checkpointsVerified,
+                         long checkpointsArchived,
+                         long failureCount,
+                         List<Failure> failures,
+                         long elapsedMillis) {
+
+        public boolean valid() {
+            return failureCount == 0;
+        }
+    }
+
+    private record Root(String hash, long entries, Long firstId, Long lastId) {
+    }
+
+    private record Boundary(long entryId, long accountId, long previousSequence, String prevHash) {
+    }
+
+    /**
+     * Last entry read by one worker.
+     */
+    private static final class Cursor {
+        long accountId = -1;
+        long sequence;
+        String hash;
+        long id;
+    }
+
+    private final class Run {
+        final LongAdder entries = new LongAdder();
+        final LongAdder accounts = new LongAdder();
+        final LongAdder anchored = new LongAdder();
+        final LongAdder checkpointsVerified = new LongAdder();
+        final LongAdder checkpointsArchived = new LongAdder();
+        final LongAdder failureCount = new LongAdder();
+        final Queue<Boundary> unresolved = new ConcurrentLinkedQueue<>();
+        private final List<Failure> failures = new ArrayList<>();
+        private final int maxFailures;
+
+        Run(int maxFailures) {
+            this.maxFailures = maxFailures;
+        }
+
+        void fail(Long entryId, Long accountId, String reason) {
+            failureCount.increment();
+            failureCounter.increment();
+            synchronized (failures) {
+                if (failures.size() < maxFailures) {
+                    failures.add(new Failure(entryId, accountId, reason));
+                }
+            }
+        }
+
+        Report report(boolean full, LocalDateTime since, long elapsedMillis) {
+            synchronized (failures) {
+                return new Report(full, since, entries.sum(), accounts.sum(), anchored.sum(),
+                        checkpointsVerified.sum(), checkpointsArchived.sum(), failureCount.sum(),
+                        List.copyOf(failures), elapsedMillis);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.admission")
+public record AdmissionProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("20") int initialLimit,
+                                  @DefaultValue("4") int minLimit,
+                                  @DefaultValue("200") int maxLimit,
+                                  @DefaultValue("100") int maxQueuePerLane,
+                                  @DefaultValue("500ms") Duration maxWait,
+                                  @DefaultValue("4") int hotAccountThreshold,
+                                  @DefaultValue("0.25") double hotShare,
+                                  @DefaultValue("false") boolean prioritizeDeposits) {
+}
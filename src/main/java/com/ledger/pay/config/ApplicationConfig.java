@@ -1,9 +1,17 @@
 package com.ledger.pay.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
 @Configuration
 @EnableJpaAuditing
 public class ApplicationConfig {
+
+    // Spring Boot only sets up Jackson 3; event payloads are written with this shared Jackson 2 mapper.
+    @Bean
+    public ObjectMapper objectMapper() {
+        return new ObjectMapper();
+    }
 }
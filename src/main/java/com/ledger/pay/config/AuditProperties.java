@@ -0,0 +1,11 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.audit")
+public record AuditProperties(@DefaultValue("500000") int chainCacheSize,
+                              @DefaultValue("true") boolean checkpointEnabled,
+                              @DefaultValue("0") int parallelism,
+                              @DefaultValue("100") int maxReportedFailures) {
+}
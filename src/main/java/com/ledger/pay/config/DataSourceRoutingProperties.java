@@ -0,0 +1,17 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public record DataSourceRoutingProperties(@DefaultValue("false") boolean enabled,
+                                          @DefaultValue("5s") Duration maxLag,
+                                          @DefaultValue("10") int replicaPoolSize,
+                                          @DefaultValue List<Replica> replicas) {
+
+    public record Replica(String url, String username, String password) {
+    }
+}
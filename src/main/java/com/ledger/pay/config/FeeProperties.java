@@ -0,0 +1,38 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Fees charged to the payer of a transfer. {@code rulesFile} (one rule per line, see
+ * {@code FeeEngine}) wins when it exists; otherwise {@code rules} apply. An account's
+ * {@code feePlan} metadata picks its plan, {@code defaultPlan} otherwise. Fees are credited to
+ * {@code fees:revenue:<CCY>} accounts, provisioned for {@code currencies} and every currency a
+ * rule names, whose balances are brought up to date in batches of {@code flushBatchSize}.
+ */
+@ConfigurationProperties(prefix = "app.fees")
+public record FeeProperties(@DefaultValue("false") boolean enabled,
+                            String rulesFile,
+                            @DefaultValue("standard") String defaultPlan,
+                            @DefaultValue("NGN") List<String> currencies,
+                            @DefaultValue("5000") int flushBatchSize,
+                            @DefaultValue List<Rule> rules) {
+
+    /**
+     * The fee for amounts from {@code minAmount} up to the next band of the same plan, account type
+     * and currency: {@code fixed + amount * rate}, kept within {@code minFee} and {@code maxFee}.
+     * A null or {@code *} account type or currency matches any.
+     */
+    public record Rule(String plan,
+                       String accountType,
+                       String currency,
+                       BigDecimal minAmount,
+                       BigDecimal fixed,
+                       BigDecimal rate,
+                       BigDecimal minFee,
+                       BigDecimal maxFee) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * FX rates for conversion transfers. {@code ratesFile} ({@code base,quote,rate} per line) wins
+ * when it exists; otherwise {@code rates}, keyed by the six-letter pair (e.g. {@code USDNGN}),
+ * stand in for a feed. File rates older than {@code maxAge} are refused.
+ */
+@ConfigurationProperties(prefix = "app.fx")
+public record FxProperties(String ratesFile,
+                           @DefaultValue("24h") Duration maxAge,
+                           @DefaultValue("8") int positionStripes,
+                           Map<String, BigDecimal> rates) {
+}
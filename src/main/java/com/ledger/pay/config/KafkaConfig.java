@@ -24,4 +24,12 @@ public class KafkaConfig {
                 .replicas(1)
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public NewTopic sagaEventsTopic() {
+        return TopicBuilder.name("saga-events")
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Per-request phase timing of transfers, deposits and outbox events.
+ *
+ * @param exemplars         slowest requests kept per operation and {@code window}
+ * @param eventThreshold    requests faster than this emit no JFR event
+ * @param recordingOnStart  start the continuous JFR recording with the application instead of on demand
+ * @param recordingMaxAge   how far back the continuous recording reaches
+ * @param recordingMaxSize  disk the continuous recording may use
+ * @param dumpDirectory     where recording dumps are written; the temp directory when blank
+ */
+@ConfigurationProperties(prefix = "app.latency")
+public record LatencyProperties(@DefaultValue("true") boolean enabled,
+                                @DefaultValue("20") int exemplars,
+                                @DefaultValue("1m") Duration window,
+                                @DefaultValue("20ms") Duration eventThreshold,
+                                @DefaultValue("false") boolean recordingOnStart,
+                                @DefaultValue("15m") Duration recordingMaxAge,
+                                @DefaultValue("256MB") DataSize recordingMaxSize,
+                                @DefaultValue("") String dumpDirectory) {
+}
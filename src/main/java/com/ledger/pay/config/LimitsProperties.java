@@ -0,0 +1,25 @@
+package com.ledger.pay.config;
+
+import com.ledger.pay.enums.AccountType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Velocity limits on outgoing money. {@code accountTypes} entries override {@code defaults}
+ * field by field, and an account's {@code metadata.limits} overrides both. A missing value means
+ * no limit.
+ */
+@ConfigurationProperties(prefix = "app.limits")
+public record LimitsProperties(@DefaultValue("true") boolean enabled,
+                               @DefaultValue("false") boolean syncEnabled,
+                               @DefaultValue Rule defaults,
+                               Map<AccountType, Rule> accountTypes) {
+
+    public record Rule(BigDecimal maxSingleAmount,
+                       BigDecimal dailyOutflow,
+                       Integer perMinuteCount) {
+    }
+}
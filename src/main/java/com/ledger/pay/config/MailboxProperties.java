@@ -0,0 +1,10 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.mailbox")
+public record MailboxProperties(@DefaultValue("true") boolean enabled,
+                                @DefaultValue("256") int capacity,
+                                @DefaultValue("32") int maxBatch) {
+}
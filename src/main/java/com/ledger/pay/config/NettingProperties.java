@@ -0,0 +1,10 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.netting")
+public record NettingProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("50000") int maxIntentsPerWindow,
+                                @DefaultValue("10000") int parallelThreshold) {
+}
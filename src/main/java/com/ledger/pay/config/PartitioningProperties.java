@@ -0,0 +1,13 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "app.partitioning")
+public record PartitioningProperties(@DefaultValue("false") boolean enabled,
+                                     @DefaultValue("3") int monthsAhead,
+                                     @DefaultValue("true") boolean archiveEnabled,
+                                     @DefaultValue("12") int retentionMonths,
+                                     @DefaultValue("0") int referenceRetentionMonths,
+                                     @DefaultValue("./archive") String archiveDir) {
+}
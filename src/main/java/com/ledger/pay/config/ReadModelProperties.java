@@ -0,0 +1,12 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Balance read model. An eventually consistent read whose value was learned more than
+ * {@code stalenessBoundMs} ago is served from the primary instead.
+ */
+@ConfigurationProperties(prefix = "app.read-model")
+public record ReadModelProperties(@DefaultValue("10000") long stalenessBoundMs) {
+}
@@ -0,0 +1,12 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Reversals and refunds. Bulk requests are posted {@code batchSize} originals per database
+ * transaction.
+ */
+@ConfigurationProperties(prefix = "app.reversals")
+public record ReversalProperties(@DefaultValue("5000") int batchSize) {
+}
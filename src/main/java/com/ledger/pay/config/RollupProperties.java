@@ -0,0 +1,18 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Hourly and daily rollups of ledger entries. Each run reads up to {@code maxPagesPerRun} pages of
+ * {@code batchSize} entries per shard; entries younger than {@code settle} are left for the next
+ * run, so that entries of transactions still committing are not overtaken.
+ */
+@ConfigurationProperties(prefix = "app.rollups")
+public record RollupProperties(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("5000") int batchSize,
+                               @DefaultValue("100") int maxPagesPerRun,
+                               @DefaultValue("10s") Duration settle) {
+}
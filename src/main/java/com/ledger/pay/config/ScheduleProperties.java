@@ -0,0 +1,20 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Scheduled and recurring transfers. Due schedules are claimed {@code batchSize} at a time and run
+ * by {@code parallelism} workers, one source account per worker at a time. A claim lapses after
+ * {@code claimTtl}, after which another node may run the occurrence again (it replays). Backlogs
+ * older than {@code sla} are logged.
+ */
+@ConfigurationProperties(prefix = "app.schedules")
+public record ScheduleProperties(@DefaultValue("false") boolean enabled,
+                                 @DefaultValue("5000") int batchSize,
+                                 @DefaultValue("64") int parallelism,
+                                 @DefaultValue("5m") Duration claimTtl,
+                                 @DefaultValue("15m") Duration sla) {
+}
@@ -0,0 +1,21 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Transaction search. The indexer reads up to {@code maxPagesPerRun} pages of {@code batchSize}
+ * outbox events, and as many transactions while backfilling, per shard and run; events younger
+ * than {@code settle} wait for the next run so that none still committing is skipped. Searches
+ * return at most {@code maxPageSize} hits and are cancelled after {@code queryTimeout}.
+ */
+@ConfigurationProperties(prefix = "app.search")
+public record SearchProperties(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("1000") int batchSize,
+                               @DefaultValue("20") int maxPagesPerRun,
+                               @DefaultValue("10s") Duration settle,
+                               @DefaultValue("200") int maxPageSize,
+                               @DefaultValue("2s") Duration queryTimeout) {
+}
@@ -0,0 +1,15 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+@ConfigurationProperties(prefix = "app.settlement")
+public record SettlementProperties(@DefaultValue("false") boolean enabled,
+                                   @DefaultValue("./settlement/inbox") String inboxDir,
+                                   @DefaultValue("./settlement/processed") String processedDir,
+                                   @DefaultValue("./settlement/reports") String reportDir,
+                                   @DefaultValue("500") int batchSize,
+                                   @DefaultValue("8MB") DataSize chunkSize,
+                                   @DefaultValue("0") int parallelism) {
+}
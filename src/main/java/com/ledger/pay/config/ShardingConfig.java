@@ -0,0 +1,62 @@
+package com.ledger.pay.config;
+
+import com.ledger.pay.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured data source with one Hikari pool per shard when
+ * {@code app.sharding.enabled=true}. Shard 0 is {@code spring.datasource.*}. Cannot be combined
+ * with replica routing, which replaces the same bean.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(@Value("${spring.datasource.url}") String url,
+                                             @Value("${spring.datasource.username}") String username,
+                                             @Value("${spring.datasource.password}") String password,
+                                             @Value("${spring.datasource.driver-class-name}") String driverClassName,
+                                             ShardingProperties properties,
+                                             DataSourceRoutingProperties routing,
+                                             MeterRegistry registry) {
+        if (routing.enabled()) {
+            throw new IllegalStateException("app.sharding.enabled and app.datasource.routing.enabled are exclusive");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(pool(0, url, username, password, driverClassName, properties.poolSize()));
+        List<ShardingProperties.Shard> configured = properties.shards();
+        for (int i = 0; i < configured.size(); i++) {
+            ShardingProperties.Shard shard = configured.get(i);
+            shards.add(pool(i + 1, shard.url(), shard.username(), shard.password(), driverClassName,
+                    properties.poolSize()));
+        }
+        return new ShardRoutingDataSource(shards, registry);
+    }
+
+    private static HikariDataSource pool(int shard, String url, String username, String password,
+                                         String driverClassName, int poolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .driverClassName(driverClassName)
+                .build();
+        dataSource.setPoolName("shard-" + shard);
+        dataSource.setMaximumPoolSize(poolSize);
+        return dataSource;
+    }
+}
@@ -0,0 +1,27 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Accounts partitioned across databases by a consistent hash of their {@code accountRef}. Shard 0
+ * is {@code spring.datasource.*}; {@code shards} lists shard 1 onwards. The ring places accounts on
+ * the first {@code ringShards} shards (0 = all of them), so a new database can be listed and filled
+ * by a rebalance before the ring is widened to it.
+ */
+@ConfigurationProperties(prefix = "app.sharding")
+public record ShardingProperties(@DefaultValue("false") boolean enabled,
+                                 @DefaultValue("0") int ringShards,
+                                 @DefaultValue("128") int virtualNodes,
+                                 @DefaultValue("10") int poolSize,
+                                 @DefaultValue("16") int transitStripes,
+                                 @DefaultValue("2m") Duration sagaTimeout,
+                                 @DefaultValue("500") int rebalanceBatchSize,
+                                 @DefaultValue List<Shard> shards) {
+
+    public record Shard(String url, String username, String password) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.ledger.pay.config;
+
+import com.ledger.pay.datasource.ConnectionGateDataSource;
+import com.ledger.pay.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts a {@link ConnectionGateDataSource} in front of the application's {@code dataSource} bean:
+ * the auto-configured Hikari pool, each shard's pool behind the shard router (one gate per shard,
+ * sized to that pool, so a busy shard cannot take the permits of an idle one) or the replica
+ * routing proxy (where the gate goes behind the lazy proxy and should be sized with
+ * {@code app.virtual-threads.gate-permits}).
+ * Virtual-thread request handling itself is Spring Boot's {@code spring.threads.virtual.enabled}.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    private static final int DEFAULT_PERMITS = 10;
+
+    @Bean
+    public static BeanPostProcessor connectionGatePostProcessor(Environment environment,
+                                                                ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || bean instanceof ConnectionGateDataSource) {
+                    return bean;
+                }
+                VirtualThreadProperties properties = Binder.get(environment)
+                        .bindOrCreate("app.virtual-threads", VirtualThreadProperties.class);
+                if (!properties.connectionGate()) {
+                    return bean;
+                }
+                if (bean instanceof LazyConnectionDataSourceProxy lazy) {
+                    // Gate physical connections only, not transactions that never touch the database.
+                    lazy.setTargetDataSource(gate(lazy.getTargetDataSource(), properties, registry, Tags.empty()));
+                    return lazy;
+                }
+                if (bean instanceof ShardRoutingDataSource shards) {
+                    shards.wrapShards((shard, pool) ->
+                            gate(pool, properties, registry, Tags.of("shard", String.valueOf(shard))));
+                    return shards;
+                }
+                return gate(dataSource, properties, registry, Tags.empty());
+            }
+        };
+    }
+
+    private static ConnectionGateDataSource gate(DataSource target,
+                                                 VirtualThreadProperties properties,
+                                                 ObjectProvider<MeterRegistry> registry,
+                                                 Tags tags) {
+        int permits = properties.gatePermits();
+        if (permits <= 0) {
+            permits = target instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : DEFAULT_PERMITS;
+        }
+        return new ConnectionGateDataSource(target, permits, properties.gateMaxWait(),
+                registry.getIfAvailable(SimpleMeterRegistry::new), tags);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param gatePermits connections that may be checked out at once, per shard when sharded; {@code 0}
+ *                    uses the Hikari pool size
+ */
+@ConfigurationProperties(prefix = "app.virtual-threads")
+public record VirtualThreadProperties(@DefaultValue("true") boolean connectionGate,
+                                      @DefaultValue("0") int gatePermits,
+                                      @DefaultValue("2s") Duration gateMaxWait,
+                                      @DefaultValue("true") boolean pinningMonitor,
+                                      @DefaultValue("20ms") Duration pinningThreshold) {
+}
@@ -0,0 +1,19 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Synthetic warm-up of the transfer path before the readiness probe reports up. On every shard,
+ * {@code parallelism} workers (at least the connection pool size, so every pooled connection is
+ * opened and prepares its statements) each run {@code iterations} rolled-back transfers. Whatever
+ * is left when {@code timeout} runs out is skipped.
+ */
+@ConfigurationProperties(prefix = "app.warmup")
+public record WarmupProperties(@DefaultValue("false") boolean enabled,
+                               @DefaultValue("500") int iterations,
+                               @DefaultValue("10") int parallelism,
+                               @DefaultValue("30s") Duration timeout) {
+}
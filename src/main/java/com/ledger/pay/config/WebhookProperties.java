@@ -0,0 +1,32 @@
+package com.ledger.pay.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Merchant webhooks built from {@code payment-events}. Deliveries are queued in the database and
+ * sent by a dispatcher that allows {@code maxConcurrency} requests per endpoint and claims no more
+ * work for an endpoint once {@code maxQueuedPerEndpoint} deliveries wait for it. Failed attempts
+ * are retried after a random delay of up to {@code baseBackoff * 2^attempt}, capped at
+ * {@code maxBackoff}, until {@code maxAttempts}. Keep {@code claimTtl} above the time an endpoint
+ * needs to work off its queue ({@code maxQueuedPerEndpoint / maxConcurrency * requestTimeout} at
+ * worst), or deliveries still waiting when it lapses are claimed and sent again. Endpoints on
+ * loopback, private or link-local addresses are refused unless {@code allowPrivateHosts} is set.
+ */
+@ConfigurationProperties(prefix = "app.webhooks")
+public record WebhookProperties(@DefaultValue("false") boolean enabled,
+                                @DefaultValue("500") int batchSize,
+                                @DefaultValue("8") int maxConcurrency,
+                                @DefaultValue("200") int maxQueuedPerEndpoint,
+                                @DefaultValue("10000") int maxInFlight,
+                                @DefaultValue("2s") Duration connectTimeout,
+                                @DefaultValue("10s") Duration requestTimeout,
+                                @DefaultValue("12") int maxAttempts,
+                                @DefaultValue("5s") Duration baseBackoff,
+                                @DefaultValue("1h") Duration maxBackoff,
+                                @DefaultValue("5m") Duration claimTtl,
+                                @DefaultValue("30s") Duration endpointRefresh,
+                                @DefaultValue("false") boolean allowPrivateHosts) {
+}
@@ -0,0 +1,66 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.config.ReadModelProperties;
+import com.ledger.pay.readmodel.BalanceQueryService;
+import com.ledger.pay.enums.RollupGranularity;
+import com.ledger.pay.readmodel.BalanceView;
+import com.ledger.pay.rollup.RollupService;
+import com.ledger.pay.service.StatementService;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.BalanceResponse;
+import dto.RollupSummaryResponse;
+import dto.StatementLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/accounts")
+public class AccountController {
+    private final BalanceQueryService balanceQueryService;
+    private final StatementService statementService;
+    private final RollupService rollupService;
+    private final ShardRouter shardRouter;
+    private final ReadModelProperties readModelProperties;
+
+    @GetMapping("/{ref}/balance")
+    public ResponseEntity<BalanceResponse> balance(@PathVariable("ref") String ref,
+                                                   @RequestParam(name = "consistency", defaultValue = "eventual") String consistency) {
+        boolean strong = "strong".equalsIgnoreCase(consistency);
+        Optional<BalanceView> view = shardRouter.onShardOf(ref, () -> strong
+                ? balanceQueryService.getStrongBalance(ref)
+                : balanceQueryService.getBalance(ref));
+        return view.map(v -> ResponseEntity.ok(new BalanceResponse(v.accountRef(), v.balance(), v.held(), v.available(), v.currency(),
+                        v.version(), v.asOf(), strong ? 0 : readModelProperties.stalenessBoundMs(), strong ? "strong" : "eventual")))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{ref}/statement")
+    public ResponseEntity<List<StatementLine>> statement(@PathVariable("ref") String ref,
+                                                         @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                         @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return shardRouter.onShardOf(ref, () -> statementService.statement(ref, from, to))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{ref}/rollups")
+    public ResponseEntity<RollupSummaryResponse> rollups(@PathVariable("ref") String ref,
+                                                         @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                         @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                         @RequestParam(name = "granularity", required = false) RollupGranularity granularity) {
+        return shardRouter.onShardOf(ref, () -> rollupService.summary(ref, from, to, granularity))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,45 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.admission.AdmissionRejectedException;
+import com.ledger.pay.limits.LimitExceededException;
+import com.ledger.pay.mailbox.MailboxFullException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(MailboxFullException.class)
+    public ResponseEntity<Map<String, Object>> handleMailboxFull(MailboxFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Per-minute velocity rejections are retryable shortly, so they share admission control's 429;
+     * amount limits are not.
+     */
+    @ExceptionHandler(LimitExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleLimitExceeded(LimitExceededException e) {
+        Map<String, Object> body = Map.of("error", e.getMessage(), "limit", e.getLimit().name());
+        if (e.getLimit() == LimitExceededException.Limit.PER_MINUTE_COUNT) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(body);
+        }
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_CONTENT).body(body);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.audit.LedgerAuditor;
+import com.ledger.pay.domain.LedgerCheckpoint;
+import com.ledger.pay.repository.LedgerCheckpointRepository;
+import dto.LedgerCheckpointResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/audit")
+public class AuditController {
+    private final LedgerAuditor auditor;
+    private final LedgerCheckpointRepository checkpointRepository;
+
+    @GetMapping("/checkpoints")
+    public ResponseEntity<List<LedgerCheckpointResponse>> checkpoints() {
+        return ResponseEntity.ok(checkpointRepository.findAllByOrderByPeriodStartAsc().stream()
+                .map(this::toResponse)
+                .toList());
+    }
+
+    @PostMapping("/checkpoints")
+    public ResponseEntity<List<LedgerCheckpointResponse>> checkpoint() {
+        return ResponseEntity.ok(auditor.checkpointClosedPeriods().stream()
+                .map(this::toResponse)
+                .toList());
+    }
+
+    /**
+     * Runs synchronously; a full verification reads every chained entry.
+     */
+    @PostMapping("/verify")
+    public ResponseEntity<LedgerAuditor.Report> verify(@RequestParam(name = "full", defaultValue = "false") boolean full) {
+        return ResponseEntity.ok(auditor.verify(full));
+    }
+
+    private LedgerCheckpointResponse toResponse(LedgerCheckpoint checkpoint) {
+        return new LedgerCheckpointResponse(checkpoint.getPeriod(),
+                checkpoint.getPeriodStart(),
+                checkpoint.getPeriodEnd(),
+                checkpoint.getEntryCount(),
+                checkpoint.getFirstEntryId(),
+                checkpoint.getLastEntryId(),
+                checkpoint.getMerkleRoot(),
+                checkpoint.getCreatedAt());
+    }
+}
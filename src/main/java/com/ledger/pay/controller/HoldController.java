@@ -0,0 +1,67 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.admission.AdmissionController;
+import com.ledger.pay.admission.ConcurrencyLimiter;
+import com.ledger.pay.domain.Hold;
+import com.ledger.pay.sharding.ShardedLedger;
+import dto.CaptureDto;
+import dto.HoldDto;
+import dto.HoldResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/holds")
+public class HoldController {
+    private final ShardedLedger shardedLedger;
+    private final AdmissionController admissionController;
+
+    @Value("${app.holds.default-ttl:7d}")
+    private Duration defaultTtl;
+
+    @PostMapping
+    public ResponseEntity<HoldResponse> place(@RequestBody HoldDto request) {
+        Duration ttl = request.ttlSeconds() == null ? defaultTtl : Duration.ofSeconds(request.ttlSeconds());
+        Hold hold = admissionController.execute(ConcurrencyLimiter.Kind.TRANSFER, request.sourceAccountRef(),
+                () -> shardedLedger.placeHold(request.sourceAccountRef(), request.destinationAccountRef(),
+                        request.amount(), request.reference(), request.description(), ttl));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(hold));
+    }
+
+    // Capture and void only know the hold reference; the source row lock still serializes them.
+    @PostMapping("/{reference}/capture")
+    public ResponseEntity<HoldResponse> capture(@PathVariable("reference") String reference,
+                                                @RequestBody(required = false) CaptureDto request) {
+        Hold hold = admissionController.execute(ConcurrencyLimiter.Kind.TRANSFER, reference,
+                () -> shardedLedger.captureHold(reference, request == null ? null : request.amount()));
+        return ResponseEntity.ok(toResponse(hold));
+    }
+
+    @PostMapping("/{reference}/void")
+    public ResponseEntity<HoldResponse> voidHold(@PathVariable("reference") String reference) {
+        Hold hold = admissionController.execute(ConcurrencyLimiter.Kind.TRANSFER, reference,
+                () -> shardedLedger.voidHold(reference));
+        return ResponseEntity.ok(toResponse(hold));
+    }
+
+    private HoldResponse toResponse(Hold hold) {
+        return new HoldResponse(hold.getReference(),
+                hold.getSourceAccount().getAccountRef(),
+                hold.getDestinationAccount().getAccountRef(),
+                hold.getAmount(),
+                hold.getCapturedAmount(),
+                hold.getStatus().name(),
+                hold.getExpiresAt(),
+                hold.getCaptureTransaction() == null ? null : hold.getCaptureTransaction().getReference());
+    }
+}
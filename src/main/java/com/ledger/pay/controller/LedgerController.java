@@ -1,10 +1,16 @@
 package com.ledger.pay.controller;
 
+import com.ledger.pay.admission.AdmissionController;
+import com.ledger.pay.admission.ConcurrencyLimiter;
+import com.ledger.pay.datasource.ReplicaRoutingDataSource;
 import com.ledger.pay.domain.Transaction;
-import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.observability.LatencyProfiler;
+import com.ledger.pay.sharding.ShardedLedger;
 import dto.DepositDto;
+import dto.TransactionResponse;
 import dto.TransferDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,25 +18,80 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/")
 public class LedgerController {
-    private  final LedgerService ledgerService;
-    @PostMapping("/transfer")
-    public ResponseEntity<Transaction> transfer( @RequestBody TransferDto request){
-       Transaction transaction = ledgerService.transfer(request.sourceAccountRef(),
-                request.destinationAccountRef(),request.amount(),request.reference(),request.description());
-        return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
+    private final ShardedLedger shardedLedger;
+    private final AdmissionController admissionController;
+    private final LatencyProfiler latencyProfiler;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
 
+    @PostMapping("/transfer")
+    public ResponseEntity<TransactionResponse> transfer( @RequestBody TransferDto request){
+        return latencyProfiler.profile(LatencyProfiler.Operation.TRANSFER, request.reference(),
+                () -> postTransfer(request));
     }
+
     @PostMapping("/deposit")
-    public ResponseEntity<Transaction> deposit(
+    public ResponseEntity<TransactionResponse> deposit(
             @RequestBody DepositDto request
     ) {
+        return latencyProfiler.profile(LatencyProfiler.Operation.DEPOSIT, request.reference(),
+                () -> postDeposit(request));
+    }
+
+    private ResponseEntity<TransactionResponse> postTransfer(TransferDto request) {
+        boolean convert = Boolean.TRUE.equals(request.convert());
+        Transaction transaction = admissionController.execute(ConcurrencyLimiter.Kind.TRANSFER, request.sourceAccountRef(),
+                () -> replay(() -> shardedLedger.findTransferReplay(request.sourceAccountRef(),
+                        request.destinationAccountRef(), request.amount(), request.reference(), convert))
+                        .orElseGet(() -> shardedLedger.transfer(request.sourceAccountRef(),
+                                request.destinationAccountRef(), request.amount(), request.reference(),
+                                request.description(), convert)));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(transaction));
 
-        Transaction transaction = ledgerService.deposit(request.externalAccountRef(), request.userWalletRef(), request.amount(), request.reference(), "API deposit");
-        return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
+    }
+    private ResponseEntity<TransactionResponse> postDeposit(DepositDto request) {
+        Transaction transaction = admissionController.execute(ConcurrencyLimiter.Kind.DEPOSIT, request.userWalletRef(),
+                () -> replay(() -> shardedLedger.findDepositReplay(request.externalAccountRef(),
+                        request.userWalletRef(), request.amount(), request.reference()))
+                        .orElseGet(() -> shardedLedger.deposit(request.externalAccountRef(), request.userWalletRef(),
+                                request.amount(), request.reference(), "API deposit")));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(transaction));
+
+    }
+
+    // Only worth it on a replica: on the primary the write path repeats the same lookup.
+    private Optional<Transaction> replay(Supplier<Optional<Transaction>> probe) {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        if (routing == null || !routing.hasHealthyReplica()) {
+            return Optional.empty();
+        }
+        return probe.get();
+    }
+
+    // Built while the entity is still at hand, so serialization never touches JPA state.
+    private TransactionResponse toResponse(Transaction transaction) {
+        Map<String, Object> metadata = transaction.getMetadata();
+        return new TransactionResponse(transaction.getId(),
+                transaction.getReference(),
+                transaction.getType().name(),
+                transaction.getStatus().name(),
+                transaction.getAmount(),
+                transaction.getDescription(),
+                transaction.getCreatedAt(),
+                decimal(metadata, "convertedAmount"),
+                decimal(metadata, "rate"));
+    }
 
+    private static BigDecimal decimal(Map<String, Object> metadata, String key) {
+        Object value = metadata == null ? null : metadata.get(key);
+        return value == null ? null : new BigDecimal(value.toString());
     }
 }
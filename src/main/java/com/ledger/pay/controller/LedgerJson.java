@@ -0,0 +1,197 @@
+package com.ledger.pay.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.io.SerializedString;
+import dto.DepositDto;
+import dto.TransactionResponse;
+import dto.TransferDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Hand-written JSON for the transfer and deposit endpoints.
+ * <p>
+ * Responses are written field by field straight to the output stream, with field names encoded
+ * once up front, instead of reflecting over the JPA entity. Requests are read token by token from
+ * the input stream: field names come from the parser's symbol table without allocating, values go
+ * straight into the record, and unknown fields are skipped. Field order and formats match what
+ * Jackson databind writes for the same record, except that the FX fields are left out when null.
+ */
+public final class LedgerJson {
+
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString REFERENCE = new SerializedString("reference");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString STATUS = new SerializedString("status");
+    private static final SerializableString AMOUNT = new SerializedString("amount");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString CONVERTED_AMOUNT = new SerializedString("convertedAmount");
+    private static final SerializableString RATE = new SerializedString("rate");
+
+    private LedgerJson() {
+    }
+
+    public static void write(TransactionResponse response, OutputStream out) throws IOException {
+        try (JsonGenerator json = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeFieldName(ID);
+            if (response.id() == null) {
+                json.writeNull();
+            } else {
+                json.writeNumber(response.id());
+            }
+            json.writeFieldName(REFERENCE);
+            json.writeString(response.reference());
+            json.writeFieldName(TYPE);
+            json.writeString(response.type());
+            json.writeFieldName(STATUS);
+            json.writeString(response.status());
+            json.writeFieldName(AMOUNT);
+            writeDecimal(json, response.amount());
+            json.writeFieldName(DESCRIPTION);
+            json.writeString(response.description());
+            json.writeFieldName(CREATED_AT);
+            writeDateTime(json, response.createdAt());
+            if (response.convertedAmount() != null) {
+                json.writeFieldName(CONVERTED_AMOUNT);
+                writeDecimal(json, response.convertedAmount());
+            }
+            if (response.rate() != null) {
+                json.writeFieldName(RATE);
+                writeDecimal(json, response.rate());
+            }
+            json.writeEndObject();
+        }
+    }
+
+    public static TransferDto readTransfer(InputStream in) throws IOException {
+        String source = null;
+        String destination = null;
+        BigDecimal amount = null;
+        String reference = null;
+        String description = null;
+        Boolean convert = null;
+        try (JsonParser json = FACTORY.createParser(in)) {
+            startObject(json);
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.currentName();
+                json.nextToken();
+                switch (field) {
+                    case "sourceAccountRef" -> source = text(json);
+                    case "destinationAccountRef" -> destination = text(json);
+                    case "amount" -> amount = decimal(json);
+                    case "reference" -> reference = text(json);
+                    case "description" -> description = text(json);
+                    case "convert" -> convert = bool(json);
+                    default -> json.skipChildren();
+                }
+            }
+            endObject(json);
+        }
+        return new TransferDto(source, destination, amount, reference, description, convert);
+    }
+
+    public static DepositDto readDeposit(InputStream in) throws IOException {
+        String external = null;
+        String wallet = null;
+        BigDecimal amount = null;
+        String reference = null;
+        String description = null;
+        try (JsonParser json = FACTORY.createParser(in)) {
+            startObject(json);
+            while (json.nextToken() == JsonToken.FIELD_NAME) {
+                String field = json.currentName();
+                json.nextToken();
+                switch (field) {
+                    case "externalAccountRef" -> external = text(json);
+                    case "userWalletRef" -> wallet = text(json);
+                    case "amount" -> amount = decimal(json);
+                    case "reference" -> reference = text(json);
+                    case "description" -> description = text(json);
+                    default -> json.skipChildren();
+                }
+            }
+            endObject(json);
+        }
+        return new DepositDto(external, wallet, amount, reference, description);
+    }
+
+    private static void writeDecimal(JsonGenerator json, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else {
+            json.writeNumber(value);
+        }
+    }
+
+    private static void writeDateTime(JsonGenerator json, LocalDateTime value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else {
+            json.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+
+    private static void startObject(JsonParser json) throws IOException {
+        if (json.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(json, "Expected a JSON object");
+        }
+    }
+
+    private static void endObject(JsonParser json) throws IOException {
+        if (json.currentToken() != JsonToken.END_OBJECT) {
+            throw new JsonParseException(json, "Expected a field name or the end of the object");
+        }
+    }
+
+    private static String text(JsonParser json) throws IOException {
+        return switch (json.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> json.getText();
+            default -> throw new JsonParseException(json, "Expected a string for " + json.currentName());
+        };
+    }
+
+    private static BigDecimal decimal(JsonParser json) throws IOException {
+        return switch (json.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> json.getDecimalValue();
+            case VALUE_STRING -> {
+                try {
+                    yield new BigDecimal(json.getText());
+                } catch (NumberFormatException e) {
+                    throw new JsonParseException(json, "Expected a number for " + json.currentName());
+                }
+            }
+            default -> throw new JsonParseException(json, "Expected a number for " + json.currentName());
+        };
+    }
+
+    private static Boolean bool(JsonParser json) throws IOException {
+        return switch (json.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            default -> throw new JsonParseException(json, "Expected a boolean for " + json.currentName());
+        };
+    }
+}
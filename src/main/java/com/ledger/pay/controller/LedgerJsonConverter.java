@@ -0,0 +1,58 @@
+package com.ledger.pay.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dto.DepositDto;
+import dto.TransactionResponse;
+import dto.TransferDto;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Serves the ledger's hot request and response types through {@link LedgerJson}; every other type
+ * falls through to the default Jackson converter. Spring Boot registers converter beans ahead of
+ * its defaults.
+ */
+@Component
+public class LedgerJsonConverter extends AbstractHttpMessageConverter<Object> {
+
+    public LedgerJsonConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == TransactionResponse.class || clazz == TransferDto.class || clazz == DepositDto.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return (clazz == TransferDto.class || clazz == DepositDto.class) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return clazz == TransactionResponse.class && canWrite(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return clazz == TransferDto.class
+                    ? LedgerJson.readTransfer(inputMessage.getBody())
+                    : LedgerJson.readDeposit(inputMessage.getBody());
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException("JSON parse error: " + e.getOriginalMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object response, HttpOutputMessage outputMessage) throws IOException {
+        LedgerJson.write((TransactionResponse) response, outputMessage.getBody());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.admission.AdmissionController;
+import com.ledger.pay.admission.ConcurrencyLimiter;
+import com.ledger.pay.domain.TransferIntent;
+import com.ledger.pay.service.NettingService;
+import dto.NettingWindowResponse;
+import dto.TransferDto;
+import dto.TransferIntentResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/netting")
+public class NettingController {
+    private final NettingService nettingService;
+    private final AdmissionController admissionController;
+
+    // No mailbox: recording an intent does not lock the source account.
+    @PostMapping("/transfers")
+    public ResponseEntity<TransferIntentResponse> defer(@RequestBody TransferDto request) {
+        TransferIntent intent = admissionController.execute(ConcurrencyLimiter.Kind.TRANSFER, request.sourceAccountRef(),
+                () -> nettingService.defer(request.sourceAccountRef(), request.destinationAccountRef(),
+                        request.amount(), request.reference(), request.description()));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(toResponse(intent));
+    }
+
+    @GetMapping("/transfers/{reference}")
+    public ResponseEntity<TransferIntentResponse> intent(@PathVariable("reference") String reference) {
+        return ResponseEntity.ok(toResponse(nettingService.getIntent(reference)));
+    }
+
+    @PostMapping("/windows/close")
+    public ResponseEntity<NettingWindowResponse> closeWindow() {
+        return nettingService.closeWindow(LocalDateTime.now())
+                .map(result -> ResponseEntity.ok(new NettingWindowResponse(result.transactionRef(),
+                        result.netted(), result.rejectedReferences(), result.entries())))
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    /**
+     * References of the transfers settled by a {@code NETTING} transaction.
+     */
+    @GetMapping("/windows/{transactionRef}")
+    public ResponseEntity<List<String>> window(@PathVariable("transactionRef") String transactionRef) {
+        return ResponseEntity.ok(nettingService.intentReferences(transactionRef));
+    }
+
+    private TransferIntentResponse toResponse(TransferIntent intent) {
+        return new TransferIntentResponse(intent.getReference(),
+                intent.getSourceAccount().getAccountRef(),
+                intent.getDestinationAccount().getAccountRef(),
+                intent.getAmount(),
+                intent.getStatus().name(),
+                intent.getNettingTransaction() == null ? null : intent.getNettingTransaction().getReference(),
+                intent.getRejectReason());
+    }
+}
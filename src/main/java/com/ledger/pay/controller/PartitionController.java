@@ -0,0 +1,28 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.archive.PartitionManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/partitions")
+public class PartitionController {
+    private final PartitionManager partitionManager;
+
+    /**
+     * Runs synchronously and returns the tables converted, none when already done. Each table is
+     * locked while it is renamed, so run it once, outside peak traffic.
+     */
+    @PostMapping("/convert")
+    public ResponseEntity<List<String>> convert() {
+        return ResponseEntity.ok(partitionManager.convertIfNeeded());
+    }
+}
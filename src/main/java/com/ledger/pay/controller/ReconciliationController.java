@@ -0,0 +1,21 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.service.StatementService;
+import dto.ReconciliationSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/reconciliation")
+public class ReconciliationController {
+    private final StatementService statementService;
+
+    @GetMapping("/summary")
+    public ResponseEntity<ReconciliationSummary> summary() {
+        return ResponseEntity.ok(statementService.reconcile());
+    }
+}
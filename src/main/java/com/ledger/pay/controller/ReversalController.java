@@ -0,0 +1,78 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.service.ReversalService;
+import dto.RefundDto;
+import dto.ReversalDto;
+import dto.ReversalResponse;
+import dto.TransactionResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1")
+public class ReversalController {
+    private final ReversalService reversalService;
+
+    @PostMapping("/transactions/{reference}/reverse")
+    public ResponseEntity<TransactionResponse> reverse(@PathVariable("reference") String reference,
+                                                       @RequestBody(required = false) ReversalDto request) {
+        Transaction reversal = reversalService.reverse(reference, request == null ? null : request.reason());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(reversal));
+    }
+
+    @PostMapping("/transactions/{reference}/refunds")
+    public ResponseEntity<TransactionResponse> refund(@PathVariable("reference") String reference,
+                                                      @RequestBody RefundDto request) {
+        Transaction refund = reversalService.refund(reference, request.reference(), request.amount(), request.reason());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(refund));
+    }
+
+    @PostMapping("/reversals")
+    public ResponseEntity<ReversalResponse> reverseAll(@RequestBody ReversalDto request) {
+        ReversalService.Result result;
+        if (request.references() != null && !request.references().isEmpty()) {
+            result = reversalService.reverseAll(request.references(), request.reason());
+        } else if (request.from() != null && request.to() != null) {
+            result = reversalService.reverseBetween(request.from(), request.to(), request.accountRef(), request.reason());
+        } else {
+            throw new IllegalArgumentException("Either references or from and to are required");
+        }
+        return ResponseEntity.ok(toResponse(result));
+    }
+
+    @PostMapping("/refunds")
+    public ResponseEntity<ReversalResponse> refundAll(@RequestBody List<RefundDto> request) {
+        List<ReversalService.Request> refunds = request.stream()
+                .map(refund -> ReversalService.Request.refund(refund.transactionRef(), refund.reference(),
+                        refund.amount(), refund.reason()))
+                .toList();
+        return ResponseEntity.ok(toResponse(reversalService.refundAll(refunds)));
+    }
+
+    private TransactionResponse toResponse(Transaction transaction) {
+        return new TransactionResponse(transaction.getId(),
+                transaction.getReference(),
+                transaction.getType().name(),
+                transaction.getStatus().name(),
+                transaction.getAmount(),
+                transaction.getDescription(),
+                transaction.getCreatedAt(),
+                null,
+                null);
+    }
+
+    private ReversalResponse toResponse(ReversalService.Result result) {
+        return new ReversalResponse(result.reversed(), result.refunded(), result.replayed(), result.rejected(),
+                result.batches());
+    }
+}
@@ -0,0 +1,70 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.domain.ScheduledTransfer;
+import com.ledger.pay.enums.Recurrence;
+import com.ledger.pay.service.ScheduledTransferService;
+import dto.ScheduleDto;
+import dto.ScheduleResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/schedules")
+public class ScheduleController {
+    private final ScheduledTransferService scheduledTransferService;
+
+    // No admission control: recording a schedule touches no account row.
+    @PostMapping
+    public ResponseEntity<ScheduleResponse> create(@RequestBody ScheduleDto request) {
+        ScheduledTransfer schedule = scheduledTransferService.create(request.sourceAccountRef(),
+                request.destinationAccountRef(), request.amount(), request.reference(), request.description(),
+                recurrence(request.recurrence()), request.startsAt(), request.endsAt());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(schedule));
+    }
+
+    @GetMapping("/{reference}")
+    public ResponseEntity<ScheduleResponse> get(@PathVariable("reference") String reference) {
+        return ResponseEntity.ok(toResponse(scheduledTransferService.get(reference)));
+    }
+
+    @PostMapping("/{reference}/cancel")
+    public ResponseEntity<ScheduleResponse> cancel(@PathVariable("reference") String reference) {
+        return ResponseEntity.ok(toResponse(scheduledTransferService.cancel(reference)));
+    }
+
+    private static Recurrence recurrence(String recurrence) {
+        if (recurrence == null || recurrence.isBlank()) {
+            return null;
+        }
+        try {
+            return Recurrence.valueOf(recurrence.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown recurrence: " + recurrence);
+        }
+    }
+
+    private ScheduleResponse toResponse(ScheduledTransfer schedule) {
+        return new ScheduleResponse(schedule.getReference(),
+                schedule.getSourceAccountRef(),
+                schedule.getDestinationAccountRef(),
+                schedule.getAmount(),
+                schedule.getRecurrence().name(),
+                schedule.getStartsAt(),
+                schedule.getEndsAt(),
+                schedule.getNextRunAt(),
+                schedule.getOccurrence(),
+                schedule.getFailures(),
+                schedule.getLastError(),
+                schedule.getStatus().name());
+    }
+}
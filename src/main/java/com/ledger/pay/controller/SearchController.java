@@ -0,0 +1,37 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.enums.SearchScope;
+import com.ledger.pay.search.TransactionSearchService;
+import dto.TransactionSearchResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/search")
+public class SearchController {
+    private final TransactionSearchService transactionSearchService;
+
+    @GetMapping("/transactions")
+    public ResponseEntity<TransactionSearchResponse> transactions(@RequestParam(name = "reference", required = false) String reference,
+                                                                  @RequestParam(name = "text", required = false) String text,
+                                                                  @RequestParam(name = "accountRef", required = false) String accountRef,
+                                                                  @RequestParam(name = "key", required = false) String key,
+                                                                  @RequestParam(name = "value", required = false) String value,
+                                                                  @RequestParam(name = "scope", defaultValue = "ANY") SearchScope scope,
+                                                                  @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                  @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                  @RequestParam(name = "cursor", required = false) String cursor,
+                                                                  @RequestParam(name = "size", defaultValue = "50") int size) {
+        TransactionSearchService.Criteria criteria = new TransactionSearchService.Criteria(reference, text, accountRef,
+                key, value, scope, from, to);
+        return ResponseEntity.ok(transactionSearchService.search(criteria, cursor, size));
+    }
+}
@@ -0,0 +1,40 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.domain.SettlementImport;
+import com.ledger.pay.repository.SettlementImportRepository;
+import dto.SettlementImportResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/settlements")
+public class SettlementController {
+    private final SettlementImportRepository importRepository;
+
+    @GetMapping("/imports")
+    public ResponseEntity<List<SettlementImportResponse>> imports() {
+        return ResponseEntity.ok(importRepository.findTop50ByOrderByIdDesc().stream()
+                .map(this::toResponse)
+                .toList());
+    }
+
+    private SettlementImportResponse toResponse(SettlementImport settlementImport) {
+        return new SettlementImportResponse(settlementImport.getId(),
+                settlementImport.getFileName(),
+                settlementImport.getFileSize(),
+                settlementImport.getCommittedOffset(),
+                settlementImport.getStatus().name(),
+                settlementImport.getApplied(),
+                settlementImport.getDuplicates(),
+                settlementImport.getFailed(),
+                settlementImport.getRecordsPerSecond(),
+                settlementImport.getCreatedAt(),
+                settlementImport.getCompletedAt());
+    }
+}
@@ -0,0 +1,68 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.domain.Saga;
+import com.ledger.pay.repository.SagaRepository;
+import com.ledger.pay.sharding.Resharder;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.SagaResponse;
+import dto.ShardAssignmentResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+
+@RestController
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/sharding")
+public class ShardingController {
+    private final ShardRouter router;
+    private final Resharder resharder;
+    private final SagaRepository sagaRepository;
+
+    @GetMapping("/accounts/{accountRef}")
+    public ResponseEntity<ShardAssignmentResponse> shardOf(@PathVariable("accountRef") String accountRef) {
+        return ResponseEntity.ok(new ShardAssignmentResponse(accountRef, router.shardOf(accountRef),
+                router.isMoved(accountRef)));
+    }
+
+    /**
+     * Runs synchronously; moves at most {@code limit} wallets onto a ring of {@code ringShards}.
+     */
+    @PostMapping("/rebalance")
+    public ResponseEntity<Resharder.Result> rebalance(@RequestParam(name = "ringShards") int ringShards,
+                                                      @RequestParam(name = "limit", defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(resharder.rebalance(ringShards, limit));
+    }
+
+    // A saga lives on the shard of its first step, which the id does not tell, so shards are probed.
+    @GetMapping("/sagas/{sagaId}")
+    public ResponseEntity<SagaResponse> saga(@PathVariable("sagaId") String sagaId) {
+        for (int shard = 0; shard < router.shardCount(); shard++) {
+            int current = shard;
+            Optional<Saga> saga = router.on(shard, () -> sagaRepository.findBySagaId(sagaId));
+            if (saga.isPresent()) {
+                return ResponseEntity.ok(toResponse(saga.get(), current));
+            }
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    private SagaResponse toResponse(Saga saga, int shard) {
+        return new SagaResponse(saga.getSagaId(),
+                saga.getType().name(),
+                saga.getStatus().name(),
+                saga.getCurrentStep(),
+                saga.getFailureReason(),
+                shard,
+                saga.getContext(),
+                saga.getUpdatedAt());
+    }
+}
@@ -0,0 +1,79 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.domain.WebhookDelivery;
+import com.ledger.pay.domain.WebhookEndpoint;
+import com.ledger.pay.webhook.WebhookService;
+import dto.WebhookDeliveryResponse;
+import dto.WebhookEndpointDto;
+import dto.WebhookEndpointResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/webhooks/endpoints")
+@ConditionalOnProperty(name = "app.webhooks.enabled", havingValue = "true")
+public class WebhookController {
+    private final WebhookService webhookService;
+
+    @PostMapping
+    public ResponseEntity<WebhookEndpointResponse> register(@RequestBody WebhookEndpointDto request) {
+        WebhookEndpoint endpoint = webhookService.register(request.accountRef(), request.url(),
+                request.eventTypes(), request.maxConcurrency());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(endpoint, true));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<WebhookEndpointResponse>> list(@RequestParam("accountRef") String accountRef) {
+        return ResponseEntity.ok(webhookService.endpointsOf(accountRef).stream()
+                .map(endpoint -> toResponse(endpoint, false))
+                .toList());
+    }
+
+    @PostMapping("/{id}/disable")
+    public ResponseEntity<WebhookEndpointResponse> disable(@PathVariable("id") long id) {
+        return ResponseEntity.ok(toResponse(webhookService.disable(id), false));
+    }
+
+    @GetMapping("/{id}/deliveries")
+    public ResponseEntity<List<WebhookDeliveryResponse>> deliveries(@PathVariable("id") long id) {
+        return ResponseEntity.ok(webhookService.deliveries(id).stream()
+                .map(WebhookController::toResponse)
+                .toList());
+    }
+
+    private static WebhookEndpointResponse toResponse(WebhookEndpoint endpoint, boolean withSecret) {
+        return new WebhookEndpointResponse(endpoint.getId(),
+                endpoint.getAccountRef(),
+                endpoint.getUrl(),
+                endpoint.getEventTypes() == null ? null : Arrays.asList(endpoint.getEventTypes().split(",")),
+                endpoint.getMaxConcurrency(),
+                endpoint.isEnabled(),
+                withSecret ? endpoint.getSecret() : null);
+    }
+
+    private static WebhookDeliveryResponse toResponse(WebhookDelivery delivery) {
+        return new WebhookDeliveryResponse(delivery.getId(),
+                delivery.getEventKey(),
+                delivery.getEventType(),
+                delivery.getStatus().name(),
+                delivery.getAttempts(),
+                delivery.getLastStatusCode(),
+                delivery.getLastError(),
+                delivery.getCreatedAt(),
+                delivery.getNextAttemptAt(),
+                delivery.getDeliveredAt());
+    }
+}
@@ -0,0 +1,140 @@
+package com.ledger.pay.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many connections can be checked out at once, in front of the pool.
+ * <p>
+ * With virtual threads, request concurrency is no longer bounded by the Tomcat pool, so thousands
+ * of threads can ask Hikari for a connection at the same moment. Waiting here on a fair
+ * {@link Semaphore} is cheap for a virtual thread, keeps FIFO order, and fails after
+ * {@code maxWait} with a transient exception instead of a pool timeout storm.
+ */
+public class ConnectionGateDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final Timer waitTimer;
+    private final Counter timeoutCounter;
+
+    public ConnectionGateDataSource(DataSource target, int permits, Duration maxWait, MeterRegistry registry) {
+        this(target, permits, maxWait, registry, Tags.empty());
+    }
+
+    /**
+     * A gate whose meters carry {@code tags}, for one of several gates, such as one per shard.
+     */
+    public ConnectionGateDataSource(DataSource target, int permits, Duration maxWait, MeterRegistry registry,
+                                    Tags tags) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.maxWaitNanos = maxWait.toNanos();
+
+        Gauge.builder("ledger.datasource.gate.available", this.permits, Semaphore::availablePermits)
+                .tags(tags)
+                .description("Connection permits currently free")
+                .register(registry);
+        Gauge.builder("ledger.datasource.gate.waiting", this.permits, Semaphore::getQueueLength)
+                .tags(tags)
+                .description("Threads waiting for a connection permit")
+                .register(registry);
+        this.waitTimer = Timer.builder("ledger.datasource.gate.wait")
+                .tags(tags)
+                .description("Time spent waiting for a connection permit")
+                .register(registry);
+        this.timeoutCounter = Counter.builder("ledger.datasource.gate.timeouts")
+                .tags(tags)
+                .description("Connection requests that gave up waiting for a permit")
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return gated(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return gated(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection permit", e);
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            timeoutCounter.increment();
+            throw new SQLTransientConnectionException("No connection permit available within "
+                    + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+        }
+    }
+
+    /**
+     * Returns the permit when the connection is closed. Closing twice releases only once.
+     */
+    private Connection gated(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        if (released.compareAndSet(false, true)) {
+                            try {
+                                connection.close();
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    if ("equals".equals(method.getName())) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(method.getName())) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,40 @@
+package com.ledger.pay.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // Zero when the replica has replayed everything it received, so an idle primary
+    // does not make a caught-up replica look stale.
+    private static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0)
+            END
+            """;
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.check-interval-ms:2000}")
+    public void checkReplicas() {
+        for (ReplicaRoutingDataSource.Replica replica : routingDataSource.getReplicas()) {
+            try {
+                Double lag = new JdbcTemplate(replica.getDataSource()).queryForObject(LAG_SQL, Double.class);
+                replica.updateLag(lag == null ? Long.MAX_VALUE : lag.longValue());
+            } catch (Exception e) {
+                log.warn("Lag check failed for replica {}: {}", replica.getName(), e.getMessage());
+                replica.markDown();
+            }
+        }
+    }
+}
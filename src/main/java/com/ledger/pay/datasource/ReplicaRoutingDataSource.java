@@ -0,0 +1,174 @@
+package com.ledger.pay.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends connections for {@code @Transactional(readOnly = true)} work to a healthy replica and
+ * everything else to the primary. A replica is used only while its last measured lag is within
+ * {@code maxLag}; if none qualifies, or the chosen replica refuses a connection, the read falls
+ * back to the primary.
+ * <p>
+ * Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the
+ * physical connection is fetched after the transaction's read-only flag has been bound.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryCounter;
+    private final Counter fallbackCounter;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Duration maxLag,
+                                    MeterRegistry registry) {
+        this.primary = primary;
+        this.maxLagMillis = maxLag.toMillis();
+        this.primaryCounter = routeCounter(registry, PRIMARY);
+        this.fallbackCounter = Counter.builder("ledger.datasource.replica.fallback")
+                .description("Read-only connections served by the primary because no replica was usable")
+                .register(registry);
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource, routeCounter(registry, name));
+            Gauge.builder("ledger.datasource.replica.lag", replica, Replica::getLagMillis)
+                    .tag("route", name)
+                    .baseUnit("milliseconds")
+                    .description("Last measured replication lag")
+                    .register(registry);
+            Gauge.builder("ledger.datasource.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                    .tag("route", name)
+                    .description("1 if the replica is receiving read-only traffic")
+                    .register(registry);
+            this.replicas.add(replica);
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Whether a read-only transaction started now would be served by a replica.
+     */
+    public boolean hasHealthyReplica() {
+        for (Replica replica : replicas) {
+            if (replica.isHealthy()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryCounter.increment();
+            return source.open(primary);
+        }
+        Replica replica = pickReplica();
+        if (replica != null) {
+            try {
+                Connection connection = source.open(replica.dataSource);
+                replica.counter.increment();
+                return connection;
+            } catch (SQLException e) {
+                log.warn("Replica {} unavailable, falling back to primary: {}", replica.name, e.getMessage());
+                replica.markDown();
+            }
+        }
+        fallbackCounter.increment();
+        primaryCounter.increment();
+        return source.open(primary);
+    }
+
+    private Replica pickReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isHealthy()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static Counter routeCounter(MeterRegistry registry, String route) {
+        return Counter.builder("ledger.datasource.connections")
+                .tag("route", route)
+                .description("Connections handed out per route")
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    @Getter
+    public final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final Counter counter;
+        private volatile long lagMillis = Long.MAX_VALUE;
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource, Counter counter) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.counter = counter;
+        }
+
+        public void updateLag(long lagMillis) {
+            this.lagMillis = lagMillis;
+            this.healthy = lagMillis <= maxLagMillis;
+        }
+
+        public void markDown() {
+            this.healthy = false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ledger.pay.datasource;
+
+import com.ledger.pay.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Hands out connections from the shard bound by {@link ShardContext}, shard 0 when none is bound.
+ * A transaction fetches its connection when it begins, so callers bind the shard first (see
+ * {@link com.ledger.pay.sharding.ShardRouter}) and every statement of the transaction then runs on
+ * that shard.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final List<DataSource> pools;
+    private volatile List<DataSource> shards;
+    private final List<Counter> counters = new ArrayList<>();
+
+    public ShardRoutingDataSource(List<DataSource> shards, MeterRegistry registry) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard data source is required");
+        }
+        this.pools = List.copyOf(shards);
+        this.shards = this.pools;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            counters.add(Counter.builder("ledger.sharding.connections")
+                    .tag("shard", String.valueOf(shard))
+                    .description("Connections handed out per shard")
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    private DataSource target() throws SQLException {
+        int shard = ShardContext.current();
+        if (shard >= shards.size()) {
+            throw new SQLException("No data source configured for shard " + shard);
+        }
+        counters.get(shard).increment();
+        return shards.get(shard);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * Routes each shard's connections through {@code wrapper}, given the shard and its pool, so a
+     * connection gate can be sized to that shard's pool alone. Close still closes the pools.
+     */
+    public void wrapShards(BiFunction<Integer, DataSource, DataSource> wrapper) {
+        List<DataSource> wrapped = new ArrayList<>(pools.size());
+        for (int shard = 0; shard < pools.size(); shard++) {
+            wrapped.add(wrapper.apply(shard, pools.get(shard)));
+        }
+        shards = List.copyOf(wrapped);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : pools) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -43,21 +43,45 @@ public class Account extends BaseEntity {
     @Builder.Default
     @Column(name = "total_withdrawal", nullable = false, precision = 19, scale = 4, columnDefinition = "DECIMAL(19,4) DEFAULT 0.0000")
     private BigDecimal totalWithdrawal = BigDecimal.ZERO;
+    /**
+     * Sum of active holds, maintained as holds are placed and released so the available balance
+     * never has to be computed from the holds table.
+     */
+    @Builder.Default
+    @Column(name = "held_balance", nullable = false, precision = 19, scale = 4, columnDefinition = "DECIMAL(19,4) DEFAULT 0.0000")
+    private BigDecimal heldBalance = BigDecimal.ZERO;
     @Version
     int version;
 
-    public  void  withdraw(Transaction transaction){
-        this.totalWithdrawal = this.totalWithdrawal.add(transaction.getAmount());
-        this.accountBalance = this.totalDeposit.subtract(this.totalWithdrawal);
+    public BigDecimal getAvailableBalance() {
+        return accountBalance.subtract(heldBalance);
+    }
 
+    public void hold(BigDecimal amount) {
+        this.heldBalance = this.heldBalance.add(amount);
+    }
 
+    public void releaseHold(BigDecimal amount) {
+        this.heldBalance = this.heldBalance.subtract(amount);
     }
-    public  Transaction  deposit(Transaction transaction){
-        this.totalDeposit = this.totalDeposit.add(transaction.getAmount());
+
+    public  void  withdraw(Transaction transaction){
+        withdraw(transaction.getAmount());
+    }
+
+    public void withdraw(BigDecimal amount) {
+        this.totalWithdrawal = this.totalWithdrawal.add(amount);
         this.accountBalance = this.totalDeposit.subtract(this.totalWithdrawal);
-        return transaction;
+    }
 
+    public  Transaction  deposit(Transaction transaction){
+        deposit(transaction.getAmount());
+        return transaction;
+    }
 
+    public void deposit(BigDecimal amount) {
+        this.totalDeposit = this.totalDeposit.add(amount);
+        this.accountBalance = this.totalDeposit.subtract(this.totalWithdrawal);
     }
 
 }
@@ -0,0 +1,59 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Activity of one account in one hour or day, kept up to date by {@code RollupPipeline}. Entries
+ * count towards the bucket of their {@code created_at}, however late they are rolled up.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "balance_rollups",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_balance_rollups_bucket",
+                        columnNames = {"account_id", "granularity", "bucket_start"})
+        }
+)
+public class BalanceRollup extends BaseEntity {
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "credit_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal creditAmount;
+
+    @Column(name = "debit_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal debitAmount;
+
+    @Column(name = "credit_count", nullable = false)
+    private long creditCount;
+
+    @Column(name = "debit_count", nullable = false)
+    private long debitCount;
+
+    /**
+     * Balance after the bucket's entry with the highest chain sequence.
+     */
+    @Column(name = "closing_balance", nullable = false, precision = 19, scale = 4)
+    private BigDecimal closingBalance;
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+}
@@ -0,0 +1,66 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.HoldStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Authorization hold: reserves {@code amount} of the source account's available balance until it
+ * is captured into a transfer, voided, or expires.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "holds",
+        indexes = {
+                @Index(name = "idx_holds_expiry", columnList = "status, expires_at")
+        }
+)
+public class Hold extends BaseEntity {
+    @Column(nullable = false, unique = true, length = 100)
+    private String reference;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "source_account_id", nullable = false)
+    private Account sourceAccount;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "destination_account_id", nullable = false)
+    private Account destinationAccount;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(name = "captured_amount", precision = 19, scale = 4)
+    private BigDecimal capturedAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private HoldStatus status = HoldStatus.ACTIVE;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "idempotency_hash", length = 64)
+    private String idempotencyHash;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "capture_transaction_id")
+    private Transaction captureTransaction;
+
+    public boolean isExpired(LocalDateTime now) {
+        return status == HoldStatus.ACTIVE && !expiresAt.isAfter(now);
+    }
+}
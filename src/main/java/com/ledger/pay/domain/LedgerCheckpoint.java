@@ -0,0 +1,51 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Merkle root over the hashes of a closed month of ledger entries, the same range as one
+ * monthly partition. Publishing the roots outside the database lets an auditor detect any later
+ * change to that month, including deleted entries, which a per-account chain alone cannot show
+ * at its tail.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "ledger_checkpoints",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_ledger_checkpoints_period", columnNames = "period")
+        }
+)
+public class LedgerCheckpoint extends BaseEntity {
+    /**
+     * {@code yyyyMM}, matching the partition suffix.
+     */
+    @Column(nullable = false, length = 6)
+    private String period;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDateTime periodStart;
+
+    @Column(name = "period_end", nullable = false)
+    private LocalDateTime periodEnd;
+
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+
+    @Column(name = "first_entry_id")
+    private Long firstEntryId;
+
+    @Column(name = "last_entry_id")
+    private Long lastEntryId;
+
+    @Column(name = "merkle_root", nullable = false, length = 64)
+    private String merkleRoot;
+}
@@ -16,9 +16,13 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 @Table(
         name = "ledger_entries",
+        uniqueConstraints = {
+                // One entry per chain position; also the index chains are read in order through.
+                @UniqueConstraint(name = "uk_ledger_entries_chain_position", columnNames = {"account_id", "chain_sequence"})
+        },
         indexes = {
                 @Index(name = "idx_ledger_txn", columnList = "transaction_id"),
-                @Index(name = "idx_ledger_account", columnList = "account_id")
+                @Index(name = "idx_ledger_account", columnList = "account_id, created_at")
         }
 )
 public class LedgerEntry extends BaseEntity {
@@ -38,5 +42,17 @@ public class LedgerEntry extends BaseEntity {
     @Column(nullable = false, precision = 19, scale = 4)
     private BigDecimal amount;
 
+    /**
+     * Position in the account's hash chain, from 1. Entries written before the chain existed
+     * have no sequence or hashes.
+     */
+    @Column(name = "chain_sequence")
+    private Long sequence;
+
+    @Column(name = "prev_hash", length = 64)
+    private String prevHash;
+
+    @Column(name = "entry_hash", length = 64)
+    private String entryHash;
 
 }
@@ -0,0 +1,33 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * How far an account's hash chain has been rolled up, and its balance at that point.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "rollup_cursors",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_rollup_cursors_account", columnNames = "account_id")
+        }
+)
+public class RollupCursor extends BaseEntity {
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "last_sequence", nullable = false)
+    private long lastSequence;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal balance;
+}
@@ -0,0 +1,29 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Ledger entry id up to which every entry has been rolled up, one row per shard database. Its row
+ * lock keeps two nodes from rolling up the same shard at once.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "rollup_watermarks",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_rollup_watermarks_name", columnNames = "name")
+        }
+)
+public class RollupWatermark extends BaseEntity {
+    @Column(nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "last_entry_id", nullable = false)
+    private long lastEntryId;
+}
@@ -0,0 +1,91 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.Recurrence;
+import com.ledger.pay.enums.ScheduleStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A transfer to run at {@code nextRunAt}, once or repeatedly. One row per schedule, however many
+ * times it runs: occurrences are never materialized, only counted. Occurrence {@code n} is posted
+ * with the reference {@code <reference>:<n>}, so running it again after a crash replays the
+ * original transaction instead of paying twice.
+ * <p>
+ * Accounts are referenced by {@code accountRef} because schedules live on shard 0 while the
+ * accounts may be on any shard.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "scheduled_transfers",
+        indexes = {
+                @Index(name = "idx_scheduled_transfers_due", columnList = "status, next_run_at, id")
+        }
+)
+public class ScheduledTransfer extends BaseEntity {
+    @Column(nullable = false, unique = true, length = 80)
+    private String reference;
+
+    @Column(name = "source_account_ref", nullable = false, length = 100)
+    private String sourceAccountRef;
+
+    @Column(name = "destination_account_ref", nullable = false, length = 100)
+    private String destinationAccountRef;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Recurrence recurrence;
+
+    @Column(name = "starts_at", nullable = false)
+    private LocalDateTime startsAt;
+
+    @Column(name = "ends_at")
+    private LocalDateTime endsAt;
+
+    /**
+     * Due time of occurrence {@link #occurrence}; null once the schedule has ended.
+     */
+    @Column(name = "next_run_at")
+    private LocalDateTime nextRunAt;
+
+    /**
+     * Occurrences already run, successfully or not.
+     */
+    @Column(nullable = false)
+    private int occurrence;
+
+    @Column(nullable = false)
+    private int failures;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private ScheduleStatus status = ScheduleStatus.ACTIVE;
+
+    /**
+     * Set while a node is running the current occurrence, so other nodes skip it.
+     */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    public String runReference() {
+        return reference + ":" + occurrence;
+    }
+}
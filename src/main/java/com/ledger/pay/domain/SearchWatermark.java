@@ -0,0 +1,35 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * How far {@code SearchIndexer} has read a source table on one shard database. Its row lock keeps
+ * two nodes from indexing the same source at once.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "search_watermarks",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_search_watermarks_name", columnNames = "name")
+        }
+)
+public class SearchWatermark extends BaseEntity {
+    @Column(nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+
+    /**
+     * Last id to read, for a source read only once (the backfill); null for a feed.
+     */
+    @Column(name = "target_id")
+    private Long targetId;
+}
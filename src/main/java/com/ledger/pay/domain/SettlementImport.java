@@ -0,0 +1,63 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.SettlementImportStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of one settlement file. {@code committedOffset} is the byte offset of the first line
+ * not yet applied; it is written in the same DB transaction as the deposits before it, so an
+ * interrupted import resumes exactly where it stopped.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "settlement_imports",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_settlement_imports_file", columnNames = {"file_name", "file_size"})
+        }
+)
+public class SettlementImport extends BaseEntity {
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    @Column(name = "committed_offset", nullable = false)
+    private long committedOffset;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private SettlementImportStatus status = SettlementImportStatus.RUNNING;
+
+    @Column(nullable = false)
+    private long applied;
+
+    @Column(nullable = false)
+    private long duplicates;
+
+    @Column(nullable = false)
+    private long failed;
+
+    /**
+     * Time spent ingesting, summed over resumed runs.
+     */
+    @Column(name = "elapsed_millis", nullable = false)
+    private long elapsedMillis;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public double getRecordsPerSecond() {
+        return elapsedMillis == 0 ? 0 : (applied + duplicates + failed) * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Account placed on a shard other than the one the hash ring picks, written by the resharder when
+ * it moves an account. Kept on shard 0 only and cached by every node's
+ * {@link com.ledger.pay.sharding.ShardRouter}.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "shard_assignments",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_shard_assignments_account_ref", columnNames = "account_ref")
+        }
+)
+public class ShardAssignment extends BaseEntity {
+
+    @Column(name = "account_ref", nullable = false, length = 100)
+    private String accountRef;
+
+    @Column(nullable = false)
+    private int shard;
+}
@@ -44,6 +44,11 @@ public class Transaction extends BaseEntity {
     @Column(name = "amount", nullable = false, precision = 19, scale = 4)
     private BigDecimal amount;
 
+    /**
+     * Sum of the refunds posted against this transaction, {@code null} until the first one.
+     */
+    @Column(name = "refunded_amount", precision = 19, scale = 4)
+    private BigDecimal refundedAmount;
 
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb")
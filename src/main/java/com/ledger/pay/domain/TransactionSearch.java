@@ -0,0 +1,66 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Searchable copy of a transaction, written by {@code SearchIndexer} so that search indexes never
+ * slow down posting. {@code terms} holds the accounts the transaction moved and the keys and
+ * scalar values of its own and those accounts' metadata (see {@code SearchTerms}). The trigram,
+ * full-text and term indexes are created by {@code SearchIndexer}; JPA cannot declare them.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "transaction_search",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_transaction_search_transaction", columnNames = "transaction_id")
+        },
+        indexes = {
+                @Index(name = "idx_transaction_search_posted", columnList = "posted_at, reference")
+        }
+)
+public class TransactionSearch extends BaseEntity {
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(nullable = false, length = 100)
+    private String reference;
+
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    @Column(nullable = false, length = 50)
+    private String status;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> metadata;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false, columnDefinition = "text[]")
+    private String[] terms;
+
+    /**
+     * When the transaction was created.
+     */
+    @Column(name = "posted_at", nullable = false)
+    private LocalDateTime postedAt;
+}
@@ -0,0 +1,60 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.IntentStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Deferred transfer waiting for the next netting window. Recording one touches no account row;
+ * at window close it is folded into the account's net position and linked to the summary
+ * {@code NETTING} transaction that moved the money.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "transfer_intents",
+        indexes = {
+                @Index(name = "idx_transfer_intents_status", columnList = "status, id"),
+                @Index(name = "idx_transfer_intents_netting", columnList = "netting_transaction_id")
+        }
+)
+public class TransferIntent extends BaseEntity {
+    @Column(nullable = false, unique = true, length = 100)
+    private String reference;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "source_account_id", nullable = false)
+    private Account sourceAccount;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "destination_account_id", nullable = false)
+    private Account destinationAccount;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private IntentStatus status = IntentStatus.PENDING;
+
+    @Column(name = "idempotency_hash", length = 64)
+    private String idempotencyHash;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "netting_transaction_id")
+    private Transaction nettingTransaction;
+
+    @Column(name = "reject_reason")
+    private String rejectReason;
+}
@@ -0,0 +1,69 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import com.ledger.pay.enums.DeliveryStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * One event to be sent to one webhook endpoint; the durable queue the dispatcher works from. The
+ * endpoint is kept as a plain id so claiming deliveries locks no endpoint row. {@code eventKey}
+ * identifies the event, so a Kafka redelivery does not queue it twice.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "webhook_deliveries",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_webhook_deliveries_event", columnNames = {"endpoint_id", "event_key"})
+        },
+        indexes = {
+                @Index(name = "idx_webhook_deliveries_due", columnList = "status, next_attempt_at, id")
+        }
+)
+public class WebhookDelivery extends BaseEntity {
+    @Column(name = "endpoint_id", nullable = false)
+    private Long endpointId;
+
+    @Column(name = "event_key", nullable = false, length = 200)
+    private String eventKey;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private Map<String, Object> payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private DeliveryStatus status = DeliveryStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "last_status_code")
+    private Integer lastStatusCode;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+}
@@ -0,0 +1,48 @@
+package com.ledger.pay.domain;
+
+import com.ledger.pay.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A merchant URL that receives the payment events of one account. {@code eventTypes} is a
+ * comma-separated list of {@code EventType} names, or null for all of them.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Builder
+@AllArgsConstructor
+@Table(
+        name = "webhook_endpoints",
+        indexes = {
+                @Index(name = "idx_webhook_endpoints_account_ref", columnList = "account_ref")
+        }
+)
+public class WebhookEndpoint extends BaseEntity {
+    @Column(name = "account_ref", nullable = false, length = 100)
+    private String accountRef;
+
+    @Column(nullable = false, length = 500)
+    private String url;
+
+    /**
+     * Key for the {@code X-Ledger-Signature} HMAC, so the merchant can verify deliveries.
+     */
+    @Column(nullable = false, length = 100)
+    private String secret;
+
+    @Column(name = "event_types")
+    private String eventTypes;
+
+    /**
+     * Requests in flight to this URL at once; the configured default when null.
+     */
+    @Column(name = "max_concurrency")
+    private Integer maxConcurrency;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean enabled = true;
+}
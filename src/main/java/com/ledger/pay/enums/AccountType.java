@@ -4,5 +4,8 @@ public enum AccountType {
     USER_WALLET,
     SYSTEM,
     EXTERNAL,
-    HOLD
+    HOLD,
+    FX_POSITION,
+    FEE_REVENUE,
+    MOVED
 }
@@ -3,5 +3,7 @@ package com.ledger.pay.enums;
 public enum AggregateType {
     TRANSACTION,
     WALLET,
-    ACCOUNT
+    ACCOUNT,
+    HOLD,
+    SAGA
 }
@@ -5,11 +5,18 @@ public enum EventType {
     TRANSFER_FAILED,
     DEPOSIT_COMPLETED,
     WITHDRAWAL_COMPLETED,
+    HOLD_PLACED,
+    HOLD_VOIDED,
+    HOLD_EXPIRED,
+    NETTING_COMPLETED,
+    ACCOUNT_MOVED,
     SAGA_STARTED,
     SAGA_STEP_REQUESTED,
     SAGA_STEP_COMPLETED,
     SAGA_STEP_FAILED,
     SAGA_COMPLETED,
     SAGA_COMPENSATION_REQUESTED,
-    SAGA_FAILED
+    SAGA_FAILED,
+    TRANSACTION_REVERSED,
+    TRANSACTION_REFUNDED
 }
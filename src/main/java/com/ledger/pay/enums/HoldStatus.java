@@ -0,0 +1,8 @@
+package com.ledger.pay.enums;
+
+public enum HoldStatus {
+    ACTIVE,
+    CAPTURED,
+    VOIDED,
+    EXPIRED
+}
@@ -0,0 +1,7 @@
+package com.ledger.pay.enums;
+
+public enum IntentStatus {
+    PENDING,
+    NETTED,
+    REJECTED
+}
@@ -0,0 +1,27 @@
+package com.ledger.pay.enums;
+
+import java.time.LocalDateTime;
+
+/**
+ * How often a scheduled transfer repeats. Occurrences are counted from the schedule's start rather
+ * than from the previous run, so a late run does not shift the ones after it and a monthly
+ * schedule starting on the 31st comes back to the 31st after shorter months.
+ */
+public enum Recurrence {
+    ONCE,
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    /**
+     * When occurrence {@code index} (0 for the first run) is due, or null if there is none.
+     */
+    public LocalDateTime occurrence(LocalDateTime startsAt, int index) {
+        return switch (this) {
+            case ONCE -> index == 0 ? startsAt : null;
+            case DAILY -> startsAt.plusDays(index);
+            case WEEKLY -> startsAt.plusWeeks(index);
+            case MONTHLY -> startsAt.plusMonths(index);
+        };
+    }
+}
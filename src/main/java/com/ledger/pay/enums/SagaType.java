@@ -3,5 +3,7 @@ package com.ledger.pay.enums;
 public enum SagaType {
     PAYMENT,
     WITHDRAWAL,
-    REFUND
+    REFUND,
+    CROSS_SHARD_TRANSFER,
+    RESHARD
 }
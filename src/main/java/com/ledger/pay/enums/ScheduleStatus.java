@@ -0,0 +1,7 @@
+package com.ledger.pay.enums;
+
+public enum ScheduleStatus {
+    ACTIVE,
+    COMPLETED,
+    CANCELLED
+}
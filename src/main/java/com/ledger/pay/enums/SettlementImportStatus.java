@@ -0,0 +1,6 @@
+package com.ledger.pay.enums;
+
+public enum SettlementImportStatus {
+    RUNNING,
+    COMPLETED
+}
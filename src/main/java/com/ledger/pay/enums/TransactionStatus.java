@@ -4,5 +4,6 @@ public enum TransactionStatus {
     PENDING,
     COMPLETED,
     FAILED,
-    REVERSED
+    REVERSED,
+    REFUNDED
 }
@@ -6,5 +6,10 @@ public enum TransactionType {
     DEPOSIT,
     WITHDRAWAL,
     HOLD,
-    CAPTURE
+    CAPTURE,
+    NETTING,
+    FX_TRANSFER,
+    RESHARD,
+    REVERSAL,
+    REFUND
 }
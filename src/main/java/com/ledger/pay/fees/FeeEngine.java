@@ -0,0 +1,173 @@
+package com.ledger.pay.fees;
+
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.domain.Account;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prices transfers from an in-memory {@link FeeSchedule}.
+ * <p>
+ * Like {@code FxRates}, the schedule sits behind an {@link AtomicReference}: a reload compiles a
+ * complete new schedule off the hot path and swaps it in, so a transfer reads one consistent
+ * schedule without locking or I/O. Rules come from {@code app.fees.rules-file} when it exists,
+ * reread only when its modification time changes, and otherwise from {@code app.fees.rules}. A
+ * file that fails to compile leaves the previous schedule in place.
+ * <p>
+ * The payer's plan is the {@code feePlan} entry of its account metadata. Fees are credited to the
+ * revenue account of the payer's currency; see {@link FeeRevenue} for how those credits are
+ * applied without locking it.
+ */
+@Component
+@Slf4j
+public class FeeEngine {
+
+    public static final String REVENUE_PREFIX = "fees:revenue:";
+    public static final String PLAN_METADATA_KEY = "feePlan";
+
+    private final AtomicReference<FeeSchedule> schedule = new AtomicReference<>();
+    private final FeeProperties properties;
+    private final Path rulesFile;
+    private final Counter loadedCounter;
+    private final Counter failedCounter;
+    private final Counter quotedCounter;
+    private volatile FileTime loadedModified;
+
+    public FeeEngine(FeeProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.rulesFile = properties.rulesFile() == null || properties.rulesFile().isBlank()
+                ? null
+                : Path.of(properties.rulesFile());
+        this.loadedCounter = reloads(registry, "loaded");
+        this.failedCounter = reloads(registry, "failed");
+        this.quotedCounter = Counter.builder("ledger.fees.quoted")
+                .description("Transfer fees quoted, including transfers that later failed")
+                .register(registry);
+        if (!properties.enabled()) {
+            schedule.set(FeeSchedule.empty("disabled"));
+        } else if (!reloadIfChanged()) {
+            if (rulesFile != null) {
+                log.warn("Fee rules file {} not loaded; using the configured rules", rulesFile);
+            }
+            schedule.set(FeeSchedule.compile(properties.rules(), properties.defaultPlan(), "app.fees.rules"));
+        }
+    }
+
+    /**
+     * The fee {@code payer} is charged for moving {@code amount}, or {@code null} when none is.
+     */
+    public Fee quote(Account payer, BigDecimal amount) {
+        BigDecimal fee = schedule.get().fee(plan(payer), payer.getAccountType(), payer.getCurrency(), amount);
+        if (fee == null) {
+            return null;
+        }
+        quotedCounter.increment();
+        return new Fee(fee, revenueAccountRef(payer.getCurrency()));
+    }
+
+    public FeeSchedule current() {
+        return schedule.get();
+    }
+
+    public static String revenueAccountRef(String currency) {
+        return REVENUE_PREFIX + currency;
+    }
+
+    /**
+     * Swaps in the rules file if it changed since the last load. Returns whether a new schedule
+     * was loaded.
+     */
+    public boolean reloadIfChanged() {
+        if (!properties.enabled() || rulesFile == null || !Files.isRegularFile(rulesFile)) {
+            return false;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(rulesFile);
+            if (modified.equals(loadedModified)) {
+                return false;
+            }
+            FeeSchedule compiled = FeeSchedule.compile(parse(Files.readAllLines(rulesFile, StandardCharsets.UTF_8)),
+                    properties.defaultPlan(), rulesFile.toString());
+            schedule.set(compiled);
+            loadedModified = modified;
+            loadedCounter.increment();
+            log.info("Loaded {} fee rules from {}", compiled.rules(), rulesFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedCounter.increment();
+            log.warn("Could not load fee rules from {}, keeping the previous schedule: {}", rulesFile, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses {@code plan,accountType,currency,minAmount,fixed,rate,minFee,maxFee} lines. Empty
+     * fields are unset, {@code *} matches any account type or currency. Blank lines, {@code #}
+     * comments and a {@code plan} header are skipped.
+     */
+    static List<FeeProperties.Rule> parse(List<String> lines) {
+        List<FeeProperties.Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#") || (i == 0 && line.startsWith("plan"))) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 8) {
+                throw new IllegalArgumentException("Line " + (i + 1)
+                        + ": expected plan,accountType,currency,minAmount,fixed,rate,minFee,maxFee");
+            }
+            rules.add(new FeeProperties.Rule(text(fields[0]), text(fields[1]), text(fields[2]),
+                    number(fields[3], i), number(fields[4], i), number(fields[5], i),
+                    number(fields[6], i), number(fields[7], i)));
+        }
+        return rules;
+    }
+
+    private String plan(Account payer) {
+        Map<String, Object> metadata = payer.getMetadata();
+        return metadata != null && metadata.get(PLAN_METADATA_KEY) instanceof String plan ? plan : null;
+    }
+
+    private static String text(String field) {
+        return field.isBlank() ? null : field.strip();
+    }
+
+    private static BigDecimal number(String field, int index) {
+        if (field.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(field.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + (index + 1) + ": invalid number " + field.strip());
+        }
+    }
+
+    private static Counter reloads(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.fees.reloads")
+                .tag("outcome", outcome)
+                .description("Fee rules file loads")
+                .register(registry);
+    }
+
+    /**
+     * @param amount            charged to the payer on top of the transfer, four decimals
+     * @param revenueAccountRef account credited with it
+     */
+    public record Fee(BigDecimal amount, String revenueAccountRef) {
+    }
+}
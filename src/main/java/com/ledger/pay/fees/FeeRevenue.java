@@ -0,0 +1,176 @@
+package com.ledger.pay.fees;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fee revenue accounts, one per currency on every shard, and the flush that keeps their balances
+ * current.
+ * <p>
+ * Every fee-paying transfer would otherwise update the same revenue row and queue behind every
+ * other. Instead a transfer only inserts the fee's credit entry, unlinked from the revenue
+ * account's hash chain and without touching the account. The flush links a batch of those entries
+ * into the chain and adds their sum to the balance in one transaction, so an entry is applied
+ * exactly once even across crashes: the unlinked entries are the durable accumulator. The flush
+ * takes no row lock, which would hold up the foreign key checks of the inserts; two nodes
+ * flushing the same account are told apart by its version, and the loser rolls back. Between
+ * flushes the revenue balance lags its entries.
+ */
+@Component
+@Slf4j
+public class FeeRevenue implements SmartInitializingSingleton {
+
+    private final FeeEngine feeEngine;
+    private final FeeProperties properties;
+    private final AccountRepository accountRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final HashChain hashChain;
+    private final BalanceReadModel balanceReadModel;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> ensured = ConcurrentHashMap.newKeySet();
+    private final Counter appliedCounter;
+
+    public FeeRevenue(FeeEngine feeEngine,
+                      FeeProperties properties,
+                      AccountRepository accountRepository,
+                      LedgerEntryRepository ledgerEntryRepository,
+                      HashChain hashChain,
+                      BalanceReadModel balanceReadModel,
+                      ShardRouter shardRouter,
+                      PlatformTransactionManager transactionManager,
+                      MeterRegistry registry) {
+        this.feeEngine = feeEngine;
+        this.properties = properties;
+        this.accountRepository = accountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.hashChain = hashChain;
+        this.balanceReadModel = balanceReadModel;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appliedCounter = Counter.builder("ledger.fees.revenue.applied")
+                .description("Fee credits applied to revenue account balances")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.enabled()) {
+            ensure();
+        }
+    }
+
+    /**
+     * Creates the revenue accounts for the configured currencies and every currency the current
+     * schedule names, on every shard.
+     */
+    public void ensure() {
+        Set<String> currencies = new HashSet<>(properties.currencies());
+        currencies.addAll(feeEngine.current().currencies());
+        AtomicInteger created = new AtomicInteger();
+        for (String currency : currencies) {
+            if (ensured.contains(currency)) {
+                continue;
+            }
+            shardRouter.forEachShard(shard -> {
+                if (create(FeeEngine.revenueAccountRef(currency), currency)) {
+                    created.incrementAndGet();
+                }
+            });
+            ensured.add(currency);
+        }
+        if (created.get() > 0) {
+            log.info("Created {} fee revenue accounts", created.get());
+        }
+    }
+
+    /**
+     * Applies every pending fee credit to its revenue account on every shard. Returns how many
+     * credits were applied.
+     */
+    public int flush() {
+        AtomicInteger applied = new AtomicInteger();
+        shardRouter.forEachShard(shard -> {
+            for (String currency : ensured) {
+                int batch;
+                try {
+                    do {
+                        batch = applyBatch(FeeEngine.revenueAccountRef(currency));
+                        applied.addAndGet(batch);
+                    } while (batch == properties.flushBatchSize());
+                } catch (OptimisticLockingFailureException e) {
+                    log.debug("Fee revenue {} on shard {} flushed concurrently; retrying next time", currency, shard);
+                }
+            }
+        });
+        appliedCounter.increment(applied.get());
+        return applied.get();
+    }
+
+    int applyBatch(String revenueAccountRef) {
+        Integer applied = transactionTemplate.execute(status -> {
+            Account revenue = accountRepository.findByAccountRef(revenueAccountRef).orElse(null);
+            if (revenue == null) {
+                return 0;
+            }
+            List<LedgerEntry> entries = ledgerEntryRepository.findUnchained(revenue.getId(),
+                    PageRequest.of(0, properties.flushBatchSize()));
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            BigDecimal total = BigDecimal.ZERO;
+            for (LedgerEntry entry : entries) {
+                hashChain.link(entry);
+                total = total.add(entry.getAmount());
+            }
+            revenue.deposit(total);
+            accountRepository.save(revenue);
+            // Version check now rather than at commit, so a concurrent flush fails inside this call.
+            accountRepository.flush();
+            balanceReadModel.applyAfterCommit(revenue);
+            return entries.size();
+        });
+        return applied == null ? 0 : applied;
+    }
+
+    private boolean create(String accountRef, String currency) {
+        if (accountRepository.findByAccountRef(accountRef).isPresent()) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountRepository.saveAndFlush(Account.builder()
+                    .accountRef(accountRef)
+                    .accountType(AccountType.FEE_REVENUE)
+                    .currency(currency)
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first.
+            return false;
+        }
+    }
+}
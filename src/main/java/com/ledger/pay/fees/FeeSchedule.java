@@ -0,0 +1,217 @@
+package com.ledger.pay.fees;
+
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.enums.AccountType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable, compiled form of the fee rules. Rules are grouped by plan, then by account type (an
+ * array indexed by ordinal, with one extra slot for rules matching any type), then by currency,
+ * and each group's bands are sorted into an array of lower bounds. A lookup is at most four hash
+ * probes and a binary search, and a band with a fixed fee only returns a precomputed value.
+ * <p>
+ * The most specific group wins: account type and currency, then account type, then currency, then
+ * neither. Amounts below a group's lowest band pay nothing.
+ */
+public final class FeeSchedule {
+
+    static final int AMOUNT_SCALE = 4;
+    static final String ANY = "*";
+    private static final int ANY_TYPE = AccountType.values().length;
+
+    private final Map<String, Plan> plans;
+    private final Plan defaultPlan;
+    private final Set<String> currencies;
+    private final int rules;
+    private final String source;
+
+    private FeeSchedule(Map<String, Plan> plans, Plan defaultPlan, Set<String> currencies, int rules, String source) {
+        this.plans = plans;
+        this.defaultPlan = defaultPlan;
+        this.currencies = currencies;
+        this.rules = rules;
+        this.source = source;
+    }
+
+    public static FeeSchedule empty(String source) {
+        return new FeeSchedule(Map.of(), null, Set.of(), 0, source);
+    }
+
+    /**
+     * @param defaultPlan plan for accounts without a {@code feePlan}, or with one that has no rules
+     */
+    public static FeeSchedule compile(List<FeeProperties.Rule> rules, String defaultPlan, String source) {
+        // plan -> type slot -> currency -> lower bound -> band
+        Map<String, Map<Integer, Map<String, TreeMap<BigDecimal, Band>>>> grouped = new HashMap<>();
+        Set<String> currencies = new HashSet<>();
+        for (int i = 0; i < rules.size(); i++) {
+            FeeProperties.Rule rule = rules.get(i);
+            String plan = rule.plan() == null || rule.plan().isBlank() ? defaultPlan : rule.plan().strip();
+            int type = wildcard(rule.accountType()) ? ANY_TYPE : accountType(rule.accountType(), i).ordinal();
+            String currency = wildcard(rule.currency()) ? ANY : currency(rule.currency(), i);
+            BigDecimal minAmount = nonNegative(rule.minAmount(), "minAmount", i);
+            Band band = new Band(nonNegative(rule.fixed(), "fixed", i), nonNegative(rule.rate(), "rate", i),
+                    nonNegative(rule.minFee(), "minFee", i), nonNegative(rule.maxFee(), "maxFee", i));
+            if (band.minFee != null && band.maxFee != null && band.minFee.compareTo(band.maxFee) > 0) {
+                throw new IllegalArgumentException("Rule " + (i + 1) + ": minFee above maxFee");
+            }
+            TreeMap<BigDecimal, Band> bands = grouped.computeIfAbsent(plan, p -> new HashMap<>())
+                    .computeIfAbsent(type, t -> new HashMap<>())
+                    .computeIfAbsent(currency, c -> new TreeMap<>());
+            if (bands.put(minAmount == null ? BigDecimal.ZERO : minAmount, band) != null) {
+                throw new IllegalArgumentException("Rule " + (i + 1) + ": duplicate band from " + minAmount
+                        + " for plan " + plan + ", " + rule.accountType() + ", " + rule.currency());
+            }
+            if (!ANY.equals(currency)) {
+                currencies.add(currency);
+            }
+        }
+        Map<String, Plan> plans = new HashMap<>();
+        grouped.forEach((plan, byType) -> {
+            @SuppressWarnings("unchecked")
+            Map<String, Bands>[] slots = new Map[ANY_TYPE + 1];
+            byType.forEach((type, byCurrency) -> {
+                Map<String, Bands> compiled = new HashMap<>();
+                byCurrency.forEach((currency, bands) -> compiled.put(currency, Bands.of(bands)));
+                slots[type] = Map.copyOf(compiled);
+            });
+            plans.put(plan, new Plan(slots));
+        });
+        return new FeeSchedule(Map.copyOf(plans), plans.get(defaultPlan), Set.copyOf(currencies),
+                rules.size(), source);
+    }
+
+    /**
+     * Fee for moving {@code amount} out of an account of {@code accountType} on {@code plan}, or
+     * {@code null} when nothing is charged.
+     */
+    public BigDecimal fee(String plan, AccountType accountType, String currency, BigDecimal amount) {
+        Plan rules = plan == null ? defaultPlan : plans.getOrDefault(plan, defaultPlan);
+        if (rules == null) {
+            return null;
+        }
+        Bands bands = rules.find(accountType.ordinal(), currency);
+        return bands == null ? null : bands.fee(amount);
+    }
+
+    /**
+     * Currencies named by a rule; rules for any currency add none.
+     */
+    public Set<String> currencies() {
+        return currencies;
+    }
+
+    public int rules() {
+        return rules;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    private static boolean wildcard(String value) {
+        return value == null || value.isBlank() || ANY.equals(value.strip());
+    }
+
+    private static AccountType accountType(String value, int index) {
+        try {
+            return AccountType.valueOf(value.strip().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Rule " + (index + 1) + ": unknown account type " + value);
+        }
+    }
+
+    private static String currency(String value, int index) {
+        String currency = value.strip().toUpperCase();
+        if (currency.length() != 3) {
+            throw new IllegalArgumentException("Rule " + (index + 1) + ": currency must be an ISO code: " + value);
+        }
+        return currency;
+    }
+
+    private static BigDecimal nonNegative(BigDecimal value, String field, int index) {
+        if (value != null && value.signum() < 0) {
+            throw new IllegalArgumentException("Rule " + (index + 1) + ": " + field + " must not be negative");
+        }
+        return value;
+    }
+
+    private record Plan(Map<String, Bands>[] byType) {
+
+        Bands find(int type, String currency) {
+            Bands bands = find(byType[type], currency);
+            return bands != null ? bands : find(byType[ANY_TYPE], currency);
+        }
+
+        private static Bands find(Map<String, Bands> byCurrency, String currency) {
+            if (byCurrency == null) {
+                return null;
+            }
+            Bands bands = byCurrency.get(currency);
+            return bands != null ? bands : byCurrency.get(ANY);
+        }
+    }
+
+    private record Bands(BigDecimal[] floors, Band[] bands) {
+
+        static Bands of(TreeMap<BigDecimal, Band> sorted) {
+            return new Bands(sorted.keySet().toArray(BigDecimal[]::new), sorted.values().toArray(Band[]::new));
+        }
+
+        BigDecimal fee(BigDecimal amount) {
+            int index = Arrays.binarySearch(floors, amount, BigDecimal::compareTo);
+            if (index < 0) {
+                // Insertion point minus one: the highest band starting below the amount.
+                index = -index - 2;
+                if (index < 0) {
+                    return null;
+                }
+            }
+            return bands[index].apply(amount);
+        }
+    }
+
+    private static final class Band {
+        private final BigDecimal fixed;
+        private final BigDecimal rate;
+        private final BigDecimal minFee;
+        private final BigDecimal maxFee;
+        // The fee when it does not depend on the amount; null if it does.
+        private final BigDecimal constant;
+
+        private Band(BigDecimal fixed, BigDecimal rate, BigDecimal minFee, BigDecimal maxFee) {
+            this.fixed = fixed == null ? BigDecimal.ZERO : fixed;
+            this.rate = rate == null || rate.signum() == 0 ? null : rate;
+            this.minFee = minFee;
+            this.maxFee = maxFee;
+            this.constant = this.rate == null ? clamp(this.fixed) : null;
+        }
+
+        BigDecimal apply(BigDecimal amount) {
+            return constant != null ? positive(constant) : positive(clamp(fixed.add(amount.multiply(rate))));
+        }
+
+        private BigDecimal clamp(BigDecimal fee) {
+            if (minFee != null && fee.compareTo(minFee) < 0) {
+                fee = minFee;
+            }
+            if (maxFee != null && fee.compareTo(maxFee) > 0) {
+                fee = maxFee;
+            }
+            return fee.setScale(AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+        }
+
+        private static BigDecimal positive(BigDecimal fee) {
+            return fee.signum() > 0 ? fee : null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ledger.pay.fx;
+
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the FX position accounts for every currency in the rate table. Runs before the web
+ * server starts and again whenever a reload adds currencies, so conversions never create accounts
+ * themselves. Every shard gets its own set, since conversions post on the source's shard.
+ */
+@Component
+@Slf4j
+public class FxPositionAccounts implements SmartInitializingSingleton {
+
+    private final FxRates fxRates;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Set<String> ensured = ConcurrentHashMap.newKeySet();
+
+    public FxPositionAccounts(FxRates fxRates, AccountRepository accountRepository,
+                              PlatformTransactionManager transactionManager, ShardRouter shardRouter) {
+        this.fxRates = fxRates;
+        this.accountRepository = accountRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensure(fxRates.current().currencies());
+    }
+
+    public void ensure(Set<String> currencies) {
+        AtomicInteger created = new AtomicInteger();
+        for (String currency : currencies) {
+            if (ensured.contains(currency)) {
+                continue;
+            }
+            shardRouter.forEachShard(shard -> {
+                for (int stripe = 0; stripe < fxRates.positionStripes(); stripe++) {
+                    if (create(fxRates.positionAccountRef(currency, stripe), currency)) {
+                        created.incrementAndGet();
+                    }
+                }
+            });
+            ensured.add(currency);
+        }
+        if (created.get() > 0) {
+            log.info("Created {} FX position accounts", created.get());
+        }
+    }
+
+    private boolean create(String accountRef, String currency) {
+        if (accountRepository.findByAccountRef(accountRef).isPresent()) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountRepository.saveAndFlush(Account.builder()
+                    .accountRef(accountRef)
+                    .accountType(AccountType.FX_POSITION)
+                    .currency(currency)
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ledger.pay.fx;
+
+import com.ledger.pay.config.FxProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory FX rates for conversion transfers.
+ * <p>
+ * The current {@link RateTable} sits behind an {@link AtomicReference}: a reload builds a complete
+ * new table off the hot path and swaps it in, so a conversion reads one consistent table without
+ * locking and never waits on I/O. Rates come from {@code app.fx.rates-file} when it exists, reread
+ * only when its modification time changes, and otherwise from the {@code app.fx.rates} stand-in.
+ * A file that fails to parse leaves the previous table in place.
+ * <p>
+ * Conversions are balanced through FX position accounts, one per currency and stripe. The stripe
+ * follows the source account, so concurrent conversions from different wallets rarely contend on
+ * the same position row.
+ */
+@Component
+@Slf4j
+public class FxRates {
+
+    public static final String POSITION_PREFIX = "fx:position:";
+    static final int AMOUNT_SCALE = 4;
+
+    private final AtomicReference<RateTable> table = new AtomicReference<>();
+    private final FxProperties properties;
+    private final Path ratesFile;
+    private final int positionStripes;
+    private final Counter loadedCounter;
+    private final Counter failedCounter;
+    private volatile FileTime loadedModified;
+
+    public FxRates(FxProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.ratesFile = properties.ratesFile() == null || properties.ratesFile().isBlank()
+                ? null
+                : Path.of(properties.ratesFile());
+        this.positionStripes = Math.max(1, properties.positionStripes());
+        this.loadedCounter = reloads(registry, "loaded");
+        this.failedCounter = reloads(registry, "failed");
+        if (!reloadIfChanged()) {
+            if (ratesFile != null) {
+                log.warn("FX rates file {} not loaded; using the configured stand-in rates", ratesFile);
+            }
+            table.set(RateTable.of(standIn(), Instant.now(), null, "app.fx.rates"));
+        }
+        Gauge.builder("ledger.fx.rates.age", table, t -> Duration.between(t.get().asOf(), Instant.now()).toSeconds())
+                .description("Age of the FX rate table in use")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Converts {@code amount} at the current rate, rounded half-even to the ledger's four decimals.
+     */
+    public Quote quote(BigDecimal amount, String from, String to) {
+        RateTable current = table.get();
+        BigDecimal rate = current.rate(from, to);
+        if (rate == null) {
+            throw new IllegalArgumentException("No FX rate for " + from + "/" + to);
+        }
+        if (current.isExpired(Instant.now())) {
+            throw new IllegalStateException("FX rates from " + current.source() + " as of " + current.asOf()
+                    + " are older than " + properties.maxAge());
+        }
+        BigDecimal converted = amount.multiply(rate).setScale(AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+        if (converted.signum() <= 0) {
+            throw new IllegalArgumentException("Amount too small to convert from " + from + " to " + to);
+        }
+        return new Quote(rate, converted, current.asOf());
+    }
+
+    public RateTable current() {
+        return table.get();
+    }
+
+    /**
+     * Position account in {@code currency} that balances conversions from {@code sourceAccountId}.
+     */
+    public String positionAccountRef(String currency, long sourceAccountId) {
+        return POSITION_PREFIX + currency + ":" + Math.floorMod(sourceAccountId, positionStripes);
+    }
+
+    public int positionStripes() {
+        return positionStripes;
+    }
+
+    /**
+     * Swaps in the rates file if it changed since the last load. Returns whether a new table was
+     * loaded.
+     */
+    public boolean reloadIfChanged() {
+        if (ratesFile == null || !Files.isRegularFile(ratesFile)) {
+            return false;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(ratesFile);
+            if (modified.equals(loadedModified)) {
+                return false;
+            }
+            Instant asOf = modified.toInstant();
+            table.set(RateTable.of(parse(Files.readAllLines(ratesFile, StandardCharsets.UTF_8)), asOf,
+                    asOf.plus(properties.maxAge()), ratesFile.toString()));
+            loadedModified = modified;
+            loadedCounter.increment();
+            log.info("Loaded FX rates for {} currencies from {}", table.get().currencies().size(), ratesFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedCounter.increment();
+            log.warn("Could not load FX rates from {}, keeping the previous table: {}", ratesFile, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses {@code base,quote,rate} lines. Blank lines, {@code #} comments and a {@code base}
+     * header are skipped; a rate that is not positive fails the whole file.
+     */
+    static Map<String, BigDecimal> parse(List<String> lines) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#") || (i == 0 && line.startsWith("base"))) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 3 || fields[0].strip().length() != 3 || fields[1].strip().length() != 3) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected base,quote,rate");
+            }
+            BigDecimal rate;
+            try {
+                rate = new BigDecimal(fields[2].strip());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": invalid rate " + fields[2].strip());
+            }
+            if (rate.signum() <= 0) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": rate must be positive, got " + rate);
+            }
+            rates.put(fields[0].strip().toUpperCase() + fields[1].strip().toUpperCase(), rate);
+        }
+        return rates;
+    }
+
+    private Map<String, BigDecimal> standIn() {
+        return properties.rates() == null ? Map.of() : properties.rates();
+    }
+
+    private static Counter reloads(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.fx.reloads")
+                .tag("outcome", outcome)
+                .description("FX rate file loads")
+                .register(registry);
+    }
+
+    /**
+     * @param rate  units of the destination currency per unit of the source currency
+     * @param asOf  when the rate table was published
+     */
+    public record Quote(BigDecimal rate, BigDecimal converted, Instant asOf) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.ledger.pay.fx;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of FX rates. Inverses of quoted pairs are computed once when the table is
+ * built, so a lookup is two hash probes and never divides. A pair quoted in both directions keeps
+ * both quotes as given.
+ */
+public final class RateTable {
+
+    static final int RATE_SCALE = 10;
+
+    private final Map<String, Map<String, BigDecimal>> rates;
+    private final Instant asOf;
+    private final Instant expiresAt;
+    private final String source;
+
+    private RateTable(Map<String, Map<String, BigDecimal>> rates, Instant asOf, Instant expiresAt, String source) {
+        this.rates = rates;
+        this.asOf = asOf;
+        this.expiresAt = expiresAt;
+        this.source = source;
+    }
+
+    /**
+     * @param quoted    rates keyed by the six-letter pair, base currency first ({@code USDNGN} is
+     *                  the number of NGN per USD)
+     * @param expiresAt when the table stops being usable, {@code null} for never
+     */
+    public static RateTable of(Map<String, BigDecimal> quoted, Instant asOf, Instant expiresAt, String source) {
+        Map<String, Map<String, BigDecimal>> rates = new HashMap<>();
+        quoted.forEach((pair, rate) -> {
+            if (pair.length() != 6) {
+                throw new IllegalArgumentException("FX pair must be two ISO currency codes: " + pair);
+            }
+            if (rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException("FX rate for " + pair + " must be positive");
+            }
+            String base = pair.substring(0, 3).toUpperCase();
+            String quote = pair.substring(3).toUpperCase();
+            rates.computeIfAbsent(base, k -> new HashMap<>()).put(quote, rate);
+        });
+        quoted.forEach((pair, rate) -> {
+            String base = pair.substring(0, 3).toUpperCase();
+            String quote = pair.substring(3).toUpperCase();
+            rates.computeIfAbsent(quote, k -> new HashMap<>())
+                    .putIfAbsent(base, BigDecimal.ONE.divide(rate, RATE_SCALE, RoundingMode.HALF_EVEN));
+        });
+        rates.replaceAll((base, quotes) -> Map.copyOf(quotes));
+        return new RateTable(Map.copyOf(rates), asOf, expiresAt, source);
+    }
+
+    /**
+     * Units of {@code to} per unit of {@code from}, or {@code null} when the pair is not quoted.
+     */
+    public BigDecimal rate(String from, String to) {
+        Map<String, BigDecimal> quotes = rates.get(from);
+        return quotes == null ? null : quotes.get(to);
+    }
+
+    public Set<String> currencies() {
+        return rates.keySet();
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && now.isAfter(expiresAt);
+    }
+
+    public Instant asOf() {
+        return asOf;
+    }
+
+    public String source() {
+        return source;
+    }
+}
@@ -0,0 +1,45 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fees.FeeRevenue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks up a changed fee rules file, provisions revenue accounts for any new currency, and applies
+ * accumulated fee credits to the revenue balances.
+ */
+@Component
+@ConditionalOnProperty(value = "app.fees.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class FeesJob {
+    private final FeeEngine feeEngine;
+    private final FeeRevenue feeRevenue;
+
+    @Scheduled(fixedDelayString = "${app.fees.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            if (feeEngine.reloadIfChanged()) {
+                feeRevenue.ensure();
+            }
+        } catch (Exception e) {
+            log.error("Error reloading fee rules: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.fees.flush-interval-ms:1000}")
+    public void flush() {
+        try {
+            int applied = feeRevenue.flush();
+            if (applied > 0) {
+                log.debug("Applied {} fee credits to revenue accounts", applied);
+            }
+        } catch (Exception e) {
+            log.error("Error flushing fee revenue: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.fx.FxPositionAccounts;
+import com.ledger.pay.fx.FxRates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks up a changed FX rates file and provisions position accounts for any new currency.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FxRatesJob {
+    private final FxRates fxRates;
+    private final FxPositionAccounts positionAccounts;
+
+    @Scheduled(fixedDelayString = "${app.fx.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            if (fxRates.reloadIfChanged()) {
+                positionAccounts.ensure(fxRates.current().currencies());
+            }
+        } catch (Exception e) {
+            log.error("Error reloading FX rates: {}", e.getMessage(), e);
+        }
+    }
+}
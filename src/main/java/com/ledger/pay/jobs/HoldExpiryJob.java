@@ -0,0 +1,44 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Releases expired holds in bulk, one batch per transaction until nothing is left.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HoldExpiryJob {
+    private final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+
+    @Value("${app.holds.sweep-batch-size:1000}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.holds.sweep-interval-ms:30000}")
+    public void releaseExpiredHolds() {
+        try {
+            shardRouter.forEachShard(this::releaseOnShard);
+        } catch (Exception e) {
+            log.error("Error releasing expired holds: {}", e.getMessage(), e);
+        }
+    }
+
+    private void releaseOnShard(int shard) {
+        int accounts;
+        int total = 0;
+        do {
+            accounts = ledgerService.releaseExpiredHolds(batchSize);
+            total += accounts;
+        } while (accounts > 0);
+        if (total > 0) {
+            log.info("Released expired holds on {} accounts of shard {}", total, shard);
+        }
+    }
+}
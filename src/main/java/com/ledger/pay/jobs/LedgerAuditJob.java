@@ -0,0 +1,36 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.audit.LedgerAuditor;
+import com.ledger.pay.config.AuditProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checkpoints months that have closed, then verifies the chains written since the last
+ * checkpoint. Full verifications are started on demand through {@code /api/v1/audit/verify}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerAuditJob {
+    private final LedgerAuditor auditor;
+    private final AuditProperties properties;
+
+    @Scheduled(cron = "${app.audit.cron:0 30 1 * * *}")
+    public void audit() {
+        if (!properties.checkpointEnabled()) {
+            return;
+        }
+        try {
+            auditor.checkpointClosedPeriods();
+            LedgerAuditor.Report report = auditor.verify(false);
+            if (!report.valid()) {
+                log.error("Ledger verification found {} failures, first: {}", report.failureCount(), report.failures());
+            }
+        } catch (Exception e) {
+            log.error("Ledger audit failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.service.NettingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closes a netting window every {@code app.netting.window-ms}. Intents recorded before the close
+ * started are settled in windows of at most {@code max-intents-per-window} until none are left.
+ */
+@Component
+@ConditionalOnProperty(value = "app.netting.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class NettingJob {
+    private final NettingService nettingService;
+
+    @Scheduled(fixedDelayString = "${app.netting.window-ms:60000}")
+    public void closeWindow() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now();
+            int windows = 0;
+            while (nettingService.closeWindow(cutoff).isPresent()) {
+                windows++;
+            }
+            if (windows > 1) {
+                log.info("Closed {} netting windows for cutoff {}", windows, cutoff);
+            }
+        } catch (Exception e) {
+            log.error("Error closing netting window: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.ledger.pay.jobs;
 
 import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.observability.LatencyProfiler;
 import com.ledger.pay.repository.OutboxRepository;
 import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.sharding.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -20,10 +22,17 @@ import java.util.concurrent.Future;
 public class OutboxJob {
     private  final OutboxRepository outboxRepository;
     private  final LedgerService ledgerService;
+    private final ShardRouter shardRouter;
+    private final LatencyProfiler latencyProfiler;
     private final ExecutorService executor =
             Executors.newVirtualThreadPerTaskExecutor();
     @Scheduled(fixedDelayString = "${app.outbox.interval-ms:10000}")
     public void processOutboxEvents() {
+        // Every shard has its own outbox table.
+        shardRouter.forEachShard(this::processShard);
+    }
+
+    private void processShard(int shard) {
         try{
         List<Outbox> events =outboxRepository.findUnprocessedEvents(PageRequest.of(0, 50));
 
@@ -34,15 +43,17 @@ public class OutboxJob {
         log.info("Processing {} outbox events", events.size());
         try{
             List<? extends Future<?>> futures =  events.stream().map(event ->
-                    executor.submit(()->
+                    executor.submit(()-> shardRouter.on(shard, () ->
                     {
                         try {
-                            ledgerService.processEvent(event);
+                            latencyProfiler.profile(LatencyProfiler.Operation.OUTBOX, String.valueOf(event.getId()),
+                                    () -> ledgerService.processEvent(event));
 
                         } catch (Exception e) {
                             log.error("Failed to process event {}", event.getId(), e);
                         }
-                    })).toList();
+                        return null;
+                    }))).toList();
 
             for (Future<?> future : futures) {
                 future.get();
@@ -0,0 +1,39 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.archive.PartitionManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PartitionMaintenanceJob {
+    private final PartitionManager partitionManager;
+
+    // Conversion locks the tables, so it is left to POST /api/v1/partitions/convert.
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() throws Exception {
+        if (!partitionManager.isConverted()) {
+            log.warn("ledger_entries and transactions are not partitioned yet; "
+                    + "convert them with POST /api/v1/partitions/convert");
+        }
+        partitionManager.recoverArchives();
+        partitionManager.ensurePartitions();
+    }
+
+    @Scheduled(cron = "${app.partitioning.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        try {
+            partitionManager.ensurePartitions();
+            partitionManager.archiveClosedPartitions();
+        } catch (Exception e) {
+            log.error("Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+}
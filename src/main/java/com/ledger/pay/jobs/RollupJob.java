@@ -0,0 +1,33 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.rollup.RollupPipeline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Adds newly posted ledger entries to the hourly and daily balance rollups.
+ */
+@Component
+@ConditionalOnProperty(value = "app.rollups.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RollupJob {
+    private final RollupPipeline rollupPipeline;
+
+    @Scheduled(fixedDelayString = "${app.rollups.interval-ms:5000}")
+    public void rollUp() {
+        try {
+            int applied = rollupPipeline.run(LocalDateTime.now());
+            if (applied > 0) {
+                log.debug("Rolled up {} ledger entries", applied);
+            }
+        } catch (Exception e) {
+            log.error("Error rolling up ledger entries: {}", e.getMessage(), e);
+        }
+    }
+}
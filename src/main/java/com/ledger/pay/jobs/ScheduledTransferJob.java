@@ -0,0 +1,50 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.config.ScheduleProperties;
+import com.ledger.pay.service.ScheduledTransferService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Runs every schedule due when the poll starts, batch after batch, then reports how far behind the
+ * oldest remaining due schedule is. Several nodes can poll at once; each claims different rows.
+ */
+@Component
+@ConditionalOnProperty(value = "app.schedules.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduledTransferJob {
+    private final ScheduledTransferService scheduledTransferService;
+    private final ScheduleProperties properties;
+
+    @Scheduled(fixedDelayString = "${app.schedules.poll-interval-ms:1000}")
+    public void runDue() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long started = System.nanoTime();
+            int claimed;
+            int total = 0;
+            while ((claimed = scheduledTransferService.runDue(now)) > 0) {
+                total += claimed;
+            }
+            if (total > 0) {
+                long millis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+                log.info("Ran {} scheduled transfers due by {} in {} ms ({}/s)", total, now, millis,
+                        millis == 0 ? total : total * 1000L / millis);
+            }
+            Duration backlog = scheduledTransferService.backlogAge(LocalDateTime.now());
+            if (backlog.compareTo(properties.sla()) > 0) {
+                log.warn("Oldest due scheduled transfer has waited {}s, over the {}s SLA", backlog.toSeconds(),
+                        properties.sla().toSeconds());
+            }
+        } catch (Exception e) {
+            log.error("Error running scheduled transfers: {}", e.getMessage(), e);
+        }
+    }
+}
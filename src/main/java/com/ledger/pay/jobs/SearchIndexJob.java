@@ -0,0 +1,33 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.search.SearchIndexer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Brings the transaction search index up to date with the outbox and continues the backfill.
+ */
+@Component
+@ConditionalOnProperty(value = "app.search.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class SearchIndexJob {
+    private final SearchIndexer searchIndexer;
+
+    @Scheduled(fixedDelayString = "${app.search.interval-ms:2000}")
+    public void index() {
+        try {
+            int indexed = searchIndexer.run(LocalDateTime.now());
+            if (indexed > 0) {
+                log.debug("Indexed {} transactions for search", indexed);
+            }
+        } catch (Exception e) {
+            log.error("Error indexing transactions for search: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.config.SettlementProperties;
+import com.ledger.pay.settlement.SettlementIngestor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Picks up settlement files dropped into the inbox, oldest name first, and moves each one to the
+ * processed directory once it is fully applied. A file that fails stays in the inbox and is
+ * resumed from its checkpoint on the next poll.
+ */
+@Component
+@ConditionalOnProperty(name = "app.settlement.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class SettlementImportJob {
+    private final SettlementIngestor ingestor;
+    private final SettlementProperties properties;
+
+    @Scheduled(fixedDelayString = "${app.settlement.poll-interval-ms:60000}")
+    public void importInbox() {
+        Path inbox = Path.of(properties.inboxDir());
+        if (!Files.isDirectory(inbox)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> entries = Files.list(inbox)) {
+            files = entries.filter(path -> path.getFileName().toString().endsWith(".csv")).sorted().toList();
+        } catch (IOException e) {
+            log.error("Cannot list settlement inbox {}: {}", inbox, e.getMessage());
+            return;
+        }
+        for (Path file : files) {
+            try {
+                ingestor.ingest(file);
+                Path processed = Files.createDirectories(Path.of(properties.processedDir()));
+                Files.move(file, processed.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            } catch (Exception e) {
+                log.error("Settlement import of {} failed, will resume: {}", file.getFileName(), e.getMessage(), e);
+            }
+        }
+    }
+}
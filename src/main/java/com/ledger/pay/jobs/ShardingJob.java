@@ -0,0 +1,48 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.sharding.CrossShardTransfers;
+import com.ledger.pay.sharding.Resharder;
+import com.ledger.pay.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the shard directory cache current and finishes sagas that stalled: cross-shard transfers
+ * whose credit was never confirmed and account moves interrupted part way. Transit accounts are
+ * re-ensured so a currency introduced on one shard becomes transferable to the others.
+ */
+@Component
+@ConditionalOnProperty(value = "app.sharding.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ShardingJob {
+    private final ShardRouter shardRouter;
+    private final CrossShardTransfers crossShardTransfers;
+    private final Resharder resharder;
+
+    @Scheduled(fixedDelayString = "${app.sharding.directory-refresh-ms:5000}")
+    public void refreshDirectory() {
+        try {
+            shardRouter.refresh();
+        } catch (Exception e) {
+            log.error("Error refreshing shard directory: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sharding.saga-sweep-ms:30000}")
+    public void sweepSagas() {
+        try {
+            crossShardTransfers.ensureTransitAccounts();
+            int transfers = crossShardTransfers.resume();
+            int moves = resharder.recover();
+            if (transfers + moves > 0) {
+                log.info("Resumed {} cross-shard transfers and {} account moves", transfers, moves);
+            }
+        } catch (Exception e) {
+            log.error("Error sweeping shard sagas: {}", e.getMessage(), e);
+        }
+    }
+}
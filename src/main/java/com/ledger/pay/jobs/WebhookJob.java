@@ -0,0 +1,44 @@
+package com.ledger.pay.jobs;
+
+import com.ledger.pay.config.WebhookProperties;
+import com.ledger.pay.webhook.WebhookDispatcher;
+import com.ledger.pay.webhook.WebhookService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Polls the webhook queue. Each poll claims at most one batch and returns without waiting for
+ * responses, so a short interval keeps latency low without the job ever blocking on a merchant.
+ * Endpoint changes made on other nodes are picked up every {@code app.webhooks.endpoint-refresh}.
+ */
+@Component
+@ConditionalOnProperty(value = "app.webhooks.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookJob {
+    private final WebhookDispatcher webhookDispatcher;
+    private final WebhookService webhookService;
+    private final WebhookProperties properties;
+    private long lastRefresh = System.nanoTime();
+
+    @Scheduled(fixedDelayString = "${app.webhooks.poll-interval-ms:250}")
+    public void dispatch() {
+        try {
+            if (System.nanoTime() - lastRefresh >= properties.endpointRefresh().toNanos()) {
+                webhookService.refresh();
+                lastRefresh = System.nanoTime();
+            }
+            int claimed = webhookDispatcher.dispatch(LocalDateTime.now());
+            if (claimed > 0) {
+                log.debug("Claimed {} webhook deliveries", claimed);
+            }
+        } catch (Exception e) {
+            log.error("Error dispatching webhooks: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.ledger.pay.limits;
+
+import lombok.Getter;
+
+@Getter
+public class LimitExceededException extends RuntimeException {
+
+    public enum Limit {
+        MAX_SINGLE_AMOUNT,
+        DAILY_OUTFLOW,
+        PER_MINUTE_COUNT
+    }
+
+    private final Limit limit;
+    private final long retryAfterSeconds;
+
+    public LimitExceededException(String message, Limit limit, long retryAfterSeconds) {
+        super(message);
+        this.limit = limit;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
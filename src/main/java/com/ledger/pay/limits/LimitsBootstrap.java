@@ -0,0 +1,60 @@
+package com.ledger.pay.limits;
+
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds the velocity counters from the last day of outgoing ledger entries. Runs once all
+ * singletons exist but before the web server starts, so no live transfer is counted twice.
+ */
+@Component
+@ConditionalOnProperty(value = "app.limits.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class LimitsBootstrap implements SmartInitializingSingleton {
+
+    // Deposits debit the external account and are not limited.
+    private static final EnumSet<TransactionType> OUTFLOW_TYPES = EnumSet.of(TransactionType.TRANSFER, TransactionType.CAPTURE,
+            TransactionType.FX_TRANSFER);
+
+    private final LimitsEngine limitsEngine;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ShardRouter shardRouter;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        ZoneId zone = ZoneId.systemDefault();
+        AtomicLong entries = new AtomicLong();
+        long start = System.currentTimeMillis();
+        shardRouter.forEachShard(shard -> readOnly.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = ledgerEntryRepository.streamDebitsSince(
+                    LocalDateTime.now().minusDays(1), OUTFLOW_TYPES)) {
+                rows.forEach(row -> {
+                    LocalDateTime at = (LocalDateTime) row[2];
+                    limitsEngine.record((String) row[0], (BigDecimal) row[1], at.atZone(zone).toInstant().toEpochMilli());
+                    entries.incrementAndGet();
+                });
+            }
+        }));
+        log.info("Rebuilt velocity counters from {} ledger entries in {} ms", entries.get(),
+                System.currentTimeMillis() - start);
+    }
+}
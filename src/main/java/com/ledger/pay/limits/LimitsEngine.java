@@ -0,0 +1,225 @@
+package com.ledger.pay.limits;
+
+import com.ledger.pay.config.LimitsProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-account velocity limits on outgoing money: maximum single amount, outflow over the last
+ * 24 hours and operations per minute. Rules come from {@code app.limits} by account type and can
+ * be overridden per account with a {@code limits} object in the account's metadata, e.g.
+ * {@code {"limits": {"dailyOutflow": 5000, "perMinuteCount": 10}}}.
+ * <p>
+ * Counters live in {@link VelocityCounters}, so a check is a few array reads on the account that
+ * {@code LedgerService} has already loaded. They are rebuilt from recent ledger entries on startup
+ * ({@link LimitsBootstrap}) and, with {@code app.limits.sync-enabled}, follow transfers made on
+ * other nodes ({@link LimitsSyncListener}).
+ */
+@Component
+@Slf4j
+public class LimitsEngine {
+
+    /**
+     * Identifies this instance in outbox payloads so the sync listener can skip its own transfers.
+     */
+    public static final String NODE_ID = UUID.randomUUID().toString();
+
+    private static final int SCALE = 4;
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final boolean enabled;
+    private final VelocityCounters counters;
+    private final Rule defaults;
+    private final Map<AccountType, Rule> rules = new EnumMap<>(AccountType.class);
+    private final Map<LimitExceededException.Limit, Counter> rejectedCounters =
+            new EnumMap<>(LimitExceededException.Limit.class);
+
+    public LimitsEngine(LimitsProperties properties, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.counters = new VelocityCounters();
+        this.defaults = merge(properties.defaults(), Rule.NONE);
+        if (properties.accountTypes() != null) {
+            properties.accountTypes().forEach((type, rule) -> rules.put(type, merge(rule, defaults)));
+        }
+
+        Gauge.builder("ledger.limits.accounts", counters, VelocityCounters::size)
+                .description("Accounts with velocity counters in memory")
+                .register(registry);
+        for (LimitExceededException.Limit limit : LimitExceededException.Limit.values()) {
+            rejectedCounters.put(limit, Counter.builder("ledger.limits.rejected")
+                    .tag("limit", limit.name().toLowerCase())
+                    .description("Ledger operations rejected by velocity limits")
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Checks {@code amount} leaving {@code account} against its limits and counts it. Inside a
+     * transaction the operation is taken back out of the counters if the transaction rolls back.
+     *
+     * @throws LimitExceededException if any limit would be exceeded
+     */
+    public void reserve(Account account, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        Rule rule = ruleFor(account);
+        long units = check(rule, account, amount);
+        try {
+            releaseOnRollback(counters.reserve(account.getAccountRef(), units, rule.dailyOutflow, rule.perMinuteCount));
+        } catch (LimitExceededException e) {
+            throw rejected(e);
+        }
+    }
+
+    /**
+     * Counts an outflow that was authorized earlier (a captured hold) without checking limits.
+     */
+    public void recordOutflow(Account account, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        releaseOnRollback(counters.reserve(account.getAccountRef(), units(amount), UNLIMITED, UNLIMITED));
+    }
+
+    /**
+     * Rejects an operation that could not be carried out within the limits right now, without
+     * counting it. Used when authorizing holds, whose outflow is counted on capture.
+     */
+    public void checkOnly(Account account, BigDecimal amount) {
+        if (!enabled) {
+            return;
+        }
+        Rule rule = ruleFor(account);
+        long units = check(rule, account, amount);
+        if (units > rule.dailyOutflow - counters.outflow(account.getAccountRef())) {
+            throw rejected(new LimitExceededException("Daily outflow limit reached on " + account.getAccountRef(),
+                    LimitExceededException.Limit.DAILY_OUTFLOW, 0));
+        }
+    }
+
+    /**
+     * Takes back an outflow reserved at {@code atMillis} that will not happen, such as a deferred
+     * transfer rejected at window close. Inside a transaction this waits for the commit.
+     */
+    public void release(Account account, BigDecimal amount, long atMillis) {
+        if (!enabled) {
+            return;
+        }
+        String accountRef = account.getAccountRef();
+        long units = units(amount);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counters.release(accountRef, units, atMillis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counters.release(accountRef, units, atMillis);
+            }
+        });
+    }
+
+    /**
+     * Counts an outflow recorded elsewhere: rebuilt from the ledger or made on another node.
+     */
+    public void record(String accountRef, BigDecimal amount, long atMillis) {
+        if (enabled) {
+            counters.record(accountRef, units(amount), atMillis);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.limits.evict-interval-ms:600000}")
+    public void evictIdle() {
+        int removed = counters.evictIdle();
+        if (removed > 0) {
+            log.debug("Evicted velocity counters of {} idle accounts", removed);
+        }
+    }
+
+    private long check(Rule rule, Account account, BigDecimal amount) {
+        long units = units(amount);
+        if (units > rule.maxSingleAmount) {
+            throw rejected(new LimitExceededException("Amount " + amount.toPlainString() + " exceeds the single "
+                    + "transaction limit of " + account.getAccountRef(), LimitExceededException.Limit.MAX_SINGLE_AMOUNT, 0));
+        }
+        return units;
+    }
+
+    private void releaseOnRollback(VelocityCounters.Reservation reservation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        reservation.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private Rule ruleFor(Account account) {
+        Rule rule = rules.getOrDefault(account.getAccountType(), defaults);
+        Map<String, Object> metadata = account.getMetadata();
+        if (metadata != null && metadata.get("limits") instanceof Map<?, ?> overrides) {
+            rule = new Rule(
+                    override(overrides.get("maxSingleAmount"), rule.maxSingleAmount),
+                    override(overrides.get("dailyOutflow"), rule.dailyOutflow),
+                    overrides.get("perMinuteCount") instanceof Number count ? count.longValue() : rule.perMinuteCount);
+        }
+        return rule;
+    }
+
+    private LimitExceededException rejected(LimitExceededException e) {
+        rejectedCounters.get(e.getLimit()).increment();
+        return e;
+    }
+
+    private static long override(Object value, long fallback) {
+        return value == null ? fallback : units(new BigDecimal(value.toString()));
+    }
+
+    /**
+     * Amount in 1/10000 units, capped so sums cannot overflow into negative values.
+     */
+    static long units(BigDecimal amount) {
+        BigInteger units = amount.movePointRight(SCALE).toBigInteger();
+        return units.bitLength() < Long.SIZE - 1 ? units.longValue() : UNLIMITED;
+    }
+
+    private static Rule merge(LimitsProperties.Rule rule, Rule fallback) {
+        if (rule == null) {
+            return fallback;
+        }
+        return new Rule(
+                rule.maxSingleAmount() == null ? fallback.maxSingleAmount : units(rule.maxSingleAmount()),
+                rule.dailyOutflow() == null ? fallback.dailyOutflow : units(rule.dailyOutflow()),
+                rule.perMinuteCount() == null ? fallback.perMinuteCount : rule.perMinuteCount());
+    }
+
+    /**
+     * Limits in 1/10000 units; {@link #UNLIMITED} where none is set.
+     */
+    private record Rule(long maxSingleAmount, long dailyOutflow, long perMinuteCount) {
+        static final Rule NONE = new Rule(UNLIMITED, UNLIMITED, UNLIMITED);
+    }
+}
@@ -0,0 +1,41 @@
+package com.ledger.pay.limits;
+
+import com.ledger.pay.enums.TransactionType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Counts transfers and captures made on other nodes, so an account served by several instances
+ * is limited on its total outflow rather than per instance. Like the balance read model, every
+ * instance has its own consumer group and starts from the latest offset; older operations come
+ * from {@link LimitsBootstrap}.
+ */
+@Component
+@ConditionalOnProperty(value = "app.limits.sync-enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class LimitsSyncListener {
+    private final LimitsEngine limitsEngine;
+
+    @KafkaListener(topics = "payment-events",
+            groupId = "limits-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    public void handlePaymentEvent(Map<String, Object> event) {
+        if (LimitsEngine.NODE_ID.equals(event.get("originNode"))) {
+            return;
+        }
+        Object type = event.get("type");
+        Object accountRef = event.get("sourceAccountRef");
+        Object amount = event.get("amount");
+        if (accountRef == null || amount == null
+                || !(TransactionType.TRANSFER.name().equals(type) || TransactionType.CAPTURE.name().equals(type)
+                || TransactionType.FX_TRANSFER.name().equals(type))) {
+            return;
+        }
+        limitsEngine.record(accountRef.toString(), new BigDecimal(amount.toString()), System.currentTimeMillis());
+    }
+}
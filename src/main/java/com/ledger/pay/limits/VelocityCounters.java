@@ -0,0 +1,292 @@
+package com.ledger.pay.limits;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-account sliding windows of outgoing amount (last 24 hours) and operation count (last
+ * minute), kept in memory so limit checks cost no database round trip.
+ * <p>
+ * Each window is a ring of fixed-width buckets: 96 x 15 minutes for outflow, 12 x 5 seconds for
+ * the count. Amounts are in units of 1/10000 (the ledger's DECIMAL(19,4) scale). Accounts are
+ * guarded by striped locks rather than {@code synchronized}, so a virtual thread that waits here
+ * is not pinned; the same account's writes are already serialized by its mailbox and row lock,
+ * so the stripe is almost never contended.
+ */
+public class VelocityCounters {
+
+    static final int OUTFLOW_BUCKETS = 96;
+    static final long OUTFLOW_BUCKET_MILLIS = TimeUnit.DAYS.toMillis(1) / OUTFLOW_BUCKETS;
+    static final int COUNT_BUCKETS = 12;
+    static final long COUNT_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1) / COUNT_BUCKETS;
+    private static final int STRIPES = 256;
+
+    private final ConcurrentHashMap<String, Windows> accounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final LongSupplier clock;
+
+    public VelocityCounters() {
+        this(System::currentTimeMillis);
+    }
+
+    VelocityCounters(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Counts one operation of {@code units} against the account unless that would take it over
+     * {@code maxOutflow} in the last day or {@code maxCount} in the last minute.
+     *
+     * @throws LimitExceededException without recording anything when a limit would be exceeded
+     */
+    public Reservation reserve(String accountRef, long units, long maxOutflow, long maxCount) {
+        long now = clock.getAsLong();
+        ReentrantLock lock = stripe(accountRef);
+        lock.lock();
+        try {
+            Windows windows = accounts.computeIfAbsent(accountRef, ref -> new Windows());
+            if (windows.count.sum(now) >= maxCount) {
+                long retryAfter = TimeUnit.MILLISECONDS.toSeconds(windows.count.millisUntilDecrease(now)) + 1;
+                throw new LimitExceededException("More than " + maxCount + " operations in the last minute on "
+                        + accountRef, LimitExceededException.Limit.PER_MINUTE_COUNT, retryAfter);
+            }
+            if (units > maxOutflow - windows.outflow.sum(now)) {
+                long retryAfter = TimeUnit.MILLISECONDS.toSeconds(windows.outflow.millisUntilDecrease(now)) + 1;
+                throw new LimitExceededException("Daily outflow limit reached on " + accountRef,
+                        LimitExceededException.Limit.DAILY_OUTFLOW, retryAfter);
+            }
+            return new Reservation(accountRef, units,
+                    windows.outflow.add(now, now, units), windows.count.add(now, now, 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts an operation that already happened at {@code atMillis} without checking limits, e.g.
+     * when rebuilding from the ledger or applying another node's transfer. Operations older than
+     * the windows are ignored.
+     */
+    public void record(String accountRef, long units, long atMillis) {
+        long now = clock.getAsLong();
+        if (now - atMillis >= OUTFLOW_BUCKETS * OUTFLOW_BUCKET_MILLIS) {
+            return;
+        }
+        ReentrantLock lock = stripe(accountRef);
+        lock.lock();
+        try {
+            Windows windows = accounts.computeIfAbsent(accountRef, ref -> new Windows());
+            windows.outflow.add(atMillis, now, units);
+            windows.count.add(atMillis, now, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes back an operation of {@code units} counted at {@code atMillis} that was never carried
+     * out, e.g. a deferred transfer rejected when its window closed. Does nothing once that time
+     * has left the windows, and never takes a bucket below zero: the operation may have been
+     * counted on another node.
+     */
+    public void release(String accountRef, long units, long atMillis) {
+        ReentrantLock lock = stripe(accountRef);
+        lock.lock();
+        try {
+            Windows windows = accounts.get(accountRef);
+            if (windows != null) {
+                windows.outflow.remove(atMillis, units);
+                windows.count.remove(atMillis, 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long outflow(String accountRef) {
+        return read(accountRef, true);
+    }
+
+    public long count(String accountRef) {
+        return read(accountRef, false);
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Drops accounts with nothing left in either window. Returns the number removed.
+     */
+    public int evictIdle() {
+        int removed = 0;
+        for (String accountRef : accounts.keySet()) {
+            long now = clock.getAsLong();
+            ReentrantLock lock = stripe(accountRef);
+            lock.lock();
+            try {
+                Windows windows = accounts.get(accountRef);
+                if (windows != null && windows.outflow.sum(now) == 0 && windows.count.sum(now) == 0) {
+                    accounts.remove(accountRef);
+                    removed++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    private long read(String accountRef, boolean outflow) {
+        long now = clock.getAsLong();
+        ReentrantLock lock = stripe(accountRef);
+        lock.lock();
+        try {
+            Windows windows = accounts.get(accountRef);
+            if (windows == null) {
+                return 0;
+            }
+            return outflow ? windows.outflow.sum(now) : windows.count.sum(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Reservation reservation) {
+        ReentrantLock lock = stripe(reservation.accountRef);
+        lock.lock();
+        try {
+            Windows windows = accounts.get(reservation.accountRef);
+            if (windows != null) {
+                windows.outflow.subtract(reservation.outflowBucket, reservation.units);
+                windows.count.subtract(reservation.countBucket, 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(String accountRef) {
+        int hash = accountRef.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * An operation counted by {@link #reserve}. Releasing it takes the operation back out of the
+     * windows, e.g. when the transaction that made it rolls back. Releasing twice is a no-op.
+     */
+    public final class Reservation {
+        private final String accountRef;
+        private final long units;
+        private final long outflowBucket;
+        private final long countBucket;
+        private boolean released;
+
+        private Reservation(String accountRef, long units, long outflowBucket, long countBucket) {
+            this.accountRef = accountRef;
+            this.units = units;
+            this.outflowBucket = outflowBucket;
+            this.countBucket = countBucket;
+        }
+
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            VelocityCounters.this.release(this);
+        }
+    }
+
+    private static final class Windows {
+        final SlidingWindow outflow = new SlidingWindow(OUTFLOW_BUCKETS, OUTFLOW_BUCKET_MILLIS);
+        final SlidingWindow count = new SlidingWindow(COUNT_BUCKETS, COUNT_BUCKET_MILLIS);
+    }
+
+    /**
+     * Ring of buckets covering the last {@code buckets * bucketMillis}. Bucket {@code i} holds the
+     * total of epoch {@code epochs[i]} (time / bucketMillis); a slot whose epoch has fallen out of
+     * the window is stale and reset on its next write. Not thread-safe.
+     */
+    static final class SlidingWindow {
+        private final long bucketMillis;
+        private final long[] totals;
+        private final long[] epochs;
+
+        SlidingWindow(int buckets, long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            this.totals = new long[buckets];
+            this.epochs = new long[buckets];
+        }
+
+        long sum(long now) {
+            long current = now / bucketMillis;
+            long sum = 0;
+            for (int i = 0; i < totals.length; i++) {
+                if (current - epochs[i] < totals.length) {
+                    sum = saturatedAdd(sum, totals[i]);
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Adds {@code value} to the bucket of {@code at}. Returns that bucket's epoch.
+         */
+        long add(long at, long now, long value) {
+            long epoch = at / bucketMillis;
+            if (now / bucketMillis - epoch >= totals.length) {
+                return epoch;
+            }
+            int slot = (int) (epoch % totals.length);
+            if (epochs[slot] != epoch) {
+                epochs[slot] = epoch;
+                totals[slot] = 0;
+            }
+            totals[slot] = saturatedAdd(totals[slot], value);
+            return epoch;
+        }
+
+        void subtract(long epoch, long value) {
+            int slot = (int) (epoch % totals.length);
+            if (epochs[slot] == epoch) {
+                totals[slot] -= value;
+            }
+        }
+
+        /**
+         * Takes up to {@code value} out of the bucket of {@code at}, if that bucket is still held.
+         */
+        void remove(long at, long value) {
+            long epoch = at / bucketMillis;
+            int slot = (int) (epoch % totals.length);
+            if (epochs[slot] == epoch) {
+                totals[slot] = Math.max(0, totals[slot] - value);
+            }
+        }
+
+        /**
+         * Time until the oldest non-empty bucket leaves the window.
+         */
+        long millisUntilDecrease(long now) {
+            long current = now / bucketMillis;
+            long oldest = current;
+            for (int i = 0; i < totals.length; i++) {
+                if (totals[i] != 0 && current - epochs[i] < totals.length && epochs[i] < oldest) {
+                    oldest = epochs[i];
+                }
+            }
+            return Math.max(0, (oldest + totals.length) * bucketMillis - now);
+        }
+
+        private static long saturatedAdd(long a, long b) {
+            long sum = a + b;
+            return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+        }
+    }
+}
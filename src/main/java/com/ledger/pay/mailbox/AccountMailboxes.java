@@ -0,0 +1,206 @@
+package com.ledger.pay.mailbox;
+
+import com.ledger.pay.config.MailboxProperties;
+import com.ledger.pay.observability.RequestTimeline;
+import com.ledger.pay.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serializes ledger operations per account inside the JVM.
+ * <p>
+ * Every account with pending work has one mailbox drained by a single virtual thread, so
+ * operations on the same account run one after another instead of parking many request
+ * threads on the same {@code SELECT ... FOR UPDATE}. Different accounts drain in parallel.
+ * A mailbox exists in the map exactly as long as its drainer is running; all state changes
+ * go through {@link ConcurrentHashMap#compute} so submit and drain never race.
+ * <p>
+ * Consecutive operations found in a mailbox are coalesced into one DB transaction. If any of
+ * them fails the whole batch is rolled back and each operation is re-run on its own, so a
+ * failing operation never affects the others.
+ * <p>
+ * Operations run on the shard bound when they were submitted (see {@link ShardContext}); a batch
+ * only coalesces operations for the same shard. The submitter's {@link RequestTimeline} goes with
+ * them, so time spent waiting here shows up as queueing.
+ */
+@Component
+@Slf4j
+public class AccountMailboxes {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxBatch;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter rejectedCounter;
+    private final Counter fallbackCounter;
+    private final DistributionSummary batchSize;
+
+    public AccountMailboxes(MailboxProperties properties,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        this.capacity = properties.capacity();
+        this.maxBatch = Math.max(1, properties.maxBatch());
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("ledger.mailbox.active", mailboxes, ConcurrentHashMap::size)
+                .description("Accounts with pending serialized operations")
+                .register(registry);
+        this.rejectedCounter = Counter.builder("ledger.mailbox.rejected")
+                .description("Operations rejected because the account mailbox was full")
+                .register(registry);
+        this.fallbackCounter = Counter.builder("ledger.mailbox.batch.fallback")
+                .description("Coalesced batches rolled back and re-run one by one")
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("ledger.mailbox.batch.size")
+                .description("Operations committed per mailbox drain")
+                .register(registry);
+    }
+
+    /**
+     * Runs {@code operation} after all operations previously submitted for {@code accountRef}
+     * and returns its result, rethrowing its exception unchanged.
+     */
+    public <T> T execute(String accountRef, Supplier<T> operation) {
+        if (!enabled) {
+            return operation.get();
+        }
+        Task<T> task = new Task<>(RequestTimeline.propagate(operation), ShardContext.current());
+        boolean[] accepted = {false};
+        boolean[] started = {false};
+        mailboxes.compute(accountRef, (ref, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                started[0] = true;
+            }
+            if (mailbox.tasks.size() < capacity) {
+                mailbox.tasks.addLast(task);
+                accepted[0] = true;
+            }
+            return started[0] && !accepted[0] ? null : mailbox;
+        });
+        if (!accepted[0]) {
+            rejectedCounter.increment();
+            throw new MailboxFullException(accountRef);
+        }
+        if (started[0]) {
+            // This call created the mailbox, so it owns starting the drainer.
+            executor.execute(() -> drain(accountRef));
+        }
+        try {
+            return task.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain(String accountRef) {
+        List<Task<?>> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            batch.clear();
+            mailboxes.computeIfPresent(accountRef, (ref, mailbox) -> {
+                while (batch.size() < maxBatch && !mailbox.tasks.isEmpty()
+                        && (batch.isEmpty() || mailbox.tasks.peekFirst().shard == batch.get(0).shard)) {
+                    batch.add(mailbox.tasks.pollFirst());
+                }
+                return batch.isEmpty() ? null : mailbox;
+            });
+            if (batch.isEmpty()) {
+                return;
+            }
+            ShardContext.run(batch.get(0).shard, () -> {
+                if (batch.size() == 1) {
+                    runAlone(batch.get(0));
+                } else {
+                    runCoalesced(batch);
+                }
+            });
+        }
+    }
+
+    private void runCoalesced(List<Task<?>> batch) {
+        List<Object> results = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Task<?> task : batch) {
+                    results.add(task.operation.get());
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            log.debug("Coalesced batch of {} failed, re-running individually: {}", batch.size(), e.getMessage());
+            fallbackCounter.increment();
+            for (Task<?> task : batch) {
+                runAlone(task);
+            }
+            return;
+        }
+        batchSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+    }
+
+    private void runAlone(Task<?> task) {
+        try {
+            task.complete(task.operation.get());
+            batchSize.record(1);
+        } catch (Throwable e) {
+            task.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class Mailbox {
+        private final ArrayDeque<Task<?>> tasks = new ArrayDeque<>();
+    }
+
+    private static final class Task<T> {
+        private final Supplier<T> operation;
+        private final int shard;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(Supplier<T> operation, int shard) {
+            this.operation = operation;
+            this.shard = shard;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ledger.pay.mailbox;
+
+public class MailboxFullException extends RuntimeException {
+
+    public MailboxFullException(String accountRef) {
+        super("Too many pending operations for account: " + accountRef);
+    }
+}
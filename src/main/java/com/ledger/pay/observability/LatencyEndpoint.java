@@ -0,0 +1,44 @@
+package com.ledger.pay.observability;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/latency}: the slowest recent requests with their phase breakdown, and control of
+ * the continuous JFR recording ({@code POST} with {@code {"action": "start" | "dump" | "stop"}}).
+ */
+@Component
+@Endpoint(id = "latency")
+@RequiredArgsConstructor
+public class LatencyEndpoint {
+    private final LatencyProfiler latencyProfiler;
+    private final LatencyRecording latencyRecording;
+
+    @ReadOperation
+    public Map<String, Object> latency() {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("exemplars", latencyProfiler.exemplars());
+        latency.put("recording", latencyRecording.status());
+        return latency;
+    }
+
+    @WriteOperation
+    public Map<String, Object> recording(String action) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        switch (action) {
+            case "start" -> result.put("started", latencyRecording.start());
+            case "stop" -> result.put("stopped", latencyRecording.stop());
+            case "dump" -> result.put("file", latencyRecording.dump().toString());
+            default -> throw new IllegalArgumentException("Unknown action: " + action + "; use start, dump or stop");
+        }
+        result.put("recording", latencyRecording.status());
+        return result;
+    }
+}
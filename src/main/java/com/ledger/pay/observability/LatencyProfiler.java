@@ -0,0 +1,139 @@
+package com.ledger.pay.observability;
+
+import com.ledger.pay.config.LatencyProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Profiles transfers, deposits and outbox events phase by phase (see {@link RequestTimeline}).
+ * <p>
+ * Each profiled request records its phases in {@code ledger.request.phase}, emits a
+ * {@link LedgerRequestEvent} when JFR is recording and is above the event threshold, and is kept
+ * as an exemplar if it is among the slowest {@code app.latency.exemplars} of the last window.
+ * Exemplars are served by the {@code latency} actuator endpoint.
+ */
+@Component
+public class LatencyProfiler {
+
+    public enum Operation {
+        TRANSFER,
+        DEPOSIT,
+        OUTBOX
+    }
+
+    private static final RequestTimeline.Phase[] PHASES = RequestTimeline.Phase.values();
+
+    private final boolean enabled;
+    private final Timer[][] timers;
+    private final SlowestRequests[] slowest;
+
+    public LatencyProfiler(LatencyProperties properties, MeterRegistry registry) {
+        this.enabled = properties.enabled();
+        Operation[] operations = Operation.values();
+        this.timers = new Timer[operations.length][PHASES.length];
+        this.slowest = new SlowestRequests[operations.length];
+        for (Operation operation : operations) {
+            for (RequestTimeline.Phase phase : PHASES) {
+                timers[operation.ordinal()][phase.ordinal()] = Timer.builder("ledger.request.phase")
+                        .tag("operation", tag(operation))
+                        .tag("phase", tag(phase))
+                        .description("Time profiled requests spent in each phase")
+                        .register(registry);
+            }
+            slowest[operation.ordinal()] = new SlowestRequests(properties.exemplars(), properties.window());
+        }
+    }
+
+    /**
+     * Runs {@code work} with a timeline bound and records it afterwards, whether it failed or not.
+     */
+    public <T> T profile(Operation operation, String reference, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        RequestTimeline timeline = new RequestTimeline(operation, reference);
+        LedgerRequestEvent event = new LedgerRequestEvent();
+        event.begin();
+        try {
+            return RequestTimeline.bind(timeline, work);
+        } finally {
+            timeline.finish();
+            event.end();
+            record(timeline, event);
+        }
+    }
+
+    /**
+     * The slowest requests of the current and previous window, per operation, slowest first.
+     */
+    public Map<String, List<Exemplar>> exemplars() {
+        long now = System.nanoTime();
+        Map<String, List<Exemplar>> exemplars = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            List<Exemplar> list = new ArrayList<>();
+            for (RequestTimeline timeline : slowest[operation.ordinal()].snapshot(now)) {
+                list.add(Exemplar.of(timeline));
+            }
+            exemplars.put(tag(operation), list);
+        }
+        return exemplars;
+    }
+
+    private void record(RequestTimeline timeline, LedgerRequestEvent event) {
+        Timer[] operationTimers = timers[timeline.operation.ordinal()];
+        for (RequestTimeline.Phase phase : PHASES) {
+            long nanos = timeline.phase(phase);
+            if (nanos > 0) {
+                operationTimers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (event.shouldCommit()) {
+            event.operation = tag(timeline.operation);
+            event.reference = timeline.reference;
+            event.queue = timeline.phase(RequestTimeline.Phase.QUEUE);
+            event.replayProbe = timeline.phase(RequestTimeline.Phase.REPLAY_PROBE);
+            event.lock = timeline.phase(RequestTimeline.Phase.LOCK);
+            event.flush = timeline.phase(RequestTimeline.Phase.FLUSH);
+            event.write = timeline.phase(RequestTimeline.Phase.WRITE);
+            event.publish = timeline.phase(RequestTimeline.Phase.PUBLISH);
+            event.transactionCommit = timeline.phase(RequestTimeline.Phase.COMMIT);
+            event.other = timeline.phase(RequestTimeline.Phase.OTHER);
+            event.commit();
+        }
+        slowest[timeline.operation.ordinal()].offer(timeline, System.nanoTime());
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param phasesMillis time per phase that was entered, in milliseconds
+     */
+    public record Exemplar(String reference, String startedAt, double totalMillis, Map<String, Double> phasesMillis) {
+
+        static Exemplar of(RequestTimeline timeline) {
+            Map<String, Double> phases = new LinkedHashMap<>();
+            for (RequestTimeline.Phase phase : PHASES) {
+                long nanos = timeline.phase(phase);
+                if (nanos > 0) {
+                    phases.put(tag(phase), millis(nanos));
+                }
+            }
+            return new Exemplar(timeline.reference, timeline.startedAt.toString(), millis(timeline.totalNanos), phases);
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.ledger.pay.observability;
+
+import com.ledger.pay.config.LatencyProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A continuous JFR recording that can be started, dumped and stopped at runtime.
+ * <p>
+ * It uses the JDK's {@code default} settings, which are meant to stay on in production, plus
+ * {@link LedgerRequestEvent}s above {@code app.latency.event-threshold}. Data is kept on disk in
+ * a ring bounded by {@code app.latency.recording-max-age} and {@code -max-size}; a dump copies
+ * what is in it to a file without stopping the recording.
+ */
+@Component
+@Slf4j
+public class LatencyRecording {
+
+    private static final String NAME = "ledger-continuous";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private final LatencyProperties properties;
+    private final Path dumpDirectory;
+    private Recording recording;
+
+    public LatencyRecording(LatencyProperties properties) {
+        this.properties = properties;
+        this.dumpDirectory = properties.dumpDirectory() == null || properties.dumpDirectory().isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"))
+                : Path.of(properties.dumpDirectory());
+    }
+
+    @PostConstruct
+    public void startIfConfigured() {
+        if (properties.recordingOnStart()) {
+            start();
+        }
+    }
+
+    /**
+     * Starts the recording. Returns {@code false} if it was already running.
+     */
+    public synchronized boolean start() {
+        if (running()) {
+            return false;
+        }
+        try {
+            Recording started = new Recording(Configuration.getConfiguration("default"));
+            started.setName(NAME);
+            started.setToDisk(true);
+            started.setMaxAge(properties.recordingMaxAge());
+            started.setMaxSize(properties.recordingMaxSize().toBytes());
+            started.enable(LedgerRequestEvent.class).withThreshold(properties.eventThreshold());
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Could not load the default JFR settings", e);
+        }
+        log.info("Continuous JFR recording started (max age {}, max size {})",
+                properties.recordingMaxAge(), properties.recordingMaxSize());
+        return true;
+    }
+
+    /**
+     * Writes what the recording holds to a new file and returns its path.
+     */
+    public synchronized Path dump() throws IOException {
+        if (!running()) {
+            throw new IllegalStateException("The continuous recording is not running");
+        }
+        Files.createDirectories(dumpDirectory);
+        Path file = dumpDirectory.resolve(NAME + "-" + FILE_TIME.format(Instant.now()) + ".jfr");
+        recording.dump(file);
+        log.info("Continuous JFR recording dumped to {}", file);
+        return file;
+    }
+
+    /**
+     * Stops and discards the recording. Returns {@code false} if it was not running.
+     */
+    @PreDestroy
+    public synchronized boolean stop() {
+        if (!running()) {
+            return false;
+        }
+        recording.close();
+        recording = null;
+        log.info("Continuous JFR recording stopped");
+        return true;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running());
+        if (recording != null) {
+            status.put("startedAt", String.valueOf(recording.getStartTime()));
+            status.put("bytes", recording.getSize());
+        }
+        status.put("maxAge", properties.recordingMaxAge().toString());
+        status.put("maxSizeBytes", properties.recordingMaxSize().toBytes());
+        status.put("eventThresholdMillis", properties.eventThreshold().toMillis());
+        return status;
+    }
+
+    private boolean running() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ledger.pay.observability;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One profiled request with its phase breakdown, see {@link RequestTimeline}. The event's own
+ * duration is the whole request; recordings can raise the threshold to keep only slow ones.
+ */
+@Name(LedgerRequestEvent.NAME)
+@Label("Ledger Request")
+@Category("Ledger")
+@Description("Transfer, deposit or outbox event with the time spent in each phase")
+@StackTrace(false)
+@Threshold("20 ms")
+class LedgerRequestEvent extends Event {
+
+    static final String NAME = "com.ledger.pay.Request";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Reference")
+    String reference;
+
+    @Label("Queue")
+    @Timespan
+    long queue;
+
+    @Label("Replay Probe")
+    @Timespan
+    long replayProbe;
+
+    @Label("Lock")
+    @Timespan
+    long lock;
+
+    @Label("Flush")
+    @Timespan
+    long flush;
+
+    @Label("Write")
+    @Timespan
+    long write;
+
+    @Label("Publish")
+    @Timespan
+    long publish;
+
+    @Label("Commit")
+    @Timespan
+    long transactionCommit;
+
+    @Label("Other")
+    @Timespan
+    long other;
+}
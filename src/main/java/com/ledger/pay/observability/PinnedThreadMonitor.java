@@ -0,0 +1,106 @@
+package com.ledger.pay.observability;
+
+import com.ledger.pay.config.VirtualThreadProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams JFR {@code jdk.VirtualThreadPinned} events into metrics.
+ * <p>
+ * A virtual thread that blocks while holding a monitor (a {@code synchronized} block in a driver,
+ * a logging appender, ...) pins its carrier thread. Each pinning longer than the threshold is
+ * recorded in {@code ledger.vthread.pinned}, tagged with the first non-JDK class on the stack.
+ * The first event for a site is logged with its stack trace.
+ */
+@Component
+@ConditionalOnProperty(name = "app.virtual-threads.pinning-monitor", havingValue = "true")
+@Slf4j
+public class PinnedThreadMonitor {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    // Bounds the tag cardinality; further sites are reported as "other".
+    private static final int MAX_SITES = 64;
+
+    private final MeterRegistry registry;
+    private final Duration threshold;
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(VirtualThreadProperties properties, MeterRegistry registry) {
+        this.registry = registry;
+        this.threshold = properties.pinningThreshold();
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold {}ms)", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    void onPinned(RecordedEvent event) {
+        String site = site(event.getStackTrace());
+        if (!timers.containsKey(site) && timers.size() >= MAX_SITES) {
+            site = "other";
+        }
+        String tag = site;
+        timers.computeIfAbsent(tag, key -> {
+            log.warn("Virtual thread pinned for {}ms at {}:\n{}", event.getDuration().toMillis(), key,
+                    format(event.getStackTrace()));
+            return Timer.builder("ledger.vthread.pinned")
+                    .description("Virtual thread pinning longer than the configured threshold")
+                    .tag("site", key)
+                    .register(registry);
+        }).record(event.getDuration());
+    }
+
+    static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type;
+            }
+        }
+        return "jdk";
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "  <no stack trace>";
+        }
+        StringBuilder out = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            out.append("  at ").append(frame.getMethod().getType().getName())
+                    .append('.').append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber()).append('\n');
+        }
+        return out.toString();
+    }
+}
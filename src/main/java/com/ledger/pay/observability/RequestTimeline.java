@@ -0,0 +1,153 @@
+package com.ledger.pay.observability;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.function.Supplier;
+
+/**
+ * Where the time of one request went, phase by phase.
+ * <p>
+ * A timeline is bound to the thread by {@link LatencyProfiler#profile} and followed into the
+ * account mailbox by {@link #propagate}, like {@code ShardContext}. Code on the request path marks
+ * phases with {@link #start()} and {@link #end}; with nothing bound both return {@code 0} without
+ * reading the clock, so unprofiled callers (jobs, warm-up, tests) pay one thread-local lookup.
+ * Phases add up, so a phase entered twice (a coalesced mailbox batch re-run alone) counts both
+ * times. Whatever is not covered by a phase is reported as {@link Phase#OTHER}.
+ * <p>
+ * A timeline is only touched by one thread at a time: the mailbox drainer runs while the request
+ * thread waits for it, and the hand-offs go through a {@code CompletableFuture}.
+ */
+public final class RequestTimeline {
+
+    private static final ThreadLocal<RequestTimeline> CURRENT = new ThreadLocal<>();
+
+    public enum Phase {
+        /** Waiting in the account mailbox. */
+        QUEUE,
+        /** Idempotency lookup by reference, on the replica or the primary. */
+        REPLAY_PROBE,
+        /** Fetching the accounts, including the wait for the source row lock. */
+        LOCK,
+        /** Inserting the transaction, flushed at once so duplicate references fail here. */
+        FLUSH,
+        /** Entries, balances and the outbox row. */
+        WRITE,
+        /** Handing an event to Kafka. */
+        PUBLISH,
+        /** Commit, including Hibernate's flush at commit. */
+        COMMIT,
+        /** Everything else: the controller, admission and validation. */
+        OTHER
+    }
+
+    final LatencyProfiler.Operation operation;
+    final String reference;
+    final Instant startedAt = Instant.now();
+    final long startNanos = System.nanoTime();
+    final long[] phaseNanos = new long[Phase.values().length];
+    long totalNanos;
+    private boolean commitTimed;
+
+    RequestTimeline(LatencyProfiler.Operation operation, String reference) {
+        this.operation = operation;
+        this.reference = reference;
+    }
+
+    /**
+     * The clock reading to pass to {@link #end}, or {@code 0} when no timeline is bound.
+     */
+    public static long start() {
+        return CURRENT.get() == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Adds the time since {@code started} to {@code phase} and returns the current clock reading,
+     * so consecutive phases can be chained. Does nothing if {@code started} is {@code 0}.
+     */
+    public static long end(Phase phase, long started) {
+        if (started == 0) {
+            return 0;
+        }
+        RequestTimeline timeline = CURRENT.get();
+        long now = System.nanoTime();
+        if (timeline != null) {
+            timeline.phaseNanos[phase.ordinal()] += now - started;
+        }
+        return now;
+    }
+
+    /**
+     * Times the commit of the current transaction as {@link Phase#COMMIT}. Call from inside the
+     * transactional method; a no-op without a timeline or transaction.
+     */
+    public static void timeCommit() {
+        RequestTimeline timeline = CURRENT.get();
+        if (timeline == null || timeline.commitTimed || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        timeline.commitTimed = true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                started = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                timeline.commitTimed = false;
+                if (started != 0) {
+                    timeline.phaseNanos[Phase.COMMIT.ordinal()] += System.nanoTime() - started;
+                }
+            }
+        });
+    }
+
+    /**
+     * Wraps {@code work} so that it runs bound to the current timeline on whichever thread picks it
+     * up, with the time until then counted as {@link Phase#QUEUE}.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        RequestTimeline timeline = CURRENT.get();
+        if (timeline == null) {
+            return work;
+        }
+        long submitted = System.nanoTime();
+        return () -> {
+            timeline.phaseNanos[Phase.QUEUE.ordinal()] += System.nanoTime() - submitted;
+            return bind(timeline, work);
+        };
+    }
+
+    static <T> T bind(RequestTimeline timeline, Supplier<T> work) {
+        RequestTimeline previous = CURRENT.get();
+        CURRENT.set(timeline);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+        long timed = 0;
+        for (Phase phase : Phase.values()) {
+            if (phase != Phase.OTHER) {
+                timed += phaseNanos[phase.ordinal()];
+            }
+        }
+        phaseNanos[Phase.OTHER.ordinal()] = Math.max(0, totalNanos - timed);
+    }
+
+    long phase(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+}
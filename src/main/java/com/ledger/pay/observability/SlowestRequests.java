@@ -0,0 +1,69 @@
+package com.ledger.pay.observability;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest requests of the current and the previous window, kept as exemplars. A request only
+ * takes the lock when it is slower than the fastest one kept, so once the window is full almost
+ * every request leaves after two volatile reads.
+ */
+final class SlowestRequests {
+
+    private static final Comparator<RequestTimeline> BY_TOTAL = Comparator.comparingLong(timeline -> timeline.totalNanos);
+
+    private final int size;
+    private final long windowNanos;
+    private PriorityQueue<RequestTimeline> current = new PriorityQueue<>(BY_TOTAL);
+    private List<RequestTimeline> previous = List.of();
+    private volatile long windowEnd;
+    // Fastest kept request of a full window; anything not slower cannot get in.
+    private volatile long floor;
+
+    SlowestRequests(int size, Duration window) {
+        this.size = Math.max(1, size);
+        this.windowNanos = window.toNanos();
+        this.windowEnd = System.nanoTime() + windowNanos;
+    }
+
+    void offer(RequestTimeline timeline, long now) {
+        if (timeline.totalNanos <= floor && now - windowEnd < 0) {
+            return;
+        }
+        synchronized (this) {
+            rotate(now);
+            if (current.size() < size) {
+                current.add(timeline);
+            } else if (timeline.totalNanos > current.peek().totalNanos) {
+                current.poll();
+                current.add(timeline);
+            }
+            floor = current.size() < size ? 0 : current.peek().totalNanos;
+        }
+    }
+
+    /**
+     * Slowest first, from both windows.
+     */
+    synchronized List<RequestTimeline> snapshot(long now) {
+        rotate(now);
+        List<RequestTimeline> all = new ArrayList<>(previous);
+        all.addAll(current);
+        all.sort(BY_TOTAL.reversed());
+        return all.size() > size ? all.subList(0, size) : all;
+    }
+
+    private void rotate(long now) {
+        if (now - windowEnd < 0) {
+            return;
+        }
+        // A window that ended more than a window ago is too old to count as the previous one.
+        previous = now - windowEnd < windowNanos ? List.copyOf(current) : List.of();
+        current = new PriorityQueue<>(BY_TOTAL);
+        windowEnd = now + windowNanos;
+        floor = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.ledger.pay.readmodel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies balances written by other nodes. Every instance uses its own consumer group so each
+ * one sees every event, and starts from the latest offset because missing accounts are loaded
+ * on demand anyway.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceEventListener {
+    private final BalanceReadModel readModel;
+
+    @KafkaListener(topics = "payment-events",
+            groupId = "balance-read-model-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    public void handlePaymentEvent(Map<String, Object> event) {
+        if (event.get("accounts") instanceof List<?> accounts) {
+            // Netting events list every account the window changed; conversions add their FX positions.
+            for (Object account : accounts) {
+                if (account instanceof Map<?, ?> fields) {
+                    apply(event, fields.get("accountRef"), fields.get("balance"), fields.get("held"),
+                            fields.get("version"), fields.get("currency"), "listed");
+                }
+            }
+        }
+        if (event.containsKey("sourceAccountRef")) {
+            apply(event, "source");
+            apply(event, "destination");
+        }
+    }
+
+    private void apply(Map<String, Object> event, String side) {
+        apply(event, event.get(side + "AccountRef"), event.get(side + "Balance"), event.get(side + "Held"),
+                event.get(side + "Version"), event.get(side + "Currency"), side);
+    }
+
+    private void apply(Map<String, Object> event, Object accountRef, Object balance, Object held,
+                       Object version, Object currency, String side) {
+        if (accountRef == null || balance == null || !(version instanceof Number number)) {
+            log.debug("Skipping event without {} balance: {}", side, event.get("transactionRef"));
+            return;
+        }
+        readModel.apply(new BalanceView(accountRef.toString(), new BigDecimal(balance.toString()),
+                held == null ? BigDecimal.ZERO : new BigDecimal(held.toString()), currency == null ? null : currency.toString(), number.longValue(), Instant.now()));
+    }
+}
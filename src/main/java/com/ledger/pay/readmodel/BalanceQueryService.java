@@ -0,0 +1,75 @@
+package com.ledger.pay.readmodel;
+
+import com.ledger.pay.config.ReadModelProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@Service
+public class BalanceQueryService {
+    private final BalanceReadModel readModel;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate primaryTransaction;
+    private final Duration stalenessBound;
+    private final Counter staleCounter;
+
+    public BalanceQueryService(BalanceReadModel readModel,
+                               AccountRepository accountRepository,
+                               PlatformTransactionManager transactionManager,
+                               ReadModelProperties properties,
+                               MeterRegistry registry) {
+        this.readModel = readModel;
+        this.accountRepository = accountRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.primaryTransaction = new TransactionTemplate(transactionManager);
+        this.stalenessBound = Duration.ofMillis(properties.stalenessBoundMs());
+        this.staleCounter = Counter.builder("ledger.readmodel.stale")
+                .description("Balance reads sent to the primary because the read model value was past the staleness bound")
+                .register(registry);
+    }
+
+    /**
+     * Served from the read model without opening a transaction while its value is within the
+     * staleness bound. An older value may have missed a write from another node, so it is read
+     * again from the primary, which refreshes it. The first read of an account loads it in a
+     * read-only transaction, so it can go to a replica.
+     */
+    public Optional<BalanceView> getBalance(String accountRef) {
+        Optional<BalanceView> cached = readModel.get(accountRef);
+        if (cached.isPresent()) {
+            if (!cached.get().asOf().plus(stalenessBound).isBefore(Instant.now())) {
+                return cached;
+            }
+            staleCounter.increment();
+            return getStrongBalance(accountRef);
+        }
+        return readOnlyTransaction.execute(status -> accountRepository.findByAccountRef(accountRef)
+                .map(this::load));
+    }
+
+    /**
+     * Reads the committed row from the primary. This is a plain MVCC read without
+     * {@code FOR UPDATE}, so it never waits on transfers holding the row lock.
+     */
+    public Optional<BalanceView> getStrongBalance(String accountRef) {
+        return primaryTransaction.execute(status -> accountRepository.findByAccountRef(accountRef)
+                .map(this::load));
+    }
+
+    private BalanceView load(Account account) {
+        BalanceView view = new BalanceView(account.getAccountRef(), account.getAccountBalance(),
+                account.getHeldBalance(), account.getCurrency(), account.getVersion(), Instant.now());
+        readModel.apply(view);
+        return view;
+    }
+}
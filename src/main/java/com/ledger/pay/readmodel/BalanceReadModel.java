@@ -0,0 +1,70 @@
+package com.ledger.pay.readmodel;
+
+import com.ledger.pay.domain.Account;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory balance read model, kept apart from the {@code accounts} rows that writers lock.
+ * <p>
+ * Writes committed on this node are applied right after commit. Writes from other nodes arrive
+ * through {@code payment-events} (see {@link BalanceEventListener}). Accounts not seen yet are
+ * loaded by {@link BalanceQueryService}, and read again once they are older than the staleness
+ * bound. Updates only replace a value with a higher account version, so late or duplicated events
+ * can never roll a balance back; a newer read of the same version only moves {@code asOf}.
+ */
+@Component
+public class BalanceReadModel {
+
+    private final ConcurrentHashMap<String, BalanceView> balances = new ConcurrentHashMap<>();
+
+    public BalanceReadModel(MeterRegistry registry) {
+        Gauge.builder("ledger.readmodel.balances", balances, ConcurrentHashMap::size)
+                .description("Accounts held in the balance read model")
+                .register(registry);
+    }
+
+    public Optional<BalanceView> get(String accountRef) {
+        return Optional.ofNullable(balances.get(accountRef));
+    }
+
+    public void apply(BalanceView view) {
+        balances.merge(view.accountRef(), view, (current, candidate) ->
+                candidate.version() > current.version()
+                        || candidate.version() == current.version() && candidate.asOf().isAfter(current.asOf())
+                        ? candidate : current);
+    }
+
+    public void apply(Account account) {
+        apply(new BalanceView(account.getAccountRef(), account.getAccountBalance(), account.getHeldBalance(),
+                account.getCurrency(), account.getVersion(), Instant.now()));
+    }
+
+    /**
+     * Publishes the accounts' balances once the surrounding transaction commits, reading them
+     * at that point so the committed version is used. Nothing is published on rollback.
+     */
+    public void applyAfterCommit(Account... accounts) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            for (Account account : accounts) {
+                apply(account);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Account account : accounts) {
+                    apply(account);
+                }
+            }
+        });
+    }
+}
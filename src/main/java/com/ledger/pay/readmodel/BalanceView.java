@@ -0,0 +1,22 @@
+package com.ledger.pay.readmodel;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Balance of one account as last seen by the read model. {@code version} is the account's
+ * optimistic-lock version, so a higher version always wins regardless of arrival order.
+ *
+ * @param held sum of active authorization holds
+ */
+public record BalanceView(String accountRef,
+                          BigDecimal balance,
+                          BigDecimal held,
+                          String currency,
+                          long version,
+                          Instant asOf) {
+
+    public BigDecimal available() {
+        return balance.subtract(held);
+    }
+}
@@ -3,12 +3,15 @@ package com.ledger.pay.repository;
 import com.ledger.pay.domain.Account;
 import com.ledger.pay.enums.AccountType;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,4 +22,19 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM Account a WHERE a.accountRef =:accountRef")
     Optional<Account> findByAccountRefForUpdate(@Param("accountRef")String accountRef);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+    // Locks in id order so two callers locking overlapping sets cannot deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    List<Account> findByAccountTypeAndIdGreaterThanOrderByIdAsc(AccountType accountType, Long id, Pageable pageable);
+
+    @Query("SELECT a.id FROM Account a WHERE a.accountType = :accountType")
+    List<Long> findIdsByAccountType(@Param("accountType") AccountType accountType);
+
+    @Query("SELECT DISTINCT a.currency FROM Account a")
+    List<String> findCurrencies();
 }
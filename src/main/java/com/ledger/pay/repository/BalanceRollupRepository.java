@@ -0,0 +1,63 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.BalanceRollup;
+import com.ledger.pay.enums.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceRollupRepository extends JpaRepository<BalanceRollup, Long> {
+
+    /**
+     * Adds a batch of activity to a bucket, creating it if needed. The closing balance is the one
+     * reported with the highest sequence, so batches may arrive in any order.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO balance_rollups (account_id, granularity, bucket_start, credit_amount, debit_amount,
+                                         credit_count, debit_count, closing_balance, last_sequence,
+                                         created_at, updated_at)
+            VALUES (:accountId, :granularity, :bucketStart, :creditAmount, :debitAmount,
+                    :creditCount, :debitCount, :closingBalance, :lastSequence, now(), now())
+            ON CONFLICT (account_id, granularity, bucket_start) DO UPDATE SET
+                credit_amount = balance_rollups.credit_amount + EXCLUDED.credit_amount,
+                debit_amount = balance_rollups.debit_amount + EXCLUDED.debit_amount,
+                credit_count = balance_rollups.credit_count + EXCLUDED.credit_count,
+                debit_count = balance_rollups.debit_count + EXCLUDED.debit_count,
+                closing_balance = CASE WHEN EXCLUDED.last_sequence > balance_rollups.last_sequence
+                                       THEN EXCLUDED.closing_balance ELSE balance_rollups.closing_balance END,
+                last_sequence = GREATEST(balance_rollups.last_sequence, EXCLUDED.last_sequence),
+                updated_at = now()
+            """, nativeQuery = true)
+    int add(@Param("accountId") long accountId,
+            @Param("granularity") String granularity,
+            @Param("bucketStart") LocalDateTime bucketStart,
+            @Param("creditAmount") BigDecimal creditAmount,
+            @Param("debitAmount") BigDecimal debitAmount,
+            @Param("creditCount") long creditCount,
+            @Param("debitCount") long debitCount,
+            @Param("closingBalance") BigDecimal closingBalance,
+            @Param("lastSequence") long lastSequence);
+
+    @Query("SELECT r FROM BalanceRollup r WHERE r.accountId = :accountId AND r.granularity = :granularity "
+            + "AND r.bucketStart >= :from AND r.bucketStart < :to ORDER BY r.bucketStart")
+    List<BalanceRollup> findBuckets(@Param("accountId") Long accountId,
+                                    @Param("granularity") RollupGranularity granularity,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+
+    /**
+     * The account's last hourly bucket before {@code before}, whose closing balance is the balance
+     * at that time.
+     */
+    Optional<BalanceRollup> findFirstByAccountIdAndGranularityAndBucketStartLessThanOrderByBucketStartDesc(
+            Long accountId, RollupGranularity granularity, LocalDateTime before);
+}
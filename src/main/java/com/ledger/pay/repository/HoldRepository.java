@@ -0,0 +1,58 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.Hold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HoldRepository extends JpaRepository<Hold, Long> {
+
+    @Query("SELECT h FROM Hold h JOIN FETCH h.sourceAccount JOIN FETCH h.destinationAccount "
+            + "LEFT JOIN FETCH h.captureTransaction WHERE h.reference = :reference")
+    Optional<Hold> findByReference(@Param("reference") String reference);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM Hold h WHERE h.reference = :reference")
+    Optional<Hold> findByReferenceForUpdate(@Param("reference") String reference);
+
+    boolean existsByReference(String reference);
+
+    @Query("SELECT h FROM Hold h JOIN FETCH h.sourceAccount WHERE h.id IN :ids")
+    List<Hold> findAllWithSourceAccount(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Expires up to {@code limit} overdue holds and releases their amounts from the accounts'
+     * held balance in one statement. Holds locked by a concurrent capture or void are skipped and
+     * picked up by a later sweep. Bumping the account version keeps optimistic locking and the
+     * balance read model ordering intact.
+     *
+     * @return ids of the holds expired
+     */
+    @Query(value = """
+            WITH expired AS (
+                UPDATE holds SET status = 'EXPIRED', updated_at = now()
+                WHERE id IN (
+                    SELECT id FROM holds
+                    WHERE status = 'ACTIVE' AND expires_at <= now()
+                    ORDER BY expires_at
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING id, source_account_id, amount
+            ), released AS (
+                UPDATE accounts a
+                SET held_balance = a.held_balance - e.total, version = a.version + 1, updated_at = now()
+                FROM (SELECT source_account_id, SUM(amount) AS total FROM expired GROUP BY source_account_id) e
+                WHERE a.id = e.source_account_id
+            )
+            SELECT id FROM expired
+            """, nativeQuery = true)
+    List<Long> releaseExpired(@Param("limit") int limit);
+}
@@ -0,0 +1,16 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, Long> {
+
+    Optional<LedgerCheckpoint> findTopByOrderByPeriodEndDesc();
+
+    List<LedgerCheckpoint> findAllByOrderByPeriodStartAsc();
+}
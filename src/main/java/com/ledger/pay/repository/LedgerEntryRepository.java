@@ -3,12 +3,93 @@ package com.ledger.pay.repository;
 
 import com.ledger.pay.domain.Account;
 import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.enums.TransactionType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LedgerEntryRepository extends JpaRepository<LedgerEntry,Long> {
     Optional<LedgerEntry> findTopByAccountOrderByCreatedAtDesc(Account account);
+
+    /**
+     * Head of the account's hash chain; only read when {@code HashChain} has no usable cached head.
+     */
+    Optional<LedgerEntry> findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(Long accountId);
+
+    /**
+     * Entries of the account not yet linked into its hash chain, oldest first. Fee credits are
+     * posted this way and applied to their revenue account later by {@code FeeRevenue}.
+     */
+    @Query("SELECT e FROM LedgerEntry e WHERE e.account.id = :accountId AND e.sequence IS NULL ORDER BY e.id")
+    List<LedgerEntry> findUnchained(@Param("accountId") Long accountId, Pageable page);
+
+    // Accounts stay lazy, so the caller can lock them before they are loaded.
+    @Query("SELECT e FROM LedgerEntry e WHERE e.transaction.id IN :transactionIds ORDER BY e.id")
+    List<LedgerEntry> findByTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+
+    /**
+     * Entries after {@code afterId} in id order, for the rollup pipeline. Accounts stay lazy; only
+     * their ids are read.
+     */
+    @Query("SELECT e FROM LedgerEntry e WHERE e.id > :afterId ORDER BY e.id")
+    List<LedgerEntry> findAfterId(@Param("afterId") long afterId, Pageable page);
+
+    /**
+     * The account's chained entries from sequence {@code from} to {@code to}, in chain order.
+     */
+    @Query("SELECT e FROM LedgerEntry e WHERE e.account.id = :accountId AND e.sequence BETWEEN :from AND :to "
+            + "ORDER BY e.sequence")
+    List<LedgerEntry> findChainRange(@Param("accountId") Long accountId, @Param("from") long from, @Param("to") long to);
+
+    /**
+     * The account's balance just before the entry with chain sequence {@code sequence}: its current
+     * balance less every chained entry from there on, read in one statement so both agree.
+     */
+    @Query(value = """
+            SELECT a.account_balance - COALESCE((
+                SELECT SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END)
+                FROM ledger_entries e
+                WHERE e.account_id = a.id AND e.chain_sequence >= :sequence), 0)
+            FROM accounts a
+            WHERE a.id = :accountId
+            """, nativeQuery = true)
+    BigDecimal balanceBefore(@Param("accountId") long accountId, @Param("sequence") long sequence);
+
+    /**
+     * Rows of (transaction id, account) for every account the transactions moved.
+     */
+    @Query("SELECT DISTINCT e.transaction.id, a FROM LedgerEntry e JOIN e.account a WHERE e.transaction.id IN :transactionIds")
+    List<Object[]> findAccountsByTransactionIds(@Param("transactionIds") Collection<Long> transactionIds);
+
+    @Query("SELECT e FROM LedgerEntry e JOIN FETCH e.transaction WHERE e.account.id = :accountId "
+            + "AND e.createdAt >= :from AND e.createdAt < :to ORDER BY e.createdAt")
+    List<LedgerEntry> findStatement(@Param("accountId") Long accountId,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+
+    @Query("SELECT e.entryType, COALESCE(SUM(e.amount), 0) FROM LedgerEntry e GROUP BY e.entryType")
+    List<Object[]> sumByEntryType();
+
+    /**
+     * Rows of (account ref, amount, created at) for debits of the given transaction types. Must be
+     * consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT a.accountRef, e.amount, e.createdAt FROM LedgerEntry e JOIN e.account a JOIN e.transaction t "
+            + "WHERE e.entryType = com.ledger.pay.enums.LedgerEntryType.DEBIT AND t.type IN :types "
+            + "AND e.createdAt >= :since")
+    Stream<Object[]> streamDebitsSince(@Param("since") LocalDateTime since,
+                                       @Param("types") Collection<TransactionType> types);
 }
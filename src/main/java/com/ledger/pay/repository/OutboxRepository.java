@@ -4,8 +4,10 @@ import com.ledger.pay.domain.Outbox;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -13,4 +15,21 @@ import java.util.List;
 public interface OutboxRepository extends JpaRepository<Outbox,Long> {
     @Query("SELECT o FROM Outbox o WHERE o.processedAt IS NULL ORDER BY o.createdAt ")
     List<Outbox> findUnprocessedEvents( Pageable pageable);
+
+    /**
+     * Events after {@code afterId}, processed or not, in id order, up to but excluding the first one
+     * created at or after {@code before}. Ids and creation times need not agree on order, so a settled
+     * event waits behind a lower id that has not settled; returning it would move a caller's
+     * watermark past the unsettled one for good.
+     */
+    @Query("""
+            SELECT o FROM Outbox o WHERE o.id > :afterId AND o.id < COALESCE(
+                (SELECT MIN(s.id) FROM Outbox s WHERE s.id > :afterId AND s.createdAt >= :before),
+                9223372036854775807L)
+            ORDER BY o.id
+            """)
+    List<Outbox> findAfterId(@Param("afterId") long afterId, @Param("before") LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(o.id), 0) FROM Outbox o WHERE o.createdAt < :before")
+    long findMaxIdBefore(@Param("before") LocalDateTime before);
 }
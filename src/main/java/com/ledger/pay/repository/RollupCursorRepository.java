@@ -0,0 +1,13 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.RollupCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RollupCursorRepository extends JpaRepository<RollupCursor, Long> {
+    List<RollupCursor> findAllByAccountIdIn(Collection<Long> accountIds);
+}
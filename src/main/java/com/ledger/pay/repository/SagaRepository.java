@@ -1,9 +1,32 @@
 package com.ledger.pay.repository;
 
 import com.ledger.pay.domain.Saga;
+import com.ledger.pay.enums.SagaStatus;
+import com.ledger.pay.enums.SagaType;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface SagaRepository extends JpaRepository<Saga,Long> {
+
+    Optional<Saga> findBySagaId(String sagaId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Saga s WHERE s.sagaId = :sagaId")
+    Optional<Saga> findBySagaIdForUpdate(@Param("sagaId") String sagaId);
+
+    List<Saga> findByTypeAndStatusInAndUpdatedAtBeforeOrderByUpdatedAt(SagaType type,
+                                                                       Collection<SagaStatus> statuses,
+                                                                       LocalDateTime before,
+                                                                       Pageable pageable);
 }
@@ -0,0 +1,75 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.ScheduledTransfer;
+import com.ledger.pay.enums.ScheduleStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer, Long> {
+
+    Optional<ScheduledTransfer> findByReference(String reference);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ScheduledTransfer s WHERE s.reference = :reference")
+    Optional<ScheduledTransfer> findByReferenceForUpdate(@Param("reference") String reference);
+
+    /**
+     * Due schedules in due-time order that no node has claimed. Rows being claimed by another node
+     * are skipped ({@code -2} is {@code SKIP LOCKED}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM ScheduledTransfer s WHERE s.status = com.ledger.pay.enums.ScheduleStatus.ACTIVE "
+            + "AND s.nextRunAt <= :now AND (s.claimedUntil IS NULL OR s.claimedUntil < :now) "
+            + "ORDER BY s.nextRunAt, s.id")
+    List<ScheduledTransfer> findDueForUpdate(@Param("now") LocalDateTime now, Pageable page);
+
+    @Query("SELECT MIN(s.nextRunAt) FROM ScheduledTransfer s WHERE s.status = com.ledger.pay.enums.ScheduleStatus.ACTIVE "
+            + "AND s.nextRunAt <= :now")
+    Optional<LocalDateTime> findOldestDue(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.claimedUntil = :until WHERE s.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    /**
+     * Moves schedules that ran their current occurrence on to the next one. Schedules due at the
+     * same time with the same recurrence share their next due time, so a whole salary run advances
+     * in a few statements. {@code claimedUntil} fences off a node whose claim expired and was taken
+     * over, and cancelled schedules stay cancelled.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.occurrence = s.occurrence + 1, s.nextRunAt = :next, "
+            + "s.status = :status, s.failures = s.failures + :failed, s.lastError = COALESCE(:error, s.lastError), "
+            + "s.claimedUntil = NULL, s.updatedAt = CURRENT_TIMESTAMP WHERE s.id IN :ids "
+            + "AND s.claimedUntil = :claimedUntil AND s.status = com.ledger.pay.enums.ScheduleStatus.ACTIVE")
+    int advance(@Param("ids") Collection<Long> ids,
+                @Param("claimedUntil") LocalDateTime claimedUntil,
+                @Param("next") LocalDateTime next,
+                @Param("status") ScheduleStatus status,
+                @Param("failed") int failed,
+                @Param("error") String error);
+
+    /**
+     * Shortens a claim to {@code until}, after which any node tries the current occurrence again.
+     */
+    @Modifying
+    @Query("UPDATE ScheduledTransfer s SET s.claimedUntil = :until WHERE s.id IN :ids AND s.claimedUntil = :claimedUntil")
+    int postpone(@Param("ids") Collection<Long> ids,
+                 @Param("claimedUntil") LocalDateTime claimedUntil,
+                 @Param("until") LocalDateTime until);
+}
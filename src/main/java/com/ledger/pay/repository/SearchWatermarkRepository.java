@@ -0,0 +1,28 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.SearchWatermark;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SearchWatermarkRepository extends JpaRepository<SearchWatermark, Long> {
+
+    Optional<SearchWatermark> findByName(String name);
+
+    /**
+     * The watermark, locked; empty if it is missing or another node holds it ({@code -2} is
+     * {@code SKIP LOCKED}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT w FROM SearchWatermark w WHERE w.name = :name")
+    Optional<SearchWatermark> findByNameForUpdate(@Param("name") String name);
+}
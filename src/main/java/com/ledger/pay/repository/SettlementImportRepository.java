@@ -0,0 +1,16 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.SettlementImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SettlementImportRepository extends JpaRepository<SettlementImport, Long> {
+
+    Optional<SettlementImport> findByFileNameAndFileSize(String fileName, long fileSize);
+
+    List<SettlementImport> findTop50ByOrderByIdDesc();
+}
@@ -0,0 +1,17 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.ShardAssignment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ShardAssignmentRepository extends JpaRepository<ShardAssignment, Long> {
+
+    Optional<ShardAssignment> findByAccountRef(String accountRef);
+
+    List<ShardAssignment> findByUpdatedAtAfter(LocalDateTime since);
+}
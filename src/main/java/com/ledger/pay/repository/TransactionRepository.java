@@ -1,13 +1,65 @@
 package com.ledger.pay.repository;
 
 import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction,Long> {
 
     Optional<Transaction> findByReference(String reference);
+
+    @Query("SELECT t.reference FROM Transaction t WHERE t.reference IN :references")
+    List<String> findExistingReferences(@Param("references") Collection<String> references);
+
+    List<Transaction> findAllByReferenceIn(Collection<String> references);
+
+    List<Transaction> findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(Long afterId, Long lastId, Pageable page);
+
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM Transaction t")
+    long findMaxId();
+
+    // Locks in id order, like accounts, so overlapping reversal batches cannot deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.reference IN :references ORDER BY t.id")
+    List<Transaction> findAllByReferenceForUpdate(@Param("references") Collection<String> references);
+
+    /**
+     * Id and reference of completed transactions of {@code types} created in {@code [from, to)},
+     * after {@code afterId}, for walking a time range in pages.
+     */
+    @Query("SELECT t.id, t.reference FROM Transaction t WHERE t.status = com.ledger.pay.enums.TransactionStatus.COMPLETED "
+            + "AND t.type IN :types AND t.createdAt >= :from AND t.createdAt < :to AND t.id > :afterId ORDER BY t.id")
+    List<Object[]> findCompletedBetween(@Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("types") Collection<TransactionType> types,
+                                        @Param("afterId") Long afterId,
+                                        Pageable page);
+
+    @Query("SELECT t.id, t.reference FROM Transaction t WHERE t.status = com.ledger.pay.enums.TransactionStatus.COMPLETED "
+            + "AND t.type IN :types AND t.createdAt >= :from AND t.createdAt < :to AND t.id > :afterId "
+            + "AND EXISTS (SELECT 1 FROM LedgerEntry e WHERE e.transaction = t AND e.account.id = :accountId) ORDER BY t.id")
+    List<Object[]> findCompletedBetweenForAccount(@Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to,
+                                                  @Param("types") Collection<TransactionType> types,
+                                                  @Param("accountId") Long accountId,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable page);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status, t.updatedAt = CURRENT_TIMESTAMP WHERE t.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") TransactionStatus status);
 }
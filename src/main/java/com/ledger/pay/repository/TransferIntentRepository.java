@@ -0,0 +1,56 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.domain.TransferIntent;
+import com.ledger.pay.enums.IntentStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransferIntentRepository extends JpaRepository<TransferIntent, Long> {
+
+    @Query("SELECT i FROM TransferIntent i JOIN FETCH i.sourceAccount JOIN FETCH i.destinationAccount "
+            + "LEFT JOIN FETCH i.nettingTransaction WHERE i.reference = :reference")
+    Optional<TransferIntent> findByReference(@Param("reference") String reference);
+
+    /**
+     * Oldest pending intents created before {@code cutoff}. Rows locked by a window closing on
+     * another node are skipped ({@code -2} is {@code SKIP LOCKED}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT i FROM TransferIntent i WHERE i.status = com.ledger.pay.enums.IntentStatus.PENDING "
+            + "AND i.createdAt < :cutoff ORDER BY i.id")
+    List<TransferIntent> findPendingForUpdate(@Param("cutoff") LocalDateTime cutoff, Pageable page);
+
+    @Query("SELECT COUNT(i) > 0 FROM TransferIntent i WHERE i.status = com.ledger.pay.enums.IntentStatus.PENDING "
+            + "AND (i.sourceAccount.id = :accountId OR i.destinationAccount.id = :accountId)")
+    boolean existsPendingForAccount(@Param("accountId") Long accountId);
+
+    @Query("SELECT i.reference FROM TransferIntent i WHERE i.nettingTransaction.reference = :transactionRef ORDER BY i.id")
+    List<String> findReferencesByNettingTransaction(@Param("transactionRef") String transactionRef);
+
+    /**
+     * Settles a window's intents in one statement per call instead of one update per dirty entity.
+     */
+    @Modifying
+    @Query("UPDATE TransferIntent i SET i.status = :status, i.nettingTransaction = :transaction, "
+            + "i.rejectReason = :reason, i.updatedAt = CURRENT_TIMESTAMP WHERE i.id IN :ids")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("status") IntentStatus status,
+                     @Param("transaction") Transaction transaction,
+                     @Param("reason") String reason);
+}
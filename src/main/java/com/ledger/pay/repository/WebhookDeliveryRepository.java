@@ -0,0 +1,84 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.WebhookDelivery;
+import com.ledger.pay.enums.DeliveryStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+
+    /**
+     * Pending deliveries due at {@code now}, oldest first, leaving out endpoints that already have
+     * enough work queued on this node. Rows being claimed by another node are skipped ({@code -2}
+     * is {@code SKIP LOCKED}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM WebhookDelivery d WHERE d.status = com.ledger.pay.enums.DeliveryStatus.PENDING "
+            + "AND d.nextAttemptAt <= :now AND (d.claimedUntil IS NULL OR d.claimedUntil < :now) "
+            + "AND d.endpointId NOT IN :saturated ORDER BY d.nextAttemptAt, d.id")
+    List<WebhookDelivery> findDueForUpdate(@Param("now") LocalDateTime now,
+                                           @Param("saturated") Collection<Long> saturatedEndpointIds,
+                                           Pageable page);
+
+    List<WebhookDelivery> findTop50ByEndpointIdOrderByIdDesc(Long endpointId);
+
+    /**
+     * Queues a delivery unless the same event is already queued for the endpoint, which happens
+     * when Kafka redelivers an event.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO webhook_deliveries (endpoint_id, event_key, event_type, payload, status, attempts,
+                                            next_attempt_at, created_at, updated_at)
+            VALUES (:endpointId, :eventKey, :eventType, CAST(:payload AS jsonb), 'PENDING', 0, now(), now(), now())
+            ON CONFLICT (endpoint_id, event_key) DO NOTHING
+            """, nativeQuery = true)
+    int enqueue(@Param("endpointId") long endpointId,
+                @Param("eventKey") String eventKey,
+                @Param("eventType") String eventType,
+                @Param("payload") String payload);
+
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.claimedUntil = :until WHERE d.id IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.status = com.ledger.pay.enums.DeliveryStatus.DELIVERED, "
+            + "d.attempts = d.attempts + 1, d.lastStatusCode = :statusCode, d.deliveredAt = :deliveredAt, "
+            + "d.nextAttemptAt = NULL, d.claimedUntil = NULL, d.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE d.id IN :ids AND d.claimedUntil = :claimedUntil")
+    int markDelivered(@Param("ids") Collection<Long> ids,
+                      @Param("claimedUntil") LocalDateTime claimedUntil,
+                      @Param("statusCode") int statusCode,
+                      @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    /**
+     * Records a failed attempt: the delivery is tried again at {@code nextAttemptAt}, or given up
+     * when {@code status} is {@code DEAD}.
+     */
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.status = :status, d.attempts = d.attempts + 1, "
+            + "d.lastStatusCode = :statusCode, d.lastError = :error, d.nextAttemptAt = :nextAttemptAt, "
+            + "d.claimedUntil = NULL, d.updatedAt = CURRENT_TIMESTAMP "
+            + "WHERE d.id = :id AND d.claimedUntil = :claimedUntil")
+    int markFailed(@Param("id") long id,
+                   @Param("claimedUntil") LocalDateTime claimedUntil,
+                   @Param("status") DeliveryStatus status,
+                   @Param("statusCode") Integer statusCode,
+                   @Param("error") String error,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
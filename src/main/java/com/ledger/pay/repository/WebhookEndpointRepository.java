@@ -0,0 +1,15 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.domain.WebhookEndpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WebhookEndpointRepository extends JpaRepository<WebhookEndpoint, Long> {
+
+    List<WebhookEndpoint> findByEnabledTrue();
+
+    List<WebhookEndpoint> findByAccountRefOrderById(String accountRef);
+}
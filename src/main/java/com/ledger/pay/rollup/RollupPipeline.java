@@ -0,0 +1,286 @@
+package com.ledger.pay.rollup;
+
+import com.ledger.pay.config.RollupProperties;
+import com.ledger.pay.domain.BalanceRollup;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.RollupCursor;
+import com.ledger.pay.domain.RollupWatermark;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.RollupGranularity;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.BalanceRollupRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.RollupCursorRepository;
+import com.ledger.pay.repository.RollupWatermarkRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps {@link BalanceRollup}s current from {@code ledger_entries}, off the write path.
+ * <p>
+ * Each shard's entries are read in id order from a watermark. An account's entries are applied in
+ * hash chain order, and its {@link RollupCursor} remembers the last sequence applied and the
+ * balance after it, so an entry is counted once however often it is read. A gap in an account's
+ * chain is filled by reading the missing sequences directly, since an entry that committed after
+ * the watermark passed its id is never read in id order again. An entry that cannot be applied yet
+ * holds the watermark back until a later run: one after a gap that is still committing, a fee
+ * credit not yet linked by {@code FeeRevenue}, or one younger than {@code app.rollups.settle}. Entries from before the hash chain are not rolled
+ * up; an account's cursor starts from its balance before the first entry the pipeline sees.
+ * <p>
+ * Late entries count towards the bucket of their {@code created_at}, so a bucket can still change
+ * after its hour is over. Each page is one transaction holding the shard's watermark row lock; a
+ * node that finds it locked leaves the shard to the node holding it.
+ */
+@Component
+@Slf4j
+public class RollupPipeline {
+
+    static final String WATERMARK = "ledger_entries";
+
+    private final RollupProperties properties;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final AccountRepository accountRepository;
+    private final RollupCursorRepository cursorRepository;
+    private final RollupWatermarkRepository watermarkRepository;
+    private final BalanceRollupRepository rollupRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter appliedCounter;
+    private final AtomicInteger heldBack = new AtomicInteger();
+
+    public RollupPipeline(RollupProperties properties,
+                          LedgerEntryRepository ledgerEntryRepository,
+                          AccountRepository accountRepository,
+                          RollupCursorRepository cursorRepository,
+                          RollupWatermarkRepository watermarkRepository,
+                          BalanceRollupRepository rollupRepository,
+                          ShardRouter shardRouter,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry registry) {
+        this.properties = properties;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.accountRepository = accountRepository;
+        this.cursorRepository = cursorRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.rollupRepository = rollupRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appliedCounter = Counter.builder("ledger.rollups.entries")
+                .description("Ledger entries added to balance rollups")
+                .register(registry);
+        Gauge.builder("ledger.rollups.held", heldBack, AtomicInteger::get)
+                .description("Entries the last rollup run left for a later one")
+                .register(registry);
+    }
+
+    /**
+     * Rolls up new entries on every shard. Returns how many were applied.
+     */
+    public int run(LocalDateTime now) {
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger held = new AtomicInteger();
+        shardRouter.forEachShard(shard -> {
+            ensureWatermark();
+            Long after = null;
+            for (int i = 0; i < properties.maxPagesPerRun(); i++) {
+                Page page = page(after, now);
+                if (page == null) {
+                    log.debug("Rollups on shard {} are being run by another node", shard);
+                    return;
+                }
+                applied.addAndGet(page.applied());
+                held.addAndGet(page.held());
+                if (page.scanned() < properties.batchSize()) {
+                    return;
+                }
+                after = page.lastScanned();
+            }
+        });
+        appliedCounter.increment(applied.get());
+        heldBack.set(held.get());
+        return applied.get();
+    }
+
+    private Page page(Long after, LocalDateTime now) {
+        return transactionTemplate.execute(status -> rollUp(after, now));
+    }
+
+    /**
+     * Rolls up one page of entries after {@code after}, or after the watermark when it is null.
+     * Returns null if another node holds the watermark. Must run inside a transaction.
+     */
+    Page rollUp(Long after, LocalDateTime now) {
+        RollupWatermark watermark = watermarkRepository.findByNameForUpdate(WATERMARK).orElse(null);
+        if (watermark == null) {
+            return null;
+        }
+        long from = after == null ? watermark.getLastEntryId() : after;
+        List<LedgerEntry> entries = ledgerEntryRepository.findAfterId(from, PageRequest.of(0, properties.batchSize()));
+        if (entries.isEmpty()) {
+            return new Page(0, from, 0, 0);
+        }
+        LocalDateTime settled = now.minus(properties.settle());
+        Map<Long, List<LedgerEntry>> byAccount = new LinkedHashMap<>();
+        Set<Long> feeRevenue = null;
+        long firstHeld = Long.MAX_VALUE;
+        int held = 0;
+        for (LedgerEntry entry : entries) {
+            Long accountId = entry.getAccount().getId();
+            if (entry.getSequence() == null) {
+                // Only fee credits are linked after the fact; any other unchained entry predates the chain.
+                if (feeRevenue == null) {
+                    feeRevenue = new HashSet<>(accountRepository.findIdsByAccountType(AccountType.FEE_REVENUE));
+                }
+                if (feeRevenue.contains(accountId)) {
+                    firstHeld = Math.min(firstHeld, entry.getId());
+                    held++;
+                }
+                continue;
+            }
+            byAccount.computeIfAbsent(accountId, id -> new ArrayList<>()).add(entry);
+        }
+
+        Map<Long, RollupCursor> cursors = new HashMap<>();
+        for (RollupCursor cursor : cursorRepository.findAllByAccountIdIn(byAccount.keySet())) {
+            cursors.put(cursor.getAccountId(), cursor);
+        }
+        Map<BucketKey, Bucket> buckets = new LinkedHashMap<>();
+        List<RollupCursor> advanced = new ArrayList<>();
+        int applied = 0;
+        for (Map.Entry<Long, List<LedgerEntry>> account : byAccount.entrySet()) {
+            List<LedgerEntry> chain = account.getValue();
+            chain.sort(Comparator.comparing(LedgerEntry::getSequence));
+            RollupCursor cursor = cursors.get(account.getKey());
+            if (cursor == null) {
+                long first = chain.getFirst().getSequence();
+                cursor = RollupCursor.builder()
+                        .accountId(account.getKey())
+                        .lastSequence(first - 1)
+                        .balance(ledgerEntryRepository.balanceBefore(account.getKey(), first))
+                        .build();
+            }
+            long lastSequence = cursor.getLastSequence();
+            for (int i = 0; i < chain.size(); i++) {
+                LedgerEntry entry = chain.get(i);
+                long sequence = entry.getSequence();
+                if (sequence <= cursor.getLastSequence()) {
+                    continue;
+                }
+                long expected = cursor.getLastSequence() + 1;
+                if (sequence != expected) {
+                    // Ids are taken at insert, not commit: an entry that committed late can sit
+                    // behind the watermark and is never read again, so fetch the gap by position.
+                    List<LedgerEntry> missing = ledgerEntryRepository.findChainRange(account.getKey(), expected, sequence - 1);
+                    if (missing.size() == sequence - expected) {
+                        for (LedgerEntry late : missing) {
+                            apply(buckets, late, cursor);
+                            applied++;
+                        }
+                    }
+                }
+                if (sequence != cursor.getLastSequence() + 1 || entry.getCreatedAt().isAfter(settled)) {
+                    // The rest of the account waits too, or its balances would skip this entry.
+                    for (LedgerEntry waiting : chain.subList(i, chain.size())) {
+                        firstHeld = Math.min(firstHeld, waiting.getId());
+                        held++;
+                    }
+                    break;
+                }
+                apply(buckets, entry, cursor);
+                applied++;
+            }
+            if (cursor.getLastSequence() != lastSequence) {
+                advanced.add(cursor);
+            }
+        }
+
+        buckets.forEach((key, bucket) -> rollupRepository.add(key.accountId(), key.granularity().name(),
+                key.start(), bucket.creditAmount, bucket.debitAmount, bucket.creditCount, bucket.debitCount,
+                bucket.closingBalance, bucket.lastSequence));
+        cursorRepository.saveAll(advanced);
+        long lastScanned = entries.getLast().getId();
+        // Once an earlier page of this run held an entry back, the watermark stays there.
+        if (watermark.getLastEntryId() == from) {
+            watermark.setLastEntryId(Math.min(lastScanned, firstHeld - 1));
+        }
+        return new Page(entries.size(), lastScanned, applied, held);
+    }
+
+    private static void apply(Map<BucketKey, Bucket> buckets, LedgerEntry entry, RollupCursor cursor) {
+        BigDecimal amount = entry.getEntryType() == LedgerEntryType.CREDIT
+                ? entry.getAmount()
+                : entry.getAmount().negate();
+        cursor.setBalance(cursor.getBalance().add(amount));
+        cursor.setLastSequence(entry.getSequence());
+        add(buckets, RollupGranularity.HOUR, entry.getCreatedAt().truncatedTo(ChronoUnit.HOURS), entry, cursor);
+        add(buckets, RollupGranularity.DAY, entry.getCreatedAt().truncatedTo(ChronoUnit.DAYS), entry, cursor);
+    }
+
+    private static void add(Map<BucketKey, Bucket> buckets, RollupGranularity granularity, LocalDateTime start,
+                            LedgerEntry entry, RollupCursor cursor) {
+        Bucket bucket = buckets.computeIfAbsent(new BucketKey(cursor.getAccountId(), granularity, start),
+                key -> new Bucket());
+        if (entry.getEntryType() == LedgerEntryType.CREDIT) {
+            bucket.creditAmount = bucket.creditAmount.add(entry.getAmount());
+            bucket.creditCount++;
+        } else {
+            bucket.debitAmount = bucket.debitAmount.add(entry.getAmount());
+            bucket.debitCount++;
+        }
+        // Entries are applied in sequence order, so the last one seen closes the bucket.
+        bucket.closingBalance = cursor.getBalance();
+        bucket.lastSequence = cursor.getLastSequence();
+    }
+
+    private void ensureWatermark() {
+        if (watermarkRepository.findByName(WATERMARK).isPresent()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> watermarkRepository.saveAndFlush(
+                    RollupWatermark.builder().name(WATERMARK).lastEntryId(0).build()));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first.
+        }
+    }
+
+    /**
+     * @param lastScanned id of the last entry read, where the next page of the run starts
+     */
+    record Page(int scanned, long lastScanned, int applied, int held) {
+    }
+
+    private record BucketKey(long accountId, RollupGranularity granularity, LocalDateTime start) {
+    }
+
+    private static final class Bucket {
+        private BigDecimal creditAmount = BigDecimal.ZERO;
+        private BigDecimal debitAmount = BigDecimal.ZERO;
+        private long creditCount;
+        private long debitCount;
+        private BigDecimal closingBalance;
+        private long lastSequence;
+    }
+}
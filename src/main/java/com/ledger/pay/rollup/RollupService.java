@@ -0,0 +1,115 @@
+package com.ledger.pay.rollup;
+
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.BalanceRollup;
+import com.ledger.pay.enums.RollupGranularity;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.BalanceRollupRepository;
+import dto.RollupBucketResponse;
+import dto.RollupSummaryResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Account activity over any range from the rollups: whole days come from daily buckets and the
+ * partial days at either end from hourly ones, so a month costs a few dozen rows. Ranges are
+ * widened to whole hours. Reads the shard the caller bound.
+ */
+@Service
+@RequiredArgsConstructor
+public class RollupService {
+
+    static final int MAX_BUCKETS = 1000;
+
+    private final AccountRepository accountRepository;
+    private final BalanceRollupRepository rollupRepository;
+
+    /**
+     * Totals for {@code [from, to)} and, if {@code granularity} is given, the buckets with activity
+     * in it. Balances are null when nothing has been rolled up for the account up to {@code to}.
+     */
+    @Transactional(readOnly = true)
+    public Optional<RollupSummaryResponse> summary(String accountRef, LocalDateTime from, LocalDateTime to,
+                                                   RollupGranularity granularity) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Optional<Account> account = accountRepository.findByAccountRef(accountRef);
+        if (account.isEmpty()) {
+            return Optional.empty();
+        }
+        Long accountId = account.get().getId();
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = ceil(to, ChronoUnit.HOURS);
+        List<RollupBucketResponse> series = granularity == null
+                ? List.of()
+                : series(accountId, start, end, granularity);
+
+        LocalDateTime firstDay = ceil(start, ChronoUnit.DAYS);
+        LocalDateTime lastDay = end.truncatedTo(ChronoUnit.DAYS);
+        List<BalanceRollup> parts = new ArrayList<>();
+        if (firstDay.isBefore(lastDay)) {
+            parts.addAll(rollupRepository.findBuckets(accountId, RollupGranularity.HOUR, start, firstDay));
+            parts.addAll(rollupRepository.findBuckets(accountId, RollupGranularity.DAY, firstDay, lastDay));
+            parts.addAll(rollupRepository.findBuckets(accountId, RollupGranularity.HOUR, lastDay, end));
+        } else {
+            parts.addAll(rollupRepository.findBuckets(accountId, RollupGranularity.HOUR, start, end));
+        }
+        BigDecimal credit = BigDecimal.ZERO;
+        BigDecimal debit = BigDecimal.ZERO;
+        long creditCount = 0;
+        long debitCount = 0;
+        for (BalanceRollup part : parts) {
+            credit = credit.add(part.getCreditAmount());
+            debit = debit.add(part.getDebitAmount());
+            creditCount += part.getCreditCount();
+            debitCount += part.getDebitCount();
+        }
+
+        BigDecimal closing = balanceBefore(accountId, end);
+        BigDecimal opening = balanceBefore(accountId, start);
+        if (opening == null && closing != null) {
+            // Everything rolled up so far falls inside the range.
+            opening = closing.subtract(credit).add(debit);
+        }
+        return Optional.of(new RollupSummaryResponse(accountRef, start, end, opening, closing, credit, debit,
+                creditCount, debitCount, series));
+    }
+
+    private List<RollupBucketResponse> series(Long accountId, LocalDateTime start, LocalDateTime end,
+                                              RollupGranularity granularity) {
+        ChronoUnit unit = granularity == RollupGranularity.DAY ? ChronoUnit.DAYS : ChronoUnit.HOURS;
+        LocalDateTime seriesStart = start.truncatedTo(unit);
+        LocalDateTime seriesEnd = ceil(end, unit);
+        if (unit.between(seriesStart, seriesEnd) > MAX_BUCKETS) {
+            throw new IllegalArgumentException("At most " + MAX_BUCKETS + " " + unit.toString().toLowerCase(Locale.ROOT)
+                    + " per request; use a coarser granularity or a shorter range");
+        }
+        return rollupRepository.findBuckets(accountId, granularity, seriesStart, seriesEnd).stream()
+                .map(bucket -> new RollupBucketResponse(bucket.getBucketStart(), bucket.getCreditAmount(),
+                        bucket.getDebitAmount(), bucket.getCreditCount(), bucket.getDebitCount(),
+                        bucket.getClosingBalance()))
+                .toList();
+    }
+
+    private BigDecimal balanceBefore(Long accountId, LocalDateTime time) {
+        return rollupRepository.findFirstByAccountIdAndGranularityAndBucketStartLessThanOrderByBucketStartDesc(
+                        accountId, RollupGranularity.HOUR, time)
+                .map(BalanceRollup::getClosingBalance)
+                .orElse(null);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
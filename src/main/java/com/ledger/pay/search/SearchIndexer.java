@@ -0,0 +1,308 @@
+package com.ledger.pay.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.SearchProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.SearchWatermark;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.domain.TransactionSearch;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.SearchScope;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.SearchWatermarkRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps {@link TransactionSearch} in step with {@code transactions}, off the posting path.
+ * <p>
+ * The outbox is the change feed: every event naming a transaction, by aggregate id or by a
+ * {@code transactionRef} or {@code originalRef} in its payload (a reversal changes the status of
+ * the original), has that transaction indexed again from its current row. Re-indexing is an
+ * upsert, so reading an event twice does no harm. Transactions that predate the index are
+ * backfilled once, in id order up to the last id when the index was first set up. Each shard is
+ * indexed separately, one page per transaction holding the source's watermark row lock; a node
+ * that finds it locked leaves the source to the node holding it.
+ * <p>
+ * The search indexes are created here rather than in the entity: a trigram index on the reference
+ * for partial matches, a full-text index on the description and an index on the terms. They are
+ * built concurrently, so a first start on a large table does not block the indexer's writes.
+ */
+@Component
+@Slf4j
+public class SearchIndexer implements SmartInitializingSingleton {
+
+    static final String OUTBOX = "outbox";
+    static final String BACKFILL = "transactions";
+
+    private static final List<String> INDEXES = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_search_reference "
+                    + "ON transaction_search USING gin (reference gin_trgm_ops)",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_search_description "
+                    + "ON transaction_search USING gin (to_tsvector('simple', coalesce(description, '')))",
+            "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transaction_search_terms "
+                    + "ON transaction_search USING gin (terms)");
+
+    private static final String UPSERT = """
+            INSERT INTO transaction_search (transaction_id, reference, type, status, amount, description, metadata,
+                                            terms, posted_at, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, now(), now())
+            ON CONFLICT (transaction_id) DO UPDATE SET
+                reference = EXCLUDED.reference,
+                type = EXCLUDED.type,
+                status = EXCLUDED.status,
+                amount = EXCLUDED.amount,
+                description = EXCLUDED.description,
+                metadata = EXCLUDED.metadata,
+                terms = EXCLUDED.terms,
+                posted_at = EXCLUDED.posted_at,
+                updated_at = now()
+            """;
+
+    private final SearchProperties properties;
+    private final OutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final SearchWatermarkRepository watermarkRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Counter indexedCounter;
+
+    public SearchIndexer(SearchProperties properties,
+                         OutboxRepository outboxRepository,
+                         TransactionRepository transactionRepository,
+                         LedgerEntryRepository ledgerEntryRepository,
+                         SearchWatermarkRepository watermarkRepository,
+                         JdbcTemplate jdbcTemplate,
+                         ShardRouter shardRouter,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry registry) {
+        this.properties = properties;
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.indexedCounter = Counter.builder("ledger.search.indexed")
+                .description("Transactions written to the search index")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (properties.enabled()) {
+            shardRouter.forEachShard(shard -> createIndexes());
+        }
+    }
+
+    /**
+     * Indexes the transactions named by new outbox events, then a share of the backfill, on every
+     * shard. Returns how many transactions were indexed.
+     */
+    public int run(LocalDateTime now) {
+        AtomicInteger indexed = new AtomicInteger();
+        shardRouter.forEachShard(shard -> {
+            ensureWatermarks(now);
+            indexed.addAndGet(drain(OUTBOX, () -> indexOutbox(now)));
+            indexed.addAndGet(drain(BACKFILL, this::backfill));
+        });
+        indexedCounter.increment(indexed.get());
+        return indexed.get();
+    }
+
+    private int drain(String source, Supplier<Page> work) {
+        int indexed = 0;
+        for (int i = 0; i < properties.maxPagesPerRun(); i++) {
+            Page page = transactionTemplate.execute(status -> work.get());
+            if (page == null) {
+                log.debug("Search source {} is being indexed by another node", source);
+                break;
+            }
+            indexed += page.indexed();
+            if (page.scanned() < properties.batchSize()) {
+                break;
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Indexes the transactions of one page of outbox events. Returns null if another node holds
+     * the watermark. Must run inside a transaction.
+     */
+    Page indexOutbox(LocalDateTime now) {
+        SearchWatermark watermark = watermarkRepository.findByNameForUpdate(OUTBOX).orElse(null);
+        if (watermark == null) {
+            return null;
+        }
+        List<Outbox> events = outboxRepository.findAfterId(watermark.getLastId(), now.minus(properties.settle()),
+                PageRequest.of(0, properties.batchSize()));
+        if (events.isEmpty()) {
+            return new Page(0, 0);
+        }
+        Set<Long> ids = new HashSet<>();
+        Set<String> references = new HashSet<>();
+        for (Outbox event : events) {
+            if (event.getAggregateType() == AggregateType.TRANSACTION) {
+                ids.add(Long.valueOf(event.getAggregateId()));
+            }
+            for (String field : List.of("transactionRef", "originalRef")) {
+                if (event.getPayload().get(field) instanceof String reference) {
+                    references.add(reference);
+                }
+            }
+        }
+        Map<Long, Transaction> transactions = new LinkedHashMap<>();
+        for (Transaction transaction : transactionRepository.findAllById(ids)) {
+            transactions.put(transaction.getId(), transaction);
+        }
+        if (!references.isEmpty()) {
+            for (Transaction transaction : transactionRepository.findAllByReferenceIn(references)) {
+                transactions.putIfAbsent(transaction.getId(), transaction);
+            }
+        }
+        write(transactions.values());
+        watermark.setLastId(events.getLast().getId());
+        return new Page(events.size(), transactions.size());
+    }
+
+    /**
+     * Indexes the next page of transactions that predate the index. Returns null if another node
+     * holds the watermark. Must run inside a transaction.
+     */
+    Page backfill() {
+        SearchWatermark watermark = watermarkRepository.findByNameForUpdate(BACKFILL).orElse(null);
+        if (watermark == null) {
+            return null;
+        }
+        if (watermark.getLastId() >= watermark.getTargetId()) {
+            return new Page(0, 0);
+        }
+        List<Transaction> transactions = transactionRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                watermark.getLastId(), watermark.getTargetId(), PageRequest.of(0, properties.batchSize()));
+        write(transactions);
+        watermark.setLastId(transactions.isEmpty() ? watermark.getTargetId() : transactions.getLast().getId());
+        if (watermark.getLastId() >= watermark.getTargetId()) {
+            log.info("Search backfill complete up to transaction {}", watermark.getTargetId());
+        }
+        return new Page(transactions.size(), transactions.size());
+    }
+
+    private void write(Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        List<Long> ids = transactions.stream().map(Transaction::getId).toList();
+        Map<Long, List<Account>> accounts = new HashMap<>();
+        for (Object[] row : ledgerEntryRepository.findAccountsByTransactionIds(ids)) {
+            accounts.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Account) row[1]);
+        }
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (Transaction transaction : transactions) {
+            Set<String> terms = new LinkedHashSet<>();
+            SearchTerms.addMetadata(terms, SearchScope.TRANSACTION, transaction.getMetadata());
+            for (Account account : accounts.getOrDefault(transaction.getId(), List.of())) {
+                terms.add(SearchTerms.account(account.getAccountRef()));
+                SearchTerms.addMetadata(terms, SearchScope.ACCOUNT, account.getMetadata());
+            }
+            documents.add(new Document(transaction, json(transaction.getMetadata()), terms.toArray(String[]::new)));
+        }
+        jdbcTemplate.batchUpdate(UPSERT, documents, documents.size(), (ps, document) -> {
+            Transaction transaction = document.transaction();
+            ps.setLong(1, transaction.getId());
+            ps.setString(2, transaction.getReference());
+            ps.setString(3, transaction.getType().name());
+            ps.setString(4, transaction.getStatus().name());
+            ps.setBigDecimal(5, transaction.getAmount());
+            ps.setString(6, transaction.getDescription());
+            ps.setString(7, document.metadata());
+            ps.setArray(8, ps.getConnection().createArrayOf("text", document.terms()));
+            ps.setTimestamp(9, Timestamp.valueOf(transaction.getCreatedAt()));
+        });
+    }
+
+    private String json(Map<String, Object> metadata) {
+        if (metadata == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Metadata is not serializable", e);
+        }
+    }
+
+    private void ensureWatermarks(LocalDateTime now) {
+        if (watermarkRepository.findByName(OUTBOX).isPresent()) {
+            return;
+        }
+        try {
+            // Existing transactions come from the backfill; the feed starts with events still to settle.
+            transactionTemplate.executeWithoutResult(status -> watermarkRepository.saveAllAndFlush(List.of(
+                    SearchWatermark.builder()
+                            .name(OUTBOX)
+                            .lastId(outboxRepository.findMaxIdBefore(now.minus(properties.settle())))
+                            .build(),
+                    SearchWatermark.builder()
+                            .name(BACKFILL)
+                            .lastId(0)
+                            .targetId(transactionRepository.findMaxId())
+                            .build())));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created them first.
+        }
+    }
+
+    private void createIndexes() {
+        for (String statement : INDEXES) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                log.warn("Could not create search index ({}): {}", statement, e.getMessage());
+            }
+        }
+    }
+
+    private record Document(Transaction transaction, String metadata, String[] terms) {
+    }
+
+    /**
+     * @param scanned events or transactions read
+     * @param indexed transactions written to the index
+     */
+    record Page(int scanned, int indexed) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.ledger.pay.search;
+
+import com.ledger.pay.enums.SearchScope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The exact-match terms a transaction is indexed under: {@code account:<ref>} for every account it
+ * moved, and {@code tx.key:<key>} and {@code tx.value:<key>=<value>} for its metadata, or
+ * {@code account.key:} and {@code account.value:} for those accounts' metadata. Only top-level keys
+ * are indexed, and values only when they are short scalars.
+ */
+final class SearchTerms {
+
+    static final int MAX_VALUE_LENGTH = 200;
+    private static final String ACCOUNT = "account:";
+
+    private SearchTerms() {
+    }
+
+    static String account(String accountRef) {
+        return ACCOUNT + accountRef;
+    }
+
+    static boolean isAccount(String term) {
+        return term.startsWith(ACCOUNT);
+    }
+
+    static String accountRef(String term) {
+        return term.substring(ACCOUNT.length());
+    }
+
+    /**
+     * Terms matching {@code key}, or {@code key} holding {@code value} when it is not null, in the
+     * metadata of {@code scope}.
+     */
+    static List<String> metadata(SearchScope scope, String key, String value) {
+        List<String> terms = new ArrayList<>(2);
+        for (String prefix : prefixes(scope)) {
+            terms.add(value == null ? prefix + ".key:" + key : prefix + ".value:" + key + "=" + value);
+        }
+        return terms;
+    }
+
+    static void addMetadata(Set<String> terms, SearchScope scope, Map<String, Object> metadata) {
+        if (metadata == null) {
+            return;
+        }
+        String prefix = prefixes(scope).getFirst();
+        metadata.forEach((key, value) -> {
+            terms.add(prefix + ".key:" + key);
+            if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+                String text = value.toString();
+                if (text.length() <= MAX_VALUE_LENGTH) {
+                    terms.add(prefix + ".value:" + key + "=" + text);
+                }
+            }
+        });
+    }
+
+    private static List<String> prefixes(SearchScope scope) {
+        return switch (scope) {
+            case TRANSACTION -> List.of("tx");
+            case ACCOUNT -> List.of("account");
+            case ANY -> List.of("tx", "account");
+        };
+    }
+}
@@ -0,0 +1,208 @@
+package com.ledger.pay.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.SearchProperties;
+import com.ledger.pay.enums.SearchScope;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.TransactionSearchHit;
+import dto.TransactionSearchResponse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches the {@code transaction_search} index of every shard, newest first, in read-only
+ * transactions so that they run on a replica when one is healthy. Every filter is backed by an
+ * index: partial references by the trigram index, description words by the full-text index, and
+ * accounts and metadata by the terms index. Pages are keyed on (created at, reference), which is
+ * unique across shards, so paging deep costs the same as the first page.
+ */
+@Service
+public class TransactionSearchService {
+
+    static final int MIN_REFERENCE_LENGTH = 3;
+    private static final Comparator<TransactionSearchHit> NEWEST_FIRST = Comparator
+            .comparing(TransactionSearchHit::createdAt)
+            .thenComparing(TransactionSearchHit::reference)
+            .reversed();
+    private static final TypeReference<Map<String, Object>> METADATA = new TypeReference<>() {
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final SearchProperties properties;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public TransactionSearchService(NamedParameterJdbcTemplate jdbcTemplate,
+                                    ShardRouter shardRouter,
+                                    SearchProperties properties,
+                                    PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.properties = properties;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setTimeout((int) Math.max(1, properties.queryTimeout().toSeconds()));
+    }
+
+    /**
+     * What to match; every non-null filter must hold. {@code value} narrows {@code key} to that
+     * value, in the metadata of the transaction, of the accounts it moved, or of either.
+     */
+    public record Criteria(String reference,
+                           String text,
+                           String accountRef,
+                           String key,
+                           String value,
+                           SearchScope scope,
+                           LocalDateTime from,
+                           LocalDateTime to) {
+    }
+
+    public TransactionSearchResponse search(Criteria criteria, String cursor, int size) {
+        if (size < 1 || size > properties.maxPageSize()) {
+            throw new IllegalArgumentException("size must be between 1 and " + properties.maxPageSize());
+        }
+        String query = query(criteria, cursor != null);
+        MapSqlParameterSource parameters = parameters(criteria, cursor, size);
+        List<TransactionSearchHit> hits = new ArrayList<>();
+        shardRouter.forEachShard(shard -> hits.addAll(readOnly.execute(status ->
+                jdbcTemplate.query(query, parameters, (rs, rowNum) -> hit(rs)))));
+
+        // A moved account's transactions can briefly be indexed on both shards.
+        Map<String, TransactionSearchHit> page = new LinkedHashMap<>();
+        hits.stream().sorted(NEWEST_FIRST).forEach(hit -> page.putIfAbsent(hit.reference(), hit));
+        List<TransactionSearchHit> items = page.values().stream().limit(size).toList();
+        String nextCursor = page.size() > size ? cursor(items.getLast()) : null;
+        return new TransactionSearchResponse(items, nextCursor);
+    }
+
+    private static String query(Criteria criteria, boolean after) {
+        if (criteria.reference() == null && criteria.text() == null && criteria.accountRef() == null
+                && criteria.key() == null) {
+            throw new IllegalArgumentException("At least one of reference, text, accountRef or key is required");
+        }
+        if (criteria.reference() != null && criteria.reference().length() < MIN_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("reference must be at least " + MIN_REFERENCE_LENGTH + " characters");
+        }
+        if (criteria.value() != null && criteria.key() == null) {
+            throw new IllegalArgumentException("value requires key");
+        }
+        StringBuilder sql = new StringBuilder("SELECT reference, type, status, amount, description, "
+                + "CAST(metadata AS text) AS metadata, terms, posted_at FROM transaction_search WHERE TRUE");
+        if (criteria.reference() != null) {
+            sql.append(" AND reference ILIKE :reference");
+        }
+        if (criteria.text() != null) {
+            // Must match the expression of idx_transaction_search_description.
+            sql.append(" AND to_tsvector('simple', coalesce(description, '')) @@ plainto_tsquery('simple', :text)");
+        }
+        if (criteria.accountRef() != null) {
+            sql.append(" AND terms @> ARRAY[:account]::text[]");
+        }
+        if (criteria.key() != null) {
+            sql.append(" AND terms && ARRAY[:metadata]::text[]");
+        }
+        if (criteria.from() != null) {
+            sql.append(" AND posted_at >= :from");
+        }
+        if (criteria.to() != null) {
+            sql.append(" AND posted_at < :to");
+        }
+        if (after) {
+            sql.append(" AND (posted_at, reference) < (:afterCreatedAt, :afterReference)");
+        }
+        return sql.append(" ORDER BY posted_at DESC, reference DESC LIMIT :limit").toString();
+    }
+
+    private static MapSqlParameterSource parameters(Criteria criteria, String cursor, int size) {
+        // One extra row tells whether there is a next page.
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", size + 1);
+        if (criteria.reference() != null) {
+            parameters.addValue("reference", "%" + criteria.reference()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        parameters.addValue("text", criteria.text());
+        if (criteria.accountRef() != null) {
+            parameters.addValue("account", SearchTerms.account(criteria.accountRef()));
+        }
+        if (criteria.key() != null) {
+            SearchScope scope = criteria.scope() == null ? SearchScope.ANY : criteria.scope();
+            parameters.addValue("metadata", SearchTerms.metadata(scope, criteria.key(), criteria.value()));
+        }
+        parameters.addValue("from", criteria.from());
+        parameters.addValue("to", criteria.to());
+        if (cursor != null) {
+            After after = decode(cursor);
+            parameters.addValue("afterCreatedAt", after.createdAt());
+            parameters.addValue("afterReference", after.reference());
+        }
+        return parameters;
+    }
+
+    private TransactionSearchHit hit(ResultSet rs) throws SQLException {
+        String[] terms = (String[]) rs.getArray("terms").getArray();
+        List<String> accountRefs = Arrays.stream(terms)
+                .filter(SearchTerms::isAccount)
+                .map(SearchTerms::accountRef)
+                .toList();
+        return new TransactionSearchHit(
+                rs.getString("reference"),
+                rs.getString("type"),
+                rs.getString("status"),
+                rs.getBigDecimal("amount"),
+                rs.getString("description"),
+                metadata(rs.getString("metadata")),
+                accountRefs,
+                rs.getTimestamp("posted_at").toLocalDateTime());
+    }
+
+    private Map<String, Object> metadata(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, METADATA);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable metadata in the search index", e);
+        }
+    }
+
+    static String cursor(TransactionSearchHit last) {
+        String key = last.createdAt() + "\n" + last.reference();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static After decode(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\n", 2);
+            if (key.length == 2) {
+                return new After(LocalDateTime.parse(key[0]), key[1]);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+
+    private record After(LocalDateTime createdAt, String reference) {
+    }
+}
@@ -15,14 +15,14 @@ import java.util.Map;
 public class KafkaEventPublisher {
     private final KafkaTemplate<String, Object> kafkaTemplate;
     public void publish(String topic, String key, Map<String, Object> payload) {
-        log.info("Publishing to topic {}: key={}", topic, key);
+        log.debug("Publishing to topic {}: key={}", topic, key);
 
         kafkaTemplate.send(topic, key, payload)
                 .whenComplete((result, ex) -> {
                     if (ex != null) {
                         log.error("Failed to publish to {}: {}", topic, ex.getMessage());
-                    } else {
-                        log.info("Published to {} partition {} offset {}",
+                    } else if (log.isDebugEnabled()) {
+                        log.debug("Published to {} partition {} offset {}",
                                 topic,
                                 result.getRecordMetadata().partition(),
                                 result.getRecordMetadata().offset());
@@ -1,15 +1,24 @@
 package com.ledger.pay.service;
 
+import com.ledger.pay.audit.HashChain;
 import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Hold;
 import com.ledger.pay.domain.LedgerEntry;
 import com.ledger.pay.domain.Outbox;
 import com.ledger.pay.domain.Transaction;
 import com.ledger.pay.enums.*;
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.limits.LimitsEngine;
 import com.ledger.pay.observability.LedgerMetrics;
+import com.ledger.pay.observability.RequestTimeline;
+import com.ledger.pay.readmodel.BalanceReadModel;
 import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.HoldRepository;
 import com.ledger.pay.repository.LedgerEntryRepository;
 import com.ledger.pay.repository.OutboxRepository;
 import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.CrossShardTransfers;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -21,10 +30,13 @@ import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
+import static com.ledger.pay.observability.SampledLogFilter.SAMPLED;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -35,6 +47,14 @@ public class LedgerService {
     private  final OutboxRepository outboxRepository;
     private final KafkaEventPublisher kafkaEventPublisher;
     private final LedgerMetrics metrics;
+    private final BalanceReadModel balanceReadModel;
+    private final HoldRepository holdRepository;
+    private final LimitsEngine limitsEngine;
+    private final HashChain hashChain;
+    private final FxRates fxRates;
+    private final FeeEngine feeEngine;
+    static final String CAPTURE_SUFFIX = ":capture";
+    static final int MAX_HOLD_REFERENCE_LENGTH = 100 - CAPTURE_SUFFIX.length();
     //        NOTE: this is a naive implementation of this operation its for learning purpose this is not suited for production
 
 
@@ -44,13 +64,27 @@ public class LedgerService {
                                  BigDecimal amount,
                                  String reference,
                                  String description){
-        String hash = computeIdempotencyHash(
-                sourceAccountRef,
-                destinationAccountRef,
-                amount.toPlainString(),
-                reference
-        );
+        return transfer(sourceAccountRef, destinationAccountRef, amount, reference, description, false);
+    }
+
+    /**
+     * Transfers {@code amount} in the source account's currency. Accounts in different currencies
+     * are rejected unless {@code convert} is set, in which case the amount is converted at the
+     * current in-memory rate and balanced through FX position accounts. The source also pays the
+     * fee its plan sets for the transfer, in the same transaction.
+     */
+    @Transactional
+    public Transaction transfer(String sourceAccountRef,
+                                String destinationAccountRef,
+                                BigDecimal amount,
+                                String reference,
+                                String description,
+                                boolean convert) {
+        String hash = transferHash(sourceAccountRef, destinationAccountRef, amount, reference, convert);
+        RequestTimeline.timeCommit();
+        long started = RequestTimeline.start();
        Optional<Transaction>  idempotentTransaction=  transactionRepository.findByReference(reference);
+        started = RequestTimeline.end(RequestTimeline.Phase.REPLAY_PROBE, started);
        if(idempotentTransaction.isPresent()){
            Transaction txn =  idempotentTransaction.get();
            if (!hash.equals(txn.getIdempotencyHash())) {
@@ -70,6 +104,23 @@ public class LedgerService {
         Account destinationAccount = accountRepository.findByAccountRef(destinationAccountRef)
                 .orElseThrow(()->
                         new IllegalArgumentException("Destination account not found: " + destinationAccountRef));
+        RequestTimeline.end(RequestTimeline.Phase.LOCK, started);
+        boolean crossCurrency = !sourceAccount.getCurrency().equals(destinationAccount.getCurrency());
+        if (!convert) {
+            requireSameCurrency(sourceAccount, destinationAccount);
+        }
+        FxRates.Quote quote = crossCurrency
+                ? fxRates.quote(amount, sourceAccount.getCurrency(), destinationAccount.getCurrency())
+                : null;
+        // In-memory velocity check on the locked row; counted back out if this transaction rolls back.
+        limitsEngine.reserve(sourceAccount, amount);
+        // The first leg of a cross-shard saga pays transit; its refund only returns the amount, so it is not charged.
+        FeeEngine.Fee fee = destinationAccount.getAccountRef().startsWith(CrossShardTransfers.TRANSIT_PREFIX)
+                ? null
+                : feeEngine.quote(sourceAccount, amount);
+        if (crossCurrency) {
+            return postConversion(sourceAccount, destinationAccount, amount, quote, fee, reference, description, hash);
+        }
 
         Transaction transaction = Transaction.builder()
                 .reference(reference)
@@ -78,12 +129,19 @@ public class LedgerService {
                 .status(TransactionStatus.COMPLETED)
                 .amount(amount)
                 .description(description)
+                .metadata(fee == null ? null : feeMetadata(new HashMap<>(), fee))
                 .build();
+        BigDecimal available = sourceAccount.getAvailableBalance();
         sourceAccount.withdraw(transaction);
-        if(sourceAccount.getAccountBalance().compareTo(BigDecimal.ZERO)< 0){
-            throw new IllegalStateException("Insufficient funds. Available: "  + ", Requested: " + amount);
+        if (fee != null) {
+            sourceAccount.withdraw(fee.amount());
+        }
+        // Available balance already excludes active holds; no need to sum them here.
+        if(sourceAccount.getAvailableBalance().compareTo(BigDecimal.ZERO)< 0){
+            throw insufficientFunds(available, amount, fee);
         }
         destinationAccount.deposit(transaction);
+        started = RequestTimeline.start();
         try {
             transaction = transactionRepository.saveAndFlush(transaction);
         } catch (DataIntegrityViolationException e) {
@@ -91,6 +149,7 @@ public class LedgerService {
             return transactionRepository.findByReference(reference)
                     .orElseThrow(() -> new IllegalStateException("Transaction disappeared"));
         }
+        started = RequestTimeline.end(RequestTimeline.Phase.FLUSH, started);
         this.accountRepository.save(sourceAccount);
 
         this.accountRepository.save(destinationAccount);
@@ -109,19 +168,29 @@ public class LedgerService {
                 .amount(amount)
                 .build();
 
+        hashChain.link(debitEntry);
+        hashChain.link(creditEntry);
         ledgerEntryRepository.save(debitEntry);
         ledgerEntryRepository.save(creditEntry);
+        if (fee != null) {
+            postFee(transaction, sourceAccount, fee);
+        }
+        // Flush so the payload carries the account versions that will be committed.
+        accountRepository.flush();
 
-
+        Map<String, Object> payload = eventPayload(transaction, sourceAccount, destinationAccount);
+        if (fee != null) {
+            payload.put("fee", fee.amount());
+        }
         Outbox outbox = Outbox.builder()
                 .aggregateId(transaction.getId().toString())
                 .aggregateType(AggregateType.TRANSACTION)
                 .eventType(EventType.TRANSFER_COMPLETED)
-                .payload(Map.of("sourceAccountRef",sourceAccountRef,
-                        "transactionRef",transaction.getReference(),
-                        "destinationAccountRef",destinationAccountRef,"amount",amount))
+                .payload(payload)
                 .build();
         outboxRepository.save(outbox);
+        balanceReadModel.applyAfterCommit(sourceAccount, destinationAccount);
+        RequestTimeline.end(RequestTimeline.Phase.WRITE, started);
 
         return transaction;
 
@@ -137,11 +206,14 @@ public class LedgerService {
             String reference,
             String description
     ) {
-        MDC.put("transactionRef", reference);
-        MDC.put("sourceAccount", externalAccountRef);
-        MDC.put("destinationAccount", userWalletRef);
-        MDC.put("amount", amount.toPlainString());
-        log.info("init deposit of {} from {} to {}",amount,externalAccountRef,userWalletRef);
+        boolean mdc = log.isInfoEnabled();
+        if (mdc) {
+            MDC.put("transactionRef", reference);
+            MDC.put("sourceAccount", externalAccountRef);
+            MDC.put("destinationAccount", userWalletRef);
+            MDC.put("amount", amount.toPlainString());
+        }
+        log.info(SAMPLED, "init deposit of {} from {} to {}", amount, externalAccountRef, userWalletRef);
         try {
 
 
@@ -151,7 +223,10 @@ public class LedgerService {
                     amount.toPlainString(),
                     reference
             );
+            RequestTimeline.timeCommit();
+            long started = RequestTimeline.start();
             Optional<Transaction> idempotentTransaction = transactionRepository.findByReference(reference);
+            started = RequestTimeline.end(RequestTimeline.Phase.REPLAY_PROBE, started);
             if (idempotentTransaction.isPresent()) {
                 Transaction txn = idempotentTransaction.get();
                 if (!hash.equals(txn.getIdempotencyHash())) {
@@ -171,8 +246,8 @@ public class LedgerService {
             Account destinationAccount = accountRepository.findByAccountRefAndAccountType(userWalletRef, AccountType.USER_WALLET)
                     .orElseThrow(() ->
                             new IllegalArgumentException("Destination account not found: " + userWalletRef));
-
-
+            RequestTimeline.end(RequestTimeline.Phase.LOCK, started);
+            requireSameCurrency(sourceAccount, destinationAccount);
 
             Transaction transaction = Transaction.builder()
                     .reference(reference)
@@ -185,6 +260,7 @@ public class LedgerService {
             sourceAccount.withdraw(transaction);
             destinationAccount.deposit(transaction);
 
+            started = RequestTimeline.start();
             try {
                 transaction = transactionRepository.save(transaction);
             } catch (DataIntegrityViolationException e) {
@@ -193,6 +269,7 @@ public class LedgerService {
                 return transactionRepository.findByReference(reference)
                         .orElseThrow(() -> new IllegalStateException("Transaction disappeared"));
             }
+            started = RequestTimeline.end(RequestTimeline.Phase.FLUSH, started);
            this.accountRepository.save(sourceAccount);
             this.accountRepository.save(destinationAccount);
 
@@ -211,20 +288,20 @@ public class LedgerService {
                     .amount(amount)
                     .build();
 
+            hashChain.link(debitEntry);
+            hashChain.link(creditEntry);
             ledgerEntryRepository.save(debitEntry);
             ledgerEntryRepository.save(creditEntry);
+            accountRepository.flush();
             Outbox outbox = Outbox.builder()
                     .aggregateId(transaction.getId().toString())
                     .aggregateType(AggregateType.TRANSACTION)
                     .eventType(EventType.TRANSFER_COMPLETED)  // You might want a DEPOSIT_COMPLETED event
-                    .payload(Map.of(
-                            "sourceAccountRef", externalAccountRef,
-                            "transactionRef", transaction.getReference(),
-                            "destinationAccountRef", userWalletRef,
-                            "amount", amount
-                    ))
+                    .payload(eventPayload(transaction, sourceAccount, destinationAccount))
                     .build();
             outboxRepository.save(outbox);
+            balanceReadModel.applyAfterCommit(sourceAccount, destinationAccount);
+            RequestTimeline.end(RequestTimeline.Phase.WRITE, started);
             metrics.recordDeposit();
             metrics.recordTransactionAmount("deposit", amount);
 
@@ -234,29 +311,474 @@ public class LedgerService {
             metrics.recordFailure(e.getMessage());
             throw e;
         }finally {
-
+            if (mdc) {
                 MDC.clear();
+            }
+        }
+
+    }
+    /**
+     * Idempotent replay probe that runs before the write path. It is read-only, so with replica
+     * routing it is served by a replica. A hit there is authoritative because committed transactions
+     * never disappear. A miss (possibly replica lag) falls through to the normal check on the primary.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findReplay(String sourceAccountRef,
+                                            String destinationAccountRef,
+                                            BigDecimal amount,
+                                            String reference) {
+        return findReplay(sourceAccountRef, destinationAccountRef, amount, reference, false);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findReplay(String sourceAccountRef,
+                                            String destinationAccountRef,
+                                            BigDecimal amount,
+                                            String reference,
+                                            boolean convert) {
+        long started = RequestTimeline.start();
+        Optional<Transaction> replay = transactionRepository.findByReference(reference);
+        RequestTimeline.end(RequestTimeline.Phase.REPLAY_PROBE, started);
+        return replay.map(txn -> {
+            String hash = transferHash(sourceAccountRef, destinationAccountRef, amount, reference, convert);
+            if (!hash.equals(txn.getIdempotencyHash())) {
+                throw new IllegalArgumentException(
+                        "Idempotency key '" + reference + "' already used with different parameters"
+                );
+            }
+            return txn;
+        });
+    }
 
+    /**
+     * Reserves {@code amount} of the source account's available balance for a later capture into
+     * {@code destinationAccountRef}. Idempotent on {@code reference} like transfers.
+     */
+    @Transactional
+    public Hold placeHold(String sourceAccountRef,
+                          String destinationAccountRef,
+                          BigDecimal amount,
+                          String reference,
+                          String description,
+                          Duration ttl) {
+        String hash = computeIdempotencyHash(
+                sourceAccountRef,
+                destinationAccountRef,
+                amount.toPlainString(),
+                reference
+        );
+        Optional<Hold> existing = holdRepository.findByReference(reference);
+        if (existing.isPresent()) {
+            if (!hash.equals(existing.get().getIdempotencyHash())) {
+                throw new IllegalArgumentException(
+                        "Idempotency key '" + reference + "' already used with different parameters"
+                );
+            }
+            return existing.get();
         }
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (reference.length() > MAX_HOLD_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("Hold reference longer than " + MAX_HOLD_REFERENCE_LENGTH + " characters");
+        }
+        Account sourceAccount = accountRepository.findByAccountRefForUpdate(sourceAccountRef)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Source account not found: " + sourceAccountRef));
+        Account destinationAccount = accountRepository.findByAccountRef(destinationAccountRef)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Destination account not found: " + destinationAccountRef));
+        // Captures post a plain transfer, so holds never convert.
+        requireSameCurrency(sourceAccount, destinationAccount);
+        if (sourceAccount.getAvailableBalance().compareTo(amount) < 0) {
+            throw new IllegalStateException("Insufficient funds. Available: " + sourceAccount.getAvailableBalance()
+                    + ", Requested: " + amount);
+        }
+        // The outflow itself is counted when the hold is captured.
+        limitsEngine.checkOnly(sourceAccount, amount);
 
+        Hold hold = Hold.builder()
+                .reference(reference)
+                .sourceAccount(sourceAccount)
+                .destinationAccount(destinationAccount)
+                .amount(amount)
+                .idempotencyHash(hash)
+                .description(description)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build();
+        try {
+            // Inserted before touching the account so a lost race leaves nothing dirty behind.
+            hold = holdRepository.saveAndFlush(hold);
+        } catch (DataIntegrityViolationException e) {
+            return holdRepository.findByReference(reference)
+                    .orElseThrow(() -> new IllegalStateException("Hold disappeared"));
+        }
+        sourceAccount.hold(amount);
+        accountRepository.save(sourceAccount);
+        accountRepository.flush();
+        saveHoldEvent(hold, sourceAccount, EventType.HOLD_PLACED);
+        balanceReadModel.applyAfterCommit(sourceAccount);
+        return hold;
     }
+
+    /**
+     * Captures an active hold into a transfer of {@code amount} (the full hold when {@code null})
+     * and releases the rest. Capturing an already captured hold with the same amount returns it.
+     */
+    @Transactional
+    public Hold captureHold(String reference, BigDecimal amount) {
+        Hold hold = holdRepository.findByReferenceForUpdate(reference)
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found: " + reference));
+        BigDecimal captureAmount = amount == null ? hold.getAmount() : amount;
+        if (hold.getStatus() == HoldStatus.CAPTURED && captureAmount.compareTo(hold.getCapturedAmount()) == 0) {
+            return holdRepository.findByReference(reference).orElseThrow();
+        }
+        requireActive(hold);
+        if (captureAmount.compareTo(BigDecimal.ZERO) <= 0 || captureAmount.compareTo(hold.getAmount()) > 0) {
+            throw new IllegalArgumentException("Capture amount must be positive and at most " + hold.getAmount());
+        }
+        Account sourceAccount = accountRepository.findByIdForUpdate(hold.getSourceAccount().getId())
+                .orElseThrow(() -> new IllegalStateException("Hold source account disappeared"));
+        Account destinationAccount = accountRepository.findById(hold.getDestinationAccount().getId())
+                .orElseThrow(() -> new IllegalStateException("Hold destination account disappeared"));
+
+        Transaction transaction = Transaction.builder()
+                .reference(reference + CAPTURE_SUFFIX)
+                .type(TransactionType.CAPTURE)
+                .idempotencyHash(computeIdempotencyHash(
+                        sourceAccount.getAccountRef(),
+                        destinationAccount.getAccountRef(),
+                        captureAmount.toPlainString(),
+                        reference
+                ))
+                .status(TransactionStatus.COMPLETED)
+                .amount(captureAmount)
+                .description(hold.getDescription())
+                .build();
+        limitsEngine.recordOutflow(sourceAccount, captureAmount);
+        sourceAccount.releaseHold(hold.getAmount());
+        sourceAccount.withdraw(transaction);
+        destinationAccount.deposit(transaction);
+        transaction = transactionRepository.saveAndFlush(transaction);
+        accountRepository.save(sourceAccount);
+        accountRepository.save(destinationAccount);
+
+        LedgerEntry debitEntry = LedgerEntry.builder()
+                .transaction(transaction)
+                .account(sourceAccount)
+                .entryType(LedgerEntryType.DEBIT)
+                .amount(captureAmount)
+                .build();
+        LedgerEntry creditEntry = LedgerEntry.builder()
+                .transaction(transaction)
+                .account(destinationAccount)
+                .entryType(LedgerEntryType.CREDIT)
+                .amount(captureAmount)
+                .build();
+        hashChain.link(debitEntry);
+        hashChain.link(creditEntry);
+        ledgerEntryRepository.save(debitEntry);
+        ledgerEntryRepository.save(creditEntry);
+
+        hold.setStatus(HoldStatus.CAPTURED);
+        hold.setCapturedAmount(captureAmount);
+        hold.setCaptureTransaction(transaction);
+        accountRepository.flush();
+
+        outboxRepository.save(Outbox.builder()
+                .aggregateId(transaction.getId().toString())
+                .aggregateType(AggregateType.TRANSACTION)
+                .eventType(EventType.TRANSFER_COMPLETED)
+                .payload(eventPayload(transaction, sourceAccount, destinationAccount))
+                .build());
+        balanceReadModel.applyAfterCommit(sourceAccount, destinationAccount);
+        return hold;
+    }
+
+    @Transactional
+    public Hold voidHold(String reference) {
+        Hold hold = holdRepository.findByReferenceForUpdate(reference)
+                .orElseThrow(() -> new IllegalArgumentException("Hold not found: " + reference));
+        if (hold.getStatus() == HoldStatus.VOIDED) {
+            return holdRepository.findByReference(reference).orElseThrow();
+        }
+        if (hold.getStatus() != HoldStatus.ACTIVE) {
+            throw new IllegalStateException("Hold " + reference + " is " + hold.getStatus());
+        }
+        Account sourceAccount = accountRepository.findByIdForUpdate(hold.getSourceAccount().getId())
+                .orElseThrow(() -> new IllegalStateException("Hold source account disappeared"));
+        // Loaded so the returned hold can still be rendered once the session is closed.
+        accountRepository.findById(hold.getDestinationAccount().getId());
+        sourceAccount.releaseHold(hold.getAmount());
+        hold.setStatus(HoldStatus.VOIDED);
+        accountRepository.save(sourceAccount);
+        accountRepository.flush();
+        saveHoldEvent(hold, sourceAccount, EventType.HOLD_VOIDED);
+        balanceReadModel.applyAfterCommit(sourceAccount);
+        return hold;
+    }
+
+    /**
+     * Expires overdue holds in bulk. Returns the number of accounts whose held balance was released.
+     */
+    @Transactional
+    public int releaseExpiredHolds(int limit) {
+        List<Long> expired = holdRepository.releaseExpired(limit);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        // Read back after the update, so each event carries the account as the batch left it.
+        Map<Long, Account> accounts = new LinkedHashMap<>();
+        for (Hold hold : holdRepository.findAllWithSourceAccount(expired)) {
+            saveHoldEvent(hold, hold.getSourceAccount(), EventType.HOLD_EXPIRED);
+            accounts.putIfAbsent(hold.getSourceAccount().getId(), hold.getSourceAccount());
+        }
+        balanceReadModel.applyAfterCommit(accounts.values().toArray(Account[]::new));
+        return accounts.size();
+    }
+
     @Transactional
     public  Outbox processEvent(Outbox event){
-        log.info(" sending to Kafka: type={}, payload={}", event.getEventType(), event.getPayload());
-        kafkaEventPublisher.publish(resolveTopic(event),event.getAggregateId(),event.getPayload());
+        log.debug("sending to Kafka: type={}, payload={}", event.getEventType(), event.getPayload());
+        // Consumers such as webhooks need the event type, which is otherwise only on the outbox row.
+        Map<String, Object> payload = new HashMap<>(event.getPayload());
+        payload.putIfAbsent("eventType", event.getEventType().name());
+        RequestTimeline.timeCommit();
+        long started = RequestTimeline.start();
+        kafkaEventPublisher.publish(resolveTopic(event),event.getAggregateId(),payload);
+        started = RequestTimeline.end(RequestTimeline.Phase.PUBLISH, started);
 
         event.markProcessed();
         outboxRepository.save(event);
+        RequestTimeline.end(RequestTimeline.Phase.WRITE, started);
         return  event;
 
     };
 
+    /**
+     * Conversion leg of {@link #transfer}: the source pays {@code amount} into the position
+     * account of its currency, and the position account of the destination currency pays the
+     * converted amount to the destination. Each currency's entries balance on their own.
+     */
+    private Transaction postConversion(Account sourceAccount,
+                                       Account destinationAccount,
+                                       BigDecimal amount,
+                                       FxRates.Quote quote,
+                                       FeeEngine.Fee fee,
+                                       String reference,
+                                       String description,
+                                       String hash) {
+        String sourceCurrency = sourceAccount.getCurrency();
+        String destinationCurrency = destinationAccount.getCurrency();
+        // Positions are always locked after the wallet and in currency order, so conversions cannot deadlock.
+        boolean sourceFirst = sourceCurrency.compareTo(destinationCurrency) < 0;
+        Account first = lockPosition(sourceFirst ? sourceCurrency : destinationCurrency, sourceAccount);
+        Account second = lockPosition(sourceFirst ? destinationCurrency : sourceCurrency, sourceAccount);
+        Account sourcePosition = sourceFirst ? first : second;
+        Account destinationPosition = sourceFirst ? second : first;
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("sourceCurrency", sourceCurrency);
+        metadata.put("destinationCurrency", destinationCurrency);
+        metadata.put("rate", quote.rate().toPlainString());
+        metadata.put("convertedAmount", quote.converted().toPlainString());
+        metadata.put("rateAsOf", quote.asOf().toString());
+        if (fee != null) {
+            feeMetadata(metadata, fee);
+        }
+        Transaction transaction = Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.FX_TRANSFER)
+                .idempotencyHash(hash)
+                .status(TransactionStatus.COMPLETED)
+                .amount(amount)
+                .description(description)
+                .metadata(metadata)
+                .build();
+        BigDecimal available = sourceAccount.getAvailableBalance();
+        sourceAccount.withdraw(amount);
+        if (fee != null) {
+            sourceAccount.withdraw(fee.amount());
+        }
+        if (sourceAccount.getAvailableBalance().compareTo(BigDecimal.ZERO) < 0) {
+            throw insufficientFunds(available, amount, fee);
+        }
+        sourcePosition.deposit(amount);
+        destinationPosition.withdraw(quote.converted());
+        destinationAccount.deposit(quote.converted());
+        try {
+            transaction = transactionRepository.saveAndFlush(transaction);
+        } catch (DataIntegrityViolationException e) {
+            // Race condition: another request with same reference just committed
+            return transactionRepository.findByReference(reference)
+                    .orElseThrow(() -> new IllegalStateException("Transaction disappeared"));
+        }
+        accountRepository.save(sourceAccount);
+        accountRepository.save(sourcePosition);
+        accountRepository.save(destinationPosition);
+        accountRepository.save(destinationAccount);
+
+        List<LedgerEntry> entries = List.of(
+                entry(transaction, sourceAccount, LedgerEntryType.DEBIT, amount),
+                entry(transaction, sourcePosition, LedgerEntryType.CREDIT, amount),
+                entry(transaction, destinationPosition, LedgerEntryType.DEBIT, quote.converted()),
+                entry(transaction, destinationAccount, LedgerEntryType.CREDIT, quote.converted()));
+        for (LedgerEntry entry : entries) {
+            hashChain.link(entry);
+            ledgerEntryRepository.save(entry);
+        }
+        if (fee != null) {
+            postFee(transaction, sourceAccount, fee);
+        }
+        accountRepository.flush();
+
+        Map<String, Object> payload = eventPayload(transaction, sourceAccount, destinationAccount);
+        payload.put("convertedAmount", quote.converted());
+        if (fee != null) {
+            payload.put("fee", fee.amount());
+        }
+        payload.put("accounts", List.of(balance(sourcePosition), balance(destinationPosition)));
+        outboxRepository.save(Outbox.builder()
+                .aggregateId(transaction.getId().toString())
+                .aggregateType(AggregateType.TRANSACTION)
+                .eventType(EventType.TRANSFER_COMPLETED)
+                .payload(payload)
+                .build());
+        balanceReadModel.applyAfterCommit(sourceAccount, destinationAccount, sourcePosition, destinationPosition);
+        return transaction;
+    }
+
+    /**
+     * Posts the fee legs of {@code transaction}: the payer's debit, linked into its chain like any
+     * other, and the revenue account's credit, left unlinked and without touching the revenue
+     * row. {@code FeeRevenue} applies the credit to the revenue balance later, so fee-paying
+     * transfers never queue on the revenue account.
+     */
+    private void postFee(Transaction transaction, Account payer, FeeEngine.Fee fee) {
+        Account revenue = accountRepository.findByAccountRef(fee.revenueAccountRef())
+                .filter(account -> account.getAccountType() == AccountType.FEE_REVENUE)
+                .orElseThrow(() -> new IllegalStateException("Fee revenue account not found: " + fee.revenueAccountRef()));
+        LedgerEntry debit = entry(transaction, payer, LedgerEntryType.DEBIT, fee.amount());
+        hashChain.link(debit);
+        ledgerEntryRepository.save(debit);
+        ledgerEntryRepository.save(entry(transaction, revenue, LedgerEntryType.CREDIT, fee.amount()));
+    }
+
+    /**
+     * The rejection of a debit that would overdraw the source, with what was available before it.
+     */
+    private static IllegalStateException insufficientFunds(BigDecimal available, BigDecimal amount, FeeEngine.Fee fee) {
+        return new IllegalStateException("Insufficient funds. Available: " + available + ", Requested: " + amount
+                + (fee == null ? "" : " plus a fee of " + fee.amount()));
+    }
+
+    private static Map<String, Object> feeMetadata(Map<String, Object> metadata, FeeEngine.Fee fee) {
+        metadata.put("fee", fee.amount().toPlainString());
+        metadata.put("feeAccountRef", fee.revenueAccountRef());
+        return metadata;
+    }
+
+    private Account lockPosition(String currency, Account sourceAccount) {
+        String accountRef = fxRates.positionAccountRef(currency, sourceAccount.getId());
+        return accountRepository.findByAccountRefForUpdate(accountRef)
+                .filter(account -> account.getAccountType() == AccountType.FX_POSITION)
+                .orElseThrow(() -> new IllegalStateException("FX position account not found: " + accountRef));
+    }
+
+    private static LedgerEntry entry(Transaction transaction, Account account, LedgerEntryType type, BigDecimal amount) {
+        return LedgerEntry.builder()
+                .transaction(transaction)
+                .account(account)
+                .entryType(type)
+                .amount(amount)
+                .build();
+    }
+
+    private static Map<String, Object> balance(Account account) {
+        Map<String, Object> balance = new HashMap<>();
+        balance.put("accountRef", account.getAccountRef());
+        balance.put("balance", account.getAccountBalance().toPlainString());
+        balance.put("held", account.getHeldBalance().toPlainString());
+        balance.put("version", account.getVersion());
+        balance.put("currency", account.getCurrency());
+        return balance;
+    }
+
+    static void requireSameCurrency(Account source, Account destination) {
+        if (!source.getCurrency().equals(destination.getCurrency())) {
+            throw new IllegalArgumentException("Currency mismatch: " + source.getAccountRef() + " is "
+                    + source.getCurrency() + ", " + destination.getAccountRef() + " is " + destination.getCurrency());
+        }
+    }
+
+    // Package-private for the JMH suites in benchmarks/.
+    Map<String, Object> eventPayload(Transaction transaction, Account source, Account destination) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("transactionRef", transaction.getReference());
+        payload.put("type", transaction.getType().name());
+        payload.put("originNode", LimitsEngine.NODE_ID);
+        payload.put("amount", transaction.getAmount());
+        payload.put("sourceAccountRef", source.getAccountRef());
+        payload.put("destinationAccountRef", destination.getAccountRef());
+        // Post-commit balances for other nodes' read models; strings keep BigDecimal precision.
+        payload.put("sourceBalance", source.getAccountBalance().toPlainString());
+        payload.put("sourceHeld", source.getHeldBalance().toPlainString());
+        payload.put("sourceVersion", source.getVersion());
+        payload.put("sourceCurrency", source.getCurrency());
+        payload.put("destinationBalance", destination.getAccountBalance().toPlainString());
+        payload.put("destinationHeld", destination.getHeldBalance().toPlainString());
+        payload.put("destinationVersion", destination.getVersion());
+        payload.put("destinationCurrency", destination.getCurrency());
+        return payload;
+    }
+
+    private void requireActive(Hold hold) {
+        if (hold.getStatus() != HoldStatus.ACTIVE) {
+            throw new IllegalStateException("Hold " + hold.getReference() + " is " + hold.getStatus());
+        }
+        if (hold.isExpired(LocalDateTime.now())) {
+            throw new IllegalStateException("Hold " + hold.getReference() + " has expired");
+        }
+    }
+
+    private void saveHoldEvent(Hold hold, Account source, EventType eventType) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("holdRef", hold.getReference());
+        payload.put("amount", hold.getAmount());
+        payload.put("status", hold.getStatus().name());
+        payload.put("expiresAt", hold.getExpiresAt().toString());
+        payload.put("sourceAccountRef", source.getAccountRef());
+        payload.put("sourceBalance", source.getAccountBalance().toPlainString());
+        payload.put("sourceHeld", source.getHeldBalance().toPlainString());
+        payload.put("sourceVersion", source.getVersion());
+        payload.put("sourceCurrency", source.getCurrency());
+        outboxRepository.save(Outbox.builder()
+                .aggregateId(hold.getId().toString())
+                .aggregateType(AggregateType.HOLD)
+                .eventType(eventType)
+                .payload(payload)
+                .build());
+    }
+
     private String generateReference() {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
         String uuid = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
         return "ref" + timestamp + "-" + uuid;
     }
-    private String computeIdempotencyHash(String... values) {
+    // Asking for a conversion is part of the request. Plain transfers keep the four-value hash, so
+    // references posted before conversions existed still replay.
+    private String transferHash(String sourceAccountRef,
+                                String destinationAccountRef,
+                                BigDecimal amount,
+                                String reference,
+                                boolean convert) {
+        return convert
+                ? computeIdempotencyHash(sourceAccountRef, destinationAccountRef, amount.toPlainString(), reference,
+                        "convert")
+                : computeIdempotencyHash(sourceAccountRef, destinationAccountRef, amount.toPlainString(), reference);
+    }
+
+    String computeIdempotencyHash(String... values) {
         String combined = String.join("|", values);
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
@@ -270,8 +792,10 @@ public class LedgerService {
 
 
         return switch (event.getEventType()) {
-            case TRANSFER_COMPLETED -> "payment-events";
-            case SAGA_COMPLETED, SAGA_FAILED -> "saga-events";
+            // Hold, netting, reshard and reversal events carry balances for other nodes' read models.
+            case TRANSFER_COMPLETED, HOLD_PLACED, HOLD_VOIDED, HOLD_EXPIRED, NETTING_COMPLETED, ACCOUNT_MOVED,
+                 TRANSACTION_REVERSED, TRANSACTION_REFUNDED -> "payment-events";
+            case SAGA_STEP_REQUESTED, SAGA_STEP_COMPLETED, SAGA_STEP_FAILED, SAGA_COMPLETED, SAGA_FAILED -> "saga-events";
             default -> "ledger-events";
         };
     }
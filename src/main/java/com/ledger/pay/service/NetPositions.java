@@ -0,0 +1,84 @@
+package com.ledger.pay.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Net position of every account over a window of transfers (the payment graph's edges): credits
+ * received minus debits sent. Positions of all accounts always sum to zero, so posting one debit
+ * or credit per account with a non-zero position moves exactly the same money as the transfers.
+ */
+final class NetPositions {
+
+    record Flow(long sourceId, long destinationId, BigDecimal amount) {
+    }
+
+    /**
+     * @param positions net position per account, including accounts that net to zero
+     * @param rejected  indexes of flows left out because their sender could not cover its position
+     */
+    record Result(Map<Long, BigDecimal> positions, BitSet rejected) {
+    }
+
+    private NetPositions() {
+    }
+
+    /**
+     * Computes positions and drops flows until no account's debit exceeds {@code available}.
+     * A short account loses its latest outgoing flows first, only as many as needed. That can
+     * leave its counterparties short in turn, so positions are recomputed until nothing changes;
+     * every round drops at least one flow, so this terminates.
+     */
+    static Result settle(List<Flow> flows, Function<Long, BigDecimal> available, boolean parallel) {
+        Map<Long, List<Integer>> outgoing = new HashMap<>();
+        for (int i = 0; i < flows.size(); i++) {
+            outgoing.computeIfAbsent(flows.get(i).sourceId(), id -> new ArrayList<>()).add(i);
+        }
+        BitSet rejected = new BitSet(flows.size());
+        while (true) {
+            Map<Long, BigDecimal> positions = positions(flows, rejected, parallel);
+            boolean changed = false;
+            for (Map.Entry<Long, BigDecimal> position : positions.entrySet()) {
+                if (position.getValue().signum() >= 0) {
+                    continue;
+                }
+                BigDecimal shortfall = position.getValue().negate().subtract(available.apply(position.getKey()));
+                List<Integer> sent = outgoing.get(position.getKey());
+                for (int i = sent.size() - 1; i >= 0 && shortfall.signum() > 0; i--) {
+                    int flow = sent.get(i);
+                    if (!rejected.get(flow)) {
+                        rejected.set(flow);
+                        shortfall = shortfall.subtract(flows.get(flow).amount());
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return new Result(positions, rejected);
+            }
+        }
+    }
+
+    /**
+     * Map-reduce over the flows: each worker nets its share into a private map and the maps are
+     * merged, so hot accounts are not contended.
+     */
+    static Map<Long, BigDecimal> positions(List<Flow> flows, BitSet rejected, boolean parallel) {
+        IntStream indexes = IntStream.range(0, flows.size());
+        if (parallel) {
+            indexes = indexes.parallel();
+        }
+        return indexes.filter(i -> !rejected.get(i))
+                .collect(HashMap::new, (positions, i) -> {
+                    Flow flow = flows.get(i);
+                    positions.merge(flow.sourceId(), flow.amount().negate(), BigDecimal::add);
+                    positions.merge(flow.destinationId(), flow.amount(), BigDecimal::add);
+                }, (left, right) -> right.forEach((id, amount) -> left.merge(id, amount, BigDecimal::add)));
+    }
+}
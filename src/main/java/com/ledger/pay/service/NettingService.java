@@ -0,0 +1,388 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.NettingProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.domain.TransferIntent;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.IntentStatus;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.repository.TransferIntentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Multilateral netting of deferred transfers.
+ * <p>
+ * {@link #defer} records a {@link TransferIntent} without touching any account, so deferred
+ * transfers into or out of a hot account do not queue on its row lock. {@link #closeWindow} then
+ * takes every pending intent, nets them into one position per account ({@link NetPositions}) and
+ * posts a single {@code NETTING} transaction with one ledger entry per account whose position is
+ * not zero. Each intent keeps a link to that transaction, so the original references remain
+ * traceable from the entries.
+ * <p>
+ * Accounts are locked once per window, in id order. An account that cannot cover its net debit
+ * has its latest intents rejected until it can; rejected intents are kept with a reason and give
+ * back the velocity limit they reserved. Intents whose account was moved to another shard while
+ * they waited are rejected as well.
+ */
+@Service
+@Slf4j
+public class NettingService {
+
+    static final String REJECT_REASON = "Insufficient funds for net position at window close";
+    static final String MOVED_REASON = "Account moved to another shard before window close";
+    private static final int UPDATE_CHUNK = 1000;
+
+    private final TransferIntentRepository intentRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final OutboxRepository outboxRepository;
+    private final LedgerService ledgerService;
+    private final LimitsEngine limitsEngine;
+    private final BalanceReadModel balanceReadModel;
+    private final HashChain hashChain;
+    private final int maxIntentsPerWindow;
+    private final int parallelThreshold;
+
+    private final Counter nettedCounter;
+    private final Counter rejectedCounter;
+    private final DistributionSummary entriesSummary;
+
+    public NettingService(TransferIntentRepository intentRepository,
+                          AccountRepository accountRepository,
+                          TransactionRepository transactionRepository,
+                          LedgerEntryRepository ledgerEntryRepository,
+                          OutboxRepository outboxRepository,
+                          LedgerService ledgerService,
+                          LimitsEngine limitsEngine,
+                          BalanceReadModel balanceReadModel,
+                          HashChain hashChain,
+                          NettingProperties properties,
+                          MeterRegistry registry) {
+        this.intentRepository = intentRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.outboxRepository = outboxRepository;
+        this.ledgerService = ledgerService;
+        this.limitsEngine = limitsEngine;
+        this.balanceReadModel = balanceReadModel;
+        this.hashChain = hashChain;
+        this.maxIntentsPerWindow = Math.max(1, properties.maxIntentsPerWindow());
+        this.parallelThreshold = properties.parallelThreshold();
+
+        this.nettedCounter = outcome(registry, "netted");
+        this.rejectedCounter = outcome(registry, "rejected");
+        this.entriesSummary = DistributionSummary.builder("ledger.netting.entries")
+                .description("Ledger entries posted per netting window")
+                .register(registry);
+    }
+
+    /**
+     * Records a transfer to be settled at the next window close. Idempotent on {@code reference}
+     * like transfers; velocity limits are applied now, on the gross amount.
+     */
+    @Transactional
+    public TransferIntent defer(String sourceAccountRef,
+                                String destinationAccountRef,
+                                BigDecimal amount,
+                                String reference,
+                                String description) {
+        String hash = ledgerService.computeIdempotencyHash(
+                sourceAccountRef,
+                destinationAccountRef,
+                amount.toPlainString(),
+                reference
+        );
+        Optional<TransferIntent> existing = intentRepository.findByReference(reference);
+        if (existing.isPresent()) {
+            if (!hash.equals(existing.get().getIdempotencyHash())) {
+                throw new IllegalArgumentException(
+                        "Idempotency key '" + reference + "' already used with different parameters"
+                );
+            }
+            return existing.get();
+        }
+        if (transactionRepository.findByReference(reference).isPresent()) {
+            throw new IllegalArgumentException("Idempotency key '" + reference + "' already used by a transaction");
+        }
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (sourceAccountRef.equals(destinationAccountRef)) {
+            throw new IllegalArgumentException("Source and destination accounts must differ");
+        }
+        Account sourceAccount = accountRepository.findByAccountRef(sourceAccountRef)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Source account not found: " + sourceAccountRef));
+        Account destinationAccount = accountRepository.findByAccountRef(destinationAccountRef)
+                .orElseThrow(() ->
+                        new IllegalArgumentException("Destination account not found: " + destinationAccountRef));
+        // Net positions are plain per-account sums; an intent must not cross currencies.
+        LedgerService.requireSameCurrency(sourceAccount, destinationAccount);
+        limitsEngine.reserve(sourceAccount, amount);
+
+        TransferIntent intent = TransferIntent.builder()
+                .reference(reference)
+                .sourceAccount(sourceAccount)
+                .destinationAccount(destinationAccount)
+                .amount(amount)
+                .idempotencyHash(hash)
+                .description(description)
+                .build();
+        try {
+            return intentRepository.saveAndFlush(intent);
+        } catch (DataIntegrityViolationException e) {
+            // Race condition: another request with same reference just committed
+            return intentRepository.findByReference(reference)
+                    .orElseThrow(() -> new IllegalStateException("Transfer intent disappeared"));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public TransferIntent getIntent(String reference) {
+        return intentRepository.findByReference(reference)
+                .orElseThrow(() -> new IllegalArgumentException("Transfer intent not found: " + reference));
+    }
+
+    @Transactional(readOnly = true)
+    public List<String> intentReferences(String transactionRef) {
+        return intentRepository.findReferencesByNettingTransaction(transactionRef);
+    }
+
+    /**
+     * Settles up to {@code app.netting.max-intents-per-window} intents created before
+     * {@code cutoff}. Intents claimed by a window closing elsewhere are skipped. Returns empty when
+     * nothing was pending.
+     */
+    @Transactional
+    public Optional<WindowResult> closeWindow(LocalDateTime cutoff) {
+        List<TransferIntent> intents = intentRepository.findPendingForUpdate(cutoff, PageRequest.of(0, maxIntentsPerWindow));
+        if (intents.isEmpty()) {
+            return Optional.empty();
+        }
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (TransferIntent intent : intents) {
+            // Ids come from the foreign keys; the lazy accounts are not loaded here.
+            accountIds.add(intent.getSourceAccount().getId());
+            accountIds.add(intent.getDestinationAccount().getId());
+        }
+        Map<Long, Account> accounts = accountRepository.findAllByIdForUpdate(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        List<TransferIntent> settleable = new ArrayList<>(intents.size());
+        List<Long> movedIds = new ArrayList<>();
+        List<String> rejectedReferences = new ArrayList<>();
+        List<TransferIntent> rejectedIntents = new ArrayList<>();
+        List<NetPositions.Flow> flows = new ArrayList<>(intents.size());
+        for (TransferIntent intent : intents) {
+            long source = intent.getSourceAccount().getId();
+            long destination = intent.getDestinationAccount().getId();
+            if (accounts.get(source).getAccountType() == AccountType.MOVED
+                    || accounts.get(destination).getAccountType() == AccountType.MOVED) {
+                movedIds.add(intent.getId());
+                rejectedReferences.add(intent.getReference());
+                rejectedIntents.add(intent);
+                continue;
+            }
+            settleable.add(intent);
+            flows.add(new NetPositions.Flow(source, destination, intent.getAmount()));
+        }
+
+        NetPositions.Result settlement = NetPositions.settle(flows,
+                id -> accounts.get(id).getAvailableBalance(), flows.size() >= parallelThreshold);
+
+        List<Long> nettedIds = new ArrayList<>(settleable.size());
+        List<Long> rejectedIds = new ArrayList<>(settlement.rejected().cardinality());
+        for (int i = 0; i < settleable.size(); i++) {
+            TransferIntent intent = settleable.get(i);
+            if (settlement.rejected().get(i)) {
+                rejectedIds.add(intent.getId());
+                rejectedReferences.add(intent.getReference());
+                rejectedIntents.add(intent);
+            } else {
+                nettedIds.add(intent.getId());
+            }
+        }
+
+        Transaction transaction = null;
+        List<Account> changed = new ArrayList<>();
+        if (!nettedIds.isEmpty()) {
+            transaction = post(settleable, settlement.positions(), accounts, nettedIds.size(), changed);
+        }
+        for (int i = 0; i < nettedIds.size(); i += UPDATE_CHUNK) {
+            intentRepository.updateStatus(nettedIds.subList(i, Math.min(nettedIds.size(), i + UPDATE_CHUNK)),
+                    IntentStatus.NETTED, transaction, null);
+        }
+        for (int i = 0; i < rejectedIds.size(); i += UPDATE_CHUNK) {
+            intentRepository.updateStatus(rejectedIds.subList(i, Math.min(rejectedIds.size(), i + UPDATE_CHUNK)),
+                    IntentStatus.REJECTED, null, REJECT_REASON);
+        }
+        for (int i = 0; i < movedIds.size(); i += UPDATE_CHUNK) {
+            intentRepository.updateStatus(movedIds.subList(i, Math.min(movedIds.size(), i + UPDATE_CHUNK)),
+                    IntentStatus.REJECTED, null, MOVED_REASON);
+        }
+        releaseLimits(rejectedIntents, accounts);
+        int rejected = rejectedReferences.size();
+        if (transaction != null) {
+            outboxRepository.save(Outbox.builder()
+                    .aggregateId(transaction.getId().toString())
+                    .aggregateType(AggregateType.TRANSACTION)
+                    .eventType(EventType.NETTING_COMPLETED)
+                    .payload(eventPayload(transaction, nettedIds.size(), rejected, changed))
+                    .build());
+            balanceReadModel.applyAfterCommit(changed.toArray(Account[]::new));
+        }
+
+        nettedCounter.increment(nettedIds.size());
+        rejectedCounter.increment(rejected);
+        entriesSummary.record(changed.size());
+        log.info("Netting window closed: {} intents netted into {} entries, {} rejected",
+                nettedIds.size(), changed.size(), rejected);
+        return Optional.of(new WindowResult(transaction == null ? null : transaction.getReference(),
+                nettedIds.size(), rejectedReferences, changed.size()));
+    }
+
+    /**
+     * Posts the summary transaction and one entry per account with a non-zero position, in account
+     * id order. Adds the accounts it changed to {@code changed}.
+     */
+    private Transaction post(List<TransferIntent> intents,
+                             Map<Long, BigDecimal> positions,
+                             Map<Long, Account> accounts,
+                             int netted,
+                             List<Account> changed) {
+        BigDecimal debits = BigDecimal.ZERO;
+        for (BigDecimal position : positions.values()) {
+            if (position.signum() < 0) {
+                debits = debits.add(position.negate());
+            }
+        }
+        String reference = "netting-" + intents.getFirst().getId() + "-" + intents.getLast().getId();
+        Transaction transaction = transactionRepository.saveAndFlush(Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.NETTING)
+                .idempotencyHash(ledgerService.computeIdempotencyHash(reference, debits.toPlainString()))
+                .status(TransactionStatus.COMPLETED)
+                .amount(debits)
+                .description("Netting of " + netted + " transfers")
+                .build());
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (Map.Entry<Long, BigDecimal> position : new TreeMap<>(positions).entrySet()) {
+            BigDecimal amount = position.getValue();
+            if (amount.signum() == 0) {
+                continue;
+            }
+            Account account = accounts.get(position.getKey());
+            if (amount.signum() < 0) {
+                account.withdraw(amount.negate());
+                if (account.getAvailableBalance().compareTo(BigDecimal.ZERO) < 0) {
+                    throw new IllegalStateException("Net position of " + account.getAccountRef() + " exceeds its available balance");
+                }
+            } else {
+                account.deposit(amount);
+            }
+            LedgerEntry entry = LedgerEntry.builder()
+                    .transaction(transaction)
+                    .account(account)
+                    .entryType(amount.signum() < 0 ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT)
+                    .amount(amount.abs())
+                    .build();
+            hashChain.link(entry);
+            entries.add(entry);
+            changed.add(account);
+        }
+        accountRepository.saveAll(changed);
+        ledgerEntryRepository.saveAll(entries);
+        // Flush so the payload carries the account versions that will be committed.
+        accountRepository.flush();
+        return transaction;
+    }
+
+    /**
+     * Gives the velocity limits back the outflow {@link #defer} reserved for intents that will not
+     * be carried out. A moved payer is skipped: its tombstone no longer carries the reference its
+     * counters are kept under.
+     */
+    private void releaseLimits(List<TransferIntent> rejected, Map<Long, Account> accounts) {
+        ZoneId zone = ZoneId.systemDefault();
+        for (TransferIntent intent : rejected) {
+            Account source = accounts.get(intent.getSourceAccount().getId());
+            if (source.getAccountType() != AccountType.MOVED) {
+                limitsEngine.release(source, intent.getAmount(),
+                        intent.getCreatedAt().atZone(zone).toInstant().toEpochMilli());
+            }
+        }
+    }
+
+    private Map<String, Object> eventPayload(Transaction transaction, int netted, int rejected, List<Account> accounts) {
+        List<Map<String, Object>> balances = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            Map<String, Object> balance = new HashMap<>();
+            balance.put("accountRef", account.getAccountRef());
+            balance.put("balance", account.getAccountBalance().toPlainString());
+            balance.put("held", account.getHeldBalance().toPlainString());
+            balance.put("version", account.getVersion());
+            balance.put("currency", account.getCurrency());
+            balances.add(balance);
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("transactionRef", transaction.getReference());
+        payload.put("type", transaction.getType().name());
+        payload.put("originNode", LimitsEngine.NODE_ID);
+        payload.put("amount", transaction.getAmount());
+        payload.put("netted", netted);
+        payload.put("rejected", rejected);
+        payload.put("accounts", balances);
+        return payload;
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.netting.intents")
+                .tag("outcome", outcome)
+                .description("Deferred transfers settled at window close")
+                .register(registry);
+    }
+
+    /**
+     * @param transactionRef the summary transaction, {@code null} when every intent was rejected
+     * @param entries        ledger entries posted, one per account with a non-zero position
+     */
+    public record WindowResult(String transactionRef, int netted, List<String> rejectedReferences, int entries) {
+    }
+}
@@ -2,29 +2,40 @@ package com.ledger.pay.service;
 
 
 
+import com.ledger.pay.webhook.WebhookService;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 
+import static com.ledger.pay.observability.SampledLogFilter.SAMPLED;
+
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class PaymentEventConsumer {
 
+    private final ObjectProvider<WebhookService> webhookService;
+
     @KafkaListener(topics = "payment-events", groupId = "notification-service")
     public void handlePaymentEvent(Map<String, Object> event) {
-        log.info("Notification service received payment event: {}", event);
+        log.debug("Notification service received payment event: {}", event);
 
-        // In a real system, this would:
-        // - Send email/SMS to user
-        // - Push notification to mobile app
-        // - Update external dashboards
+        // Webhooks are only queued here; the dispatcher sends them, so a slow merchant never
+        // holds up this partition.
+        WebhookService webhooks = webhookService.getIfAvailable();
+        if (webhooks != null) {
+            webhooks.enqueue(event);
+            return;
+        }
 
         String transactionRef = (String) event.get("transactionRef");
         Object amount = event.get("amount");
 
-        log.info("Would send notification: Transfer {} completed for amount {}", transactionRef, amount);
+        log.info(SAMPLED, "Would send notification: Transfer {} completed for amount {}", transactionRef, amount);
     }
 
 
@@ -0,0 +1,726 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.ReversalProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.CrossShardTransfers;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reversals and refunds of posted transactions, one at a time or in bulk.
+ * <p>
+ * A reversal posts a {@code REVERSAL} transaction that mirrors every entry of the original (fee
+ * and FX position legs included) and marks the original {@code REVERSED}. A refund posts a
+ * {@code REFUND} transaction paying part or all of the original's amount back from the account it
+ * credited to the account it debited; the refunded total is kept on the original, which becomes
+ * {@code REFUNDED} once nothing is left. Fees are not refunded. Both are idempotent: a reversal's
+ * reference is derived from the original, a refund carries its own.
+ * <p>
+ * Requests are posted {@code app.reversals.batch-size} at a time, each batch in one database
+ * transaction like a netting window: the originals are locked in id order, then every account
+ * they touch, also in id order, so batches and transfers cannot deadlock. Entries are still
+ * written per original, but each account's balance is updated once per batch with the sum of its
+ * entries. A request that would take a wallet below its available balance, or that does not apply
+ * to its original, is rejected with a reason and the rest of the batch goes ahead. Legs of
+ * cross-shard transfers are always rejected; the saga compensates them.
+ * <p>
+ * Transactions live on their source account's shard, so every request is tried on every shard.
+ */
+@Service
+@Slf4j
+public class ReversalService {
+
+    static final String REVERSAL_PREFIX = "reversal-";
+    static final String NOT_FOUND = "Transaction not found";
+    private static final int UPDATE_CHUNK = 1000;
+    private static final Set<TransactionType> REVERSIBLE = EnumSet.of(TransactionType.TRANSFER,
+            TransactionType.DEPOSIT, TransactionType.CAPTURE, TransactionType.FX_TRANSFER);
+    private static final Set<TransactionType> REFUNDABLE = EnumSet.of(TransactionType.TRANSFER,
+            TransactionType.DEPOSIT, TransactionType.CAPTURE);
+
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final OutboxRepository outboxRepository;
+    private final LedgerService ledgerService;
+    private final BalanceReadModel balanceReadModel;
+    private final HashChain hashChain;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Counter reversedCounter;
+    private final Counter refundedCounter;
+    private final Counter rejectedCounter;
+    private final DistributionSummary accountsSummary;
+
+    public ReversalService(TransactionRepository transactionRepository,
+                           AccountRepository accountRepository,
+                           LedgerEntryRepository ledgerEntryRepository,
+                           OutboxRepository outboxRepository,
+                           LedgerService ledgerService,
+                           BalanceReadModel balanceReadModel,
+                           HashChain hashChain,
+                           ShardRouter shardRouter,
+                           PlatformTransactionManager transactionManager,
+                           ReversalProperties properties,
+                           MeterRegistry registry) {
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.outboxRepository = outboxRepository;
+        this.ledgerService = ledgerService;
+        this.balanceReadModel = balanceReadModel;
+        this.hashChain = hashChain;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, properties.batchSize());
+
+        this.reversedCounter = outcome(registry, "reversed");
+        this.refundedCounter = outcome(registry, "refunded");
+        this.rejectedCounter = outcome(registry, "rejected");
+        this.accountsSummary = DistributionSummary.builder("ledger.reversals.accounts")
+                .description("Accounts locked and updated per reversal batch")
+                .register(registry);
+    }
+
+    /**
+     * Reverses {@code transactionRef} and returns the {@code REVERSAL} transaction, the existing one
+     * if it was already reversed.
+     */
+    public Transaction reverse(String transactionRef, String reason) {
+        return single(Request.reversal(transactionRef, reason));
+    }
+
+    /**
+     * Refunds {@code amount} of {@code transactionRef} under {@code reference} and returns the
+     * {@code REFUND} transaction. Replays return the refund already posted.
+     */
+    public Transaction refund(String transactionRef, String reference, BigDecimal amount, String reason) {
+        Request request = Request.refund(transactionRef, reference, amount, reason);
+        validateRefund(request);
+        return single(request);
+    }
+
+    public Result reverseAll(List<String> references, String reason) {
+        List<Request> requests = new ArrayList<>(references.size());
+        for (String reference : new LinkedHashSet<>(references)) {
+            requests.add(Request.reversal(reference, reason));
+        }
+        return applyEverywhere(requests);
+    }
+
+    public Result refundAll(List<Request> refunds) {
+        for (Request refund : refunds) {
+            validate(refund);
+            validateRefund(refund);
+        }
+        return applyEverywhere(refunds);
+    }
+
+    /**
+     * Reverses every completed reversible transaction created in {@code [from, to)}, only those
+     * with an entry on {@code accountRef} when it is set.
+     */
+    public Result reverseBetween(LocalDateTime from, LocalDateTime to, String accountRef, String reason) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Tally tally = new Tally();
+        shardRouter.forEachShard(shard -> {
+            Long accountId = null;
+            if (accountRef != null) {
+                Account account = accountRepository.findByAccountRef(accountRef).orElse(null);
+                if (account == null) {
+                    return;
+                }
+                accountId = account.getId();
+            }
+            long afterId = 0;
+            while (true) {
+                PageRequest page = PageRequest.of(0, batchSize);
+                List<Object[]> found = accountId == null
+                        ? transactionRepository.findCompletedBetween(from, to, REVERSIBLE, afterId, page)
+                        : transactionRepository.findCompletedBetweenForAccount(from, to, REVERSIBLE, accountId, afterId, page);
+                if (found.isEmpty()) {
+                    break;
+                }
+                List<Request> requests = new ArrayList<>(found.size());
+                for (Object[] row : found) {
+                    requests.add(Request.reversal((String) row[1], reason));
+                }
+                tally.add(applyBatch(requests));
+                afterId = ((Number) found.getLast()[0]).longValue();
+                if (found.size() < batchSize) {
+                    break;
+                }
+            }
+        });
+        return tally.result(Map.of());
+    }
+
+    private Transaction single(Request request) {
+        validate(request);
+        Outcome[] found = new Outcome[1];
+        Integer[] foundOn = new Integer[1];
+        shardRouter.forEachShard(shard -> {
+            if (found[0] != null) {
+                return;
+            }
+            Outcome outcome = applyBatch(List.of(request)).getFirst();
+            if (!NOT_FOUND.equals(outcome.reason())) {
+                found[0] = outcome;
+                foundOn[0] = shard;
+            }
+        });
+        Outcome outcome = found[0];
+        if (outcome == null) {
+            throw new IllegalArgumentException(NOT_FOUND + ": " + request.transactionRef());
+        }
+        if (outcome.status() == Status.REJECTED) {
+            throw new IllegalStateException(outcome.reason());
+        }
+        return shardRouter.on(foundOn[0], () -> transactionRepository.findByReference(outcome.compensationRef())
+                .orElseThrow(() -> new IllegalStateException("Transaction disappeared")));
+    }
+
+    private Result applyEverywhere(List<Request> requests) {
+        // Same-reference requests on different shards are different originals; only a reference
+        // found on no shard at all is reported as missing.
+        Map<String, String> missing = new LinkedHashMap<>();
+        Set<String> found = new HashSet<>();
+        Tally tally = new Tally();
+        shardRouter.forEachShard(shard -> {
+            for (int i = 0; i < requests.size(); i += batchSize) {
+                List<Outcome> outcomes = applyBatch(requests.subList(i, Math.min(requests.size(), i + batchSize)));
+                for (Outcome outcome : outcomes) {
+                    if (NOT_FOUND.equals(outcome.reason())) {
+                        missing.putIfAbsent(outcome.key(), NOT_FOUND);
+                    } else {
+                        found.add(outcome.key());
+                    }
+                }
+                tally.add(outcomes);
+            }
+        });
+        missing.keySet().removeAll(found);
+        rejectedCounter.increment(missing.size());
+        return tally.result(missing);
+    }
+
+    /**
+     * Posts one batch on the current shard in one transaction and returns an outcome per request,
+     * in request order.
+     */
+    List<Outcome> applyBatch(List<Request> requests) {
+        Batch batch = transactionTemplate.execute(status -> post(requests));
+        if (batch == null) {
+            return List.of();
+        }
+        reversedCounter.increment(batch.reversed);
+        refundedCounter.increment(batch.refunded);
+        rejectedCounter.increment(batch.rejected);
+        if (batch.accounts > 0) {
+            accountsSummary.record(batch.accounts);
+            log.info("Reversal batch posted: {} reversed, {} refunded, {} rejected over {} accounts",
+                    batch.reversed, batch.refunded, batch.rejected, batch.accounts);
+        }
+        return batch.outcomes;
+    }
+
+    private Batch post(List<Request> requests) {
+        Set<String> references = new HashSet<>();
+        Set<String> refundReferences = new HashSet<>();
+        for (Request request : requests) {
+            references.add(request.transactionRef());
+            if (request.isRefund()) {
+                refundReferences.add(request.reference());
+            }
+        }
+        Map<String, Transaction> originals = transactionRepository.findAllByReferenceForUpdate(references).stream()
+                .collect(Collectors.toMap(Transaction::getReference, Function.identity()));
+        Map<String, Transaction> existingRefunds = refundReferences.isEmpty() ? Map.of()
+                : transactionRepository.findAllByReferenceIn(refundReferences).stream()
+                .collect(Collectors.toMap(Transaction::getReference, Function.identity()));
+
+        // Ids come from the foreign keys; the lazy accounts are loaded by the locking query below.
+        Map<Long, List<LedgerEntry>> entriesByTransaction = originals.isEmpty() ? Map.of()
+                : ledgerEntryRepository.findByTransactionIds(originals.values().stream().map(Transaction::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(entry -> entry.getTransaction().getId(), LinkedHashMap::new,
+                        Collectors.toList()));
+        TreeSet<Long> accountIds = new TreeSet<>();
+        entriesByTransaction.values().forEach(entries -> entries.forEach(entry -> accountIds.add(entry.getAccount().getId())));
+        Map<Long, Account> accounts = accountIds.isEmpty() ? Map.of()
+                : accountRepository.findAllByIdForUpdate(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        Batch batch = new Batch();
+        Map<Long, BigDecimal> available = new HashMap<>();
+        Map<Long, BigDecimal> refunded = new HashMap<>();
+        Set<Long> reversing = new HashSet<>();
+        Set<String> refunding = new HashSet<>();
+        List<Compensation> accepted = new ArrayList<>();
+        for (Request request : requests) {
+            Transaction original = originals.get(request.transactionRef());
+            if (original == null) {
+                batch.outcomes.add(Outcome.rejected(request, NOT_FOUND));
+                continue;
+            }
+            Compensation compensation;
+            try {
+                compensation = request.isRefund()
+                        ? planRefund(request, original, entriesByTransaction.get(original.getId()), accounts,
+                        existingRefunds, refunded, reversing, refunding, batch)
+                        : planReversal(request, original, entriesByTransaction.get(original.getId()),
+                        reversing, refunded, batch);
+            } catch (Rejected e) {
+                batch.outcomes.add(Outcome.rejected(request, e.getMessage()));
+                batch.rejected++;
+                continue;
+            }
+            if (compensation == null) {
+                // Replayed; the outcome is already recorded.
+                continue;
+            }
+            String unpostable = unpostable(compensation, accounts, available);
+            if (unpostable != null) {
+                batch.outcomes.add(Outcome.rejected(request, unpostable));
+                batch.rejected++;
+                continue;
+            }
+            for (Leg leg : compensation.legs) {
+                available.merge(leg.accountId, leg.signed(), BigDecimal::add);
+            }
+            if (request.isRefund()) {
+                refunded.put(original.getId(),
+                        refunded.getOrDefault(original.getId(), refundedBefore(original)).add(request.amount()));
+                refunding.add(request.reference());
+                batch.refunded++;
+            } else {
+                reversing.add(original.getId());
+                batch.reversed++;
+            }
+            accepted.add(compensation);
+            batch.outcomes.add(new Outcome(request.key(), compensation.reference,
+                    request.isRefund() ? Status.REFUNDED : Status.REVERSED, null));
+        }
+        if (!accepted.isEmpty()) {
+            write(accepted, accounts, refunded, reversing, originals, batch);
+        }
+        return batch;
+    }
+
+    private Compensation planReversal(Request request,
+                                      Transaction original,
+                                      List<LedgerEntry> entries,
+                                      Set<Long> reversing,
+                                      Map<Long, BigDecimal> refunded,
+                                      Batch batch) {
+        String reference = REVERSAL_PREFIX + original.getId();
+        if (original.getStatus() == TransactionStatus.REVERSED || reversing.contains(original.getId())) {
+            batch.outcomes.add(new Outcome(request.key(), reference, Status.REPLAYED, null));
+            return null;
+        }
+        if (!REVERSIBLE.contains(original.getType())) {
+            throw new Rejected(original.getType() + " transactions cannot be reversed");
+        }
+        if (original.getRefundedAmount() != null || refunded.containsKey(original.getId())) {
+            throw new Rejected("Transaction has refunds; refund the rest instead");
+        }
+        if (original.getStatus() != TransactionStatus.COMPLETED) {
+            throw new Rejected("Transaction is " + original.getStatus());
+        }
+        if (entries == null || entries.isEmpty()) {
+            throw new Rejected("Transaction has no live ledger entries");
+        }
+        List<Leg> legs = new ArrayList<>(entries.size());
+        for (LedgerEntry entry : entries) {
+            legs.add(new Leg(entry.getAccount().getId(), entry.getEntryType() == LedgerEntryType.DEBIT
+                    ? LedgerEntryType.CREDIT : LedgerEntryType.DEBIT, entry.getAmount()));
+        }
+        return new Compensation(request, original, reference, TransactionType.REVERSAL, original.getAmount(), legs,
+                ledgerService.computeIdempotencyHash(REVERSAL_PREFIX, original.getReference()));
+    }
+
+    private Compensation planRefund(Request request,
+                                    Transaction original,
+                                    List<LedgerEntry> entries,
+                                    Map<Long, Account> accounts,
+                                    Map<String, Transaction> existingRefunds,
+                                    Map<Long, BigDecimal> refunded,
+                                    Set<Long> reversing,
+                                    Set<String> refunding,
+                                    Batch batch) {
+        String hash = ledgerService.computeIdempotencyHash(original.getReference(), request.amount().toPlainString(),
+                request.reference());
+        Transaction existing = existingRefunds.get(request.reference());
+        if (existing != null || refunding.contains(request.reference())) {
+            if (existing == null || !hash.equals(existing.getIdempotencyHash())) {
+                throw new Rejected("Idempotency key '" + request.reference() + "' already used with different parameters");
+            }
+            batch.outcomes.add(new Outcome(request.key(), existing.getReference(), Status.REPLAYED, null));
+            return null;
+        }
+        if (!REFUNDABLE.contains(original.getType())) {
+            throw new Rejected(original.getType() + " transactions cannot be refunded");
+        }
+        if (original.getStatus() != TransactionStatus.COMPLETED || reversing.contains(original.getId())) {
+            throw new Rejected("Transaction is " + (reversing.contains(original.getId())
+                    ? TransactionStatus.REVERSED : original.getStatus()));
+        }
+        BigDecimal alreadyRefunded = refunded.getOrDefault(original.getId(), refundedBefore(original));
+        BigDecimal remaining = original.getAmount().subtract(alreadyRefunded);
+        if (request.amount().compareTo(remaining) > 0) {
+            throw new Rejected("Refund of " + request.amount().toPlainString() + " exceeds the "
+                    + remaining.toPlainString() + " left to refund");
+        }
+        // The principal legs move the transaction's amount; fee legs go to a revenue account.
+        Long payer = null;
+        Long payee = null;
+        for (LedgerEntry entry : entries == null ? List.<LedgerEntry>of() : entries) {
+            if (entry.getAmount().compareTo(original.getAmount()) != 0) {
+                continue;
+            }
+            if (entry.getEntryType() == LedgerEntryType.DEBIT && payer == null) {
+                payer = entry.getAccount().getId();
+            } else if (entry.getEntryType() == LedgerEntryType.CREDIT && payee == null
+                    && accounts.get(entry.getAccount().getId()).getAccountType() != AccountType.FEE_REVENUE) {
+                payee = entry.getAccount().getId();
+            }
+        }
+        if (payer == null || payee == null) {
+            throw new Rejected("Transaction has no live ledger entries");
+        }
+        List<Leg> legs = List.of(new Leg(payee, LedgerEntryType.DEBIT, request.amount()),
+                new Leg(payer, LedgerEntryType.CREDIT, request.amount()));
+        return new Compensation(request, original, request.reference(), TransactionType.REFUND, request.amount(), legs,
+                hash);
+    }
+
+    /**
+     * Why this compensation cannot be posted, or {@code null}: it touches an account that moved to
+     * another shard, or a transit account, or it would take a wallet below its available balance
+     * given what the batch already moved. Other account types may go negative, as they do for the
+     * original postings.
+     * <p>
+     * Every leg of a cross-shard transfer passes through a transit account. Compensating one leg
+     * would pay one side back while the other shard keeps its leg, so those are only ever undone by
+     * the saga itself.
+     */
+    private static String unpostable(Compensation compensation, Map<Long, Account> accounts, Map<Long, BigDecimal> available) {
+        Map<Long, BigDecimal> net = new HashMap<>();
+        for (Leg leg : compensation.legs) {
+            net.merge(leg.accountId, leg.signed(), BigDecimal::add);
+        }
+        for (Map.Entry<Long, BigDecimal> change : net.entrySet()) {
+            Account account = accounts.get(change.getKey());
+            if (account.getAccountType() == AccountType.MOVED) {
+                return "Account " + account.getAccountRef() + " moved to another shard";
+            }
+            if (account.getAccountRef().startsWith(CrossShardTransfers.TRANSIT_PREFIX)) {
+                return "Transaction is a leg of a cross-shard transfer";
+            }
+            if (change.getValue().signum() >= 0 || account.getAccountType() != AccountType.USER_WALLET) {
+                continue;
+            }
+            BigDecimal balance = available.computeIfAbsent(account.getId(), id -> account.getAvailableBalance());
+            if (balance.add(change.getValue()).signum() < 0) {
+                return "Insufficient funds in " + account.getAccountRef();
+            }
+        }
+        return null;
+    }
+
+    private void write(List<Compensation> accepted,
+                       Map<Long, Account> accounts,
+                       Map<Long, BigDecimal> refunded,
+                       Set<Long> reversing,
+                       Map<String, Transaction> originals,
+                       Batch batch) {
+        List<Transaction> transactions = new ArrayList<>(accepted.size());
+        for (Compensation compensation : accepted) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put(compensation.type == TransactionType.REVERSAL ? "reversalOf" : "refundOf",
+                    compensation.original.getReference());
+            if (compensation.request.reason() != null) {
+                metadata.put("reason", compensation.request.reason());
+            }
+            transactions.add(Transaction.builder()
+                    .reference(compensation.reference)
+                    .type(compensation.type)
+                    .idempotencyHash(compensation.hash)
+                    .status(TransactionStatus.COMPLETED)
+                    .amount(compensation.amount)
+                    .description((compensation.type == TransactionType.REVERSAL ? "Reversal of " : "Refund of ")
+                            + compensation.original.getReference())
+                    .metadata(metadata)
+                    .build());
+        }
+        transactions = transactionRepository.saveAll(transactions);
+
+        Map<Long, BigDecimal> credits = new HashMap<>();
+        Map<Long, BigDecimal> debits = new HashMap<>();
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            for (Leg leg : accepted.get(i).legs) {
+                LedgerEntry entry = LedgerEntry.builder()
+                        .transaction(transactions.get(i))
+                        .account(accounts.get(leg.accountId))
+                        .entryType(leg.entryType)
+                        .amount(leg.amount)
+                        .build();
+                hashChain.link(entry);
+                entries.add(entry);
+                (leg.entryType == LedgerEntryType.CREDIT ? credits : debits).merge(leg.accountId, leg.amount, BigDecimal::add);
+            }
+        }
+        // One update per account for the whole batch.
+        TreeSet<Long> changedIds = new TreeSet<>(credits.keySet());
+        changedIds.addAll(debits.keySet());
+        List<Account> changed = new ArrayList<>(changedIds.size());
+        for (Long id : changedIds) {
+            Account account = accounts.get(id);
+            if (credits.containsKey(id)) {
+                account.deposit(credits.get(id));
+            }
+            if (debits.containsKey(id)) {
+                account.withdraw(debits.get(id));
+            }
+            changed.add(account);
+        }
+        accountRepository.saveAll(changed);
+        ledgerEntryRepository.saveAll(entries);
+        // Flush so the payloads carry the account versions that will be committed.
+        accountRepository.flush();
+
+        List<Long> reversed = new ArrayList<>(reversing);
+        for (int i = 0; i < reversed.size(); i += UPDATE_CHUNK) {
+            transactionRepository.updateStatus(reversed.subList(i, Math.min(reversed.size(), i + UPDATE_CHUNK)),
+                    TransactionStatus.REVERSED);
+        }
+        Map<Long, Transaction> originalsById = originals.values().stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        for (Map.Entry<Long, BigDecimal> refund : refunded.entrySet()) {
+            // Managed, so the new total is written at commit.
+            Transaction original = originalsById.get(refund.getKey());
+            original.setRefundedAmount(refund.getValue());
+            if (refund.getValue().compareTo(original.getAmount()) == 0) {
+                original.setStatus(TransactionStatus.REFUNDED);
+            }
+        }
+
+        List<Outbox> events = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Compensation compensation = accepted.get(i);
+            Transaction transaction = transactions.get(i);
+            events.add(Outbox.builder()
+                    .aggregateId(transaction.getId().toString())
+                    .aggregateType(AggregateType.TRANSACTION)
+                    .eventType(compensation.type == TransactionType.REVERSAL
+                            ? EventType.TRANSACTION_REVERSED : EventType.TRANSACTION_REFUNDED)
+                    .payload(eventPayload(transaction, compensation, accounts))
+                    .build());
+        }
+        outboxRepository.saveAll(events);
+        balanceReadModel.applyAfterCommit(changed.toArray(Account[]::new));
+        batch.accounts = changed.size();
+    }
+
+    private static Map<String, Object> eventPayload(Transaction transaction, Compensation compensation,
+                                                    Map<Long, Account> accounts) {
+        List<Map<String, Object>> balances = new ArrayList<>();
+        Set<Long> listed = new HashSet<>();
+        for (Leg leg : compensation.legs) {
+            if (!listed.add(leg.accountId)) {
+                continue;
+            }
+            Account account = accounts.get(leg.accountId);
+            Map<String, Object> balance = new HashMap<>();
+            balance.put("accountRef", account.getAccountRef());
+            balance.put("balance", account.getAccountBalance().toPlainString());
+            balance.put("held", account.getHeldBalance().toPlainString());
+            balance.put("version", account.getVersion());
+            balance.put("currency", account.getCurrency());
+            balances.add(balance);
+        }
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("transactionRef", transaction.getReference());
+        payload.put("type", transaction.getType().name());
+        payload.put("originNode", LimitsEngine.NODE_ID);
+        payload.put("amount", transaction.getAmount());
+        payload.put("originalRef", compensation.original.getReference());
+        if (compensation.request.reason() != null) {
+            payload.put("reason", compensation.request.reason());
+        }
+        payload.put("accounts", balances);
+        return payload;
+    }
+
+    private static BigDecimal refundedBefore(Transaction original) {
+        return original.getRefundedAmount() == null ? BigDecimal.ZERO : original.getRefundedAmount();
+    }
+
+    private static void validate(Request request) {
+        if (request.transactionRef() == null || request.transactionRef().isBlank()) {
+            throw new IllegalArgumentException("Transaction reference is required");
+        }
+    }
+
+    private static void validateRefund(Request request) {
+        if (request.reference() == null || request.reference().isBlank()) {
+            throw new IllegalArgumentException("Refund reference is required");
+        }
+        if (request.amount() == null || request.amount().signum() <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.reversals")
+                .tag("outcome", outcome)
+                .description("Reversal and refund requests by outcome")
+                .register(registry);
+    }
+
+    /**
+     * @param amount    refund amount; {@code null} for a reversal
+     * @param reference the refund's own reference; {@code null} for a reversal
+     */
+    public record Request(String transactionRef, BigDecimal amount, String reference, String reason) {
+
+        public static Request reversal(String transactionRef, String reason) {
+            return new Request(transactionRef, null, null, reason);
+        }
+
+        public static Request refund(String transactionRef, String reference, BigDecimal amount, String reason) {
+            return new Request(transactionRef, amount, reference, reason);
+        }
+
+        boolean isRefund() {
+            return amount != null || reference != null;
+        }
+
+        // Refunds are reported by their own reference, reversals by the original's.
+        String key() {
+            return isRefund() ? reference : transactionRef;
+        }
+    }
+
+    public enum Status {
+        REVERSED,
+        REFUNDED,
+        REPLAYED,
+        REJECTED
+    }
+
+    /**
+     * @param key             the refund reference, or the original's for a reversal
+     * @param compensationRef the {@code REVERSAL} or {@code REFUND} transaction; {@code null} if rejected
+     */
+    public record Outcome(String key, String compensationRef, Status status, String reason) {
+
+        static Outcome rejected(Request request, String reason) {
+            return new Outcome(request.key(), null, Status.REJECTED, reason);
+        }
+    }
+
+    /**
+     * @param rejected reason per rejected request, keyed like {@link Outcome#key()}
+     */
+    public record Result(int reversed, int refunded, int replayed, Map<String, String> rejected, int batches) {
+    }
+
+    private record Leg(long accountId, LedgerEntryType entryType, BigDecimal amount) {
+
+        BigDecimal signed() {
+            return entryType == LedgerEntryType.CREDIT ? amount : amount.negate();
+        }
+    }
+
+    private record Compensation(Request request, Transaction original, String reference, TransactionType type,
+                                BigDecimal amount, List<Leg> legs, String hash) {
+    }
+
+    private static final class Batch {
+        private final List<Outcome> outcomes = new ArrayList<>();
+        private int reversed;
+        private int refunded;
+        private int rejected;
+        private int accounts;
+    }
+
+    private static final class Tally {
+        private final Map<String, String> rejected = new LinkedHashMap<>();
+        private int reversed;
+        private int refunded;
+        private int replayed;
+        private int batches;
+
+        void add(List<Outcome> outcomes) {
+            batches++;
+            for (Outcome outcome : outcomes) {
+                switch (outcome.status()) {
+                    case REVERSED -> reversed++;
+                    case REFUNDED -> refunded++;
+                    case REPLAYED -> replayed++;
+                    case REJECTED -> {
+                        if (!NOT_FOUND.equals(outcome.reason())) {
+                            rejected.put(outcome.key(), outcome.reason());
+                        }
+                    }
+                }
+            }
+        }
+
+        Result result(Map<String, String> missing) {
+            Map<String, String> all = new LinkedHashMap<>(rejected);
+            all.putAll(missing);
+            return new Result(reversed, refunded, replayed, all, batches);
+        }
+    }
+
+    private static final class Rejected extends RuntimeException {
+        Rejected(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
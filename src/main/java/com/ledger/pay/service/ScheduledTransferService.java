@@ -0,0 +1,374 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.config.ScheduleProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.ScheduledTransfer;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.Recurrence;
+import com.ledger.pay.enums.ScheduleStatus;
+import com.ledger.pay.limits.LimitExceededException;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.ScheduledTransferRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import com.ledger.pay.sharding.ShardedLedger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores scheduled and recurring transfers and runs the ones that are due.
+ * <p>
+ * A run claims the oldest due schedules in one short transaction, groups them by source account
+ * and hands the groups to a fixed number of workers. Each worker posts one source account's
+ * transfers in due order, so the batch never has two of its transfers waiting on the same source
+ * row, and different accounts proceed in parallel. Transfers go through {@link ShardedLedger} with
+ * the occurrence's deterministic reference: an occurrence run twice (a crash before the schedule
+ * was advanced, or a claim that lapsed) replays instead of paying again. Outcomes are written back
+ * in bulk, grouped by the values they set.
+ */
+@Service
+@Slf4j
+public class ScheduledTransferService {
+
+    static final int MAX_REFERENCE_LENGTH = 80;
+    private static final int UPDATE_CHUNK = 1000;
+    private static final int MAX_ERROR_LENGTH = 255;
+    // Occurrences that hit a transient error are tried again after this long.
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final ScheduledTransferRepository scheduleRepository;
+    private final AccountRepository accountRepository;
+    private final ShardedLedger shardedLedger;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int parallelism;
+    private final Duration claimTtl;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+    private final Timer lagTimer;
+    private final AtomicLong backlogAgeSeconds = new AtomicLong();
+
+    public ScheduledTransferService(ScheduledTransferRepository scheduleRepository,
+                                    AccountRepository accountRepository,
+                                    ShardedLedger shardedLedger,
+                                    ShardRouter shardRouter,
+                                    PlatformTransactionManager transactionManager,
+                                    ScheduleProperties properties,
+                                    MeterRegistry registry) {
+        this.scheduleRepository = scheduleRepository;
+        this.accountRepository = accountRepository;
+        this.shardedLedger = shardedLedger;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, properties.batchSize());
+        this.parallelism = Math.max(1, properties.parallelism());
+        this.claimTtl = properties.claimTtl();
+
+        this.completedCounter = outcome(registry, "completed");
+        this.failedCounter = outcome(registry, "failed");
+        this.retriedCounter = outcome(registry, "retried");
+        this.lagTimer = Timer.builder("ledger.schedules.lag")
+                .description("Time between an occurrence falling due and its transfer being posted")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("ledger.schedules.backlog.age", backlogAgeSeconds, AtomicLong::get)
+                .description("How long the oldest due schedule has been waiting, in seconds")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Records a schedule. Idempotent on {@code reference}: the same request returns the existing
+     * schedule, a different one with the same reference is rejected.
+     */
+    public ScheduledTransfer create(String sourceAccountRef,
+                                    String destinationAccountRef,
+                                    BigDecimal amount,
+                                    String reference,
+                                    String description,
+                                    Recurrence recurrence,
+                                    LocalDateTime startsAt,
+                                    LocalDateTime endsAt) {
+        Recurrence repeat = recurrence == null ? Recurrence.ONCE : recurrence;
+        Optional<ScheduledTransfer> existing = scheduleRepository.findByReference(reference);
+        if (existing.isPresent()) {
+            return replay(existing.get(), sourceAccountRef, destinationAccountRef, amount, repeat, startsAt, endsAt);
+        }
+        if (reference == null || reference.isBlank() || reference.length() > MAX_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("Schedule reference must be 1 to " + MAX_REFERENCE_LENGTH + " characters");
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        if (sourceAccountRef.equals(destinationAccountRef)) {
+            throw new IllegalArgumentException("Source and destination accounts must differ");
+        }
+        if (startsAt == null) {
+            throw new IllegalArgumentException("startsAt is required");
+        }
+        if (endsAt != null && endsAt.isBefore(startsAt)) {
+            throw new IllegalArgumentException("endsAt must not be before startsAt");
+        }
+        // Checked now so typos fail here rather than at every occurrence; accounts can still
+        // disappear or run dry later, which fails that occurrence only.
+        Account source = account(sourceAccountRef, "Source");
+        Account destination = account(destinationAccountRef, "Destination");
+        if (source.getAccountType() != AccountType.USER_WALLET) {
+            throw new IllegalArgumentException("Scheduled transfers must be paid from a user wallet");
+        }
+        LedgerService.requireSameCurrency(source, destination);
+
+        ScheduledTransfer schedule = ScheduledTransfer.builder()
+                .reference(reference)
+                .sourceAccountRef(sourceAccountRef)
+                .destinationAccountRef(destinationAccountRef)
+                .amount(amount)
+                .description(description)
+                .recurrence(repeat)
+                .startsAt(startsAt)
+                .endsAt(endsAt)
+                .nextRunAt(startsAt)
+                .build();
+        try {
+            return scheduleRepository.saveAndFlush(schedule);
+        } catch (DataIntegrityViolationException e) {
+            // Race condition: another request with same reference just committed
+            return scheduleRepository.findByReference(reference)
+                    .orElseThrow(() -> new IllegalStateException("Scheduled transfer disappeared"));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public ScheduledTransfer get(String reference) {
+        return scheduleRepository.findByReference(reference)
+                .orElseThrow(() -> new IllegalArgumentException("Scheduled transfer not found: " + reference));
+    }
+
+    /**
+     * Stops further occurrences. An occurrence already running completes, but the schedule is not
+     * advanced afterwards.
+     */
+    @Transactional
+    public ScheduledTransfer cancel(String reference) {
+        ScheduledTransfer schedule = scheduleRepository.findByReferenceForUpdate(reference)
+                .orElseThrow(() -> new IllegalArgumentException("Scheduled transfer not found: " + reference));
+        if (schedule.getStatus() == ScheduleStatus.ACTIVE) {
+            schedule.setStatus(ScheduleStatus.CANCELLED);
+            schedule.setNextRunAt(null);
+        }
+        return schedule;
+    }
+
+    /**
+     * Claims up to {@code app.schedules.batch-size} schedules due at {@code now} and runs them.
+     * Returns how many were claimed; zero means nothing is due.
+     */
+    public int runDue(LocalDateTime now) {
+        // Millisecond precision survives the round trip through the database, so the claim can be
+        // matched again when outcomes are written.
+        LocalDateTime claimedUntil = now.plus(claimTtl).truncatedTo(ChronoUnit.MILLIS);
+        List<ScheduledTransfer> due = transactionTemplate.execute(status -> {
+            List<ScheduledTransfer> found = scheduleRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+            if (!found.isEmpty()) {
+                scheduleRepository.claim(found.stream().map(ScheduledTransfer::getId).toList(), claimedUntil);
+            }
+            return found;
+        });
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<ScheduledTransfer>> bySource = new LinkedHashMap<>();
+        for (ScheduledTransfer schedule : due) {
+            bySource.computeIfAbsent(schedule.getSourceAccountRef(), ref -> new ArrayList<>()).add(schedule);
+        }
+        Queue<List<ScheduledTransfer>> groups = new ConcurrentLinkedQueue<>(bySource.values());
+        Queue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, bySource.size()); i++) {
+            workers.add(executor.submit(() -> {
+                List<ScheduledTransfer> group;
+                while ((group = groups.poll()) != null) {
+                    for (ScheduledTransfer schedule : group) {
+                        outcomes.add(run(schedule));
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running scheduled transfers", e);
+        } catch (ExecutionException e) {
+            // Occurrences that did not report back keep their claim and run again once it lapses.
+            throw new IllegalStateException("Scheduled transfer worker failed", e.getCause());
+        } finally {
+            record(outcomes, claimedUntil, now);
+        }
+        return due.size();
+    }
+
+    /**
+     * Updates the backlog gauge and returns how long the oldest due schedule has been waiting.
+     */
+    @Transactional(readOnly = true)
+    public Duration backlogAge(LocalDateTime now) {
+        Duration age = scheduleRepository.findOldestDue(now)
+                .map(oldest -> Duration.between(oldest, now))
+                .orElse(Duration.ZERO);
+        backlogAgeSeconds.set(age.toSeconds());
+        return age;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    Outcome run(ScheduledTransfer schedule) {
+        LocalDateTime dueAt = schedule.getNextRunAt();
+        try {
+            shardedLedger.transfer(schedule.getSourceAccountRef(), schedule.getDestinationAccountRef(),
+                    schedule.getAmount(), schedule.runReference(), schedule.getDescription(), false);
+            completedCounter.increment();
+            return Outcome.ran(schedule, null);
+        } catch (IllegalArgumentException | IllegalStateException | LimitExceededException e) {
+            // Refused by the ledger (insufficient funds, limits, closed account): like a standing
+            // order the bank could not pay, this occurrence is skipped and the next one stands.
+            log.warn("Scheduled transfer {} refused: {}", schedule.runReference(), e.getMessage());
+            failedCounter.increment();
+            return Outcome.ran(schedule, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Scheduled transfer {} will be retried: {}", schedule.runReference(), e.getMessage());
+            retriedCounter.increment();
+            return Outcome.postponed(schedule);
+        } finally {
+            lagTimer.record(Duration.between(dueAt, LocalDateTime.now()));
+        }
+    }
+
+    private void record(Iterable<Outcome> outcomes, LocalDateTime claimedUntil, LocalDateTime now) {
+        Map<Advance, List<Long>> advances = new LinkedHashMap<>();
+        List<Long> retries = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            if (outcome.isPostponed()) {
+                retries.add(outcome.id());
+            } else {
+                advances.computeIfAbsent(outcome.advance(), key -> new ArrayList<>()).add(outcome.id());
+            }
+        }
+        LocalDateTime retryAt = now.plus(RETRY_DELAY).truncatedTo(ChronoUnit.MILLIS);
+        transactionTemplate.executeWithoutResult(status -> {
+            advances.forEach((advance, ids) -> {
+                for (int i = 0; i < ids.size(); i += UPDATE_CHUNK) {
+                    scheduleRepository.advance(ids.subList(i, Math.min(ids.size(), i + UPDATE_CHUNK)), claimedUntil,
+                            advance.next(), advance.status(), advance.error() == null ? 0 : 1, advance.error());
+                }
+            });
+            for (int i = 0; i < retries.size(); i += UPDATE_CHUNK) {
+                scheduleRepository.postpone(retries.subList(i, Math.min(retries.size(), i + UPDATE_CHUNK)),
+                        claimedUntil, retryAt);
+            }
+        });
+    }
+
+    private Account account(String accountRef, String role) {
+        return shardRouter.onShardOf(accountRef, () -> accountRepository.findByAccountRef(accountRef))
+                .orElseThrow(() -> new IllegalArgumentException(role + " account not found: " + accountRef));
+    }
+
+    private static ScheduledTransfer replay(ScheduledTransfer existing,
+                                            String sourceAccountRef,
+                                            String destinationAccountRef,
+                                            BigDecimal amount,
+                                            Recurrence recurrence,
+                                            LocalDateTime startsAt,
+                                            LocalDateTime endsAt) {
+        boolean same = existing.getSourceAccountRef().equals(sourceAccountRef)
+                && existing.getDestinationAccountRef().equals(destinationAccountRef)
+                && amount != null && existing.getAmount().compareTo(amount) == 0
+                && existing.getRecurrence() == recurrence
+                && existing.getStartsAt().equals(startsAt)
+                && Objects.equals(existing.getEndsAt(), endsAt);
+        if (!same) {
+            throw new IllegalArgumentException(
+                    "Idempotency key '" + existing.getReference() + "' already used with different parameters");
+        }
+        return existing;
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.schedules.runs")
+                .tag("outcome", outcome)
+                .description("Scheduled transfer occurrences by outcome")
+                .register(registry);
+    }
+
+    /**
+     * What the run of one occurrence leaves the schedule as: the next occurrence's due time (null
+     * and {@code COMPLETED} after the last one) and the error if the transfer was refused.
+     */
+    record Advance(LocalDateTime next, ScheduleStatus status, String error) {
+
+        static Advance after(ScheduledTransfer schedule, String error) {
+            LocalDateTime next = schedule.getRecurrence().occurrence(schedule.getStartsAt(), schedule.getOccurrence() + 1);
+            if (next == null || (schedule.getEndsAt() != null && next.isAfter(schedule.getEndsAt()))) {
+                return new Advance(null, ScheduleStatus.COMPLETED, truncate(error));
+            }
+            return new Advance(next, ScheduleStatus.ACTIVE, truncate(error));
+        }
+
+        private static String truncate(String error) {
+            return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+        }
+    }
+
+    record Outcome(long id, Advance advance) {
+
+        static Outcome ran(ScheduledTransfer schedule, String error) {
+            return new Outcome(schedule.getId(), Advance.after(schedule, error));
+        }
+
+        static Outcome postponed(ScheduledTransfer schedule) {
+            return new Outcome(schedule.getId(), null);
+        }
+
+        boolean isPostponed() {
+            return advance == null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.archive.ArchiveStore;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.sharding.ShardContext;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.ReconciliationSummary;
+import dto.StatementLine;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Statement and reconciliation reads over live partitions plus sealed archives, so callers do not
+ * need to know where a month's entries currently live. Statements read the shard the caller bound;
+ * the archive only ever holds shard 0's entries. Reconciliation adds up every shard.
+ */
+@Service
+public class StatementService {
+    private final AccountRepository accountRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final ArchiveStore archiveStore;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnly;
+
+    public StatementService(AccountRepository accountRepository,
+                            LedgerEntryRepository ledgerEntryRepository,
+                            ArchiveStore archiveStore,
+                            ShardRouter shardRouter,
+                            PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.archiveStore = archiveStore;
+        this.shardRouter = shardRouter;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<List<StatementLine>> statement(String accountRef, LocalDateTime from, LocalDateTime to) {
+        Optional<Account> account = accountRepository.findByAccountRef(accountRef);
+        if (account.isEmpty()) {
+            return Optional.empty();
+        }
+        Long accountId = account.get().getId();
+        // Account ids repeat across shards, and partition maintenance only archives shard 0.
+        List<StatementLine> lines = ShardContext.current() == ShardRouter.DEFAULT_SHARD
+                ? new ArrayList<>(archiveStore.ledgerEntries(accountId, from, to))
+                : new ArrayList<>();
+        ledgerEntryRepository.findStatement(accountId, from, to).forEach(entry ->
+                lines.add(new StatementLine(entry.getCreatedAt(), entry.getTransaction().getReference(),
+                        entry.getEntryType().name(), entry.getAmount())));
+        lines.sort(Comparator.comparing(StatementLine::createdAt));
+        return Optional.of(lines);
+    }
+
+    public ReconciliationSummary reconcile() {
+        ArchiveStore.Totals archived = archiveStore.ledgerTotals();
+        BigDecimal[] totals = {archived.debits(), archived.credits()};
+        shardRouter.forEachShard(shard -> readOnly.executeWithoutResult(status -> {
+            for (Object[] row : ledgerEntryRepository.sumByEntryType()) {
+                BigDecimal total = (BigDecimal) row[1];
+                int side = row[0] == LedgerEntryType.DEBIT ? 0 : 1;
+                totals[side] = totals[side].add(total);
+            }
+        }));
+        BigDecimal debits = totals[0];
+        BigDecimal credits = totals[1];
+        boolean balanced = debits.compareTo(credits) == 0;
+        return new ReconciliationSummary(debits, credits, balanced, balanced ? "HEALTHY" : "UNBALANCED");
+    }
+}
@@ -0,0 +1,289 @@
+package com.ledger.pay.settlement;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped bank settlement file with one credit per line:
+ * <pre>
+ * reference,externalAccountRef,walletRef,amount
+ * STL-20240101-000001,bank:gtb,user:alice:wallet,1500.25
+ * </pre>
+ * An optional header line starting with {@code reference} is skipped. Amounts have at most four
+ * decimals.
+ * <p>
+ * The file is split into byte ranges that are parsed independently, so they can run in
+ * parallel. A line belongs to the range its first byte falls into; a range therefore starts after
+ * the first newline at or past its nominal start and ends at the start of the next range's first
+ * line, which keeps the ranges contiguous without coordination. Parsing reads bytes straight from
+ * the mapping: amounts become scaled longs and account refs are interned per range, so only the
+ * reference costs a new {@link String} per line.
+ */
+public final class SettlementFile implements AutoCloseable {
+
+    static final int MAX_LINE = 4096;
+    private static final int SCALE = 4;
+    // Keeps the scaled amount within a long.
+    private static final int MAX_AMOUNT_DIGITS = 14;
+    private static final byte[] HEADER = "reference".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final long size;
+
+    private SettlementFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    public static SettlementFile open(Path path) throws IOException {
+        return new SettlementFile(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Nominal {@code [start, end)} ranges of about {@code chunkSize} bytes covering {@code from}
+     * (a line start) to the end of the file.
+     */
+    public List<long[]> split(long from, long chunkSize) {
+        List<long[]> ranges = new ArrayList<>();
+        for (long start = from; start < size; start += chunkSize) {
+            ranges.add(new long[]{start, Math.min(size, start + chunkSize)});
+        }
+        return ranges;
+    }
+
+    /**
+     * Parses the lines starting in {@code [nominalStart, nominalEnd)}. {@code from} is where the
+     * import starts and is known to be a line start.
+     */
+    public Chunk parse(long from, long nominalStart, long nominalEnd) throws IOException {
+        long mapStart = nominalStart == from ? nominalStart : nominalStart - 1;
+        long mapEnd = Math.min(size, nominalEnd + MAX_LINE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        boolean eof = mapEnd == size;
+        int pos = 0;
+        if (nominalStart != from) {
+            pos = nextLine(buffer, 0, limit, eof, mapStart);
+        }
+        long start = mapStart + pos;
+        byte[] line = new byte[MAX_LINE];
+        Interner interner = new Interner();
+        List<SettlementRecord> records = new ArrayList<>();
+        while (pos < limit && mapStart + pos < nominalEnd) {
+            int lineStart = pos;
+            int next = nextLine(buffer, pos, limit, eof, mapStart);
+            int length = next - lineStart;
+            while (length > 0 && (buffer.get(lineStart + length - 1) == '\n' || buffer.get(lineStart + length - 1) == '\r')) {
+                length--;
+            }
+            if (length > MAX_LINE) {
+                throw new IOException("Line at offset " + (mapStart + lineStart) + " is longer than " + MAX_LINE + " bytes");
+            }
+            buffer.get(lineStart, line, 0, length);
+            long offset = mapStart + lineStart;
+            if (length > 0 && !(offset == 0 && startsWith(line, length, HEADER))) {
+                records.add(parseLine(line, length, offset, mapStart + next, interner));
+            }
+            pos = next;
+        }
+        return new Chunk(start, mapStart + pos, records);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Position just past the next newline at or after {@code pos}, or {@code limit} at the end of
+     * the file.
+     */
+    private static int nextLine(MappedByteBuffer buffer, int pos, int limit, boolean eof, long mapStart) throws IOException {
+        int from = pos;
+        while (pos < limit) {
+            if (buffer.get(pos++) == '\n') {
+                return pos;
+            }
+        }
+        if (!eof) {
+            throw new IOException("Line at offset " + (mapStart + from) + " is longer than " + MAX_LINE + " bytes");
+        }
+        return pos;
+    }
+
+    static SettlementRecord parseLine(byte[] line, int length, long offset, long end, Interner interner) {
+        int[] commas = new int[3];
+        int found = 0;
+        for (int i = 0; i < length; i++) {
+            if (line[i] == ',') {
+                if (found == commas.length) {
+                    found++;
+                    break;
+                }
+                commas[found++] = i;
+            }
+        }
+        if (found != commas.length) {
+            String reference = new String(line, 0, found == 0 ? length : commas[0], StandardCharsets.UTF_8);
+            return SettlementRecord.invalid(reference, offset, end, "expected 4 fields");
+        }
+        String reference = new String(line, 0, commas[0], StandardCharsets.UTF_8);
+        if (reference.isEmpty()) {
+            return SettlementRecord.invalid(reference, offset, end, "missing reference");
+        }
+        String external = interner.intern(line, commas[0] + 1, commas[1] - commas[0] - 1);
+        String wallet = interner.intern(line, commas[1] + 1, commas[2] - commas[1] - 1);
+        if (external.isEmpty() || wallet.isEmpty()) {
+            return SettlementRecord.invalid(reference, offset, end, "missing account");
+        }
+        long units = parseUnits(line, commas[2] + 1, length);
+        if (units <= 0) {
+            return SettlementRecord.invalid(reference, offset, end, "invalid amount");
+        }
+        return new SettlementRecord(reference, external, wallet, units, offset, end, null);
+    }
+
+    /**
+     * Decimal amount in 1/10000 units, or -1 if it is not a positive number with at most four
+     * decimals.
+     */
+    static long parseUnits(byte[] line, int from, int to) {
+        long units = 0;
+        int integerDigits = 0;
+        int decimals = -1;
+        for (int i = from; i < to; i++) {
+            byte b = line[i];
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (decimals >= 0 ? ++decimals > SCALE : ++integerDigits > MAX_AMOUNT_DIGITS) {
+                    return -1;
+                }
+                units = units * 10 + (b - '0');
+            } else {
+                return -1;
+            }
+        }
+        if (integerDigits == 0 && decimals <= 0) {
+            return -1;
+        }
+        for (int i = Math.max(decimals, 0); i < SCALE; i++) {
+            units *= 10;
+        }
+        return units;
+    }
+
+    private static boolean startsWith(byte[] line, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param start offset of the first line owned by the range
+     * @param end   offset of the first line of the next range (or the file size)
+     */
+    public record Chunk(long start, long end, List<SettlementRecord> records) {
+    }
+
+    /**
+     * One line of the file. {@code end} is the offset of the next line, i.e. the checkpoint once
+     * this record is applied. Invalid lines carry an {@code error} instead of accounts and amount.
+     */
+    public record SettlementRecord(String reference,
+                                   String externalAccountRef,
+                                   String walletRef,
+                                   long units,
+                                   long offset,
+                                   long end,
+                                   String error) {
+
+        static SettlementRecord invalid(String reference, long offset, long end, String error) {
+            return new SettlementRecord(reference, null, null, 0, offset, end, error);
+        }
+
+        public BigDecimal amount() {
+            return BigDecimal.valueOf(units, SCALE);
+        }
+    }
+
+    /**
+     * Open-addressing table from ASCII byte ranges to shared strings. Settlement files repeat the
+     * same few external accounts and many wallets, so this avoids one String per field. Not
+     * thread-safe; each range has its own.
+     */
+    static final class Interner {
+        private String[] strings = new String[256];
+        private int[] hashes = new int[256];
+        private int size;
+
+        String intern(byte[] bytes, int from, int length) {
+            int hash = 1;
+            for (int i = from; i < from + length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int mask = strings.length - 1;
+            int slot = hash & mask;
+            while (strings[slot] != null) {
+                if (hashes[slot] == hash && matches(strings[slot], bytes, from, length)) {
+                    return strings[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            String value = new String(bytes, from, length, StandardCharsets.UTF_8);
+            strings[slot] = value;
+            hashes[slot] = hash;
+            if (++size * 2 > strings.length) {
+                grow();
+            }
+            return value;
+        }
+
+        private static boolean matches(String value, byte[] bytes, int from, int length) {
+            if (value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != bytes[from + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void grow() {
+            String[] oldStrings = strings;
+            int[] oldHashes = hashes;
+            strings = new String[oldStrings.length * 2];
+            hashes = new int[oldStrings.length * 2];
+            int mask = strings.length - 1;
+            for (int i = 0; i < oldStrings.length; i++) {
+                if (oldStrings[i] != null) {
+                    int slot = oldHashes[i] & mask;
+                    while (strings[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    strings[slot] = oldStrings[i];
+                    hashes[slot] = oldHashes[i];
+                }
+            }
+        }
+    }
+}
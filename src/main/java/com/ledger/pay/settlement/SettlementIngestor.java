@@ -0,0 +1,280 @@
+package com.ledger.pay.settlement;
+
+import com.ledger.pay.config.SettlementProperties;
+import com.ledger.pay.domain.SettlementImport;
+import com.ledger.pay.enums.SettlementImportStatus;
+import com.ledger.pay.repository.SettlementImportRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.settlement.SettlementFile.SettlementRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a settlement file as deposits through {@link LedgerService}.
+ * <p>
+ * Ranges of the file are parsed in parallel ({@link SettlementFile}) and applied in file order,
+ * {@code batchSize} lines per DB transaction. Within a batch, references already in
+ * {@code transactions} are skipped and the rest are sorted by destination wallet, so each wallet's
+ * deposits run back to back. The import's checkpoint is saved in the same transaction, so a
+ * restarted import continues after the last committed batch; the reference check makes a replayed
+ * batch harmless either way.
+ * <p>
+ * A batch that fails is rolled back and its lines re-run one by one, like the mailboxes do. Lines
+ * that cannot be parsed or applied are appended to {@code <reportDir>/<file>.errors.csv} and
+ * counted as failed without stopping the import.
+ */
+@Component
+@Slf4j
+public class SettlementIngestor {
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final LedgerService ledgerService;
+    private final TransactionRepository transactionRepository;
+    private final SettlementImportRepository importRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path reportDir;
+    private final int batchSize;
+    private final long chunkSize;
+    private final int parallelism;
+
+    private final Counter appliedCounter;
+    private final Counter duplicateCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    public SettlementIngestor(SettlementProperties properties,
+                              LedgerService ledgerService,
+                              TransactionRepository transactionRepository,
+                              SettlementImportRepository importRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry registry) {
+        this.ledgerService = ledgerService;
+        this.transactionRepository = transactionRepository;
+        this.importRepository = importRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reportDir = Path.of(properties.reportDir());
+        this.batchSize = Math.max(1, properties.batchSize());
+        this.chunkSize = Math.min(MAX_CHUNK_BYTES, Math.max(SettlementFile.MAX_LINE, properties.chunkSize().toBytes()));
+        this.parallelism = properties.parallelism() > 0
+                ? properties.parallelism()
+                : Runtime.getRuntime().availableProcessors();
+
+        this.appliedCounter = outcome(registry, "applied");
+        this.duplicateCounter = outcome(registry, "duplicate");
+        this.failedCounter = outcome(registry, "failed");
+        this.batchTimer = Timer.builder("ledger.settlement.batch")
+                .description("Time to apply one batch of settlement lines")
+                .register(registry);
+    }
+
+    /**
+     * Ingests {@code file}, resuming an earlier interrupted import of the same file (by name and
+     * size). Returns the import once the whole file is applied.
+     */
+    public SettlementImport ingest(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        try (SettlementFile settlementFile = SettlementFile.open(file)) {
+            // Saved up front so every checkpoint updates an existing row.
+            Run run = new Run(importRepository.findByFileNameAndFileSize(fileName, settlementFile.size())
+                    .orElseGet(() -> importRepository.save(SettlementImport.builder()
+                            .fileName(fileName)
+                            .fileSize(settlementFile.size())
+                            .build())));
+            if (run.state.getStatus() == SettlementImportStatus.COMPLETED) {
+                return run.state;
+            }
+            long from = run.state.getCommittedOffset();
+            if (from > 0) {
+                log.info("Resuming settlement import of {} at byte {}", fileName, from);
+            }
+            Files.createDirectories(reportDir);
+            try (BufferedWriter report = Files.newBufferedWriter(reportDir.resolve(fileName + ".errors.csv"),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                run.report = report;
+                applyChunks(settlementFile, from, run);
+                run.state.setCommittedOffset(settlementFile.size());
+                run.state.setStatus(SettlementImportStatus.COMPLETED);
+                run.state.setCompletedAt(LocalDateTime.now());
+                checkpoint(run);
+            }
+            SettlementImport state = run.state;
+            log.info("Settlement import of {} completed: {} applied, {} duplicates, {} failed, {} records/s",
+                    fileName, state.getApplied(), state.getDuplicates(), state.getFailed(),
+                    Math.round(state.getRecordsPerSecond()));
+            return state;
+        }
+    }
+
+    private void applyChunks(SettlementFile file, long from, Run run) throws IOException {
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism);
+        try {
+            ArrayDeque<Future<SettlementFile.Chunk>> pending = new ArrayDeque<>();
+            List<long[]> ranges = file.split(from, chunkSize);
+            int next = 0;
+            while (next < ranges.size() || !pending.isEmpty()) {
+                // Parse at most `parallelism` ranges ahead of the writer to bound memory.
+                while (next < ranges.size() && pending.size() < parallelism) {
+                    long[] range = ranges.get(next++);
+                    pending.add(parsers.submit(() -> file.parse(from, range[0], range[1])));
+                }
+                SettlementFile.Chunk chunk = await(pending.poll());
+                List<SettlementRecord> records = chunk.records();
+                for (int i = 0; i < records.size(); i += batchSize) {
+                    int to = Math.min(records.size(), i + batchSize);
+                    applyBatch(records.subList(i, to), to == records.size() ? chunk.end() : records.get(to - 1).end(), run);
+                }
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+    }
+
+    private void applyBatch(List<SettlementRecord> records, long end, Run run) throws IOException {
+        long start = System.nanoTime();
+        List<SettlementRecord> valid = new ArrayList<>(records.size());
+        for (SettlementRecord record : records) {
+            if (record.error() != null) {
+                reject(run, record, record.error());
+            } else {
+                valid.add(record);
+            }
+        }
+        Set<String> seen = new HashSet<>(transactionRepository.findExistingReferences(
+                valid.stream().map(SettlementRecord::reference).toList()));
+        List<SettlementRecord> pending = new ArrayList<>(valid.size());
+        for (SettlementRecord record : valid) {
+            if (seen.add(record.reference())) {
+                pending.add(record);
+            } else {
+                run.duplicates++;
+                duplicateCounter.increment();
+            }
+        }
+        pending.sort(Comparator.comparing(SettlementRecord::walletRef));
+
+        long appliedBefore = run.applied;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                pending.forEach(record -> deposit(record, run.state.getFileName()));
+                run.applied += pending.size();
+                run.committedOffset = end;
+                checkpoint(run);
+            });
+            appliedCounter.increment(pending.size());
+        } catch (RuntimeException e) {
+            log.debug("Settlement batch ending at byte {} failed, re-running lines individually: {}", end, e.getMessage());
+            run.applied = appliedBefore;
+            for (SettlementRecord record : pending) {
+                try {
+                    deposit(record, run.state.getFileName());
+                    run.applied++;
+                    appliedCounter.increment();
+                } catch (RuntimeException recordFailure) {
+                    reject(run, record, recordFailure.getMessage());
+                }
+            }
+            run.committedOffset = end;
+            transactionTemplate.executeWithoutResult(status -> checkpoint(run));
+        }
+        run.report.flush();
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void deposit(SettlementRecord record, String fileName) {
+        ledgerService.deposit(record.externalAccountRef(), record.walletRef(), record.amount(),
+                record.reference(), "Settlement " + fileName);
+    }
+
+    private void reject(Run run, SettlementRecord record, String reason) throws IOException {
+        run.failed++;
+        failedCounter.increment();
+        run.report.write(record.offset() + "," + record.reference() + "," + csv(reason));
+        run.report.newLine();
+    }
+
+    private void checkpoint(Run run) {
+        SettlementImport state = run.state;
+        long now = System.currentTimeMillis();
+        state.setCommittedOffset(Math.max(state.getCommittedOffset(), run.committedOffset));
+        state.setApplied(run.applied);
+        state.setDuplicates(run.duplicates);
+        state.setFailed(run.failed);
+        state.setElapsedMillis(state.getElapsedMillis() + (now - run.lastCheckpoint));
+        run.lastCheckpoint = now;
+        run.state = importRepository.save(state);
+    }
+
+    private static SettlementFile.Chunk await(Future<SettlementFile.Chunk> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing settlement file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to parse settlement file", e.getCause());
+        }
+    }
+
+    private static String csv(String value) {
+        String text = value == null ? "" : value;
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.settlement.records")
+                .tag("outcome", outcome)
+                .description("Settlement file lines processed")
+                .register(registry);
+    }
+
+    /**
+     * Counters of one ingestion run. They are copied into the import at each checkpoint, so they
+     * only become visible with the batch they belong to.
+     */
+    private static final class Run {
+        SettlementImport state;
+        BufferedWriter report;
+        long applied;
+        long duplicates;
+        long failed;
+        long committedOffset;
+        long lastCheckpoint = System.currentTimeMillis();
+
+        Run(SettlementImport state) {
+            this.state = state;
+            this.applied = state.getApplied();
+            this.duplicates = state.getDuplicates();
+            this.failed = state.getFailed();
+            this.committedOffset = state.getCommittedOffset();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.config.ShardingProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Saga;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.SagaStatus;
+import com.ledger.pay.enums.SagaType;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.SagaRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.service.LedgerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers between accounts on different shards, run as a two-leg saga.
+ * <p>
+ * Leg 1 runs on the source shard in one transaction: the amount moves from the source into a
+ * transit account, and the saga row and a {@code SAGA_STEP_REQUESTED} outbox event are written
+ * with it. The outbox publishes the event on {@code saga-events}, and leg 2 runs on the
+ * destination shard: the transit account there pays the destination, and that shard's outbox
+ * answers with {@code SAGA_STEP_COMPLETED}. If the destination refuses the credit, the saga is
+ * compensated by paying the amount back to the source from transit.
+ * <p>
+ * Every step is idempotent (legs are keyed by reference, the saga row is locked and only moves
+ * forward), so redelivered events and the sweep in {@link #resume()} are harmless. Transit
+ * accounts are EXTERNAL accounts present on every shard; summed over all shards they net to zero
+ * once every saga has finished.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@Slf4j
+public class CrossShardTransfers implements SmartInitializingSingleton {
+
+    public static final String TRANSIT_PREFIX = "shard:transit:";
+    static final String CREDIT_SUFFIX = ":credit";
+    static final String REFUND_SUFFIX = ":refund";
+    static final int MAX_REFERENCE_LENGTH = 100 - CREDIT_SUFFIX.length();
+    private static final int SWEEP_BATCH = 100;
+    private static final int MAX_REASON_LENGTH = 255;
+
+    private final ShardRouter router;
+    private final LedgerService ledgerService;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final SagaRepository sagaRepository;
+    private final OutboxRepository outboxRepository;
+    private final FxRates fxRates;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnly;
+    private final int transitStripes;
+    private final Duration sagaTimeout;
+    private final Set<String> ensured = ConcurrentHashMap.newKeySet();
+    private final Counter startedCounter;
+    private final Counter completedCounter;
+    private final Counter compensatedCounter;
+
+    public CrossShardTransfers(ShardRouter router,
+                               LedgerService ledgerService,
+                               AccountRepository accountRepository,
+                               TransactionRepository transactionRepository,
+                               SagaRepository sagaRepository,
+                               OutboxRepository outboxRepository,
+                               FxRates fxRates,
+                               PlatformTransactionManager transactionManager,
+                               ShardingProperties properties,
+                               MeterRegistry registry) {
+        this.router = router;
+        this.ledgerService = ledgerService;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.sagaRepository = sagaRepository;
+        this.outboxRepository = outboxRepository;
+        this.fxRates = fxRates;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.transitStripes = Math.max(1, properties.transitStripes());
+        this.sagaTimeout = properties.sagaTimeout();
+        this.startedCounter = sagas(registry, "started");
+        this.completedCounter = sagas(registry, "completed");
+        this.compensatedCounter = sagas(registry, "compensated");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureTransitAccounts();
+    }
+
+    /**
+     * Transit account in {@code currency} used for sagas touching {@code accountRef} on a shard.
+     * Striped by account so concurrent sagas rarely update the same transit row.
+     */
+    public String transitRef(String currency, String accountRef) {
+        return TRANSIT_PREFIX + currency + ":" + Math.floorMod(accountRef.hashCode(), transitStripes);
+    }
+
+    /**
+     * Creates the transit accounts on every shard, for every currency held on any shard or quoted
+     * in the FX table.
+     */
+    public void ensureTransitAccounts() {
+        Set<String> currencies = new TreeSet<>(fxRates.current().currencies());
+        router.forEachShard(shard -> currencies.addAll(readOnly.execute(status -> accountRepository.findCurrencies())));
+        AtomicInteger created = new AtomicInteger();
+        router.forEachShard(shard -> {
+            for (String currency : currencies) {
+                if (!ensured.add(shard + ":" + currency)) {
+                    continue;
+                }
+                for (int stripe = 0; stripe < transitStripes; stripe++) {
+                    if (createTransit(TRANSIT_PREFIX + currency + ":" + stripe, currency)) {
+                        created.incrementAndGet();
+                    }
+                }
+            }
+        });
+        if (created.get() > 0) {
+            log.info("Created {} shard transit accounts", created.get());
+        }
+    }
+
+    /**
+     * Checks on its own shard that the destination is a user wallet and returns its currency.
+     * Called before the source shard's transaction starts.
+     */
+    public String destinationCurrency(int shard, String destinationAccountRef) {
+        return router.on(shard, () -> readOnly.execute(status -> accountRepository
+                .findByAccountRefAndAccountType(destinationAccountRef, AccountType.USER_WALLET)
+                .map(Account::getCurrency)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Destination wallet not found: " + destinationAccountRef))));
+    }
+
+    /**
+     * Leg 1, on the source shard: debits the source into transit and starts the saga. Returns the
+     * debit transaction; replays with the same reference return it again.
+     */
+    @Transactional
+    public Transaction start(String sourceAccountRef,
+                             String destinationAccountRef,
+                             int destinationShard,
+                             String currency,
+                             BigDecimal amount,
+                             String reference,
+                             String description) {
+        Optional<Saga> existing = sagaRepository.findBySagaId(reference);
+        if (existing.isPresent()) {
+            return replay(existing.get(), sourceAccountRef, destinationAccountRef, amount);
+        }
+        if (reference.length() > MAX_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("Cross-shard transfer reference longer than "
+                    + MAX_REFERENCE_LENGTH + " characters");
+        }
+        String transitRef = transitRef(currency, sourceAccountRef);
+        Transaction debit = ledgerService.transfer(sourceAccountRef, transitRef, amount, reference, description);
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("sourceAccountRef", sourceAccountRef);
+        context.put("destinationAccountRef", destinationAccountRef);
+        context.put("transitRef", transitRef);
+        context.put("currency", currency);
+        context.put("amount", amount.toPlainString());
+        context.put("description", description);
+        context.put("sourceShard", ShardContext.current());
+        context.put("destinationShard", destinationShard);
+        sagaRepository.save(Saga.builder()
+                .sagaId(reference)
+                .type(SagaType.CROSS_SHARD_TRANSFER)
+                .status(SagaStatus.IN_PROGRESS)
+                .currentStep(1)
+                .context(context)
+                .build());
+        saveEvent(reference, EventType.SAGA_STEP_REQUESTED, context);
+        startedCounter.increment();
+        return debit;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Transaction> findReplay(String sourceAccountRef,
+                                            String destinationAccountRef,
+                                            BigDecimal amount,
+                                            String reference) {
+        return sagaRepository.findBySagaId(reference)
+                .map(saga -> replay(saga, sourceAccountRef, destinationAccountRef, amount));
+    }
+
+    @KafkaListener(topics = "saga-events", groupId = "ledger-cross-shard")
+    public void handleSagaEvent(Map<String, Object> event) {
+        if (!SagaType.CROSS_SHARD_TRANSFER.name().equals(event.get("sagaType"))) {
+            return;
+        }
+        String sagaId = (String) event.get("sagaId");
+        switch (String.valueOf(event.get("eventType"))) {
+            case "SAGA_STEP_REQUESTED" -> credit(sagaId, event);
+            case "SAGA_STEP_COMPLETED" -> complete(sagaId, sourceShard(event));
+            case "SAGA_STEP_FAILED" -> compensate(sagaId, sourceShard(event), String.valueOf(event.get("reason")));
+            default -> log.debug("Ignoring {} for saga {}", event.get("eventType"), sagaId);
+        }
+    }
+
+    /**
+     * Picks up sagas that have not moved for {@code app.sharding.saga-timeout}: credits that were
+     * never confirmed are requested again, interrupted compensations are finished.
+     */
+    public int resume() {
+        LocalDateTime before = LocalDateTime.now().minus(sagaTimeout);
+        AtomicInteger resumed = new AtomicInteger();
+        router.forEachShard(shard -> {
+            List<Saga> stale = readOnly.execute(status -> sagaRepository.findByTypeAndStatusInAndUpdatedAtBeforeOrderByUpdatedAt(
+                    SagaType.CROSS_SHARD_TRANSFER, List.of(SagaStatus.IN_PROGRESS, SagaStatus.COMPENSATING),
+                    before, PageRequest.of(0, SWEEP_BATCH)));
+            for (Saga saga : stale) {
+                if (saga.getStatus() == SagaStatus.COMPENSATING) {
+                    compensate(saga.getSagaId(), shard, saga.getFailureReason());
+                } else {
+                    transactionTemplate.executeWithoutResult(status -> sagaRepository
+                            .findBySagaIdForUpdate(saga.getSagaId())
+                            .filter(locked -> locked.getStatus() == SagaStatus.IN_PROGRESS)
+                            .ifPresent(locked -> {
+                                locked.setUpdatedAt(LocalDateTime.now());
+                                saveEvent(locked.getSagaId(), EventType.SAGA_STEP_REQUESTED, locked.getContext());
+                            }));
+                }
+                resumed.incrementAndGet();
+            }
+        });
+        return resumed.get();
+    }
+
+    /**
+     * Leg 2, on the destination's shard. A refusal (unknown wallet, currency mismatch) is answered
+     * with {@code SAGA_STEP_FAILED}; anything else is rethrown so the event is redelivered.
+     */
+    void credit(String sagaId, Map<String, Object> fields) {
+        String destinationAccountRef = (String) fields.get("destinationAccountRef");
+        int shard = router.shardOf(destinationAccountRef);
+        try {
+            router.on(shard, () -> transactionTemplate.execute(status -> {
+                ledgerService.deposit(transitRef((String) fields.get("currency"), destinationAccountRef),
+                        destinationAccountRef, amount(fields), sagaId + CREDIT_SUFFIX,
+                        (String) fields.get("description"));
+                saveEvent(sagaId, EventType.SAGA_STEP_COMPLETED, Map.of("sourceShard", fields.get("sourceShard")));
+                return null;
+            }));
+        } catch (IllegalArgumentException e) {
+            if (router.refresh(destinationAccountRef)) {
+                credit(sagaId, fields);
+                return;
+            }
+            log.warn("Shard {} refused the credit of cross-shard transfer {}: {}", shard, sagaId, e.getMessage());
+            Map<String, Object> failed = new HashMap<>();
+            failed.put("sourceShard", fields.get("sourceShard"));
+            failed.put("reason", e.getMessage());
+            router.on(shard, () -> transactionTemplate.execute(status -> {
+                saveEvent(sagaId, EventType.SAGA_STEP_FAILED, failed);
+                return null;
+            }));
+        }
+    }
+
+    void complete(String sagaId, int sourceShard) {
+        boolean completed = Boolean.TRUE.equals(router.on(sourceShard, () -> transactionTemplate.execute(status -> {
+            Saga saga = sagaRepository.findBySagaIdForUpdate(sagaId).orElse(null);
+            if (saga == null || saga.getStatus() != SagaStatus.IN_PROGRESS) {
+                return false;
+            }
+            saga.setStatus(SagaStatus.COMPLETED);
+            saga.setCurrentStep(2);
+            saveEvent(sagaId, EventType.SAGA_COMPLETED, saga.getContext());
+            return true;
+        })));
+        if (completed) {
+            completedCounter.increment();
+        }
+    }
+
+    void compensate(String sagaId, int sourceShard, String reason) {
+        Map<String, Object> context = router.on(sourceShard, () -> transactionTemplate.execute(status -> {
+            Saga saga = sagaRepository.findBySagaIdForUpdate(sagaId).orElse(null);
+            if (saga == null) {
+                return null;
+            }
+            if (saga.getStatus() == SagaStatus.IN_PROGRESS) {
+                saga.setStatus(SagaStatus.COMPENSATING);
+                saga.setFailureReason(reason == null || reason.length() <= MAX_REASON_LENGTH
+                        ? reason
+                        : reason.substring(0, MAX_REASON_LENGTH));
+            }
+            return saga.getStatus() == SagaStatus.COMPENSATING ? saga.getContext() : null;
+        }));
+        if (context == null) {
+            return;
+        }
+        refund(sagaId, context);
+        router.on(sourceShard, () -> transactionTemplate.execute(status -> {
+            sagaRepository.findBySagaIdForUpdate(sagaId)
+                    .filter(saga -> saga.getStatus() == SagaStatus.COMPENSATING)
+                    .ifPresent(saga -> {
+                        saga.setStatus(SagaStatus.FAILED);
+                        saga.setCurrentStep(2);
+                        Map<String, Object> payload = new HashMap<>(saga.getContext());
+                        payload.put("reason", saga.getFailureReason());
+                        saveEvent(sagaId, EventType.SAGA_FAILED, payload);
+                    });
+            return null;
+        }));
+        compensatedCounter.increment();
+    }
+
+    // Pays the debit back from transit on whichever shard the source lives on now.
+    private void refund(String sagaId, Map<String, Object> context) {
+        String sourceAccountRef = (String) context.get("sourceAccountRef");
+        try {
+            router.onShardOf(sourceAccountRef, () -> ledgerService.deposit((String) context.get("transitRef"),
+                    sourceAccountRef, amount(context), sagaId + REFUND_SUFFIX, "Refund of " + sagaId));
+        } catch (IllegalArgumentException e) {
+            if (!router.refresh(sourceAccountRef)) {
+                throw e;
+            }
+            refund(sagaId, context);
+        }
+    }
+
+    private Transaction replay(Saga saga, String sourceAccountRef, String destinationAccountRef, BigDecimal amount) {
+        Map<String, Object> context = saga.getContext();
+        if (saga.getType() != SagaType.CROSS_SHARD_TRANSFER
+                || !sourceAccountRef.equals(context.get("sourceAccountRef"))
+                || !destinationAccountRef.equals(context.get("destinationAccountRef"))
+                || !amount.toPlainString().equals(context.get("amount"))) {
+            throw new IllegalArgumentException(
+                    "Idempotency key '" + saga.getSagaId() + "' already used with different parameters");
+        }
+        return transactionRepository.findByReference(saga.getSagaId())
+                .orElseThrow(() -> new IllegalStateException("Saga " + saga.getSagaId() + " has no debit leg"));
+    }
+
+    private void saveEvent(String sagaId, EventType eventType, Map<String, Object> fields) {
+        Map<String, Object> payload = new HashMap<>(fields);
+        payload.put("sagaId", sagaId);
+        payload.put("sagaType", SagaType.CROSS_SHARD_TRANSFER.name());
+        payload.put("eventType", eventType.name());
+        outboxRepository.save(Outbox.builder()
+                .aggregateId(sagaId)
+                .aggregateType(AggregateType.SAGA)
+                .eventType(eventType)
+                .payload(payload)
+                .build());
+    }
+
+    private boolean createTransit(String accountRef, String currency) {
+        if (accountRepository.findByAccountRef(accountRef).isPresent()) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> accountRepository.saveAndFlush(Account.builder()
+                    .accountRef(accountRef)
+                    .accountType(AccountType.EXTERNAL)
+                    .currency(currency)
+                    .build()));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first.
+            return false;
+        }
+    }
+
+    private static BigDecimal amount(Map<String, Object> fields) {
+        return new BigDecimal(fields.get("amount").toString());
+    }
+
+    private static int sourceShard(Map<String, Object> event) {
+        return ((Number) event.get("sourceShard")).intValue();
+    }
+
+    private static Counter sagas(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.sharding.sagas")
+                .tag("outcome", outcome)
+                .description("Cross-shard transfer sagas by outcome")
+                .register(registry);
+    }
+}
@@ -0,0 +1,368 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.ShardingProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Saga;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.SagaStatus;
+import com.ledger.pay.enums.SagaType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.SagaRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.repository.TransferIntentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves user wallets to the shard a target ring assigns them, while the ledger keeps serving.
+ * <p>
+ * A move is a {@code RESHARD} saga in three steps. On the old shard, in one transaction, the
+ * wallet row is locked, its balance is posted out to transit, the row is renamed to a
+ * {@code MOVED} tombstone and the saga is recorded. On the new shard the wallet is created with a
+ * higher version than it had (so read models take the new balances) and credited from transit.
+ * Finally the shard directory is updated and the saga completed. Requests that reach the old shard
+ * in between fail with "account not found" and are retried by {@link ShardedLedger} once the
+ * directory shows the move; the window is the time between two commits.
+ * <p>
+ * Wallets with active holds or deferred transfers awaiting netting are skipped, since those
+ * reference the old row. The tombstone
+ * keeps the wallet's history on the old shard. {@link #recover()} finishes moves interrupted after
+ * the first step.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+@Slf4j
+public class Resharder {
+
+    public static final String MOVED_PREFIX = "moved:";
+    private static final String OUT_SUFFIX = ":out";
+    private static final String IN_SUFFIX = ":in";
+
+    private final ShardRouter router;
+    private final CrossShardTransfers crossShardTransfers;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final SagaRepository sagaRepository;
+    private final OutboxRepository outboxRepository;
+    private final TransferIntentRepository intentRepository;
+    private final HashChain hashChain;
+    private final BalanceReadModel balanceReadModel;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnly;
+    private final int batchSize;
+    private final Duration sagaTimeout;
+    private final Counter movedCounter;
+    private final Counter skippedCounter;
+    // One rebalance per node at a time; moves themselves are safe to overlap across nodes.
+    private final ReentrantLock running = new ReentrantLock();
+
+    public Resharder(ShardRouter router,
+                     CrossShardTransfers crossShardTransfers,
+                     AccountRepository accountRepository,
+                     TransactionRepository transactionRepository,
+                     LedgerEntryRepository ledgerEntryRepository,
+                     SagaRepository sagaRepository,
+                     OutboxRepository outboxRepository,
+                     TransferIntentRepository intentRepository,
+                     HashChain hashChain,
+                     BalanceReadModel balanceReadModel,
+                     PlatformTransactionManager transactionManager,
+                     ShardingProperties properties,
+                     MeterRegistry registry) {
+        this.router = router;
+        this.crossShardTransfers = crossShardTransfers;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.sagaRepository = sagaRepository;
+        this.outboxRepository = outboxRepository;
+        this.intentRepository = intentRepository;
+        this.hashChain = hashChain;
+        this.balanceReadModel = balanceReadModel;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.batchSize = Math.max(1, properties.rebalanceBatchSize());
+        this.sagaTimeout = properties.sagaTimeout();
+        this.movedCounter = moves(registry, "moved");
+        this.skippedCounter = moves(registry, "skipped");
+    }
+
+    /**
+     * Moves up to {@code limit} wallets whose owner under a ring of {@code ringShards} shards differs
+     * from where they live now.
+     */
+    public Result rebalance(int ringShards, int limit) {
+        ShardRing target = router.ring(ringShards);
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A rebalance is already running on this node");
+        }
+        try {
+            recover();
+            int scanned = 0;
+            int moved = 0;
+            int skipped = 0;
+            for (int shard = 0; shard < router.shardCount() && moved < limit; shard++) {
+                int from = shard;
+                long after = 0;
+                List<Account> page;
+                do {
+                    long cursor = after;
+                    page = router.on(from, () -> readOnly.execute(status -> accountRepository
+                            .findByAccountTypeAndIdGreaterThanOrderByIdAsc(AccountType.USER_WALLET, cursor,
+                                    PageRequest.of(0, batchSize))));
+                    for (Account account : page) {
+                        after = account.getId();
+                        scanned++;
+                        String accountRef = account.getAccountRef();
+                        int to = target.shardOf(accountRef);
+                        if (to == from || router.shardOf(accountRef) != from) {
+                            continue;
+                        }
+                        if (move(accountRef, from, to)) {
+                            moved++;
+                        } else {
+                            skipped++;
+                        }
+                        if (moved >= limit) {
+                            break;
+                        }
+                    }
+                } while (page.size() == batchSize && moved < limit);
+            }
+            log.info("Rebalance onto {} shards: scanned {}, moved {}, skipped {}", ringShards, scanned, moved, skipped);
+            return new Result(ringShards, scanned, moved, skipped);
+        } finally {
+            running.unlock();
+        }
+    }
+
+    /**
+     * Moves one wallet. Returns false if it was skipped (active holds, pending netting intents, or no
+     * longer on {@code from}).
+     */
+    public boolean move(String accountRef, int from, int to) {
+        Map<String, Object> context = router.on(from, () -> transactionTemplate.execute(status ->
+                moveOut(accountRef, from, to)));
+        if (context == null) {
+            skippedCounter.increment();
+            return false;
+        }
+        finish(context);
+        movedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Completes moves whose first step committed but whose saga has been in progress for longer than
+     * the saga timeout, e.g. because the node running them stopped.
+     */
+    public int recover() {
+        List<Saga> pending = new ArrayList<>();
+        router.forEachShard(shard -> pending.addAll(readOnly.execute(status -> sagaRepository
+                .findByTypeAndStatusInAndUpdatedAtBeforeOrderByUpdatedAt(SagaType.RESHARD,
+                        List.of(SagaStatus.IN_PROGRESS), LocalDateTime.now().minus(sagaTimeout),
+                        PageRequest.of(0, batchSize)))));
+        for (Saga saga : pending) {
+            log.info("Resuming move of {} by saga {}", saga.getContext().get("accountRef"), saga.getSagaId());
+            finish(saga.getContext());
+        }
+        return pending.size();
+    }
+
+    private Map<String, Object> moveOut(String accountRef, int from, int to) {
+        Account account = accountRepository.findByAccountRefForUpdate(accountRef)
+                .filter(a -> a.getAccountType() == AccountType.USER_WALLET)
+                .orElse(null);
+        if (account == null) {
+            return null;
+        }
+        if (account.getHeldBalance().signum() != 0) {
+            log.info("Not moving {}: it has active holds", accountRef);
+            return null;
+        }
+        // An intent deferred after this check lands on the tombstone; NettingService rejects those.
+        if (intentRepository.existsPendingForAccount(account.getId())) {
+            log.info("Not moving {}: it has deferred transfers awaiting netting", accountRef);
+            return null;
+        }
+        String sagaId = "reshard:" + UUID.randomUUID();
+        BigDecimal balance = account.getAccountBalance();
+        String transitRef = crossShardTransfers.transitRef(account.getCurrency(), accountRef);
+        if (balance.signum() > 0) {
+            Account transit = lockTransit(transitRef);
+            post(sagaId + OUT_SUFFIX, account, transit, balance, "Moved to shard " + to);
+            balanceReadModel.applyAfterCommit(transit);
+        }
+        account.setAccountRef(MOVED_PREFIX + account.getId());
+        account.setAccountType(AccountType.MOVED);
+        accountRepository.save(account);
+        accountRepository.flush();
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("sagaId", sagaId);
+        context.put("accountRef", accountRef);
+        context.put("currency", account.getCurrency());
+        context.put("metadata", account.getMetadata());
+        context.put("balance", balance.toPlainString());
+        // Version the row is committed with; the new row starts above it.
+        context.put("version", account.getVersion());
+        context.put("transitRef", transitRef);
+        context.put("from", from);
+        context.put("to", to);
+        sagaRepository.save(Saga.builder()
+                .sagaId(sagaId)
+                .type(SagaType.RESHARD)
+                .status(SagaStatus.IN_PROGRESS)
+                .currentStep(1)
+                .context(context)
+                .build());
+        return context;
+    }
+
+    // Steps 2 and 3. Each is idempotent, so an interrupted move can simply run them again.
+    private void finish(Map<String, Object> context) {
+        String sagaId = (String) context.get("sagaId");
+        String accountRef = (String) context.get("accountRef");
+        int from = ((Number) context.get("from")).intValue();
+        int to = ((Number) context.get("to")).intValue();
+        router.on(to, () -> transactionTemplate.execute(status -> moveIn(context)));
+        router.assign(accountRef, to);
+        router.on(from, () -> transactionTemplate.execute(status -> {
+            sagaRepository.findBySagaIdForUpdate(sagaId)
+                    .filter(saga -> saga.getStatus() == SagaStatus.IN_PROGRESS)
+                    .ifPresent(saga -> {
+                        saga.setStatus(SagaStatus.COMPLETED);
+                        saga.setCurrentStep(3);
+                    });
+            return null;
+        }));
+        log.info("Moved {} from shard {} to shard {}", accountRef, from, to);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Void moveIn(Map<String, Object> context) {
+        String sagaId = (String) context.get("sagaId");
+        String accountRef = (String) context.get("accountRef");
+        Account account = accountRepository.findByAccountRefForUpdate(accountRef).orElse(null);
+        if (account == null) {
+            account = accountRepository.saveAndFlush(Account.builder()
+                    .accountRef(accountRef)
+                    .accountType(AccountType.USER_WALLET)
+                    .currency((String) context.get("currency"))
+                    .metadata((Map<String, Object>) context.get("metadata"))
+                    .version(((Number) context.get("version")).intValue() + 1)
+                    .build());
+        }
+        BigDecimal balance = new BigDecimal(context.get("balance").toString());
+        String reference = sagaId + IN_SUFFIX;
+        if (balance.signum() <= 0 || transactionRepository.findByReference(reference).isPresent()) {
+            return null;
+        }
+        Account transit = lockTransit((String) context.get("transitRef"));
+        Transaction transaction = post(reference, transit, account, balance,
+                "Moved from shard " + context.get("from"));
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("transactionRef", transaction.getReference());
+        payload.put("type", transaction.getType().name());
+        payload.put("originNode", LimitsEngine.NODE_ID);
+        payload.put("amount", transaction.getAmount());
+        payload.put("accounts", List.of(balance(account), balance(transit)));
+        outboxRepository.save(Outbox.builder()
+                .aggregateId(transaction.getId().toString())
+                .aggregateType(AggregateType.ACCOUNT)
+                .eventType(EventType.ACCOUNT_MOVED)
+                .payload(payload)
+                .build());
+        balanceReadModel.applyAfterCommit(account, transit);
+        return null;
+    }
+
+    private Account lockTransit(String transitRef) {
+        return accountRepository.findByAccountRefForUpdate(transitRef)
+                .filter(account -> account.getAccountType() == AccountType.EXTERNAL)
+                .orElseThrow(() -> new IllegalStateException("Shard transit account not found: " + transitRef));
+    }
+
+    // Not limited like a transfer: moving a wallet is not an outflow.
+    private Transaction post(String reference, Account debit, Account credit, BigDecimal amount, String description) {
+        Transaction transaction = transactionRepository.saveAndFlush(Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.RESHARD)
+                .status(TransactionStatus.COMPLETED)
+                .amount(amount)
+                .description(description)
+                .build());
+        debit.withdraw(amount);
+        credit.deposit(amount);
+        accountRepository.save(debit);
+        accountRepository.save(credit);
+        for (LedgerEntry entry : List.of(entry(transaction, debit, LedgerEntryType.DEBIT, amount),
+                entry(transaction, credit, LedgerEntryType.CREDIT, amount))) {
+            hashChain.link(entry);
+            ledgerEntryRepository.save(entry);
+        }
+        // Flush so the payload carries the account versions that will be committed.
+        accountRepository.flush();
+        return transaction;
+    }
+
+    private static LedgerEntry entry(Transaction transaction, Account account, LedgerEntryType type, BigDecimal amount) {
+        return LedgerEntry.builder()
+                .transaction(transaction)
+                .account(account)
+                .entryType(type)
+                .amount(amount)
+                .build();
+    }
+
+    private static Map<String, Object> balance(Account account) {
+        Map<String, Object> balance = new HashMap<>();
+        balance.put("accountRef", account.getAccountRef());
+        balance.put("balance", account.getAccountBalance().toPlainString());
+        balance.put("held", account.getHeldBalance().toPlainString());
+        balance.put("version", account.getVersion());
+        balance.put("currency", account.getCurrency());
+        return balance;
+    }
+
+    private static Counter moves(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.sharding.moves")
+                .tag("outcome", outcome)
+                .description("Wallets moved between shards by the resharder")
+                .register(registry);
+    }
+
+    public record Result(int ringShards, int scanned, int moved, int skipped) {
+    }
+}
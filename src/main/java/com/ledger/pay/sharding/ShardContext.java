@@ -0,0 +1,55 @@
+package com.ledger.pay.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread works on, read by the shard routing data source when a
+ * transaction fetches its connection. Nothing bound means shard 0, which is also the only shard
+ * when sharding is disabled.
+ * <p>
+ * A transaction keeps the connection it started with, so switching shards inside one would
+ * silently keep writing to the old shard. {@link #call} refuses that instead.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * Runs {@code work} bound to {@code shard} and restores the previous binding afterwards.
+     */
+    public static <T> T call(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        int current = previous == null ? 0 : previous;
+        if (shard != current && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard
+                    + " inside a transaction on shard " + current);
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void run(int shard, Runnable work) {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
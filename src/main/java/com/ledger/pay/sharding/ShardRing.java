@@ -0,0 +1,72 @@
+package com.ledger.pay.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Consistent hash ring over {@code shards} databases, each placed at {@code virtualNodes} points.
+ * An account belongs to the first point at or after the hash of its reference. Points depend only
+ * on the shard number, so widening the ring from N to N+1 shards keeps every existing point and
+ * only moves the accounts that now fall on the new shard's points, roughly 1/(N+1) of them.
+ */
+public final class ShardRing {
+
+    private final int shards;
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard");
+        }
+        int perShard = Math.max(1, virtualNodes);
+        this.shards = shards;
+        long[][] placed = new long[shards * perShard][];
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < perShard; node++) {
+                placed[shard * perShard + node] = new long[]{hash("shard-" + shard + "#" + node), shard};
+            }
+        }
+        Arrays.sort(placed, Comparator.<long[]>comparingLong(point -> point[0]).thenComparingLong(point -> point[1]));
+        this.points = new long[placed.length];
+        this.owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            owners[i] = (int) placed[i][1];
+        }
+    }
+
+    public int shardOf(String accountRef) {
+        if (shards == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(points, hash(accountRef));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so references that
+     * differ only in their last characters still land far apart on the ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,164 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.config.ShardingProperties;
+import com.ledger.pay.domain.ShardAssignment;
+import com.ledger.pay.repository.ShardAssignmentRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard owns an account and runs work bound to that shard.
+ * <p>
+ * The owner is the hash ring's choice unless the resharder moved the account, in which case the
+ * {@code shard_assignments} directory on shard 0 says where it went. The directory is cached in
+ * memory and refreshed incrementally, so routing never reads the database. A node that has not
+ * seen a move yet gets "account not found" from the old shard; {@link #refresh(String)} lets the
+ * caller check the directory for that one account and retry.
+ * <p>
+ * With sharding disabled there is a single shard and every method runs the work directly.
+ */
+@Component
+@Slf4j
+public class ShardRouter implements SmartInitializingSingleton {
+
+    public static final int DEFAULT_SHARD = 0;
+    // Directory rows written by other nodes may carry a slightly older clock than ours.
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final int shardCount;
+    private final int virtualNodes;
+    private final ShardRing ring;
+    private final ShardAssignmentRepository assignmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<String, Integer> assignments = new ConcurrentHashMap<>();
+    private volatile LocalDateTime refreshedAt;
+
+    public ShardRouter(ShardingProperties properties,
+                       ShardAssignmentRepository assignmentRepository,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry registry) {
+        this.shardCount = properties.enabled() ? 1 + properties.shards().size() : 1;
+        this.virtualNodes = properties.virtualNodes();
+        int ringShards = properties.ringShards() <= 0 ? shardCount : Math.min(properties.ringShards(), shardCount);
+        this.ring = new ShardRing(ringShards, virtualNodes);
+        this.assignmentRepository = assignmentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("ledger.sharding.assignments", assignments, ConcurrentHashMap::size)
+                .description("Accounts routed by the shard directory instead of the hash ring")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (shardCount > 1) {
+            refresh();
+            log.info("Routing accounts over {} shards ({} on the ring, {} moved)", shardCount, ring.shards(),
+                    assignments.size());
+        }
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public int ringShards() {
+        return ring.shards();
+    }
+
+    public int shardOf(String accountRef) {
+        if (shardCount == 1) {
+            return DEFAULT_SHARD;
+        }
+        Integer assigned = assignments.get(accountRef);
+        return assigned != null ? assigned : ring.shardOf(accountRef);
+    }
+
+    public boolean isMoved(String accountRef) {
+        return assignments.containsKey(accountRef);
+    }
+
+    /**
+     * A ring over the first {@code shards} shards with this node's virtual node count, for planning
+     * a rebalance.
+     */
+    public ShardRing ring(int shards) {
+        if (shards < 1 || shards > shardCount) {
+            throw new IllegalArgumentException("Ring size must be between 1 and " + shardCount);
+        }
+        return shards == ring.shards() ? ring : new ShardRing(shards, virtualNodes);
+    }
+
+    public <T> T on(int shard, Supplier<T> work) {
+        return shardCount == 1 ? work.get() : ShardContext.call(shard, work);
+    }
+
+    public <T> T onShardOf(String accountRef, Supplier<T> work) {
+        return on(shardOf(accountRef), work);
+    }
+
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            on(current, () -> {
+                action.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Records that {@code accountRef} now lives on {@code shard}.
+     */
+    public void assign(String accountRef, int shard) {
+        on(DEFAULT_SHARD, () -> transactionTemplate.execute(status -> {
+            ShardAssignment assignment = assignmentRepository.findByAccountRef(accountRef)
+                    .orElseGet(() -> ShardAssignment.builder().accountRef(accountRef).build());
+            assignment.setShard(shard);
+            return assignmentRepository.save(assignment);
+        }));
+        assignments.put(accountRef, shard);
+    }
+
+    /**
+     * Reads directory rows changed since the last refresh, or all of them the first time.
+     */
+    public void refresh() {
+        if (shardCount == 1) {
+            return;
+        }
+        LocalDateTime since = refreshedAt;
+        LocalDateTime now = LocalDateTime.now();
+        List<ShardAssignment> changed = on(DEFAULT_SHARD, () -> transactionTemplate.execute(status -> since == null
+                ? assignmentRepository.findAll()
+                : assignmentRepository.findByUpdatedAtAfter(since.minus(REFRESH_OVERLAP))));
+        changed.forEach(assignment -> assignments.put(assignment.getAccountRef(), assignment.getShard()));
+        refreshedAt = now;
+    }
+
+    /**
+     * Rereads the directory entry of one account. Returns whether its shard changed.
+     */
+    public boolean refresh(String accountRef) {
+        if (shardCount == 1) {
+            return false;
+        }
+        int before = shardOf(accountRef);
+        Optional<ShardAssignment> assignment = on(DEFAULT_SHARD, () -> transactionTemplate.execute(status ->
+                assignmentRepository.findByAccountRef(accountRef)));
+        assignment.ifPresent(a -> assignments.put(accountRef, a.getShard()));
+        return shardOf(accountRef) != before;
+    }
+}
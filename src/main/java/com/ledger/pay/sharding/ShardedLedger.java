@@ -0,0 +1,149 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.domain.Hold;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.mailbox.AccountMailboxes;
+import com.ledger.pay.repository.HoldRepository;
+import com.ledger.pay.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for ledger operations that routes each one to the shard owning its account.
+ * <p>
+ * Transfers whose accounts share a shard, deposits and holds run unchanged on that shard, through
+ * the account's mailbox. Transfers across shards go through {@link CrossShardTransfers}; the
+ * destination is checked on its shard before the source shard's transaction starts. An operation
+ * refused because an account is not where this node expected is retried once if the shard
+ * directory shows the account has moved.
+ */
+@Service
+@RequiredArgsConstructor
+public class ShardedLedger {
+    private final LedgerService ledgerService;
+    private final ShardRouter router;
+    private final AccountMailboxes accountMailboxes;
+    private final HoldRepository holdRepository;
+    private final ObjectProvider<CrossShardTransfers> crossShardTransfers;
+
+    public Optional<Transaction> findTransferReplay(String sourceAccountRef,
+                                                    String destinationAccountRef,
+                                                    BigDecimal amount,
+                                                    String reference,
+                                                    boolean convert) {
+        int source = router.shardOf(sourceAccountRef);
+        if (source == router.shardOf(destinationAccountRef)) {
+            return router.on(source, () -> ledgerService.findReplay(sourceAccountRef, destinationAccountRef,
+                    amount, reference, convert));
+        }
+        if (convert) {
+            // Refused by the write path; a saga under this reference was never a conversion.
+            return Optional.empty();
+        }
+        return router.on(source, () -> crossShardTransfers.getObject().findReplay(sourceAccountRef,
+                destinationAccountRef, amount, reference));
+    }
+
+    public Optional<Transaction> findDepositReplay(String externalAccountRef,
+                                                   String userWalletRef,
+                                                   BigDecimal amount,
+                                                   String reference) {
+        return router.onShardOf(userWalletRef, () -> ledgerService.findReplay(externalAccountRef, userWalletRef,
+                amount, reference));
+    }
+
+    public Transaction transfer(String sourceAccountRef,
+                                String destinationAccountRef,
+                                BigDecimal amount,
+                                String reference,
+                                String description,
+                                boolean convert) {
+        return retryIfMoved(() -> {
+            int source = router.shardOf(sourceAccountRef);
+            int destination = router.shardOf(destinationAccountRef);
+            if (source == destination) {
+                return router.on(source, () -> accountMailboxes.execute(sourceAccountRef,
+                        () -> ledgerService.transfer(sourceAccountRef, destinationAccountRef, amount, reference,
+                                description, convert)));
+            }
+            if (convert) {
+                throw new IllegalArgumentException("Conversions between accounts on different shards are not supported");
+            }
+            CrossShardTransfers crossShard = crossShardTransfers.getObject();
+            String currency = crossShard.destinationCurrency(destination, destinationAccountRef);
+            return router.on(source, () -> accountMailboxes.execute(sourceAccountRef,
+                    () -> crossShard.start(sourceAccountRef, destinationAccountRef, destination, currency, amount,
+                            reference, description)));
+        }, sourceAccountRef, destinationAccountRef);
+    }
+
+    public Transaction deposit(String externalAccountRef,
+                               String userWalletRef,
+                               BigDecimal amount,
+                               String reference,
+                               String description) {
+        return retryIfMoved(() -> router.onShardOf(userWalletRef, () -> accountMailboxes.execute(userWalletRef,
+                () -> ledgerService.deposit(externalAccountRef, userWalletRef, amount, reference, description))),
+                userWalletRef);
+    }
+
+    public Hold placeHold(String sourceAccountRef,
+                          String destinationAccountRef,
+                          BigDecimal amount,
+                          String reference,
+                          String description,
+                          Duration ttl) {
+        return retryIfMoved(() -> {
+            int source = router.shardOf(sourceAccountRef);
+            // A capture is a plain transfer on the hold's shard.
+            if (source != router.shardOf(destinationAccountRef)) {
+                throw new IllegalArgumentException("Holds between accounts on different shards are not supported");
+            }
+            return router.on(source, () -> accountMailboxes.execute(sourceAccountRef,
+                    () -> ledgerService.placeHold(sourceAccountRef, destinationAccountRef, amount, reference,
+                            description, ttl)));
+        }, sourceAccountRef, destinationAccountRef);
+    }
+
+    public Hold captureHold(String reference, BigDecimal amount) {
+        return router.on(shardOfHold(reference), () -> ledgerService.captureHold(reference, amount));
+    }
+
+    public Hold voidHold(String reference) {
+        return router.on(shardOfHold(reference), () -> ledgerService.voidHold(reference));
+    }
+
+    // Capture and void only know the hold reference, so the shards are probed in order.
+    private int shardOfHold(String reference) {
+        if (router.shardCount() == 1) {
+            return ShardRouter.DEFAULT_SHARD;
+        }
+        for (int shard = 0; shard < router.shardCount(); shard++) {
+            if (router.on(shard, () -> holdRepository.existsByReference(reference))) {
+                return shard;
+            }
+        }
+        throw new IllegalArgumentException("Hold not found: " + reference);
+    }
+
+    private <T> T retryIfMoved(Supplier<T> operation, String... accountRefs) {
+        try {
+            return operation.get();
+        } catch (IllegalArgumentException e) {
+            boolean moved = false;
+            for (String accountRef : accountRefs) {
+                moved |= router.refresh(accountRef);
+            }
+            if (!moved) {
+                throw e;
+            }
+            return operation.get();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.ledger.pay.warmup;
+
+import com.ledger.pay.config.WarmupProperties;
+import com.ledger.pay.controller.LedgerJson;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.TransactionResponse;
+import dto.TransferDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the transfer path against throwaway accounts before the application reports ready.
+ * <p>
+ * Spring Boot only moves readiness to {@code ACCEPTING_TRAFFIC} once every
+ * {@link ApplicationRunner} has returned, so a new pod in a rolling deploy gets no traffic until
+ * this is done. Each iteration creates two wallets, parses a transfer request with
+ * {@link LedgerJson}, posts it through {@link LedgerService#transfer} (limits, fees, hash chain,
+ * outbox and all) and writes the response, all in one transaction that is rolled back, so nothing
+ * reaches the database. Hash chain heads and the balance read model are only published on commit;
+ * velocity limit reservations are released on rollback, and their empty counters are dropped by the
+ * next idle eviction. Running the workers concurrently on every
+ * shard opens each pooled connection and executes the hot statements on it often enough for the
+ * driver to prepare them server-side, and the JIT sees the same code the first real requests run.
+ */
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true")
+@Slf4j
+public class LedgerWarmup implements ApplicationRunner {
+
+    static final String ACCOUNT_PREFIX = "warmup:";
+    private static final BigDecimal BALANCE = new BigDecimal("1000000");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private final LedgerService ledgerService;
+    private final AccountRepository accountRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final WarmupProperties properties;
+    private final Timer warmupTimer;
+
+    public LedgerWarmup(LedgerService ledgerService,
+                        AccountRepository accountRepository,
+                        ShardRouter shardRouter,
+                        PlatformTransactionManager transactionManager,
+                        WarmupProperties properties,
+                        MeterRegistry registry) {
+        this.ledgerService = ledgerService;
+        this.accountRepository = accountRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.warmupTimer = Timer.builder("ledger.warmup")
+                .description("Time spent warming the transfer path before reporting ready")
+                .register(registry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long started = System.nanoTime();
+        long deadline = started + properties.timeout().toNanos();
+        // Per node, so two pods warming up at once never wait on each other's account inserts.
+        String node = UUID.randomUUID().toString().substring(0, 8);
+        AtomicInteger completed = new AtomicInteger();
+        int workers = Math.max(1, properties.parallelism());
+        ExecutorService executor = Executors.newFixedThreadPool(workers * shardRouter.shardCount(),
+                Thread.ofPlatform().name("warmup-", 0).factory());
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                for (int worker = 0; worker < workers; worker++) {
+                    String prefix = ACCOUNT_PREFIX + node + ":" + shard + ":" + worker + ":";
+                    int current = shard;
+                    executor.execute(() -> shardRouter.on(current, () -> {
+                        work(prefix, deadline, completed);
+                        return null;
+                    }));
+                }
+            }
+        } finally {
+            executor.shutdown();
+            long remaining = deadline - System.nanoTime();
+            if (!executor.awaitTermination(Math.max(0, remaining) + TimeUnit.SECONDS.toNanos(5), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        warmupTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Warm-up ran {} transfers on {} shard(s) in {} ms", completed.get(), shardRouter.shardCount(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    private void work(String prefix, long deadline, AtomicInteger completed) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(512);
+        for (int i = 0; i < properties.iterations() && System.nanoTime() < deadline; i++) {
+            String source = prefix + i + ":a";
+            String destination = prefix + i + ":b";
+            String reference = prefix + i;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    status.setRollbackOnly();
+                    accountRepository.save(wallet(source, BALANCE));
+                    accountRepository.saveAndFlush(wallet(destination, BigDecimal.ZERO));
+                    TransferDto request = parse(source, destination, reference);
+                    Transaction transaction = ledgerService.transfer(request.sourceAccountRef(),
+                            request.destinationAccountRef(), request.amount(), request.reference(),
+                            request.description(), Boolean.TRUE.equals(request.convert()));
+                    response.reset();
+                    write(transaction, response);
+                });
+                completed.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Warm-up must never keep a node from starting; a cold path is only slower.
+                log.warn("Warm-up stopped after {} transfers on {}: {}", i, prefix, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static Account wallet(String accountRef, BigDecimal balance) {
+        Account account = Account.builder()
+                .accountRef(accountRef)
+                .accountType(AccountType.USER_WALLET)
+                .build();
+        account.deposit(balance);
+        return account;
+    }
+
+    private static TransferDto parse(String source, String destination, String reference) {
+        String body = "{\"sourceAccountRef\":\"" + source + "\",\"destinationAccountRef\":\"" + destination
+                + "\",\"amount\":" + AMOUNT.toPlainString() + ",\"reference\":\"" + reference
+                + "\",\"description\":\"warm-up\"}";
+        try {
+            return LedgerJson.readTransfer(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(Transaction transaction, ByteArrayOutputStream out) {
+        try {
+            LedgerJson.write(new TransactionResponse(transaction.getId(), transaction.getReference(),
+                    transaction.getType().name(), transaction.getStatus().name(), transaction.getAmount(),
+                    transaction.getDescription(), transaction.getCreatedAt(), null, null), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.ledger.pay.webhook;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends webhook requests without blocking the caller, at most a fixed number at a time per
+ * endpoint.
+ * <p>
+ * One JDK {@link HttpClient} is shared by all endpoints, so connections to the same host are kept
+ * alive and reused. Requests beyond an endpoint's limit wait in that endpoint's queue and start as
+ * earlier ones finish, so a slow endpoint only delays its own deliveries. Response bodies are
+ * discarded unread.
+ */
+public class WebhookClient implements Closeable {
+
+    private final HttpClient httpClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Duration requestTimeout;
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public WebhookClient(Duration connectTimeout, Duration requestTimeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(executor)
+                .build();
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Posts {@code body} to {@code uri} once fewer than {@code maxConcurrency} requests to the
+     * endpoint are in flight. The future never completes exceptionally; failures are reported in
+     * the {@link Response}.
+     */
+    public CompletableFuture<Response> post(long endpointId,
+                                            int maxConcurrency,
+                                            URI uri,
+                                            Map<String, String> headers,
+                                            byte[] body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(builder::header);
+        Pending pending = new Pending(builder.build(), new CompletableFuture<>());
+        Lane lane = lanes.computeIfAbsent(endpointId, id -> new Lane());
+        lane.submit(pending, Math.max(1, maxConcurrency));
+        return pending.result;
+    }
+
+    /**
+     * Requests waiting for or holding a slot for this endpoint.
+     */
+    public int pending(long endpointId) {
+        Lane lane = lanes.get(endpointId);
+        return lane == null ? 0 : lane.size();
+    }
+
+    /**
+     * Endpoints with at least {@code limit} requests waiting for or holding a slot.
+     */
+    public Set<Long> saturated(int limit) {
+        Set<Long> saturated = new HashSet<>();
+        lanes.forEach((endpointId, lane) -> {
+            if (lane.size() >= limit) {
+                saturated.add(endpointId);
+            }
+        });
+        return saturated;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int queued() {
+        return queued.get();
+    }
+
+    @Override
+    public void close() {
+        httpClient.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private final class Lane {
+        private final ArrayDeque<Pending> waiting = new ArrayDeque<>();
+        private int running;
+
+        void submit(Pending pending, int limit) {
+            synchronized (this) {
+                if (running >= limit) {
+                    waiting.addLast(pending);
+                    queued.incrementAndGet();
+                    return;
+                }
+                running++;
+            }
+            start(pending, limit);
+        }
+
+        synchronized int size() {
+            return running + waiting.size();
+        }
+
+        private void start(Pending pending, int limit) {
+            inFlight.incrementAndGet();
+            long started = System.nanoTime();
+            httpClient.sendAsync(pending.request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> error == null
+                            ? new Response(response.statusCode(), elapsed(started), null)
+                            : new Response(0, elapsed(started), describe(error)))
+                    .thenAccept(response -> {
+                        inFlight.decrementAndGet();
+                        finished(limit);
+                        pending.result.complete(response);
+                    });
+        }
+
+        private void finished(int limit) {
+            Pending next;
+            synchronized (this) {
+                next = waiting.pollFirst();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+                queued.decrementAndGet();
+            }
+            start(next, limit);
+        }
+    }
+
+    private static Duration elapsed(long startedNanos) {
+        return Duration.ofNanos(System.nanoTime() - startedNanos);
+    }
+
+    private static String describe(Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage() == null ? cause.getClass().getSimpleName()
+                : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+    }
+
+    private record Pending(HttpRequest request, CompletableFuture<Response> result) {
+    }
+
+    /**
+     * @param statusCode HTTP status, or 0 if no response was received
+     * @param error      why no response was received (timeout, refused connection, ...)
+     */
+    public record Response(int statusCode, Duration latency, String error) {
+
+        public boolean delivered() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+    }
+}
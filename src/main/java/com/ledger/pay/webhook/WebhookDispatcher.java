@@ -0,0 +1,268 @@
+package com.ledger.pay.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.WebhookProperties;
+import com.ledger.pay.domain.WebhookDelivery;
+import com.ledger.pay.domain.WebhookEndpoint;
+import com.ledger.pay.enums.DeliveryStatus;
+import com.ledger.pay.repository.WebhookDeliveryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Sends queued webhook deliveries.
+ * <p>
+ * Each call records the outcomes of requests that finished since the previous one, then claims due
+ * deliveries with a lease and hands them to {@link WebhookClient} without waiting for the
+ * responses. Endpoints that already have {@code max-queued-per-endpoint} requests on this node are
+ * left out of the claim, so a slow endpoint's backlog stays in the table instead of filling memory,
+ * and other endpoints keep being served. Delivery is at least once: a lease that lapses while its
+ * request is still queued lets another node send it as well, and the late outcome is ignored.
+ */
+@Component
+@ConditionalOnProperty(name = "app.webhooks.enabled", havingValue = "true")
+@Slf4j
+public class WebhookDispatcher {
+
+    private static final int UPDATE_CHUNK = 1000;
+    private static final int MAX_ERROR_LENGTH = 255;
+    private static final List<Long> NONE = List.of(-1L);
+
+    private final WebhookService webhookService;
+    private final WebhookDeliveryRepository deliveryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WebhookProperties properties;
+    private final WebhookClient client;
+    private final ObjectMapper objectMapper;
+    private final Queue<Outcome> outcomes = new ConcurrentLinkedQueue<>();
+
+    private final Counter deliveredCounter;
+    private final Counter retriedCounter;
+    private final Counter deadCounter;
+    private final Timer requestTimer;
+    private final Timer lagTimer;
+
+    public WebhookDispatcher(WebhookService webhookService,
+                             WebhookDeliveryRepository deliveryRepository,
+                             PlatformTransactionManager transactionManager,
+                             WebhookProperties properties,
+                             ObjectMapper objectMapper,
+                             MeterRegistry registry) {
+        this.webhookService = webhookService;
+        this.deliveryRepository = deliveryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.client = new WebhookClient(properties.connectTimeout(), properties.requestTimeout());
+
+        this.deliveredCounter = outcome(registry, "delivered");
+        this.retriedCounter = outcome(registry, "retried");
+        this.deadCounter = outcome(registry, "dead");
+        this.requestTimer = Timer.builder("ledger.webhooks.request")
+                .description("Webhook HTTP request latency, including timeouts and refused connections")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.lagTimer = Timer.builder("ledger.webhooks.delivery.lag")
+                .description("Time between a webhook delivery being queued and the endpoint accepting it")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("ledger.webhooks.in.flight", client, WebhookClient::inFlight)
+                .description("Webhook requests awaiting a response")
+                .register(registry);
+        Gauge.builder("ledger.webhooks.waiting", client, WebhookClient::queued)
+                .description("Claimed webhook deliveries waiting for a free slot on their endpoint")
+                .register(registry);
+    }
+
+    /**
+     * Records finished requests and claims up to {@code app.webhooks.batch-size} due deliveries.
+     * Returns how many were claimed.
+     */
+    public int dispatch(LocalDateTime now) {
+        flush(now);
+        int capacity = Math.min(properties.batchSize(),
+                properties.maxInFlight() - client.inFlight() - client.queued());
+        if (capacity <= 0) {
+            return 0;
+        }
+        Set<Long> saturated = client.saturated(properties.maxQueuedPerEndpoint());
+        // Millisecond precision survives the round trip through the database, so the claim can be
+        // matched again when outcomes are written.
+        LocalDateTime claimedUntil = now.plus(properties.claimTtl()).truncatedTo(ChronoUnit.MILLIS);
+        List<WebhookDelivery> due = transactionTemplate.execute(status -> {
+            List<WebhookDelivery> found = deliveryRepository.findDueForUpdate(now,
+                    saturated.isEmpty() ? NONE : saturated, PageRequest.of(0, capacity));
+            if (!found.isEmpty()) {
+                deliveryRepository.claim(found.stream().map(WebhookDelivery::getId).toList(), claimedUntil);
+            }
+            return found;
+        });
+        for (WebhookDelivery delivery : due) {
+            send(delivery, claimedUntil);
+        }
+        return due.size();
+    }
+
+    /**
+     * Writes the outcomes of requests that finished since the last call, grouping successes into
+     * bulk updates.
+     */
+    public void flush(LocalDateTime now) {
+        Map<Delivered, List<Long>> delivered = new LinkedHashMap<>();
+        List<Outcome> failed = new ArrayList<>();
+        Outcome outcome;
+        while ((outcome = outcomes.poll()) != null) {
+            if (outcome.delivered()) {
+                delivered.computeIfAbsent(new Delivered(outcome.claimedUntil(), outcome.statusCode()),
+                        key -> new ArrayList<>()).add(outcome.id());
+            } else {
+                failed.add(outcome);
+            }
+        }
+        if (delivered.isEmpty() && failed.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            delivered.forEach((key, ids) -> {
+                for (int i = 0; i < ids.size(); i += UPDATE_CHUNK) {
+                    deliveryRepository.markDelivered(ids.subList(i, Math.min(ids.size(), i + UPDATE_CHUNK)),
+                            key.claimedUntil(), key.statusCode(), now);
+                }
+            });
+            for (Outcome failure : failed) {
+                boolean dead = failure.attempts() + 1 >= properties.maxAttempts() || failure.permanent();
+                LocalDateTime next = dead ? null : now.plus(backoff(failure.attempts() + 1,
+                        properties.baseBackoff(), properties.maxBackoff(), ThreadLocalRandom.current()));
+                deliveryRepository.markFailed(failure.id(), failure.claimedUntil(),
+                        dead ? DeliveryStatus.DEAD : DeliveryStatus.PENDING,
+                        failure.statusCode() == 0 ? null : failure.statusCode(), truncate(failure.error()), next);
+                (dead ? deadCounter : retriedCounter).increment();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.close();
+        try {
+            flush(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // Unrecorded deliveries are sent again once their claim lapses.
+            log.warn("Could not record webhook outcomes on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void send(WebhookDelivery delivery, LocalDateTime claimedUntil) {
+        WebhookEndpoint endpoint = webhookService.endpoint(delivery.getEndpointId());
+        if (endpoint == null) {
+            outcomes.add(Outcome.permanent(delivery, claimedUntil, "Endpoint disabled"));
+            return;
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(delivery.getPayload());
+        } catch (JsonProcessingException e) {
+            outcomes.add(Outcome.permanent(delivery, claimedUntil, "Payload cannot be serialized: " + e.getMessage()));
+            return;
+        }
+        Map<String, String> headers = Map.of(
+                "X-Ledger-Event", delivery.getEventType(),
+                "X-Ledger-Delivery", String.valueOf(delivery.getId()),
+                "X-Ledger-Signature", "sha256=" + sign(endpoint.getSecret(), body));
+        int maxConcurrency = endpoint.getMaxConcurrency() == null
+                ? properties.maxConcurrency() : endpoint.getMaxConcurrency();
+        LocalDateTime queuedAt = delivery.getCreatedAt();
+        client.post(endpoint.getId(), maxConcurrency, URI.create(endpoint.getUrl()), headers, body)
+                .thenAccept(response -> {
+                    outcomes.add(new Outcome(delivery.getId(), claimedUntil, delivery.getAttempts(),
+                            response.statusCode(), response.delivered(), false,
+                            response.error() != null ? response.error() : "HTTP " + response.statusCode()));
+                    requestTimer.record(response.latency());
+                    if (response.delivered()) {
+                        deliveredCounter.increment();
+                        if (queuedAt != null) {
+                            lagTimer.record(Duration.between(queuedAt, LocalDateTime.now()));
+                        }
+                    } else {
+                        log.debug("Webhook delivery {} to endpoint {} failed: {} {}", delivery.getId(),
+                                endpoint.getId(), response.statusCode(), response.error());
+                    }
+                });
+    }
+
+    /**
+     * Delay before the next attempt after {@code attempts} failed ones: uniformly random between
+     * zero and {@code base * 2^(attempts - 1)}, capped at {@code max}, so endpoints recovering from
+     * an outage are not hit by every retry at once.
+     */
+    static Duration backoff(int attempts, Duration base, Duration max, RandomGenerator random) {
+        int doublings = Math.min(Math.max(0, attempts - 1), 30);
+        long ceiling = Math.min(max.toMillis(), base.toMillis() << doublings);
+        return Duration.ofMillis(random.nextLong(ceiling + 1));
+    }
+
+    static String sign(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private static Counter outcome(MeterRegistry registry, String outcome) {
+        return Counter.builder("ledger.webhooks.deliveries")
+                .tag("outcome", outcome)
+                .description("Webhook delivery attempts by outcome")
+                .register(registry);
+    }
+
+    private record Delivered(LocalDateTime claimedUntil, int statusCode) {
+    }
+
+    /**
+     * @param attempts  attempts made before this one
+     * @param permanent the delivery cannot succeed on retry
+     */
+    private record Outcome(long id, LocalDateTime claimedUntil, int attempts, int statusCode,
+                           boolean delivered, boolean permanent, String error) {
+
+        static Outcome permanent(WebhookDelivery delivery, LocalDateTime claimedUntil, String error) {
+            return new Outcome(delivery.getId(), claimedUntil, delivery.getAttempts(), 0, false, true, error);
+        }
+    }
+}
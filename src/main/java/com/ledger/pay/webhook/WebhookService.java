@@ -0,0 +1,274 @@
+package com.ledger.pay.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.WebhookProperties;
+import com.ledger.pay.domain.WebhookDelivery;
+import com.ledger.pay.domain.WebhookEndpoint;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.WebhookEndpointRepository;
+import com.ledger.pay.repository.WebhookDeliveryRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registers merchant endpoints and turns payment events into queued deliveries.
+ * <p>
+ * Enabled endpoints are cached in memory, so an event for an account without an endpoint costs no
+ * database work, and the Kafka listener only ever waits for an insert, never for a merchant.
+ * Other nodes pick up endpoint changes within {@code app.webhooks.endpoint-refresh}.
+ */
+@Service
+@ConditionalOnProperty(name = "app.webhooks.enabled", havingValue = "true")
+@Slf4j
+public class WebhookService implements SmartInitializingSingleton {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final WebhookEndpointRepository endpointRepository;
+    private final WebhookDeliveryRepository deliveryRepository;
+    private final AccountRepository accountRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final WebhookProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Counter queuedCounter;
+    private volatile Endpoints endpoints = new Endpoints(Map.of(), Map.of());
+
+    public WebhookService(WebhookEndpointRepository endpointRepository,
+                          WebhookDeliveryRepository deliveryRepository,
+                          AccountRepository accountRepository,
+                          ShardRouter shardRouter,
+                          PlatformTransactionManager transactionManager,
+                          WebhookProperties properties,
+                          ObjectMapper objectMapper,
+                          MeterRegistry registry) {
+        this.endpointRepository = endpointRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.accountRepository = accountRepository;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.queuedCounter = Counter.builder("ledger.webhooks.queued")
+                .description("Webhook deliveries queued from payment events")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        refresh();
+        log.info("Loaded {} webhook endpoints", endpoints.byId().size());
+    }
+
+    public WebhookEndpoint register(String accountRef, String url, List<String> eventTypes, Integer maxConcurrency) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid webhook URL: " + url);
+        }
+        if (!uri.isAbsolute() || !("https".equals(uri.getScheme()) || "http".equals(uri.getScheme()))) {
+            throw new IllegalArgumentException("Webhook URL must be an absolute http(s) URL");
+        }
+        requirePublicHost(uri);
+        if (maxConcurrency != null && maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        String types = null;
+        if (eventTypes != null && !eventTypes.isEmpty()) {
+            // Rejects unknown names with IllegalArgumentException.
+            types = String.join(",", eventTypes.stream().map(type -> EventType.valueOf(type).name()).toList());
+        }
+        shardRouter.onShardOf(accountRef, () -> accountRepository.findByAccountRef(accountRef))
+                .orElseThrow(() -> new IllegalArgumentException("Account not found: " + accountRef));
+        byte[] secret = new byte[24];
+        RANDOM.nextBytes(secret);
+        WebhookEndpoint endpoint = endpointRepository.save(WebhookEndpoint.builder()
+                .accountRef(accountRef)
+                .url(uri.toString())
+                .secret(HexFormat.of().formatHex(secret))
+                .eventTypes(types)
+                .maxConcurrency(maxConcurrency)
+                .build());
+        refresh();
+        return endpoint;
+    }
+
+    public WebhookEndpoint disable(long endpointId) {
+        WebhookEndpoint endpoint = endpointRepository.findById(endpointId)
+                .orElseThrow(() -> new IllegalArgumentException("Webhook endpoint not found: " + endpointId));
+        endpoint.setEnabled(false);
+        endpoint = endpointRepository.save(endpoint);
+        refresh();
+        return endpoint;
+    }
+
+    public List<WebhookEndpoint> endpointsOf(String accountRef) {
+        return endpointRepository.findByAccountRefOrderById(accountRef);
+    }
+
+    /**
+     * The endpoint's 50 most recent deliveries, newest first.
+     */
+    public List<WebhookDelivery> deliveries(long endpointId) {
+        if (!endpointRepository.existsById(endpointId)) {
+            throw new IllegalArgumentException("Webhook endpoint not found: " + endpointId);
+        }
+        return deliveryRepository.findTop50ByEndpointIdOrderByIdDesc(endpointId);
+    }
+
+    /**
+     * The enabled endpoint with this id, or null if it is unknown or disabled.
+     */
+    public WebhookEndpoint endpoint(long endpointId) {
+        return endpoints.byId().get(endpointId);
+    }
+
+    public void refresh() {
+        Map<Long, WebhookEndpoint> byId = new HashMap<>();
+        Map<String, List<WebhookEndpoint>> byAccount = new HashMap<>();
+        for (WebhookEndpoint endpoint : endpointRepository.findByEnabledTrue()) {
+            byId.put(endpoint.getId(), endpoint);
+            byAccount.computeIfAbsent(endpoint.getAccountRef(), ref -> new ArrayList<>()).add(endpoint);
+        }
+        endpoints = new Endpoints(byId, byAccount);
+    }
+
+    /**
+     * Queues a delivery of {@code event} to every endpoint of the accounts it mentions that
+     * subscribed to its type. Returns how many were queued.
+     */
+    public int enqueue(Map<String, Object> event) {
+        Endpoints current = endpoints;
+        if (current.byAccount().isEmpty()) {
+            return 0;
+        }
+        String eventType = String.valueOf(event.get("eventType"));
+        List<WebhookEndpoint> targets = new ArrayList<>();
+        for (String accountRef : accountRefs(event)) {
+            for (WebhookEndpoint endpoint : current.byAccount().getOrDefault(accountRef, List.of())) {
+                if (subscribed(endpoint, eventType)) {
+                    targets.add(endpoint);
+                }
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        String eventKey = eventKey(eventType, event);
+        if (eventKey == null) {
+            log.warn("Not queueing webhooks for {} event without a reference", eventType);
+            return 0;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event cannot be serialized: " + e.getMessage(), e);
+        }
+        Integer queued = transactionTemplate.execute(status -> {
+            int inserted = 0;
+            for (WebhookEndpoint endpoint : targets) {
+                inserted += deliveryRepository.enqueue(endpoint.getId(), eventKey, eventType, payload);
+            }
+            return inserted;
+        });
+        queuedCounter.increment(queued);
+        return queued;
+    }
+
+    /**
+     * Refuses hosts that are missing or resolve to an address inside our network, so an endpoint
+     * cannot point the dispatcher at internal services.
+     */
+    private void requirePublicHost(URI uri) {
+        String host = uri.getHost();
+        if (host == null || host.isBlank()) {
+            throw new IllegalArgumentException("Webhook URL must name a host");
+        }
+        if (properties.allowPrivateHosts()) {
+            return;
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Webhook host does not resolve: " + host);
+        }
+        for (InetAddress address : addresses) {
+            if (isInternal(address)) {
+                throw new IllegalArgumentException("Webhook host " + host + " is a loopback or internal address");
+            }
+        }
+    }
+
+    static boolean isInternal(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        // Carrier-grade NAT 100.64.0.0/10 and IPv6 unique local fc00::/7, which InetAddress does not flag.
+        return bytes.length == 4
+                ? (bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64
+                : (bytes[0] & 0xfe) == 0xfc;
+    }
+
+    static Set<String> accountRefs(Map<String, Object> event) {
+        Set<String> refs = new LinkedHashSet<>();
+        if (event.get("sourceAccountRef") instanceof String source) {
+            refs.add(source);
+        }
+        if (event.get("destinationAccountRef") instanceof String destination) {
+            refs.add(destination);
+        }
+        if (event.get("accounts") instanceof List<?> accounts) {
+            for (Object account : accounts) {
+                if (account instanceof Map<?, ?> balance && balance.get("accountRef") instanceof String ref) {
+                    refs.add(ref);
+                }
+            }
+        }
+        return refs;
+    }
+
+    // References are unique per event type, so the pair identifies a redelivered event.
+    static String eventKey(String eventType, Map<String, Object> event) {
+        Object ref = event.get("holdRef") != null ? event.get("holdRef") : event.get("transactionRef");
+        if (ref == null) {
+            return null;
+        }
+        String key = eventType + ":" + ref;
+        return key.length() <= 200 ? key : key.substring(0, 200);
+    }
+
+    private static boolean subscribed(WebhookEndpoint endpoint, String eventType) {
+        return endpoint.getEventTypes() == null
+                || Arrays.asList(endpoint.getEventTypes().split(",")).contains(eventType);
+    }
+
+    private record Endpoints(Map<Long, WebhookEndpoint> byId, Map<String, List<WebhookEndpoint>> byAccount) {
+    }
+}
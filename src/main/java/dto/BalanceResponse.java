@@ -0,0 +1,21 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * @param available        balance minus active authorization holds
+ * @param asOf             when this node last learned the value
+ * @param stalenessBoundMs upper bound on how long a write from another node can take to show up;
+ *                         zero for strongly consistent reads
+ */
+public record BalanceResponse(String accountRef,
+                              BigDecimal balance,
+                              BigDecimal held,
+                              BigDecimal available,
+                              String currency,
+                              long version,
+                              Instant asOf,
+                              long stalenessBoundMs,
+                              String consistency) {
+}
@@ -0,0 +1,9 @@
+package dto;
+
+import java.math.BigDecimal;
+
+/**
+ * @param amount amount to capture; {@code null} captures the full hold
+ */
+public record CaptureDto(BigDecimal amount) {
+}
@@ -0,0 +1,14 @@
+package dto;
+
+import java.math.BigDecimal;
+
+/**
+ * @param ttlSeconds how long the hold stays active; {@code null} uses {@code app.holds.default-ttl}
+ */
+public record HoldDto(String sourceAccountRef,
+                      String destinationAccountRef,
+                      BigDecimal amount,
+                      String reference,
+                      String description,
+                      Long ttlSeconds) {
+}
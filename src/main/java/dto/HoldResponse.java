@@ -0,0 +1,14 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record HoldResponse(String reference,
+                           String sourceAccountRef,
+                           String destinationAccountRef,
+                           BigDecimal amount,
+                           BigDecimal capturedAmount,
+                           String status,
+                           LocalDateTime expiresAt,
+                           String captureTransactionRef) {
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import java.time.LocalDateTime;
+
+public record LedgerCheckpointResponse(String period,
+                                       LocalDateTime periodStart,
+                                       LocalDateTime periodEnd,
+                                       long entryCount,
+                                       Long firstEntryId,
+                                       Long lastEntryId,
+                                       String merkleRoot,
+                                       LocalDateTime createdAt) {
+}
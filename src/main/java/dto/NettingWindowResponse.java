@@ -0,0 +1,9 @@
+package dto;
+
+import java.util.List;
+
+public record NettingWindowResponse(String transactionRef,
+                                    int netted,
+                                    List<String> rejectedReferences,
+                                    int entries) {
+}
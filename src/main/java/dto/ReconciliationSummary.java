@@ -0,0 +1,9 @@
+package dto;
+
+import java.math.BigDecimal;
+
+public record ReconciliationSummary(BigDecimal totalDebits,
+                                    BigDecimal totalCredits,
+                                    boolean balanced,
+                                    String status) {
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import java.math.BigDecimal;
+
+/**
+ * @param transactionRef transaction to refund; taken from the path on the single-refund endpoint
+ * @param reference      the refund's own reference, which makes retries safe
+ */
+public record RefundDto(String transactionRef,
+                        String reference,
+                        BigDecimal amount,
+                        String reason) {
+}
@@ -0,0 +1,15 @@
+package dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Either {@code references}, or a {@code [from, to)} creation window optionally narrowed to the
+ * transactions touching {@code accountRef}.
+ */
+public record ReversalDto(List<String> references,
+                          LocalDateTime from,
+                          LocalDateTime to,
+                          String accountRef,
+                          String reason) {
+}
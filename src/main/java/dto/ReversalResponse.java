@@ -0,0 +1,14 @@
+package dto;
+
+import java.util.Map;
+
+/**
+ * @param rejected reason per rejected request, keyed by refund reference or, for reversals, by the
+ *                 original transaction's reference
+ */
+public record ReversalResponse(int reversed,
+                               int refunded,
+                               int replayed,
+                               Map<String, String> rejected,
+                               int batches) {
+}
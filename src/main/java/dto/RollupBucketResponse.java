@@ -0,0 +1,12 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record RollupBucketResponse(LocalDateTime bucketStart,
+                                   BigDecimal creditAmount,
+                                   BigDecimal debitAmount,
+                                   long creditCount,
+                                   long debitCount,
+                                   BigDecimal closingBalance) {
+}
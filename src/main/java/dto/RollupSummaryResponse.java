@@ -0,0 +1,17 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record RollupSummaryResponse(String accountRef,
+                                    LocalDateTime from,
+                                    LocalDateTime to,
+                                    BigDecimal openingBalance,
+                                    BigDecimal closingBalance,
+                                    BigDecimal creditAmount,
+                                    BigDecimal debitAmount,
+                                    long creditCount,
+                                    long debitCount,
+                                    List<RollupBucketResponse> buckets) {
+}
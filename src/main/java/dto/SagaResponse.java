@@ -0,0 +1,17 @@
+package dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * @param shard the shard the saga is recorded on, which is the shard of its first step
+ */
+public record SagaResponse(String sagaId,
+                           String type,
+                           String status,
+                           int currentStep,
+                           String failureReason,
+                           int shard,
+                           Map<String, Object> context,
+                           LocalDateTime updatedAt) {
+}
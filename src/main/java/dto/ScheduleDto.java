@@ -0,0 +1,18 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @param recurrence {@code ONCE} (default), {@code DAILY}, {@code WEEKLY} or {@code MONTHLY}
+ * @param endsAt     last time an occurrence may fall due; open-ended when null
+ */
+public record ScheduleDto(String sourceAccountRef,
+                          String destinationAccountRef,
+                          BigDecimal amount,
+                          String reference,
+                          String description,
+                          String recurrence,
+                          LocalDateTime startsAt,
+                          LocalDateTime endsAt) {
+}
@@ -0,0 +1,23 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * @param occurrence      occurrences run so far; the next one is posted as {@code <reference>:<occurrence>}
+ * @param failures        occurrences the ledger refused
+ * @param nextRunAt       null once the schedule has completed or was cancelled
+ */
+public record ScheduleResponse(String reference,
+                               String sourceAccountRef,
+                               String destinationAccountRef,
+                               BigDecimal amount,
+                               String recurrence,
+                               LocalDateTime startsAt,
+                               LocalDateTime endsAt,
+                               LocalDateTime nextRunAt,
+                               int occurrence,
+                               int failures,
+                               String lastError,
+                               String status) {
+}
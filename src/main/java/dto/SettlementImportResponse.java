@@ -0,0 +1,16 @@
+package dto;
+
+import java.time.LocalDateTime;
+
+public record SettlementImportResponse(Long id,
+                                       String fileName,
+                                       long fileSize,
+                                       long committedOffset,
+                                       String status,
+                                       long applied,
+                                       long duplicates,
+                                       long failed,
+                                       double recordsPerSecond,
+                                       LocalDateTime startedAt,
+                                       LocalDateTime completedAt) {
+}
@@ -0,0 +1,9 @@
+package dto;
+
+/**
+ * @param moved whether the shard comes from the shard directory rather than the hash ring
+ */
+public record ShardAssignmentResponse(String accountRef,
+                                      int shard,
+                                      boolean moved) {
+}
@@ -0,0 +1,10 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record StatementLine(LocalDateTime createdAt,
+                            String transactionRef,
+                            String entryType,
+                            BigDecimal amount) {
+}
@@ -0,0 +1,19 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Response view of a posted transaction. {@code convertedAmount} and {@code rate} are only set
+ * for {@code FX_TRANSFER}.
+ */
+public record TransactionResponse(Long id,
+                                  String reference,
+                                  String type,
+                                  String status,
+                                  BigDecimal amount,
+                                  String description,
+                                  LocalDateTime createdAt,
+                                  BigDecimal convertedAmount,
+                                  BigDecimal rate) {
+}
@@ -0,0 +1,16 @@
+package dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public record TransactionSearchHit(String reference,
+                                   String type,
+                                   String status,
+                                   BigDecimal amount,
+                                   String description,
+                                   Map<String, Object> metadata,
+                                   List<String> accountRefs,
+                                   LocalDateTime createdAt) {
+}
@@ -0,0 +1,10 @@
+package dto;
+
+import java.util.List;
+
+/**
+ * @param nextCursor pass as {@code cursor} for the next page; null on the last page
+ */
+public record TransactionSearchResponse(List<TransactionSearchHit> items,
+                                        String nextCursor) {
+}
@@ -6,5 +6,6 @@ public record TransferDto(String sourceAccountRef,
                           String destinationAccountRef,
                           BigDecimal amount,
                           String reference,
-                          String description) {
+                          String description,
+                          Boolean convert) {
 }
@@ -0,0 +1,15 @@
+package dto;
+
+import java.math.BigDecimal;
+
+/**
+ * @param nettingTransactionRef the {@code NETTING} transaction that settled the intent, once netted
+ */
+public record TransferIntentResponse(String reference,
+                                     String sourceAccountRef,
+                                     String destinationAccountRef,
+                                     BigDecimal amount,
+                                     String status,
+                                     String nettingTransactionRef,
+                                     String rejectReason) {
+}
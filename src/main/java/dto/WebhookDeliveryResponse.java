@@ -0,0 +1,19 @@
+package dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * @param lastStatusCode HTTP status of the last attempt; null if it got no response
+ * @param nextAttemptAt  null once delivered or given up
+ */
+public record WebhookDeliveryResponse(Long id,
+                                      String eventKey,
+                                      String eventType,
+                                      String status,
+                                      int attempts,
+                                      Integer lastStatusCode,
+                                      String lastError,
+                                      LocalDateTime createdAt,
+                                      LocalDateTime nextAttemptAt,
+                                      LocalDateTime deliveredAt) {
+}
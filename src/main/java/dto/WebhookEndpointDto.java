@@ -0,0 +1,13 @@
+package dto;
+
+import java.util.List;
+
+/**
+ * @param eventTypes     event type names to deliver; every type when null or empty
+ * @param maxConcurrency requests in flight to {@code url} at once; {@code app.webhooks.max-concurrency} when null
+ */
+public record WebhookEndpointDto(String accountRef,
+                                 String url,
+                                 List<String> eventTypes,
+                                 Integer maxConcurrency) {
+}
@@ -0,0 +1,15 @@
+package dto;
+
+import java.util.List;
+
+/**
+ * @param secret HMAC-SHA256 key for the {@code X-Ledger-Signature} header; only returned on creation
+ */
+public record WebhookEndpointResponse(Long id,
+                                      String accountRef,
+                                      String url,
+                                      List<String> eventTypes,
+                                      Integer maxConcurrency,
+                                      boolean enabled,
+                                      String secret) {
+}
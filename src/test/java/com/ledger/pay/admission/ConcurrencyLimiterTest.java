@@ -0,0 +1,66 @@
+package com.ledger.pay.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void shouldRejectWhenLaneIsFull() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 0, false);
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire(ConcurrencyLimiter.Kind.TRANSFER, "user:alice:wallet");
+
+        AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+                () -> limiter.acquire(ConcurrencyLimiter.Kind.TRANSFER, "user:bob:wallet"));
+        assertThat(e.getRetryAfterSeconds()).isPositive();
+        permit.close();
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    @Test
+    void shouldAdmitWaitingDepositBeforeTransferWhenPrioritized() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 10, true);
+        ConcurrencyLimiter.Permit permit = limiter.acquire(ConcurrencyLimiter.Kind.TRANSFER, "user:alice:wallet");
+
+        CompletableFuture<ConcurrencyLimiter.Permit> transfer = CompletableFuture.supplyAsync(
+                () -> acquire(limiter, ConcurrencyLimiter.Kind.TRANSFER, "user:bob:wallet"));
+        awaitQueued(limiter, ConcurrencyLimiter.Lane.TRANSFER);
+        CompletableFuture<ConcurrencyLimiter.Permit> deposit = CompletableFuture.supplyAsync(
+                () -> acquire(limiter, ConcurrencyLimiter.Kind.DEPOSIT, "user:carol:wallet"));
+        awaitQueued(limiter, ConcurrencyLimiter.Lane.DEPOSIT);
+
+        permit.close();
+
+        ConcurrencyLimiter.Permit admitted = deposit.get(5, TimeUnit.SECONDS);
+        assertThat(admitted.lane()).isEqualTo(ConcurrencyLimiter.Lane.DEPOSIT);
+        assertThat(transfer).isNotDone();
+        admitted.close();
+        transfer.get(5, TimeUnit.SECONDS).close();
+    }
+
+    private ConcurrencyLimiter limiter(int limit, int queue, boolean prioritizeDeposits) {
+        return new ConcurrencyLimiter(new ConcurrencyLimiter.Settings(
+                limit, limit, limit, queue, TimeUnit.SECONDS.toNanos(5), 4, 0.25, prioritizeDeposits));
+    }
+
+    private ConcurrencyLimiter.Permit acquire(ConcurrencyLimiter limiter, ConcurrencyLimiter.Kind kind, String accountRef) {
+        try {
+            return limiter.acquire(kind, accountRef);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitQueued(ConcurrencyLimiter limiter, ConcurrencyLimiter.Lane lane) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getQueued(lane) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
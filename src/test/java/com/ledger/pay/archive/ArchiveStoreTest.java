@@ -0,0 +1,119 @@
+package com.ledger.pay.archive;
+
+import com.ledger.pay.config.PartitioningProperties;
+import dto.StatementLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArchiveStoreTest {
+
+    private static final LocalDateTime JAN = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime FEB = JAN.plusMonths(1);
+    private static final LocalDateTime MAR = JAN.plusMonths(2);
+
+    @TempDir
+    Path root;
+
+    private ArchiveStore underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ArchiveStore(new PartitioningProperties(true, 3, true, 12, 0, root.toString()));
+    }
+
+    @Test
+    void shouldReadManifestsBackAndOnlyCountSealedArchives() throws Exception {
+        ArchiveStore.Manifest january = archive("ledger_entries_p202501", JAN, FEB,
+                new Object[]{1L, 10L, 2L, "DEBIT", new BigDecimal("5"), JAN.plusDays(1), "t-1"},
+                new Object[]{2L, 10L, 3L, "CREDIT", new BigDecimal("5"), JAN.plusDays(1), "t-1"});
+        underTest.writeManifest(january.withState(ArchiveStore.State.SEALED));
+        underTest.writeManifest(archive("ledger_entries_p202502", FEB, MAR,
+                new Object[]{3L, 11L, 2L, "DEBIT", new BigDecimal("7"), FEB.plusDays(1), "t-2"}));
+
+        List<ArchiveStore.Manifest> manifests = underTest.manifests(ArchiveStore.LEDGER_ENTRIES);
+
+        assertThat(manifests).extracting(ArchiveStore.Manifest::partition)
+                .containsExactly("ledger_entries_p202501", "ledger_entries_p202502");
+        assertThat(manifests.getFirst()).satisfies(manifest -> {
+            assertThat(manifest.from()).isEqualTo(JAN);
+            assertThat(manifest.to()).isEqualTo(FEB);
+            assertThat(manifest.rows()).isEqualTo(2);
+            assertThat(manifest.state()).isEqualTo(ArchiveStore.State.SEALED);
+            assertThat(manifest.firstAccountId()).isEqualTo(2L);
+            assertThat(manifest.lastAccountId()).isEqualTo(3L);
+        });
+        assertThat(underTest.sealed(ArchiveStore.LEDGER_ENTRIES)).hasSize(1);
+        assertThat(underTest.ledgerTotals().debits()).isEqualByComparingTo("5");
+        assertThat(underTest.ledgerTotals().credits()).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void shouldReturnTheAccountsLinesWithinTheRange() throws Exception {
+        underTest.writeManifest(archive("ledger_entries_p202501", JAN, FEB,
+                new Object[]{1L, 10L, 2L, "DEBIT", new BigDecimal("5"), JAN.plusDays(1), "t-1"},
+                new Object[]{4L, 12L, 2L, "CREDIT", new BigDecimal("9"), JAN.plusDays(20), "t-3"},
+                new Object[]{2L, 10L, 3L, "CREDIT", new BigDecimal("5"), JAN.plusDays(1), "t-1"})
+                .withState(ArchiveStore.State.SEALED));
+
+        List<StatementLine> lines = underTest.ledgerEntries(2, JAN.plusDays(10), FEB);
+
+        assertThat(lines).singleElement().satisfies(line -> {
+            assertThat(line.transactionRef()).isEqualTo("t-3");
+            assertThat(line.entryType()).isEqualTo("CREDIT");
+            assertThat(line.amount()).isEqualByComparingTo("9");
+        });
+    }
+
+    @Test
+    void shouldNotOpenArchivesOutsideTheDateOrAccountRange() throws Exception {
+        underTest.writeManifest(archive("ledger_entries_p202501", JAN, FEB,
+                new Object[]{1L, 10L, 2L, "DEBIT", new BigDecimal("5"), JAN.plusDays(1), "t-1"})
+                .withState(ArchiveStore.State.SEALED));
+        underTest.writeManifest(archive("ledger_entries_p202502", FEB, MAR,
+                new Object[]{2L, 11L, 5L, "DEBIT", new BigDecimal("7"), FEB.plusDays(1), "t-2"})
+                .withState(ArchiveStore.State.SEALED));
+        // Either archive would fail to open if it were read.
+        for (String partition : List.of("ledger_entries_p202501", "ledger_entries_p202502")) {
+            Files.delete(ColumnarArchive.columnFile(
+                    underTest.partitionDir(ArchiveStore.LEDGER_ENTRIES, partition), "account_id"));
+        }
+
+        assertThat(underTest.ledgerEntries(2, FEB, MAR)).isEmpty();
+        assertThat(underTest.ledgerEntries(9, JAN, MAR)).isEmpty();
+    }
+
+    /**
+     * Writes rows of {@link ArchiveStore#LEDGER_COLUMNS}, sorted by account as the archiver does,
+     * and returns their unsealed manifest.
+     */
+    private ArchiveStore.Manifest archive(String partition, LocalDateTime from, LocalDateTime to, Object[]... rows)
+            throws Exception {
+        Path dir = underTest.partitionDir(ArchiveStore.LEDGER_ENTRIES, partition);
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(dir, ArchiveStore.LEDGER_COLUMNS)) {
+            for (Object[] row : rows) {
+                writer.write(row);
+                if ("DEBIT".equals(row[3])) {
+                    debits = debits.add((BigDecimal) row[4]);
+                } else {
+                    credits = credits.add((BigDecimal) row[4]);
+                }
+            }
+        }
+        ArchiveStore.Manifest manifest = new ArchiveStore.Manifest(ArchiveStore.LEDGER_ENTRIES, partition, from, to,
+                rows.length, ArchiveStore.State.WRITTEN, debits, credits, (Long) rows[0][2],
+                (Long) rows[rows.length - 1][2], dir);
+        underTest.writeManifest(manifest);
+        return manifest;
+    }
+}
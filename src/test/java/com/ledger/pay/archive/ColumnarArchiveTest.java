@@ -0,0 +1,67 @@
+package com.ledger.pay.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarArchiveTest {
+
+    private static final List<ColumnarArchive.Column> COLUMNS = List.of(
+            new ColumnarArchive.Column("id", ColumnarArchive.ColumnType.LONG),
+            new ColumnarArchive.Column("amount", ColumnarArchive.ColumnType.DECIMAL),
+            new ColumnarArchive.Column("created_at", ColumnarArchive.ColumnType.TIMESTAMP),
+            new ColumnarArchive.Column("reference", ColumnarArchive.ColumnType.STRING));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldReadBackWhatWasWritten() throws Exception {
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_000);
+        // Ids and timestamps going backwards give negative deltas.
+        Object[][] rows = {
+                {7L, new BigDecimal("10.5"), at, "t-1"},
+                {3L, new BigDecimal("-0.0001"), at.minusDays(40), null},
+                {Long.MAX_VALUE / 2, new BigDecimal("99999999999999.9999"), at.plusYears(3), "référence"},
+                {-5L, BigDecimal.ZERO, at, ""}};
+
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(dir, COLUMNS)) {
+            for (Object[] row : rows) {
+                writer.write(row);
+            }
+            assertThat(writer.rows()).isEqualTo(rows.length);
+        }
+        List<Object[]> read;
+        try (ColumnarArchive.Reader reader = new ColumnarArchive.Reader(dir, COLUMNS)) {
+            read = reader.readAll();
+        }
+
+        assertThat(read).hasSize(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertThat(read.get(i)[0]).isEqualTo(rows[i][0]);
+            assertThat((BigDecimal) read.get(i)[1]).isEqualByComparingTo((BigDecimal) rows[i][1]);
+            assertThat(read.get(i)[2]).isEqualTo(rows[i][2]);
+            assertThat(read.get(i)[3]).isEqualTo(rows[i][3]);
+        }
+    }
+
+    @Test
+    void shouldOpenOnlyTheRequestedColumns() throws Exception {
+        try (ColumnarArchive.Writer writer = new ColumnarArchive.Writer(dir, COLUMNS)) {
+            writer.write(1L, BigDecimal.ONE, LocalDateTime.of(2025, 1, 1, 0, 0), "a");
+            writer.write(2L, BigDecimal.TEN, LocalDateTime.of(2025, 1, 2, 0, 0), "b");
+        }
+        Files.delete(ColumnarArchive.columnFile(dir, "amount"));
+
+        try (ColumnarArchive.Reader reader = new ColumnarArchive.Reader(dir, List.of(COLUMNS.get(3), COLUMNS.get(0)))) {
+            assertThat(reader.readAll()).extracting(row -> row[0] + ":" + row[1]).containsExactly("a:1", "b:2");
+        }
+    }
+}
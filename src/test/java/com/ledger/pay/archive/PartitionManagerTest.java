@@ -0,0 +1,135 @@
+package com.ledger.pay.archive;
+
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Converts the tables Hibernate created, with rows already in them, the way an existing
+ * deployment is converted.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "app.partitioning.enabled=true",
+        "app.partitioning.months-ahead=1",
+        "app.partitioning.archive-dir=target/partition-manager-test"
+})
+@Import({TestAuditingConfig.class, PartitionManager.class, ArchiveStore.class, PartitionManagerTest.Config.class})
+class PartitionManagerTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    @Autowired
+    PartitionManager underTest;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    LedgerEntryRepository ledgerEntryRepository;
+
+    @Test
+    void shouldConvertOnceInPlaceAndKeepAcceptingWrites() throws Exception {
+        Account account = accountRepository.save(Account.builder()
+                .accountRef("user:partitioned:wallet")
+                .accountType(AccountType.USER_WALLET)
+                .build());
+        LedgerEntry before = post(account, "before-conversion");
+        assertThat(underTest.isConverted()).isFalse();
+
+        // Two instances asked at once: the advisory lock lets each table be converted once.
+        List<String> converted = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<List<String>> first = executor.submit(underTest::convertIfNeeded);
+            Future<List<String>> second = executor.submit(underTest::convertIfNeeded);
+            converted.addAll(first.get(60, TimeUnit.SECONDS));
+            converted.addAll(second.get(60, TimeUnit.SECONDS));
+        }
+
+        assertThat(converted).containsExactlyInAnyOrder(ArchiveStore.LEDGER_ENTRIES, ArchiveStore.TRANSACTIONS);
+        assertThat(underTest.isConverted()).isTrue();
+        assertThat(underTest.convertIfNeeded()).isEmpty();
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        assertThat(underTest.partitions(ArchiveStore.LEDGER_ENTRIES)).satisfiesExactly(
+                legacy -> {
+                    assertThat(legacy.name()).isEqualTo("ledger_entries_legacy");
+                    assertThat(legacy.from()).isNull();
+                    assertThat(legacy.to()).isEqualTo(month.atStartOfDay());
+                },
+                current -> assertThat(current.from()).isEqualTo(month.atStartOfDay()),
+                next -> assertThat(next.from()).isEqualTo(month.plusMonths(1).atStartOfDay()));
+
+        LedgerEntry after = post(account, "after-conversion");
+        assertThat(after.getId()).isGreaterThan(before.getId());
+        assertThat(ledgerEntryRepository.count()).isEqualTo(2);
+        assertThat(transactionRepository.findByReference("before-conversion")).isPresent();
+        // References are still unique across partitions, old and new.
+        assertThatThrownBy(() -> post(account, "before-conversion"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private LedgerEntry post(Account account, String reference) {
+        Transaction transaction = transactionRepository.saveAndFlush(Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.DEPOSIT)
+                .amount(BigDecimal.TEN)
+                .build());
+        return ledgerEntryRepository.saveAndFlush(LedgerEntry.builder()
+                .transaction(transaction)
+                .account(account)
+                .entryType(LedgerEntryType.CREDIT)
+                .amount(BigDecimal.TEN)
+                .build());
+    }
+}
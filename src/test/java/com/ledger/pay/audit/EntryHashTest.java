@@ -0,0 +1,78 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.enums.LedgerEntryType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntryHashTest {
+
+    private final EntryHash hasher = new EntryHash();
+
+    @Test
+    void shouldHashAmountsTheSameAtAnyScale() {
+        String written = hasher.hash(EntryHash.GENESIS, 7, 1, 42, LedgerEntryType.DEBIT, new BigDecimal("125.5"));
+        String readBack = hasher.hash(EntryHash.GENESIS, 7, 1, 42, LedgerEntryType.DEBIT, new BigDecimal("125.5000"));
+
+        assertThat(readBack).isEqualTo(written).hasSize(64);
+        assertThat(hasher.hash(EntryHash.GENESIS, 7, 1, 42, LedgerEntryType.CREDIT, new BigDecimal("125.5")))
+                .isNotEqualTo(written);
+        assertThat(hasher.hash(written, 7, 2, 42, LedgerEntryType.DEBIT, new BigDecimal("125.5")))
+                .isNotEqualTo(written);
+    }
+
+    @Test
+    void shouldMatchRecursiveMerkleRootForAnyLeafCount() throws Exception {
+        for (int count = 1; count <= 33; count++) {
+            List<byte[]> leaves = new ArrayList<>();
+            EntryHash.Merkle merkle = new EntryHash.Merkle();
+            for (int i = 0; i < count; i++) {
+                String hash = hasher.hash(EntryHash.GENESIS, i, 1, i, LedgerEntryType.CREDIT, BigDecimal.ONE);
+                leaves.add(HexFormat.of().parseHex(hash));
+                merkle.add(hash);
+            }
+
+            assertThat(merkle.leaves()).isEqualTo(count);
+            assertThat(merkle.root()).as("%d leaves", count).isEqualTo(HexFormat.of().formatHex(root(leaves)));
+        }
+        assertThat(new EntryHash.Merkle().root()).isEqualTo(EntryHash.GENESIS);
+    }
+
+    @Test
+    void shouldChangeRootWhenAnEntryIsRemoved() {
+        EntryHash.Merkle all = new EntryHash.Merkle();
+        EntryHash.Merkle missingOne = new EntryHash.Merkle();
+        for (int i = 0; i < 10; i++) {
+            String hash = hasher.hash(EntryHash.GENESIS, i, 1, i, LedgerEntryType.DEBIT, BigDecimal.TEN);
+            all.add(hash);
+            if (i != 4) {
+                missingOne.add(hash);
+            }
+        }
+
+        assertThat(missingOne.root()).isNotEqualTo(all.root());
+    }
+
+    /**
+     * Reference definition: the largest power-of-two subtree on the left, the rest on the right.
+     */
+    private static byte[] root(List<byte[]> leaves) throws Exception {
+        if (leaves.size() == 1) {
+            return leaves.getFirst();
+        }
+        int split = Integer.highestOneBit(leaves.size());
+        if (split == leaves.size()) {
+            split /= 2;
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((byte) 1);
+        digest.update(root(leaves.subList(0, split)));
+        return digest.digest(root(leaves.subList(split, leaves.size())));
+    }
+}
@@ -0,0 +1,130 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.config.AuditProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HashChainTest {
+
+    private final LedgerEntryRepository repository = mock(LedgerEntryRepository.class);
+    private final HashChain chain = new HashChain(repository, new AuditProperties(1000, true, 0, 100), new SimpleMeterRegistry());
+    private final Account account = account(7L);
+    private final Transaction transaction = transaction(42L);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldStartAtGenesisAndServeTheNextLinkFromTheCache() {
+        when(repository.findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(7L)).thenReturn(Optional.empty());
+
+        LedgerEntry first = entry();
+        chain.link(first);
+        LedgerEntry second = entry();
+        chain.link(second);
+
+        assertThat(first.getSequence()).isEqualTo(1);
+        assertThat(first.getPrevHash()).isEqualTo(EntryHash.GENESIS);
+        assertThat(first.getEntryHash()).isEqualTo(new EntryHash().hash(EntryHash.GENESIS, 7, 1, 42,
+                LedgerEntryType.DEBIT, BigDecimal.TEN));
+        assertThat(second.getSequence()).isEqualTo(2);
+        assertThat(second.getPrevHash()).isEqualTo(first.getEntryHash());
+        verify(repository, times(1)).findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(7L);
+    }
+
+    @Test
+    void shouldReadTheHeadAgainWhenTheAccountVersionMoved() {
+        LedgerEntry stored = entry();
+        stored.setSequence(5L);
+        stored.setEntryHash("a".repeat(64));
+        when(repository.findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(7L))
+                .thenReturn(Optional.empty(), Optional.of(stored));
+
+        chain.link(entry());
+        // Another node wrote to the account, so the cached head is stale.
+        account.setVersion(account.getVersion() + 3);
+        LedgerEntry next = entry();
+        chain.link(next);
+
+        assertThat(next.getSequence()).isEqualTo(6);
+        assertThat(next.getPrevHash()).isEqualTo(stored.getEntryHash());
+    }
+
+    @Test
+    void shouldChainWithinATransactionAndPublishOnlyOnCommit() {
+        when(repository.findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(7L)).thenReturn(Optional.empty());
+
+        TransactionSynchronizationManager.initSynchronization();
+        chain.link(entry());
+        LedgerEntry second = entry();
+        chain.link(second);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(second.getSequence()).isEqualTo(2);
+        assertThat(chain.cachedAccounts()).isZero();
+
+        TransactionSynchronizationManager.initSynchronization();
+        LedgerEntry committed = entry();
+        chain.link(committed);
+        account.setVersion(account.getVersion() + 1);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        LedgerEntry next = entry();
+        chain.link(next);
+        assertThat(next.getSequence()).isEqualTo(2);
+        assertThat(next.getPrevHash()).isEqualTo(committed.getEntryHash());
+        verify(repository, times(2)).findFirstByAccountIdAndSequenceNotNullOrderBySequenceDesc(7L);
+    }
+
+    private static void complete(int status) {
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private LedgerEntry entry() {
+        return LedgerEntry.builder()
+                .account(account)
+                .transaction(transaction)
+                .entryType(LedgerEntryType.DEBIT)
+                .amount(BigDecimal.TEN)
+                .build();
+    }
+
+    private static Account account(Long id) {
+        Account account = Account.builder()
+                .accountRef("user:alice:wallet")
+                .accountType(AccountType.USER_WALLET)
+                .build();
+        account.setId(id);
+        return account;
+    }
+
+    private static Transaction transaction(Long id) {
+        Transaction transaction = Transaction.builder().reference("ref-" + id).amount(BigDecimal.TEN).build();
+        transaction.setId(id);
+        return transaction;
+    }
+}
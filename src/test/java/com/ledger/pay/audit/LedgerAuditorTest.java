@@ -0,0 +1,202 @@
+package com.ledger.pay.audit;
+
+import com.ledger.pay.archive.ArchiveStore;
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerCheckpoint;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Builds a four-entry chain whose first two entries fall in a checkpointed month, so an
+ * incremental run starts at the third entry and has to join it to the second.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "app.partitioning.archive-dir=target/ledger-auditor-test")
+@Import({TestAuditingConfig.class, SimpleMeterRegistry.class, LedgerAuditor.class, HashChain.class,
+        ArchiveStore.class, LedgerAuditorTest.Config.class})
+class LedgerAuditorTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    @Autowired
+    LedgerAuditor underTest;
+    @Autowired
+    HashChain hashChain;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final List<LedgerEntry> chain = new ArrayList<>();
+    private List<LedgerCheckpoint> checkpoints;
+
+    @BeforeEach
+    void setUp() {
+        Account account = accountRepository.save(Account.builder()
+                .accountRef("user:" + UUID.randomUUID() + ":wallet")
+                .accountType(AccountType.USER_WALLET)
+                .build());
+        for (int i = 1; i <= 4; i++) {
+            chain.add(post(account.getId(), new BigDecimal(i * 10)));
+        }
+        // created_at is not hashed, so the first two entries can be moved into a closed month.
+        jdbcTemplate.update("UPDATE ledger_entries SET created_at = created_at - interval '2 months' WHERE id IN (?, ?)",
+                chain.get(0).getId(), chain.get(1).getId());
+        checkpoints = underTest.checkpointClosedPeriods();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM ledger_checkpoints");
+        jdbcTemplate.execute("DELETE FROM ledger_entries");
+        jdbcTemplate.execute("DELETE FROM transactions");
+        jdbcTemplate.execute("DELETE FROM accounts");
+    }
+
+    @Test
+    void shouldPassAnUntouchedChain() {
+        LedgerAuditor.Report incremental = underTest.verify(false);
+        LedgerAuditor.Report full = underTest.verify(true);
+
+        assertThat(checkpoints).isNotEmpty();
+        assertThat(incremental.valid()).isTrue();
+        assertThat(incremental.entries()).isEqualTo(2);
+        assertThat(full.valid()).isTrue();
+        assertThat(full.entries()).isEqualTo(4);
+        assertThat(full.checkpointsVerified()).isEqualTo(checkpoints.size());
+    }
+
+    @Test
+    void shouldReportATamperedAmount() {
+        jdbcTemplate.update("UPDATE ledger_entries SET amount = amount + 1 WHERE id = ?", chain.get(3).getId());
+
+        LedgerAuditor.Report report = underTest.verify(false);
+
+        assertThat(report.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.entryId()).isEqualTo(chain.get(3).getId());
+            assertThat(failure.reason()).contains("hash does not match");
+        });
+    }
+
+    @Test
+    void shouldReportARowDeletedBeforeTheFirstEntryOfTheRun() {
+        jdbcTemplate.update("DELETE FROM ledger_entries WHERE id = ?", chain.get(1).getId());
+
+        LedgerAuditor.Report report = underTest.verify(false);
+
+        assertThat(report.anchored()).isZero();
+        assertThat(report.failures()).singleElement().satisfies(failure -> {
+            assertThat(failure.entryId()).isEqualTo(chain.get(2).getId());
+            assertThat(failure.reason()).contains("entry 2 of the chain is missing");
+        });
+    }
+
+    @Test
+    void shouldReportAnEditedCheckpoint() {
+        LedgerCheckpoint sealed = checkpoints.stream().filter(c -> c.getEntryCount() > 0).findFirst().orElseThrow();
+        jdbcTemplate.update("UPDATE ledger_checkpoints SET merkle_root = ? WHERE period = ?",
+                EntryHash.GENESIS, sealed.getPeriod());
+
+        LedgerAuditor.Report report = underTest.verify(true);
+
+        assertThat(report.failures()).singleElement().satisfies(failure ->
+                assertThat(failure.reason()).contains("period " + sealed.getPeriod()));
+    }
+
+    @Test
+    void shouldRejectTwoEntriesAtTheSameChainPosition() {
+        LedgerEntry head = chain.get(3);
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Transaction transaction = transactionRepository.findById(head.getTransaction().getId()).orElseThrow();
+            ledgerEntryRepository.saveAndFlush(LedgerEntry.builder()
+                    .transaction(transaction)
+                    .account(accountRepository.findById(head.getAccount().getId()).orElseThrow())
+                    .entryType(LedgerEntryType.CREDIT)
+                    .amount(BigDecimal.ONE)
+                    .sequence(head.getSequence())
+                    .prevHash(head.getPrevHash())
+                    .entryHash(head.getEntryHash())
+                    .build());
+        })).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private LedgerEntry post(Long accountId, BigDecimal amount) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Account account = accountRepository.findByIdForUpdate(accountId).orElseThrow();
+            Transaction transaction = transactionRepository.saveAndFlush(Transaction.builder()
+                    .reference("audit-" + UUID.randomUUID())
+                    .type(TransactionType.DEPOSIT)
+                    .amount(amount)
+                    .build());
+            account.deposit(amount);
+            accountRepository.save(account);
+            LedgerEntry entry = LedgerEntry.builder()
+                    .transaction(transaction)
+                    .account(account)
+                    .entryType(LedgerEntryType.CREDIT)
+                    .amount(amount)
+                    .build();
+            hashChain.link(entry);
+            return ledgerEntryRepository.save(entry);
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.config.ReadModelProperties;
+import com.ledger.pay.readmodel.BalanceQueryService;
+import com.ledger.pay.readmodel.BalanceView;
+import com.ledger.pay.rollup.RollupService;
+import com.ledger.pay.service.StatementService;
+import com.ledger.pay.sharding.ShardRouter;
+import dto.BalanceResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AccountControllerTest {
+
+    private static final String ACCOUNT = "user:alice:wallet";
+
+    private final BalanceQueryService balanceQueryService = mock(BalanceQueryService.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final AccountController underTest = new AccountController(balanceQueryService,
+            mock(StatementService.class), mock(RollupService.class), shardRouter, new ReadModelProperties(2_500));
+
+    private final BalanceView view = new BalanceView(ACCOUNT, new BigDecimal("90"), new BigDecimal("15"), "NGN", 4,
+            Instant.parse("2025-01-01T10:00:00Z"));
+
+    @BeforeEach
+    void setUp() {
+        when(shardRouter.onShardOf(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(1).get());
+    }
+
+    @Test
+    void shouldServeEventualReadsWithTheConfiguredBound() {
+        when(balanceQueryService.getBalance(ACCOUNT)).thenReturn(Optional.of(view));
+
+        ResponseEntity<BalanceResponse> response = underTest.balance(ACCOUNT, "eventual");
+
+        assertThat(response.getBody()).isEqualTo(new BalanceResponse(ACCOUNT, new BigDecimal("90"),
+                new BigDecimal("15"), new BigDecimal("75"), "NGN", 4, view.asOf(), 2_500, "eventual"));
+        verify(balanceQueryService, never()).getStrongBalance(any());
+    }
+
+    @Test
+    void shouldServeStrongReadsFromThePrimary() {
+        when(balanceQueryService.getStrongBalance(ACCOUNT)).thenReturn(Optional.of(view));
+
+        ResponseEntity<BalanceResponse> response = underTest.balance(ACCOUNT, "STRONG");
+
+        assertThat(response.getBody()).satisfies(body -> {
+            assertThat(body.stalenessBoundMs()).isZero();
+            assertThat(body.consistency()).isEqualTo("strong");
+        });
+        verify(balanceQueryService, never()).getBalance(any());
+    }
+
+    @Test
+    void shouldReturnNotFoundForAnUnknownAccount() {
+        when(balanceQueryService.getBalance(ACCOUNT)).thenReturn(Optional.empty());
+
+        assertThat(underTest.balance(ACCOUNT, "eventual").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+}
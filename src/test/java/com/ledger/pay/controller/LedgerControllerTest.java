@@ -0,0 +1,100 @@
+package com.ledger.pay.controller;
+
+import com.ledger.pay.admission.AdmissionController;
+import com.ledger.pay.admission.AdmissionRejectedException;
+import com.ledger.pay.admission.ConcurrencyLimiter;
+import com.ledger.pay.datasource.ReplicaRoutingDataSource;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.observability.LatencyProfiler;
+import com.ledger.pay.sharding.ShardedLedger;
+import dto.TransactionResponse;
+import dto.TransferDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerControllerTest {
+
+    private static final TransferDto REQUEST = new TransferDto("user:alice:wallet", "user:bob:wallet",
+            new BigDecimal("25"), "ref-1", "rent", null);
+
+    private final ShardedLedger shardedLedger = mock(ShardedLedger.class);
+    private final AdmissionController admissionController = mock(AdmissionController.class);
+    private final LatencyProfiler latencyProfiler = mock(LatencyProfiler.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting = mock(ObjectProvider.class);
+    private final ReplicaRoutingDataSource routingDataSource = mock(ReplicaRoutingDataSource.class);
+    private final LedgerController underTest = new LedgerController(shardedLedger, admissionController,
+            latencyProfiler, replicaRouting);
+
+    private final Transaction posted = transaction();
+
+    @BeforeEach
+    void setUp() {
+        when(latencyProfiler.profile(any(), anyString(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(2).get());
+        when(admissionController.execute(any(), anyString(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(2).get());
+        when(replicaRouting.getIfAvailable()).thenReturn(routingDataSource);
+    }
+
+    @Test
+    void shouldAnswerAReplayFromTheReplicaWithoutPosting() {
+        when(routingDataSource.hasHealthyReplica()).thenReturn(true);
+        when(shardedLedger.findTransferReplay("user:alice:wallet", "user:bob:wallet", new BigDecimal("25"), "ref-1",
+                false)).thenReturn(Optional.of(posted));
+
+        ResponseEntity<TransactionResponse> response = underTest.transfer(REQUEST);
+
+        assertThat(response.getBody().reference()).isEqualTo("ref-1");
+        verify(shardedLedger, never()).transfer(anyString(), anyString(), any(), anyString(), any(), anyBoolean());
+    }
+
+    @Test
+    void shouldSkipTheProbeWithoutAHealthyReplica() {
+        when(routingDataSource.hasHealthyReplica()).thenReturn(false);
+        when(shardedLedger.transfer("user:alice:wallet", "user:bob:wallet", new BigDecimal("25"), "ref-1", "rent",
+                false)).thenReturn(posted);
+
+        underTest.transfer(REQUEST);
+
+        verify(shardedLedger, never()).findTransferReplay(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void shouldNotProbeARequestThatIsNotAdmitted() {
+        when(routingDataSource.hasHealthyReplica()).thenReturn(true);
+        doThrow(new AdmissionRejectedException("Too many requests", ConcurrencyLimiter.Lane.TRANSFER, 1))
+                .when(admissionController).execute(any(), anyString(), any());
+
+        assertThatThrownBy(() -> underTest.transfer(REQUEST)).isInstanceOf(AdmissionRejectedException.class);
+        verify(shardedLedger, never()).findTransferReplay(any(), any(), any(), any(), anyBoolean());
+    }
+
+    private static Transaction transaction() {
+        Transaction transaction = Transaction.builder()
+                .reference("ref-1")
+                .type(TransactionType.TRANSFER)
+                .amount(new BigDecimal("25"))
+                .build();
+        transaction.setId(7L);
+        return transaction;
+    }
+}
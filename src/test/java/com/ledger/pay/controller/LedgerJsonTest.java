@@ -0,0 +1,80 @@
+package com.ledger.pay.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dto.DepositDto;
+import dto.TransactionResponse;
+import dto.TransferDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerJsonTest {
+
+    @Test
+    void shouldWriteTheResponseFieldsInOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        LedgerJson.write(new TransactionResponse(2L, "TXN_456", "TRANSFER", "COMPLETED", new BigDecimal("10000.0000"),
+                "Pay \"Bob\"", LocalDateTime.of(2024, 1, 24, 10, 35), null, null), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"id\":2,\"reference\":\"TXN_456\",\"type\":\"TRANSFER\","
+                + "\"status\":\"COMPLETED\",\"amount\":10000.0000,\"description\":\"Pay \\\"Bob\\\"\","
+                + "\"createdAt\":\"2024-01-24T10:35:00\"}");
+    }
+
+    @Test
+    void shouldWriteConversionFieldsOnlyWhenSet() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        LedgerJson.write(new TransactionResponse(3L, "FX_1", "FX_TRANSFER", "COMPLETED", new BigDecimal("3100"),
+                null, null, new BigDecimal("2.0000"), new BigDecimal("0.0006451613")), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .endsWith("\"description\":null,\"createdAt\":null,\"convertedAmount\":2.0000,\"rate\":0.0006451613}");
+    }
+
+    @Test
+    void shouldReadATransferAndSkipUnknownFields() throws Exception {
+        TransferDto transfer = LedgerJson.readTransfer(json("""
+                {"sourceAccountRef": "user:alice:wallet", "extra": {"nested": [1, 2, {"x": null}]},
+                 "destinationAccountRef": "user:bob:wallet", "amount": "125.50", "reference": "TXN_1",
+                 "description": null, "convert": true}
+                """));
+
+        assertThat(transfer).isEqualTo(new TransferDto("user:alice:wallet", "user:bob:wallet",
+                new BigDecimal("125.50"), "TXN_1", null, true));
+    }
+
+    @Test
+    void shouldReadADepositWithANumericAmount() throws Exception {
+        DepositDto deposit = LedgerJson.readDeposit(json("""
+                {"externalAccountRef": "bank:gtb", "userWalletRef": "user:alice:wallet", "amount": 1500.25,
+                 "reference": "DEP_1"}
+                """));
+
+        assertThat(deposit.amount()).isEqualByComparingTo("1500.25");
+        assertThat(deposit.userWalletRef()).isEqualTo("user:alice:wallet");
+        assertThat(deposit.description()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedRequests() {
+        assertThatThrownBy(() -> LedgerJson.readTransfer(json("[]")))
+                .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> LedgerJson.readTransfer(json("{\"amount\": true}")))
+                .isInstanceOf(JsonProcessingException.class);
+        assertThatThrownBy(() -> LedgerJson.readDeposit(json("{\"reference\": 12}")))
+                .isInstanceOf(JsonProcessingException.class);
+    }
+
+    private static ByteArrayInputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,68 @@
+package com.ledger.pay.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConnectionGateDataSourceTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private ConnectionGateDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        underTest = new ConnectionGateDataSource(target, 2, Duration.ofMillis(50), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void shouldTimeOutWhenAllPermitsAreTaken() throws SQLException {
+        underTest.getConnection();
+        underTest.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, underTest::getConnection);
+        assertEquals(0, underTest.availablePermits());
+    }
+
+    @Test
+    void shouldReleasePermitOnceWhenClosedTwice() throws SQLException {
+        Connection gated = underTest.getConnection();
+
+        gated.close();
+        gated.close();
+
+        assertEquals(2, underTest.availablePermits());
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    void shouldReleasePermitWhenTargetFails() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, underTest::getConnection);
+        assertEquals(2, underTest.availablePermits());
+    }
+
+    @Test
+    void shouldDelegateOtherCalls() throws SQLException {
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        Connection gated = underTest.getConnection();
+
+        assertEquals(false, gated.getAutoCommit());
+    }
+}
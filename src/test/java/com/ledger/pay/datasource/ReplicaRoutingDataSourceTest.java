@@ -0,0 +1,95 @@
+package com.ledger.pay.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private ReplicaRoutingDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        underTest = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica),
+                Duration.ofSeconds(5), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void shouldRouteWritesToPrimary() throws SQLException {
+        underTest.getReplicas().get(0).updateLag(0);
+
+        assertSame(primaryConnection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldRouteReadOnlyToHealthyReplica() throws SQLException {
+        underTest.getReplicas().get(0).updateLag(100);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaLags() throws SQLException {
+        underTest.getReplicas().get(0).updateLag(Duration.ofSeconds(30).toMillis());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenReplicaRefusesConnection() throws SQLException {
+        underTest.getReplicas().get(0).updateLag(0);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldPassExplicitCredentialsToTheRoutedTarget() throws SQLException {
+        underTest.getReplicas().get(0).updateLag(0);
+        when(replica.getConnection("reporting", "secret")).thenReturn(replicaConnection);
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, underTest.getConnection("reporting", "secret"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, underTest.getConnection("reporting", "secret"));
+    }
+
+    @Test
+    void shouldReportWhetherAnyReplicaIsHealthy() {
+        assertFalse(underTest.hasHealthyReplica());
+
+        underTest.getReplicas().get(0).updateLag(0);
+        assertTrue(underTest.hasHealthyReplica());
+
+        underTest.getReplicas().get(0).markDown();
+        assertFalse(underTest.hasHealthyReplica());
+    }
+}
@@ -0,0 +1,115 @@
+package com.ledger.pay.datasource;
+
+import com.ledger.pay.sharding.ShardContext;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShardRoutingDataSourceTest {
+
+    private final DataSource shard0 = mock(DataSource.class);
+    private final DataSource shard1 = mock(DataSource.class);
+    private final Connection shard0Connection = mock(Connection.class);
+    private final Connection shard1Connection = mock(Connection.class);
+    private ShardRoutingDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(shard0.getConnection()).thenReturn(shard0Connection);
+        when(shard1.getConnection()).thenReturn(shard1Connection);
+        underTest = new ShardRoutingDataSource(List.of(shard0, shard1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void shouldUseShardZeroWhenNoneIsBound() throws SQLException {
+        assertSame(shard0Connection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldUseTheBoundShardAndRestoreThePreviousOne() throws SQLException {
+        assertSame(shard1Connection, connectionOn(1));
+        assertSame(shard0Connection, underTest.getConnection());
+    }
+
+    @Test
+    void shouldPassExplicitCredentialsToTheBoundShard() throws SQLException {
+        Connection withCredentials = mock(Connection.class);
+        when(shard1.getConnection("report", "secret")).thenReturn(withCredentials);
+
+        Connection connection = ShardContext.call(1, () -> {
+            try {
+                return underTest.getConnection("report", "secret");
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+
+        assertSame(withCredentials, connection);
+    }
+
+    @Test
+    void shouldGateEachShardOnItsOwn() throws SQLException {
+        underTest.wrapShards((shard, pool) -> new ConnectionGateDataSource(pool, 1, Duration.ofMillis(10),
+                new SimpleMeterRegistry(), Tags.of("shard", String.valueOf(shard))));
+
+        Connection held = underTest.getConnection();
+
+        // Shard 0's only permit is taken; shard 1 still has its own.
+        assertThrows(SQLTransientConnectionException.class, underTest::getConnection);
+        assertNotNull(connectionOn(1));
+        held.close();
+        assertNotNull(underTest.getConnection());
+    }
+
+    @Test
+    void shouldRejectUnknownShards() {
+        UncheckedSQLException thrown = assertThrows(UncheckedSQLException.class, () -> connectionOn(2));
+
+        assertInstanceOf(SQLException.class, thrown.getCause());
+    }
+
+    @Test
+    void shouldNotSwitchShardsInsideATransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThrows(IllegalStateException.class, () -> ShardContext.call(1, () -> null));
+    }
+
+    private Connection connectionOn(int shard) {
+        return ShardContext.call(shard, () -> {
+            try {
+                return underTest.getConnection();
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+    }
+
+    private static class UncheckedSQLException extends RuntimeException {
+        UncheckedSQLException(SQLException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.ledger.pay.fees;
+
+import com.ledger.pay.config.FeeProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeeEngineTest {
+
+    private static final List<FeeProperties.Rule> RULES = List.of(
+            // Wallets in NGN: 10 flat below 5,000, then 1.5% capped at 2,000.
+            rule(null, "USER_WALLET", "NGN", "0", "10", null, null, null),
+            rule(null, "USER_WALLET", "NGN", "5000", null, "0.015", "50", "2000"),
+            // Any other account type in any currency.
+            rule(null, "*", "*", "0", "1", null, null, null),
+            // Merchants only pay on NGN amounts of 100 and more.
+            rule("merchant", null, "NGN", "100", "0.25", "0.001", null, null));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldPickTheBandContainingTheAmount() {
+        FeeEngine engine = engine(null, RULES);
+        Account wallet = account(AccountType.USER_WALLET, "NGN", null);
+
+        assertThat(engine.quote(wallet, new BigDecimal("4999.9999")).amount()).isEqualByComparingTo("10");
+        assertThat(engine.quote(wallet, new BigDecimal("5000")).amount()).isEqualTo(new BigDecimal("75.0000"));
+        // 1.5% of 1,000,000 is capped at 2,000.
+        assertThat(engine.quote(wallet, new BigDecimal("6000")).amount()).isEqualTo(new BigDecimal("90.0000"));
+        assertThat(engine.quote(wallet, new BigDecimal("1000000")).amount()).isEqualTo(new BigDecimal("2000.0000"));
+        assertThat(engine.quote(wallet, BigDecimal.ONE).revenueAccountRef()).isEqualTo("fees:revenue:NGN");
+    }
+
+    @Test
+    void shouldPreferTheMostSpecificRulesAndTheAccountsPlan() {
+        FeeEngine engine = engine(null, RULES);
+
+        assertThat(engine.quote(account(AccountType.USER_WALLET, "USD", null), BigDecimal.TEN).amount())
+                .isEqualByComparingTo("1");
+        assertThat(engine.quote(account(AccountType.SYSTEM, "NGN", null), BigDecimal.TEN).amount())
+                .isEqualByComparingTo("1");
+
+        Account merchant = account(AccountType.USER_WALLET, "NGN", "merchant");
+        assertThat(engine.quote(merchant, new BigDecimal("99.9999"))).isNull();
+        // 0.25 + 0.1 half-even at four decimals.
+        assertThat(engine.quote(merchant, new BigDecimal("100.00005")).amount()).isEqualTo(new BigDecimal("0.3500"));
+        // A plan replaces the default one: no merchant rule covers USD.
+        assertThat(engine.quote(account(AccountType.USER_WALLET, "USD", "merchant"), BigDecimal.TEN)).isNull();
+        // Unknown plans fall back to the default one.
+        assertThat(engine.quote(account(AccountType.USER_WALLET, "NGN", "gold"), BigDecimal.TEN).amount())
+                .isEqualByComparingTo("10");
+    }
+
+    @Test
+    void shouldChargeNothingWhenDisabled() {
+        FeeEngine engine = new FeeEngine(new FeeProperties(false, null, "standard", List.of("NGN"), 100, RULES),
+                new SimpleMeterRegistry());
+
+        assertThat(engine.quote(account(AccountType.USER_WALLET, "NGN", null), BigDecimal.TEN)).isNull();
+    }
+
+    @Test
+    void shouldRejectAmbiguousOrInvalidRules() {
+        assertThatThrownBy(() -> FeeSchedule.compile(List.of(
+                rule(null, "USER_WALLET", "NGN", "100", "1", null, null, null),
+                rule(null, "USER_WALLET", "NGN", "100.00", "2", null, null, null)), "standard", "test"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("duplicate band");
+        assertThatThrownBy(() -> FeeSchedule.compile(List.of(
+                rule(null, "SAVINGS", "NGN", "0", "1", null, null, null)), "standard", "test"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FeeSchedule.compile(List.of(
+                rule(null, null, "NGN", "0", null, "0.01", "10", "5")), "standard", "test"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSwapInAChangedFileAndKeepTheScheduleWhenItIsInvalid() throws Exception {
+        Path file = dir.resolve("fees.csv");
+        Files.writeString(file, "plan,accountType,currency,minAmount,fixed,rate,minFee,maxFee\n,*,*,0,5,,,\n");
+        FeeEngine engine = engine(file, RULES);
+        Account wallet = account(AccountType.USER_WALLET, "NGN", null);
+        assertThat(engine.quote(wallet, BigDecimal.TEN).amount()).isEqualByComparingTo("5");
+        assertThat(engine.reloadIfChanged()).isFalse();
+
+        Files.writeString(file, "# flat fee\n,USER_WALLET,NGN,0,7,,,\n,*,USD,0,0.5,,,\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(1)));
+        assertThat(engine.reloadIfChanged()).isTrue();
+        assertThat(engine.quote(wallet, BigDecimal.TEN).amount()).isEqualByComparingTo("7");
+        assertThat(engine.current().currencies()).containsExactlyInAnyOrder("NGN", "USD");
+
+        Files.writeString(file, ",USER_WALLET,NGN,0,not-a-fee,,,\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(2)));
+        assertThat(engine.reloadIfChanged()).isFalse();
+        assertThat(engine.quote(wallet, BigDecimal.TEN).amount()).isEqualByComparingTo("7");
+    }
+
+    private static FeeEngine engine(Path file, List<FeeProperties.Rule> rules) {
+        return new FeeEngine(new FeeProperties(true, file == null ? null : file.toString(), "standard",
+                List.of("NGN"), 100, rules), new SimpleMeterRegistry());
+    }
+
+    private static Account account(AccountType type, String currency, String plan) {
+        return Account.builder()
+                .accountRef("user:test:" + type)
+                .accountType(type)
+                .currency(currency)
+                .metadata(plan == null ? null : Map.of(FeeEngine.PLAN_METADATA_KEY, plan))
+                .build();
+    }
+
+    private static FeeProperties.Rule rule(String plan, String accountType, String currency, String minAmount,
+                                           String fixed, String rate, String minFee, String maxFee) {
+        return new FeeProperties.Rule(plan, accountType, currency, decimal(minAmount), decimal(fixed),
+                decimal(rate), decimal(minFee), decimal(maxFee));
+    }
+
+    private static BigDecimal decimal(String value) {
+        return value == null ? null : new BigDecimal(value);
+    }
+}
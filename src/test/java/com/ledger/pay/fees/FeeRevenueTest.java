@@ -0,0 +1,175 @@
+package com.ledger.pay.fees;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Flushes fee credits into the NGN revenue account, which the component creates on startup.
+ * Credits are inserted the way transfers insert them: unlinked, without touching the account.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "app.fees.enabled=true")
+@Import({TestAuditingConfig.class, SimpleMeterRegistry.class, FeeRevenue.class, FeeEngine.class, ShardRouter.class,
+        HashChain.class, FeeRevenueTest.Config.class})
+class FeeRevenueTest {
+
+    private static final String REVENUE = FeeEngine.revenueAccountRef("NGN");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    @Autowired
+    FeeRevenue underTest;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    HashChain hashChain;
+    @MockitoBean
+    BalanceReadModel balanceReadModel;
+
+    @AfterEach
+    void tearDown() {
+        reset(hashChain);
+    }
+
+    @Test
+    void shouldLinkEachCreditOnceAndBringTheBalanceUpToDate() {
+        BigDecimal before = revenue().getAccountBalance();
+        credit("1.5");
+        credit("2");
+        credit("0.25");
+
+        int applied = underTest.flush();
+        int again = underTest.flush();
+
+        assertThat(applied).isEqualTo(3);
+        assertThat(again).isZero();
+        assertThat(revenue().getAccountBalance()).isEqualByComparingTo(before.add(new BigDecimal("3.75")));
+        assertLinkedAndBalanced();
+    }
+
+    @Test
+    void shouldRollBackTheLoserOfTwoConcurrentFlushes() throws Exception {
+        BigDecimal before = revenue().getAccountBalance();
+        credit("5");
+        credit("7");
+        // Both flushes read the account and its credits before either writes.
+        CountDownLatch bothRead = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            bothRead.countDown();
+            bothRead.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(hashChain).link(any(LedgerEntry.class));
+
+        List<Integer> applied;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<Integer> first = executor.submit(underTest::flush);
+            Future<Integer> second = executor.submit(underTest::flush);
+            applied = List.of(first.get(30, TimeUnit.SECONDS), second.get(30, TimeUnit.SECONDS));
+        }
+
+        assertThat(applied).containsExactlyInAnyOrder(2, 0);
+        assertThat(revenue().getAccountBalance()).isEqualByComparingTo(before.add(new BigDecimal("12")));
+        assertLinkedAndBalanced();
+    }
+
+    private void assertLinkedAndBalanced() {
+        Account revenue = revenue();
+        assertThat(ledgerEntryRepository.findUnchained(revenue.getId(), PageRequest.of(0, 10))).isEmpty();
+        Long positions = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT chain_sequence) FROM ledger_entries WHERE account_id = ?", Long.class,
+                revenue.getId());
+        Long entries = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM ledger_entries WHERE account_id = ?", Long.class, revenue.getId());
+        BigDecimal ledgerBalance = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END), 0) "
+                        + "FROM ledger_entries WHERE account_id = ?", BigDecimal.class, revenue.getId());
+        assertThat(positions).isEqualTo(entries);
+        assertThat(revenue.getAccountBalance()).isEqualByComparingTo(ledgerBalance);
+    }
+
+    private Account revenue() {
+        return accountRepository.findByAccountRef(REVENUE).orElseThrow();
+    }
+
+    private void credit(String amount) {
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                .reference("fee-" + UUID.randomUUID())
+                .type(TransactionType.TRANSFER)
+                .amount(new BigDecimal(amount))
+                .build());
+        ledgerEntryRepository.save(LedgerEntry.builder()
+                .transaction(transaction)
+                .account(revenue())
+                .entryType(LedgerEntryType.CREDIT)
+                .amount(new BigDecimal(amount))
+                .build());
+    }
+}
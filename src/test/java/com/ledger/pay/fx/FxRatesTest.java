@@ -0,0 +1,103 @@
+package com.ledger.pay.fx;
+
+import com.ledger.pay.config.FxProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FxRatesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldPrecomputeInversesOfStandInRates() {
+        FxRates rates = rates(null, Duration.ofHours(24));
+
+        assertThat(rates.current().rate("USD", "NGN")).isEqualByComparingTo("1550");
+        assertThat(rates.current().rate("NGN", "USD")).isEqualByComparingTo("0.0006451613");
+        assertThat(rates.current().currencies()).containsExactlyInAnyOrder("USD", "NGN");
+    }
+
+    @Test
+    void shouldRoundConversionsHalfEvenToFourDecimals() {
+        FxRates rates = rates(null, Duration.ofHours(24));
+
+        // 15500.00465 rounds to the even neighbour.
+        FxRates.Quote quote = rates.quote(new BigDecimal("10.000003"), "USD", "NGN");
+
+        assertThat(quote.converted()).isEqualTo(new BigDecimal("15500.0046"));
+        assertThatThrownBy(() -> rates.quote(new BigDecimal("0.0001"), "NGN", "USD"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rates.quote(BigDecimal.ONE, "USD", "EUR"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSwapInAChangedFileAndKeepTheTableWhenItIsInvalid() throws Exception {
+        Path file = dir.resolve("rates.csv");
+        Files.writeString(file, "base,quote,rate\nUSD,NGN,1600\n");
+        FxRates rates = rates(file, Duration.ofHours(24));
+        assertThat(rates.current().rate("USD", "NGN")).isEqualByComparingTo("1600");
+        assertThat(rates.reloadIfChanged()).isFalse();
+
+        Files.writeString(file, "USD,NGN,1650\nEUR,USD,1.08\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(1)));
+        assertThat(rates.reloadIfChanged()).isTrue();
+        assertThat(rates.current().rate("USD", "NGN")).isEqualByComparingTo("1650");
+        assertThat(rates.current().rate("USD", "EUR")).isNotNull();
+
+        Files.writeString(file, "USD,NGN,not-a-rate\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(2)));
+        assertThat(rates.reloadIfChanged()).isFalse();
+        assertThat(rates.current().rate("USD", "NGN")).isEqualByComparingTo("1650");
+    }
+
+    @Test
+    void shouldKeepTheTableWhenAFileQuotesARateThatIsNotPositive() throws Exception {
+        Path file = dir.resolve("rates.csv");
+        Files.writeString(file, "USD,NGN,1600\n");
+        FxRates rates = rates(file, Duration.ofHours(24));
+
+        Files.writeString(file, "USD,NGN,1650\nEUR,USD,0\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(1)));
+        assertThat(rates.reloadIfChanged()).isFalse();
+        Files.writeString(file, "USD,NGN,-1650\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(2)));
+        assertThat(rates.reloadIfChanged()).isFalse();
+
+        assertThat(rates.current().rate("USD", "NGN")).isEqualByComparingTo("1600");
+        assertThat(rates.current().currencies()).containsExactlyInAnyOrder("USD", "NGN");
+        assertThatThrownBy(() -> FxRates.parse(List.of("USD,NGN,0")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 1");
+    }
+
+    @Test
+    void shouldRefuseToConvertWithStaleFileRates() throws Exception {
+        Path file = dir.resolve("rates.csv");
+        Files.writeString(file, "USD,NGN,1600\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        FxRates rates = rates(file, Duration.ofHours(1));
+
+        assertThatThrownBy(() -> rates.quote(BigDecimal.TEN, "USD", "NGN"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static FxRates rates(Path file, Duration maxAge) {
+        return new FxRates(new FxProperties(file == null ? null : file.toString(), maxAge, 8,
+                Map.of("USDNGN", new BigDecimal("1550"))), new SimpleMeterRegistry());
+    }
+}
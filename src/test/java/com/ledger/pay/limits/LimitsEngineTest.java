@@ -0,0 +1,74 @@
+package com.ledger.pay.limits;
+
+import com.ledger.pay.config.LimitsProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LimitsEngineTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LimitsEngine engine = new LimitsEngine(new LimitsProperties(true, false,
+            new LimitsProperties.Rule(new BigDecimal("1000"), null, null),
+            Map.of(AccountType.USER_WALLET, new LimitsProperties.Rule(null, new BigDecimal("150"), 5))), registry);
+
+    @Test
+    void shouldApplyAccountTypeRulesOverDefaults() {
+        Account wallet = account(AccountType.USER_WALLET, null);
+
+        engine.reserve(wallet, new BigDecimal("100"));
+        LimitExceededException e = assertThrows(LimitExceededException.class,
+                () -> engine.reserve(wallet, new BigDecimal("50.0001")));
+
+        assertThat(e.getLimit()).isEqualTo(LimitExceededException.Limit.DAILY_OUTFLOW);
+        assertThat(registry.get("ledger.limits.rejected").tag("limit", "daily_outflow").counter().count()).isEqualTo(1);
+        assertThrows(LimitExceededException.class,
+                () -> engine.reserve(account(AccountType.EXTERNAL, null), new BigDecimal("1000.5")));
+    }
+
+    @Test
+    void shouldLetAccountMetadataOverrideRules() {
+        Account wallet = account(AccountType.USER_WALLET, Map.of("limits", Map.of("dailyOutflow", 500, "maxSingleAmount", "300")));
+
+        engine.reserve(wallet, new BigDecimal("300"));
+        LimitExceededException e = assertThrows(LimitExceededException.class,
+                () -> engine.reserve(wallet, new BigDecimal("300.01")));
+
+        assertThat(e.getLimit()).isEqualTo(LimitExceededException.Limit.MAX_SINGLE_AMOUNT);
+    }
+
+    @Test
+    void shouldCheckHoldsWithoutCountingThem() {
+        Account wallet = account(AccountType.USER_WALLET, null);
+
+        engine.checkOnly(wallet, new BigDecimal("150"));
+        engine.checkOnly(wallet, new BigDecimal("150"));
+        engine.recordOutflow(wallet, new BigDecimal("150"));
+
+        assertThrows(LimitExceededException.class, () -> engine.checkOnly(wallet, new BigDecimal("1")));
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        LimitsEngine disabled = new LimitsEngine(new LimitsProperties(false, false,
+                new LimitsProperties.Rule(BigDecimal.ONE, BigDecimal.ONE, 1), null), new SimpleMeterRegistry());
+
+        assertDoesNotThrow(() -> disabled.reserve(account(AccountType.USER_WALLET, null), new BigDecimal("10")));
+    }
+
+    private Account account(AccountType type, Map<String, Object> metadata) {
+        return Account.builder()
+                .accountRef("limits:" + type.name().toLowerCase())
+                .accountType(type)
+                .metadata(metadata)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.ledger.pay.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VelocityCountersTest {
+
+    private static final String ACCOUNT = "user:alice:wallet";
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(20_000));
+    private final VelocityCounters counters = new VelocityCounters(now::get);
+
+    @Test
+    void shouldRejectOverDailyOutflowUntilTheWindowSlides() {
+        counters.reserve(ACCOUNT, 600, 1_000, Long.MAX_VALUE);
+        now.addAndGet(TimeUnit.HOURS.toMillis(12));
+        counters.reserve(ACCOUNT, 400, 1_000, Long.MAX_VALUE);
+
+        LimitExceededException e = assertThrows(LimitExceededException.class,
+                () -> counters.reserve(ACCOUNT, 1, 1_000, Long.MAX_VALUE));
+        assertThat(e.getLimit()).isEqualTo(LimitExceededException.Limit.DAILY_OUTFLOW);
+        assertThat(counters.outflow(ACCOUNT)).isEqualTo(1_000);
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(12));
+        counters.reserve(ACCOUNT, 600, 1_000, Long.MAX_VALUE);
+        assertThat(counters.outflow(ACCOUNT)).isEqualTo(1_000);
+    }
+
+    @Test
+    void shouldRejectOverPerMinuteCountWithRetryAfter() {
+        counters.reserve(ACCOUNT, 1, Long.MAX_VALUE, 2);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(30));
+        counters.reserve(ACCOUNT, 1, Long.MAX_VALUE, 2);
+
+        LimitExceededException e = assertThrows(LimitExceededException.class,
+                () -> counters.reserve(ACCOUNT, 1, Long.MAX_VALUE, 2));
+        assertThat(e.getLimit()).isEqualTo(LimitExceededException.Limit.PER_MINUTE_COUNT);
+        assertThat(e.getRetryAfterSeconds()).isBetween(1L, 31L);
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(31));
+        counters.reserve(ACCOUNT, 1, Long.MAX_VALUE, 2);
+    }
+
+    @Test
+    void shouldTakeReleasedReservationBackOutOnce() {
+        VelocityCounters.Reservation reservation = counters.reserve(ACCOUNT, 500, 1_000, Long.MAX_VALUE);
+        counters.reserve(ACCOUNT, 300, 1_000, Long.MAX_VALUE);
+
+        reservation.release();
+        reservation.release();
+
+        assertThat(counters.outflow(ACCOUNT)).isEqualTo(300);
+        assertThat(counters.count(ACCOUNT)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseAnOperationByTheTimeItWasCountedAt() {
+        long deferredAt = now.get();
+        counters.reserve(ACCOUNT, 500, 1_000, Long.MAX_VALUE);
+        now.addAndGet(TimeUnit.HOURS.toMillis(2));
+        counters.reserve(ACCOUNT, 300, 1_000, Long.MAX_VALUE);
+
+        counters.release(ACCOUNT, 500, deferredAt);
+        // Counted on another node, so there is nothing left to take back here.
+        counters.release(ACCOUNT, 500, deferredAt);
+
+        assertThat(counters.outflow(ACCOUNT)).isEqualTo(300);
+        assertThat(counters.count(ACCOUNT)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreRecordsOlderThanTheWindowAndEvictIdleAccounts() {
+        counters.record(ACCOUNT, 500, now.get() - TimeUnit.HOURS.toMillis(25));
+        counters.record("user:bob:wallet", 500, now.get() - TimeUnit.HOURS.toMillis(23));
+        assertThat(counters.outflow(ACCOUNT)).isZero();
+        assertThat(counters.outflow("user:bob:wallet")).isEqualTo(500);
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(2));
+        assertThat(counters.evictIdle()).isEqualTo(1);
+        assertThat(counters.size()).isZero();
+    }
+}
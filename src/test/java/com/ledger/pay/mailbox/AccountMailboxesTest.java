@@ -0,0 +1,175 @@
+package com.ledger.pay.mailbox;
+
+import com.ledger.pay.config.MailboxProperties;
+import com.ledger.pay.sharding.ShardContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountMailboxesTest {
+
+    private final CountingTransactionManager transactionManager = new CountingTransactionManager();
+    private final AccountMailboxes underTest = new AccountMailboxes(
+            new MailboxProperties(true, 10_000, 32), transactionManager, new SimpleMeterRegistry());
+
+    @Test
+    void shouldSerializeOperationsOnTheSameAccountUnderContention() throws Exception {
+        int threads = 64;
+        int operationsPerThread = 500;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        long[] balance = {0};
+
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(callers.submit(() -> {
+                for (int i = 0; i < operationsPerThread; i++) {
+                    underTest.execute("user:alice:wallet", () -> {
+                        if (running.incrementAndGet() != 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        // Deliberately unsynchronized: only safe if the mailbox serializes.
+                        balance[0] = balance[0] + 1;
+                        running.decrementAndGet();
+                        return null;
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        assertEquals(0, overlaps.get());
+        assertEquals((long) threads * operationsPerThread, balance[0]);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (underTest.activeMailboxes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(underTest.activeMailboxes()).isZero();
+    }
+
+    @Test
+    void shouldRunIndependentAccountsInParallel() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+
+        Future<Boolean> alice = callers.submit(() -> underTest.execute("user:alice:wallet", () -> awaitLatch(bothRunning)));
+        Future<Boolean> bob = callers.submit(() -> underTest.execute("user:bob:wallet", () -> awaitLatch(bothRunning)));
+
+        assertThat(alice.get(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(bob.get(10, TimeUnit.SECONDS)).isTrue();
+        callers.shutdown();
+    }
+
+    @Test
+    void shouldIsolateFailingOperationInCoalescedBatch() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+
+        Future<String> first = callers.submit(() -> underTest.execute("user:alice:wallet", () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            return "first";
+        }));
+        firstStarted.await(10, TimeUnit.SECONDS);
+
+        List<Future<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String result = "op-" + i;
+            queued.add(callers.submit(() -> underTest.execute("user:alice:wallet", () -> result)));
+        }
+        Future<String> failing = callers.submit(() -> underTest.execute("user:alice:wallet", () -> {
+            throw new IllegalStateException("Insufficient funds");
+        }));
+        Thread.sleep(200);
+        releaseFirst.countDown();
+
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        for (int i = 0; i < queued.size(); i++) {
+            assertEquals("op-" + i, queued.get(i).get(10, TimeUnit.SECONDS));
+        }
+        Exception e = assertThrows(Exception.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertThat(e).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(transactionManager.rollbacks.get()).isPositive();
+        callers.shutdown();
+    }
+
+    @Test
+    void shouldRunEachOperationOnItsCallersShard() throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+
+        Future<Integer> first = callers.submit(() -> ShardContext.call(1, () -> underTest.execute("user:alice:wallet", () -> {
+            firstStarted.countDown();
+            await(releaseFirst);
+            return ShardContext.current();
+        })));
+        firstStarted.await(10, TimeUnit.SECONDS);
+        Future<Integer> onShardTwo = callers.submit(() -> ShardContext.call(2,
+                () -> underTest.execute("user:alice:wallet", ShardContext::current)));
+        Future<Integer> onShardZero = callers.submit(() -> underTest.execute("user:alice:wallet", ShardContext::current));
+        Thread.sleep(200);
+        releaseFirst.countDown();
+
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(2, onShardTwo.get(10, TimeUnit.SECONDS));
+        assertEquals(0, onShardZero.get(10, TimeUnit.SECONDS));
+        callers.shutdown();
+    }
+
+    private static boolean awaitLatch(CountDownLatch latch) {
+        latch.countDown();
+        return await(latch);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static class CountingTransactionManager extends AbstractPlatformTransactionManager {
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
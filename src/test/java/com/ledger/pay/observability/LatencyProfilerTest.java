@@ -0,0 +1,76 @@
+package com.ledger.pay.observability;
+
+import com.ledger.pay.config.LatencyProperties;
+import com.ledger.pay.config.MailboxProperties;
+import com.ledger.pay.mailbox.AccountMailboxes;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.mock;
+
+class LatencyProfilerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LatencyProfiler underTest = new LatencyProfiler(new LatencyProperties(true, 2, Duration.ofMinutes(1),
+            Duration.ofMillis(20), false, Duration.ofMinutes(15), DataSize.ofMegabytes(256), ""), registry);
+
+    @Test
+    void shouldFollowTheRequestIntoTheMailboxAndSplitItIntoPhases() {
+        AccountMailboxes mailboxes = new AccountMailboxes(new MailboxProperties(true, 100, 8),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+        underTest.profile(LatencyProfiler.Operation.TRANSFER, "ref-1", () -> mailboxes.execute("user:alice:wallet", () -> {
+            long started = RequestTimeline.start();
+            sleep(5);
+            started = RequestTimeline.end(RequestTimeline.Phase.LOCK, started);
+            sleep(2);
+            return RequestTimeline.end(RequestTimeline.Phase.FLUSH, started);
+        }));
+        mailboxes.shutdown();
+
+        LatencyProfiler.Exemplar exemplar = underTest.exemplars().get("transfer").getFirst();
+        assertThat(exemplar.reference()).isEqualTo("ref-1");
+        assertThat(exemplar.phasesMillis()).containsKeys("queue", "lock", "flush", "other");
+        assertThat(exemplar.phasesMillis().get("lock")).isGreaterThanOrEqualTo(5.0);
+        assertThat(exemplar.phasesMillis().get("flush")).isGreaterThanOrEqualTo(2.0);
+        assertThat(exemplar.phasesMillis().values().stream().mapToDouble(Double::doubleValue).sum())
+                .isCloseTo(exemplar.totalMillis(), offset(0.01));
+        assertThat(registry.get("ledger.request.phase").tags("operation", "transfer", "phase", "lock").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepExemplarsPerOperation() {
+        underTest.profile(LatencyProfiler.Operation.DEPOSIT, "dep-1", () -> null);
+        underTest.profile(LatencyProfiler.Operation.OUTBOX, "42", () -> null);
+
+        assertThat(underTest.exemplars().get("deposit")).extracting(LatencyProfiler.Exemplar::reference)
+                .containsExactly("dep-1");
+        assertThat(underTest.exemplars().get("outbox")).extracting(LatencyProfiler.Exemplar::reference)
+                .containsExactly("42");
+        assertThat(underTest.exemplars().get("transfer")).isEmpty();
+    }
+
+    @Test
+    void shouldNotReadTheClockWithoutAProfiledRequest() {
+        long started = RequestTimeline.start();
+
+        assertThat(started).isZero();
+        assertThat(RequestTimeline.end(RequestTimeline.Phase.LOCK, started)).isZero();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.ledger.pay.observability;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowestRequestsTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final long now = System.nanoTime();
+    private final SlowestRequests underTest = new SlowestRequests(2, WINDOW);
+
+    @Test
+    void shouldKeepTheSlowestRequestsSlowestFirst() {
+        underTest.offer(timeline("dep-1", 1), now);
+        underTest.offer(timeline("dep-12", 12), now);
+        underTest.offer(timeline("dep-6", 6), now);
+        underTest.offer(timeline("dep-3", 3), now);
+
+        assertThat(references(underTest.snapshot(now))).containsExactly("dep-12", "dep-6");
+    }
+
+    @Test
+    void shouldCarryThePreviousWindowOverButNotAnOlderOne() {
+        underTest.offer(timeline("old-9", 9), now);
+        long next = now + WINDOW.plusSeconds(1).toNanos();
+        underTest.offer(timeline("new-4", 4), next);
+
+        assertThat(references(underTest.snapshot(next))).containsExactly("old-9", "new-4");
+        assertThat(references(underTest.snapshot(next + 2 * WINDOW.toNanos()))).isEmpty();
+    }
+
+    private static RequestTimeline timeline(String reference, long millis) {
+        RequestTimeline timeline = new RequestTimeline(LatencyProfiler.Operation.DEPOSIT, reference);
+        timeline.totalNanos = Duration.ofMillis(millis).toNanos();
+        return timeline;
+    }
+
+    private static List<String> references(List<RequestTimeline> timelines) {
+        return timelines.stream().map(timeline -> timeline.reference).toList();
+    }
+}
@@ -0,0 +1,102 @@
+package com.ledger.pay.readmodel;
+
+import com.ledger.pay.config.ReadModelProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.repository.AccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceQueryServiceTest {
+
+    private static final String ACCOUNT = "user:alice:wallet";
+
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BalanceReadModel readModel = new BalanceReadModel(registry);
+    private final BalanceQueryService underTest = new BalanceQueryService(readModel, accountRepository,
+            transactionManager, new ReadModelProperties(10_000), registry);
+
+    @BeforeEach
+    void setUp() {
+        Account account = Account.builder()
+                .accountRef(ACCOUNT)
+                .accountType(AccountType.USER_WALLET)
+                .currency("NGN")
+                .accountBalance(new BigDecimal("90"))
+                .build();
+        account.setVersion(7);
+        when(accountRepository.findByAccountRef(ACCOUNT)).thenReturn(Optional.of(account));
+    }
+
+    @Test
+    void shouldServeAFreshValueWithoutTheDatabase() {
+        readModel.apply(view(7, Instant.now().minusSeconds(2)));
+
+        Optional<BalanceView> balance = underTest.getBalance(ACCOUNT);
+
+        assertThat(balance).hasValueSatisfying(view -> assertThat(view.balance()).isEqualByComparingTo("90"));
+        verify(accountRepository, never()).findByAccountRef(any());
+        assertThat(staleReads()).isZero();
+    }
+
+    @Test
+    void shouldReadAValuePastTheBoundFromThePrimaryAndRefreshIt() {
+        // Another node's write at version 7 was never delivered here.
+        readModel.apply(view(6, Instant.now().minusSeconds(11)));
+
+        Optional<BalanceView> balance = underTest.getBalance(ACCOUNT);
+
+        assertThat(balance).hasValueSatisfying(view -> {
+            assertThat(view.version()).isEqualTo(7);
+            assertThat(view.balance()).isEqualByComparingTo("90");
+        });
+        assertThat(transaction().isReadOnly()).isFalse();
+        assertThat(readModel.get(ACCOUNT).orElseThrow().version()).isEqualTo(7);
+        assertThat(staleReads()).isEqualTo(1);
+
+        underTest.getBalance(ACCOUNT);
+
+        verify(accountRepository).findByAccountRef(ACCOUNT);
+    }
+
+    @Test
+    void shouldLoadAnUnseenAccountInAReadOnlyTransaction() {
+        Optional<BalanceView> balance = underTest.getBalance(ACCOUNT);
+
+        assertThat(balance).isPresent();
+        assertThat(transaction().isReadOnly()).isTrue();
+        assertThat(readModel.get(ACCOUNT)).isPresent();
+        assertThat(staleReads()).isZero();
+    }
+
+    private TransactionDefinition transaction() {
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        return definition.getValue();
+    }
+
+    private double staleReads() {
+        return registry.get("ledger.readmodel.stale").counter().count();
+    }
+
+    private static BalanceView view(long version, Instant asOf) {
+        return new BalanceView(ACCOUNT, new BigDecimal("90"), BigDecimal.ZERO, "NGN", version, asOf);
+    }
+}
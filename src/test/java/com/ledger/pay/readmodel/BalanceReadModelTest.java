@@ -0,0 +1,46 @@
+package com.ledger.pay.readmodel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BalanceReadModelTest {
+
+    private static final String ACCOUNT = "user:alice:wallet";
+    private static final Instant NOW = Instant.parse("2025-01-01T10:00:00Z");
+
+    private final BalanceReadModel underTest = new BalanceReadModel(new SimpleMeterRegistry());
+
+    @Test
+    void shouldOnlyMoveForwardInVersion() {
+        underTest.apply(view("100", 5, NOW));
+        underTest.apply(view("40", 4, NOW.plusSeconds(1)));
+        underTest.apply(view("100", 5, NOW));
+
+        assertThat(underTest.get(ACCOUNT)).hasValueSatisfying(view -> {
+            assertThat(view.balance()).isEqualByComparingTo("100");
+            assertThat(view.version()).isEqualTo(5);
+        });
+
+        underTest.apply(view("70", 6, NOW));
+
+        assertThat(underTest.get(ACCOUNT).orElseThrow().balance()).isEqualByComparingTo("70");
+    }
+
+    @Test
+    void shouldRefreshAsOfWhenTheSameVersionIsReadAgain() {
+        underTest.apply(view("100", 5, NOW));
+        underTest.apply(view("100", 5, NOW.plusSeconds(30)));
+        underTest.apply(view("100", 5, NOW.plusSeconds(10)));
+
+        assertThat(underTest.get(ACCOUNT).orElseThrow().asOf()).isEqualTo(NOW.plusSeconds(30));
+    }
+
+    private static BalanceView view(String balance, long version, Instant asOf) {
+        return new BalanceView(ACCOUNT, new BigDecimal(balance), BigDecimal.ZERO, "NGN", version, asOf);
+    }
+}
@@ -0,0 +1,98 @@
+package com.ledger.pay.repository;
+
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TestAuditingConfig.class, OutboxRepositoryTest.Config.class})
+class OutboxRepositoryTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+
+    @Autowired
+    OutboxRepository underTest;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final List<Long> ids = new ArrayList<>();
+    private LocalDateTime before;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 4; i++) {
+            ids.add(underTest.save(Outbox.builder()
+                    .aggregateType(AggregateType.TRANSACTION)
+                    .aggregateId(String.valueOf(i))
+                    .eventType(EventType.TRANSFER_COMPLETED)
+                    .payload(Map.of("transactionRef", "ref-" + i))
+                    .build()).getId());
+        }
+        before = LocalDateTime.now().plusMinutes(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.deleteAll();
+    }
+
+    @Test
+    void shouldReturnEveryEventOnceAllHaveSettled() {
+        List<Outbox> page = underTest.findAfterId(ids.get(0), before, PageRequest.of(0, 10));
+
+        assertThat(page).extracting(Outbox::getId).containsExactly(ids.get(1), ids.get(2), ids.get(3));
+    }
+
+    @Test
+    void shouldStopBeforeTheFirstEventThatHasNotSettled() {
+        // The second event is still settling; the ones after it have settled but must wait.
+        jdbcTemplate.update("UPDATE outbox SET created_at = ? WHERE id = ?", before.plusSeconds(5), ids.get(1));
+
+        List<Outbox> page = underTest.findAfterId(0, before, PageRequest.of(0, 10));
+        List<Outbox> next = underTest.findAfterId(ids.get(0), before, PageRequest.of(0, 10));
+
+        assertThat(page).extracting(Outbox::getId).containsExactly(ids.get(0));
+        assertThat(next).isEmpty();
+    }
+}
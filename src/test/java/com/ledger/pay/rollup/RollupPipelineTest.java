@@ -0,0 +1,199 @@
+package com.ledger.pay.rollup;
+
+import com.ledger.pay.config.RollupProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.RollupCursor;
+import com.ledger.pay.domain.RollupWatermark;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.BalanceRollupRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.RollupCursorRepository;
+import com.ledger.pay.repository.RollupWatermarkRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RollupPipelineTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 19, 12, 0);
+
+    private final LedgerEntryRepository ledgerEntryRepository = mock(LedgerEntryRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final RollupCursorRepository cursorRepository = mock(RollupCursorRepository.class);
+    private final RollupWatermarkRepository watermarkRepository = mock(RollupWatermarkRepository.class);
+    private final BalanceRollupRepository rollupRepository = mock(BalanceRollupRepository.class);
+    private final RollupPipeline underTest = new RollupPipeline(
+            new RollupProperties(true, 100, 10, Duration.ofSeconds(10)), ledgerEntryRepository,
+            accountRepository, cursorRepository, watermarkRepository, rollupRepository, mock(ShardRouter.class),
+            mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    private final Account alice = account(1, AccountType.USER_WALLET);
+    private final Account bob = account(2, AccountType.USER_WALLET);
+    private final Account revenue = account(3, AccountType.FEE_REVENUE);
+
+    @Test
+    void shouldRollUpInChainOrderAndHoldBackWhatCannotBeAppliedYet() {
+        RollupWatermark watermark = watermark(0);
+        when(ledgerEntryRepository.findAfterId(eq(0L), any())).thenReturn(List.of(
+                entry(1, alice, 2L, LedgerEntryType.DEBIT, "30", NOW.minusMinutes(100)),
+                entry(2, alice, 1L, LedgerEntryType.CREDIT, "100", NOW.minusMinutes(110)),
+                entry(3, bob, 1L, LedgerEntryType.CREDIT, "5", NOW.minusSeconds(1)),
+                entry(4, revenue, null, LedgerEntryType.CREDIT, "0.5", NOW.minusMinutes(100)),
+                entry(5, alice, 4L, LedgerEntryType.DEBIT, "10", NOW.minusMinutes(90)),
+                entry(6, bob, null, LedgerEntryType.CREDIT, "7", NOW.minusMinutes(100))));
+        when(accountRepository.findIdsByAccountType(AccountType.FEE_REVENUE)).thenReturn(List.of(3L));
+        when(cursorRepository.findAllByAccountIdIn(any())).thenReturn(List.of());
+        when(ledgerEntryRepository.balanceBefore(1L, 1L)).thenReturn(new BigDecimal("50"));
+        when(ledgerEntryRepository.balanceBefore(2L, 1L)).thenReturn(BigDecimal.ZERO);
+
+        RollupPipeline.Page page = underTest.rollUp(null, NOW);
+
+        // Alice's sequence 3 is missing, Bob's entry is too young and the fee credit is unlinked;
+        // Bob's unchained entry predates the chain and is skipped.
+        assertThat(page).isEqualTo(new RollupPipeline.Page(6, 6, 2, 3));
+        verify(rollupRepository).add(1L, "HOUR", LocalDateTime.of(2026, 10, 19, 10, 0), new BigDecimal("100"),
+                new BigDecimal("30"), 1, 1, new BigDecimal("120"), 2);
+        verify(rollupRepository).add(1L, "DAY", LocalDateTime.of(2026, 10, 19, 0, 0), new BigDecimal("100"),
+                new BigDecimal("30"), 1, 1, new BigDecimal("120"), 2);
+        verify(rollupRepository, never()).add(eq(2L), anyString(), any(), any(), any(), anyLong(), anyLong(),
+                any(), anyLong());
+        ArgumentCaptor<List<RollupCursor>> cursors = cursorCaptor();
+        verify(cursorRepository).saveAll(cursors.capture());
+        assertThat(cursors.getValue()).singleElement().satisfies(cursor -> {
+            assertThat(cursor.getAccountId()).isEqualTo(1L);
+            assertThat(cursor.getLastSequence()).isEqualTo(2);
+            assertThat(cursor.getBalance()).isEqualByComparingTo("120");
+        });
+        assertThat(watermark.getLastEntryId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCountEntriesTwiceWhenAPageIsReadAgain() {
+        RollupWatermark watermark = watermark(2);
+        when(ledgerEntryRepository.findAfterId(eq(2L), any())).thenReturn(List.of(
+                entry(3, bob, 1L, LedgerEntryType.CREDIT, "5", NOW.minusMinutes(5)),
+                entry(5, alice, 4L, LedgerEntryType.DEBIT, "10", NOW.minusMinutes(90)),
+                entry(7, alice, 3L, LedgerEntryType.DEBIT, "20", NOW.minusMinutes(5))));
+        when(cursorRepository.findAllByAccountIdIn(any())).thenReturn(List.of(
+                RollupCursor.builder().accountId(1L).lastSequence(2).balance(new BigDecimal("120")).build(),
+                RollupCursor.builder().accountId(2L).lastSequence(1).balance(new BigDecimal("5")).build()));
+
+        RollupPipeline.Page page = underTest.rollUp(null, NOW);
+
+        // Sequence 4 was posted in an earlier hour than 3 but follows it, so it closes the day.
+        assertThat(page).isEqualTo(new RollupPipeline.Page(3, 7, 2, 0));
+        verify(rollupRepository).add(1L, "HOUR", LocalDateTime.of(2026, 10, 19, 10, 0), BigDecimal.ZERO,
+                new BigDecimal("10"), 0, 1, new BigDecimal("90"), 4);
+        verify(rollupRepository).add(1L, "HOUR", LocalDateTime.of(2026, 10, 19, 11, 0), BigDecimal.ZERO,
+                new BigDecimal("20"), 0, 1, new BigDecimal("100"), 3);
+        verify(rollupRepository).add(1L, "DAY", LocalDateTime.of(2026, 10, 19, 0, 0), BigDecimal.ZERO,
+                new BigDecimal("30"), 0, 2, new BigDecimal("90"), 4);
+        verify(ledgerEntryRepository, never()).balanceBefore(anyLong(), anyLong());
+        assertThat(watermark.getLastEntryId()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldLeaveTheWatermarkWhereAnEarlierPageHeldBack() {
+        RollupWatermark watermark = watermark(2);
+        when(ledgerEntryRepository.findAfterId(eq(6L), any())).thenReturn(List.of(
+                entry(7, alice, 3L, LedgerEntryType.DEBIT, "20", NOW.minusMinutes(5))));
+        when(cursorRepository.findAllByAccountIdIn(any())).thenReturn(List.of(
+                RollupCursor.builder().accountId(1L).lastSequence(2).balance(new BigDecimal("120")).build()));
+
+        RollupPipeline.Page page = underTest.rollUp(6L, NOW);
+
+        assertThat(page).isEqualTo(new RollupPipeline.Page(1, 7, 1, 0));
+        assertThat(watermark.getLastEntryId()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReadAnEntryThatCommittedAfterTheWatermarkPassedIt() {
+        // Entry 8 (Alice's sequence 3) was inserted before entry 12 but committed after the
+        // watermark had already moved past its id.
+        RollupWatermark watermark = watermark(10);
+        when(ledgerEntryRepository.findAfterId(eq(10L), any())).thenReturn(List.of(
+                entry(12, alice, 4L, LedgerEntryType.CREDIT, "15", NOW.minusMinutes(5))));
+        when(cursorRepository.findAllByAccountIdIn(any())).thenReturn(List.of(
+                RollupCursor.builder().accountId(1L).lastSequence(2).balance(new BigDecimal("120")).build()));
+        when(ledgerEntryRepository.findChainRange(1L, 3L, 3L)).thenReturn(List.of(
+                entry(8, alice, 3L, LedgerEntryType.DEBIT, "20", NOW.minusMinutes(30))));
+
+        RollupPipeline.Page page = underTest.rollUp(null, NOW);
+
+        assertThat(page).isEqualTo(new RollupPipeline.Page(1, 12, 2, 0));
+        verify(rollupRepository).add(1L, "HOUR", LocalDateTime.of(2026, 10, 19, 11, 0), new BigDecimal("15"),
+                new BigDecimal("20"), 1, 1, new BigDecimal("115"), 4);
+        ArgumentCaptor<List<RollupCursor>> cursors = cursorCaptor();
+        verify(cursorRepository).saveAll(cursors.capture());
+        assertThat(cursors.getValue()).singleElement().satisfies(cursor -> {
+            assertThat(cursor.getLastSequence()).isEqualTo(4);
+            assertThat(cursor.getBalance()).isEqualByComparingTo("115");
+        });
+        assertThat(watermark.getLastEntryId()).isEqualTo(12);
+    }
+
+    @Test
+    void shouldSkipAShardWhoseWatermarkIsLocked() {
+        when(watermarkRepository.findByNameForUpdate(RollupPipeline.WATERMARK)).thenReturn(Optional.empty());
+
+        assertThat(underTest.rollUp(null, NOW)).isNull();
+        verify(ledgerEntryRepository, never()).findAfterId(anyLong(), any());
+    }
+
+    private RollupWatermark watermark(long lastEntryId) {
+        RollupWatermark watermark = RollupWatermark.builder()
+                .name(RollupPipeline.WATERMARK)
+                .lastEntryId(lastEntryId)
+                .build();
+        when(watermarkRepository.findByNameForUpdate(RollupPipeline.WATERMARK)).thenReturn(Optional.of(watermark));
+        return watermark;
+    }
+
+    private static LedgerEntry entry(long id, Account account, Long sequence, LedgerEntryType type, String amount,
+                                     LocalDateTime createdAt) {
+        LedgerEntry entry = LedgerEntry.builder()
+                .account(account)
+                .entryType(type)
+                .amount(new BigDecimal(amount))
+                .sequence(sequence)
+                .build();
+        entry.setId(id);
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+
+    private static Account account(long id, AccountType type) {
+        Account account = Account.builder()
+                .accountRef("account-" + id)
+                .accountType(type)
+                .build();
+        account.setId(id);
+        return account;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<RollupCursor>> cursorCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
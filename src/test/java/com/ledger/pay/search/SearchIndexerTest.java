@@ -0,0 +1,171 @@
+package com.ledger.pay.search;
+
+import com.ledger.pay.config.SearchProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.SearchWatermark;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.AggregateType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.SearchWatermarkRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchIndexerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 19, 12, 0);
+
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final LedgerEntryRepository ledgerEntryRepository = mock(LedgerEntryRepository.class);
+    private final SearchWatermarkRepository watermarkRepository = mock(SearchWatermarkRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SearchIndexer underTest = new SearchIndexer(
+            new SearchProperties(true, 100, 10, Duration.ofSeconds(10), 200, Duration.ofSeconds(2)),
+            outboxRepository, transactionRepository, ledgerEntryRepository, watermarkRepository, jdbcTemplate,
+            mock(ShardRouter.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+
+    @Test
+    void shouldIndexTheTransactionsNamedByOutboxEvents() throws Exception {
+        SearchWatermark watermark = watermark(SearchIndexer.OUTBOX, 40, null);
+        Transaction transfer = transaction(7, "inv-2026-001", Map.of("orderId", "A-1042", "lines", List.of(1, 2)));
+        Transaction original = transaction(3, "inv-2026-000", null);
+        when(outboxRepository.findAfterId(eq(40L), eq(NOW.minusSeconds(10)), any())).thenReturn(List.of(
+                event(41, AggregateType.TRANSACTION, "7", Map.of("transactionRef", "inv-2026-001")),
+                event(42, AggregateType.TRANSACTION, "9", Map.of("originalRef", "inv-2026-000")),
+                event(43, AggregateType.HOLD, "5", Map.of("holdRef", "h-1"))));
+        when(transactionRepository.findAllById(Set.of(7L, 9L))).thenReturn(List.of(transfer));
+        when(transactionRepository.findAllByReferenceIn(Set.of("inv-2026-001", "inv-2026-000")))
+                .thenReturn(List.of(transfer, original));
+        Account merchant = Account.builder()
+                .accountRef("merchant:acme:wallet")
+                .accountType(AccountType.USER_WALLET)
+                .metadata(Map.of("feePlan", "gold"))
+                .build();
+        when(ledgerEntryRepository.findAccountsByTransactionIds(List.of(7L, 3L)))
+                .thenReturn(List.<Object[]>of(new Object[]{7L, merchant}));
+
+        SearchIndexer.Page page = underTest.indexOutbox(NOW);
+
+        assertThat(page).isEqualTo(new SearchIndexer.Page(3, 2));
+        assertThat(watermark.getLastId()).isEqualTo(43);
+        List<String[]> terms = written();
+        assertThat(terms.get(0)).containsExactlyInAnyOrder("tx.key:orderId", "tx.value:orderId=A-1042",
+                "tx.key:lines", "account:merchant:acme:wallet", "account.key:feePlan", "account.value:feePlan=gold");
+        assertThat(terms.get(1)).isEmpty();
+    }
+
+    @Test
+    void shouldStopTheBackfillAtItsTarget() {
+        SearchWatermark watermark = watermark(SearchIndexer.BACKFILL, 0, 8L);
+        when(transactionRepository.findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(eq(0L), eq(8L), any()))
+                .thenReturn(List.of(transaction(3, "t-3", null), transaction(8, "t-8", null)));
+        when(ledgerEntryRepository.findAccountsByTransactionIds(any())).thenReturn(List.of());
+
+        assertThat(underTest.backfill()).isEqualTo(new SearchIndexer.Page(2, 2));
+        assertThat(watermark.getLastId()).isEqualTo(8);
+
+        assertThat(underTest.backfill()).isEqualTo(new SearchIndexer.Page(0, 0));
+        verify(transactionRepository).findByIdGreaterThanAndIdLessThanEqualOrderByIdAsc(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void shouldSkipASourceLockedByAnotherNode() {
+        when(watermarkRepository.findByNameForUpdate(SearchIndexer.OUTBOX)).thenReturn(Optional.empty());
+
+        assertThat(underTest.indexOutbox(NOW)).isNull();
+        verify(outboxRepository, never()).findAfterId(anyLong(), any(), any());
+    }
+
+    /**
+     * Runs the captured batch setter over each written transaction and returns their terms, in order.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String[]> written() throws Exception {
+        ArgumentCaptor<Collection<Object>> documents = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Object>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), documents.capture(), anyInt(), setter.capture());
+        List<String[]> terms = new ArrayList<>();
+        Connection connection = mock(Connection.class);
+        when(connection.createArrayOf(eq("text"), any())).thenAnswer(invocation -> {
+            terms.add(invocation.getArgument(1));
+            return null;
+        });
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getConnection()).thenReturn(connection);
+        for (Object document : documents.getValue()) {
+            setter.getValue().setValues(statement, document);
+        }
+        return terms;
+    }
+
+    private SearchWatermark watermark(String name, long lastId, Long targetId) {
+        SearchWatermark watermark = SearchWatermark.builder()
+                .name(name)
+                .lastId(lastId)
+                .targetId(targetId)
+                .build();
+        when(watermarkRepository.findByNameForUpdate(name)).thenReturn(Optional.of(watermark));
+        return watermark;
+    }
+
+    private static Outbox event(long id, AggregateType aggregateType, String aggregateId, Map<String, Object> payload) {
+        Outbox event = Outbox.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .eventType(EventType.TRANSFER_COMPLETED)
+                .payload(payload)
+                .build();
+        event.setId(id);
+        return event;
+    }
+
+    private static Transaction transaction(long id, String reference, Map<String, Object> metadata) {
+        Transaction transaction = Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(new BigDecimal("25"))
+                .description("invoice " + reference)
+                .metadata(metadata)
+                .build();
+        transaction.setId(id);
+        transaction.setCreatedAt(NOW.minusHours(1));
+        return transaction;
+    }
+}
@@ -1,27 +1,49 @@
 package com.ledger.pay.service;
 
+import com.ledger.pay.audit.HashChain;
 import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Hold;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Outbox;
 import com.ledger.pay.domain.Transaction;
 import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.HoldStatus;
 import com.ledger.pay.enums.TransactionStatus;
 import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.limits.LimitExceededException;
+import com.ledger.pay.limits.LimitsEngine;
 import com.ledger.pay.observability.LedgerMetrics;
+import com.ledger.pay.readmodel.BalanceReadModel;
 import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.HoldRepository;
 import com.ledger.pay.repository.LedgerEntryRepository;
 import com.ledger.pay.repository.OutboxRepository;
 import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.CrossShardTransfers;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,6 +64,18 @@ class LedgerServiceTest {
     KafkaEventPublisher kafkaEventPublisher;
    @Mock
    LedgerMetrics metrics;
+    @Mock
+    BalanceReadModel balanceReadModel;
+    @Mock
+    HoldRepository holdRepository;
+    @Mock
+    LimitsEngine limitsEngine;
+    @Mock
+    HashChain hashChain;
+    @Mock
+    FxRates fxRates;
+    @Mock
+    FeeEngine feeEngine;
 
     @Test
     void shouldSuccessfullyMakeATransfer() {
@@ -118,12 +152,298 @@ class LedgerServiceTest {
         assertEquals(ref, transaction.getReference());
     }
 
+    @Test
+    void shouldReserveAvailableBalanceWhenPlacingAHold() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Account destination = wallet("user:shop:wallet", BigDecimal.ZERO, BigDecimal.ZERO);
+        when(holdRepository.findByReference("hold-1")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate("user:alice:wallet")).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef("user:shop:wallet")).thenReturn(Optional.of(destination));
+        when(holdRepository.saveAndFlush(any(Hold.class))).thenAnswer(inv -> {
+            Hold hold = inv.getArgument(0);
+            hold.setId(1L);
+            return hold;
+        });
+
+        Hold hold = ledgerService.placeHold("user:alice:wallet", "user:shop:wallet", new BigDecimal("60"),
+                "hold-1", "card auth", Duration.ofHours(1));
+
+        assertEquals(HoldStatus.ACTIVE, hold.getStatus());
+        assertEquals(new BigDecimal("100"), source.getAccountBalance());
+        assertEquals(new BigDecimal("60"), source.getHeldBalance());
+        assertEquals(new BigDecimal("40"), source.getAvailableBalance());
+    }
+
+    @Test
+    void shouldRejectTransferAboveAvailableBalance() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        source.hold(new BigDecimal("60"));
+        Account destination = wallet("user:bob:wallet", BigDecimal.ZERO, BigDecimal.ZERO);
+        when(transactionRepository.findByReference("ref-2")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate("user:alice:wallet")).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef("user:bob:wallet")).thenReturn(Optional.of(destination));
+
+        IllegalStateException rejected = assertThrows(IllegalStateException.class, () -> ledgerService.transfer(
+                "user:alice:wallet", "user:bob:wallet", new BigDecimal("50"), "ref-2", "transfer"));
+        assertEquals("Insufficient funds. Available: 40, Requested: 50", rejected.getMessage());
+    }
+
+    @Test
+    void shouldNotMoveMoneyWhenVelocityLimitIsExceeded() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Account destination = wallet("user:bob:wallet", BigDecimal.ZERO, BigDecimal.ZERO);
+        when(transactionRepository.findByReference("ref-3")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate("user:alice:wallet")).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef("user:bob:wallet")).thenReturn(Optional.of(destination));
+        doThrow(new LimitExceededException("limit", LimitExceededException.Limit.DAILY_OUTFLOW, 0))
+                .when(limitsEngine).reserve(source, new BigDecimal("50"));
+
+        assertThrows(LimitExceededException.class, () -> ledgerService.transfer("user:alice:wallet",
+                "user:bob:wallet", new BigDecimal("50"), "ref-3", "transfer"));
+        assertEquals(BigDecimal.ZERO, source.getTotalWithdrawal());
+        verify(transactionRepository, never()).saveAndFlush(any(Transaction.class));
+    }
+
+    @Test
+    void shouldCapturePartOfAHoldAndReleaseTheRest() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        source.setId(1L);
+        source.hold(new BigDecimal("60"));
+        Account destination = wallet("user:shop:wallet", BigDecimal.ZERO, BigDecimal.ZERO);
+        destination.setId(2L);
+        Hold hold = Hold.builder()
+                .reference("hold-2")
+                .sourceAccount(source)
+                .destinationAccount(destination)
+                .amount(new BigDecimal("60"))
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build();
+        when(holdRepository.findByReferenceForUpdate("hold-2")).thenReturn(Optional.of(hold));
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(source));
+        when(accountRepository.findById(2L)).thenReturn(Optional.of(destination));
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction tx = inv.getArgument(0);
+            tx.setId(3L);
+            return tx;
+        });
+
+        ledgerService.captureHold("hold-2", new BigDecimal("45"));
+
+        assertEquals(HoldStatus.CAPTURED, hold.getStatus());
+        assertEquals(TransactionType.CAPTURE, hold.getCaptureTransaction().getType());
+        assertEquals(new BigDecimal("55"), source.getAccountBalance());
+        assertEquals(0, source.getHeldBalance().signum());
+        assertEquals(new BigDecimal("45"), destination.getAccountBalance());
+    }
+
+    @Test
+    void shouldNotCaptureAnExpiredHold() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Hold hold = Hold.builder()
+                .reference("hold-3")
+                .sourceAccount(source)
+                .destinationAccount(source)
+                .amount(new BigDecimal("10"))
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+        when(holdRepository.findByReferenceForUpdate("hold-3")).thenReturn(Optional.of(hold));
+
+        assertThrows(IllegalStateException.class, () -> ledgerService.captureHold("hold-3", null));
+        assertEquals(HoldStatus.ACTIVE, hold.getStatus());
+    }
+
+    @Test
+    void shouldEmitAnEventPerExpiredHoldAndRefreshEachAccountOnce() {
+        Account alice = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        alice.setId(1L);
+        Account bob = wallet("user:bob:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        bob.setId(2L);
+        List<Hold> holds = List.of(expiredHold(11L, alice), expiredHold(12L, alice), expiredHold(13L, bob));
+        when(holdRepository.releaseExpired(100)).thenReturn(List.of(11L, 12L, 13L));
+        when(holdRepository.findAllWithSourceAccount(List.of(11L, 12L, 13L))).thenReturn(holds);
+
+        int accounts = ledgerService.releaseExpiredHolds(100);
+
+        assertEquals(2, accounts);
+        ArgumentCaptor<Outbox> events = ArgumentCaptor.forClass(Outbox.class);
+        verify(outboxRepository, times(3)).save(events.capture());
+        assertTrue(events.getAllValues().stream().allMatch(e -> e.getEventType() == EventType.HOLD_EXPIRED));
+        verify(balanceReadModel).applyAfterCommit(alice, bob);
+    }
+
+    @Test
+    void shouldDoNothingWhenNoHoldHasExpired() {
+        when(holdRepository.releaseExpired(100)).thenReturn(List.of());
+
+        assertEquals(0, ledgerService.releaseExpiredHolds(100));
+        verify(outboxRepository, never()).save(any(Outbox.class));
+        verify(balanceReadModel, never()).applyAfterCommit(any(Account[].class));
+    }
+
+    @Test
+    void shouldRejectAReplayThatFlipsTheConversionFlag() {
+        Transaction plain = Transaction.builder()
+                .reference("ref-fx-2")
+                .type(TransactionType.TRANSFER)
+                .amount(new BigDecimal("10"))
+                .idempotencyHash(ledgerService.computeIdempotencyHash("user:alice:wallet", "user:bob:usd", "10",
+                        "ref-fx-2"))
+                .build();
+        when(transactionRepository.findByReference("ref-fx-2")).thenReturn(Optional.of(plain));
+
+        assertSame(plain, ledgerService.transfer("user:alice:wallet", "user:bob:usd", new BigDecimal("10"),
+                "ref-fx-2", "fx", false));
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.transfer("user:alice:wallet",
+                "user:bob:usd", new BigDecimal("10"), "ref-fx-2", "fx", true));
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.findReplay("user:alice:wallet",
+                "user:bob:usd", new BigDecimal("10"), "ref-fx-2", true));
+    }
+
+    @Test
+    void shouldRejectCurrencyMismatchUnlessConversionIsRequested() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Account destination = wallet("user:bob:usd", BigDecimal.ZERO, BigDecimal.ZERO);
+        destination.setCurrency("USD");
+        when(transactionRepository.findByReference("ref-fx-1")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate(source.getAccountRef())).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef(destination.getAccountRef())).thenReturn(Optional.of(destination));
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class, () -> ledgerService.transfer(
+                source.getAccountRef(), destination.getAccountRef(), new BigDecimal("50"), "ref-fx-1", "transfer"));
+        assertTrue(rejected.getMessage().startsWith("Currency mismatch"));
+        assertEquals(new BigDecimal("100"), source.getAccountBalance());
+        assertEquals(new BigDecimal("100"), source.getAvailableBalance());
+        assertEquals(BigDecimal.ZERO, source.getTotalWithdrawal());
+        assertEquals(BigDecimal.ZERO, destination.getAccountBalance());
+        verify(limitsEngine, never()).reserve(any(), any());
+        verify(fxRates, never()).quote(any(), any(), any());
+        verify(transactionRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void shouldConvertThroughPositionAccounts() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("3100"), BigDecimal.ZERO);
+        source.setId(7L);
+        Account destination = wallet("user:bob:usd", BigDecimal.ZERO, BigDecimal.ZERO);
+        destination.setCurrency("USD");
+        Account ngnPosition = position("fx:position:NGN:7", "NGN");
+        Account usdPosition = position("fx:position:USD:7", "USD");
+        when(transactionRepository.findByReference("ref-fx-2")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate(source.getAccountRef())).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef(destination.getAccountRef())).thenReturn(Optional.of(destination));
+        when(fxRates.quote(new BigDecimal("3100"), "NGN", "USD")).thenReturn(
+                new FxRates.Quote(new BigDecimal("0.0006451613"), new BigDecimal("2.0000"), Instant.now()));
+        when(fxRates.positionAccountRef("NGN", 7L)).thenReturn(ngnPosition.getAccountRef());
+        when(fxRates.positionAccountRef("USD", 7L)).thenReturn(usdPosition.getAccountRef());
+        when(accountRepository.findByAccountRefForUpdate(ngnPosition.getAccountRef())).thenReturn(Optional.of(ngnPosition));
+        when(accountRepository.findByAccountRefForUpdate(usdPosition.getAccountRef())).thenReturn(Optional.of(usdPosition));
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction tx = inv.getArgument(0);
+            tx.setId(3L);
+            return tx;
+        });
+
+        Transaction transaction = ledgerService.transfer(source.getAccountRef(), destination.getAccountRef(),
+                new BigDecimal("3100"), "ref-fx-2", "conversion", true);
+
+        assertEquals(TransactionType.FX_TRANSFER, transaction.getType());
+        assertEquals("2.0000", transaction.getMetadata().get("convertedAmount"));
+        assertEquals(0, source.getAccountBalance().signum());
+        assertEquals(new BigDecimal("3100"), ngnPosition.getAccountBalance());
+        assertEquals(new BigDecimal("-2.0000"), usdPosition.getAccountBalance());
+        assertEquals(new BigDecimal("2.0000"), destination.getAccountBalance());
+        ArgumentCaptor<LedgerEntry> entries = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository, times(4)).save(entries.capture());
+        List<LedgerEntry> saved = entries.getAllValues();
+        assertEquals(List.of(source, ngnPosition, usdPosition, destination),
+                saved.stream().map(LedgerEntry::getAccount).toList());
+        verify(hashChain, times(4)).link(any());
+    }
+
+    @Test
+    void shouldChargeTheFeeWithoutTouchingTheRevenueAccount() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Account destination = wallet("user:bob:wallet", BigDecimal.ZERO, BigDecimal.ZERO);
+        Account revenue = wallet("fees:revenue:NGN", BigDecimal.ZERO, BigDecimal.ZERO);
+        revenue.setAccountType(AccountType.FEE_REVENUE);
+        when(transactionRepository.findByReference("ref-fee-1")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate(source.getAccountRef())).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef(destination.getAccountRef())).thenReturn(Optional.of(destination));
+        when(accountRepository.findByAccountRef(revenue.getAccountRef())).thenReturn(Optional.of(revenue));
+        when(feeEngine.quote(source, new BigDecimal("50")))
+                .thenReturn(new FeeEngine.Fee(new BigDecimal("0.7500"), revenue.getAccountRef()));
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction tx = inv.getArgument(0);
+            tx.setId(4L);
+            return tx;
+        });
+
+        Transaction transaction = ledgerService.transfer(source.getAccountRef(), destination.getAccountRef(),
+                new BigDecimal("50"), "ref-fee-1", "transfer");
+
+        assertEquals("0.7500", transaction.getMetadata().get("fee"));
+        assertEquals(new BigDecimal("49.2500"), source.getAccountBalance());
+        assertEquals(new BigDecimal("50"), destination.getAccountBalance());
+        // Revenue is credited by the periodic flush, not by each transfer.
+        assertEquals(0, revenue.getAccountBalance().signum());
+        verify(accountRepository, never()).save(revenue);
+        ArgumentCaptor<LedgerEntry> entries = ArgumentCaptor.forClass(LedgerEntry.class);
+        verify(ledgerEntryRepository, times(4)).save(entries.capture());
+        LedgerEntry feeCredit = entries.getAllValues().get(3);
+        assertEquals(revenue, feeCredit.getAccount());
+        assertEquals(new BigDecimal("0.7500"), feeCredit.getAmount());
+        verify(hashChain, times(3)).link(any());
+    }
+
+    @Test
+    void shouldNotChargeTheFirstLegOfACrossShardTransfer() {
+        Account source = wallet("user:alice:wallet", new BigDecimal("100"), BigDecimal.ZERO);
+        Account transit = external(CrossShardTransfers.TRANSIT_PREFIX + "NGN:3");
+        when(transactionRepository.findByReference("saga-1")).thenReturn(Optional.empty());
+        when(accountRepository.findByAccountRefForUpdate(source.getAccountRef())).thenReturn(Optional.of(source));
+        when(accountRepository.findByAccountRef(transit.getAccountRef())).thenReturn(Optional.of(transit));
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(inv -> {
+            Transaction tx = inv.getArgument(0);
+            tx.setId(5L);
+            return tx;
+        });
+
+        Transaction transaction = ledgerService.transfer(source.getAccountRef(), transit.getAccountRef(),
+                new BigDecimal("50"), "saga-1", "transfer");
+
+        assertNull(transaction.getMetadata());
+        assertEquals(new BigDecimal("50"), source.getAccountBalance());
+        verify(feeEngine, never()).quote(any(), any());
+        verify(ledgerEntryRepository, times(2)).save(any(LedgerEntry.class));
+    }
+
+    private Account position(String ref, String currency) {
+        Account acc = wallet(ref, BigDecimal.ZERO, BigDecimal.ZERO);
+        acc.setAccountType(AccountType.FX_POSITION);
+        acc.setCurrency(currency);
+        return acc;
+    }
+
+    private Hold expiredHold(long id, Account source) {
+        Hold hold = Hold.builder()
+                .reference("hold-" + id)
+                .sourceAccount(source)
+                .destinationAccount(source)
+                .amount(BigDecimal.TEN)
+                .status(HoldStatus.EXPIRED)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build();
+        hold.setId(id);
+        return hold;
+    }
+
     private Account wallet(String ref, BigDecimal totalDeposit, BigDecimal totalWithdrawal) {
         Account acc = new Account();
         acc.setAccountRef(ref);
         acc.setAccountType(AccountType.USER_WALLET);
         acc.setTotalDeposit(totalDeposit);
         acc.setTotalWithdrawal(totalWithdrawal);
+        acc.setAccountBalance(totalDeposit.subtract(totalWithdrawal));
         return acc;
     }
 
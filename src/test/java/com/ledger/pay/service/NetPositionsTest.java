@@ -0,0 +1,75 @@
+package com.ledger.pay.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NetPositionsTest {
+
+    private static final long A = 1, B = 2, C = 3;
+
+    @Test
+    void shouldNetACycleIntoOnePositionPerAccount() {
+        List<NetPositions.Flow> flows = List.of(
+                flow(A, B, "100"),
+                flow(B, A, "60"),
+                flow(B, C, "30"));
+
+        NetPositions.Result result = NetPositions.settle(flows, id -> new BigDecimal("40"), false);
+
+        assertThat(result.rejected().isEmpty()).isTrue();
+        assertThat(result.positions().get(A)).isEqualByComparingTo("-40");
+        assertThat(result.positions().get(B)).isEqualByComparingTo("10");
+        assertThat(result.positions().get(C)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    void shouldRejectLatestTransfersOfShortAccountAndKnockOnShortfalls() {
+        // B can only pay C because A pays B; once A is short, B is short too.
+        List<NetPositions.Flow> flows = List.of(
+                flow(A, B, "50"),
+                flow(B, C, "50"),
+                flow(A, C, "10"));
+        Map<Long, BigDecimal> available = Map.of(A, new BigDecimal("50"), B, BigDecimal.ZERO, C, BigDecimal.ZERO);
+
+        NetPositions.Result result = NetPositions.settle(flows, available::get, false);
+
+        assertThat(result.rejected().stream().toArray()).containsExactly(2);
+        assertThat(result.positions().get(A)).isEqualByComparingTo("-50");
+        assertThat(result.positions().get(B)).isEqualByComparingTo("0");
+
+        NetPositions.Result poorer = NetPositions.settle(flows,
+                Map.of(A, new BigDecimal("40"), B, BigDecimal.ZERO, C, BigDecimal.ZERO)::get, false);
+
+        assertThat(poorer.rejected().stream().toArray()).containsExactly(0, 1, 2);
+        assertThat(poorer.positions()).isEmpty();
+    }
+
+    @Test
+    void shouldComputeSamePositionsInParallel() {
+        Random random = new Random(42);
+        List<NetPositions.Flow> flows = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long source = random.nextInt(50);
+            long destination = (source + 1 + random.nextInt(49)) % 50;
+            flows.add(new NetPositions.Flow(source, destination, BigDecimal.valueOf(random.nextInt(100_000), 2)));
+        }
+
+        Map<Long, BigDecimal> sequential = NetPositions.positions(flows, new BitSet(), false);
+        Map<Long, BigDecimal> parallel = NetPositions.positions(flows, new BitSet(), true);
+
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(sequential.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add)).isEqualByComparingTo("0");
+    }
+
+    private static NetPositions.Flow flow(long source, long destination, String amount) {
+        return new NetPositions.Flow(source, destination, new BigDecimal(amount));
+    }
+}
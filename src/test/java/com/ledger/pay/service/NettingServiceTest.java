@@ -0,0 +1,130 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.LimitsProperties;
+import com.ledger.pay.config.NettingProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.domain.TransferIntent;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.IntentStatus;
+import com.ledger.pay.limits.LimitExceededException;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.repository.TransferIntentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NettingServiceTest {
+
+    private final TransferIntentRepository intentRepository = mock(TransferIntentRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    // Wallets may send 150 a day.
+    private final LimitsEngine limitsEngine = new LimitsEngine(new LimitsProperties(true, false, null,
+            Map.of(AccountType.USER_WALLET, new LimitsProperties.Rule(null, new BigDecimal("150"), null))),
+            new SimpleMeterRegistry());
+    private final NettingService underTest = new NettingService(intentRepository, accountRepository,
+            transactionRepository, mock(LedgerEntryRepository.class), outboxRepository, ledgerService, limitsEngine,
+            mock(BalanceReadModel.class), mock(HashChain.class), new NettingProperties(true, 100, 10_000),
+            new SimpleMeterRegistry());
+
+    private final Account alice = account(1, "user:alice:wallet", AccountType.USER_WALLET, "50");
+    private final Account bob = account(2, "user:bob:wallet", AccountType.USER_WALLET, "0");
+    private final Account moved = account(3, "moved:3", AccountType.MOVED, "0");
+
+    @BeforeEach
+    void setUp() {
+        when(ledgerService.computeIdempotencyHash(any(String[].class))).thenReturn("hash");
+        when(transactionRepository.saveAndFlush(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(100L);
+            return transaction;
+        });
+        when(accountRepository.findAllByIdForUpdate(any())).thenReturn(List.of(alice, bob, moved));
+    }
+
+    @Test
+    void shouldNetWhatIsCoveredAndRejectTheRestWithTheirLimitsReleased() {
+        TransferIntent covered = intent(11, "i-1", alice, bob, "20");
+        TransferIntent uncovered = intent(12, "i-2", alice, bob, "100");
+        TransferIntent toMoved = intent(13, "i-3", alice, moved, "10");
+        when(intentRepository.findPendingForUpdate(any(), any())).thenReturn(List.of(covered, uncovered, toMoved));
+
+        NettingService.WindowResult result = underTest.closeWindow(LocalDateTime.now()).orElseThrow();
+
+        assertThat(result.netted()).isEqualTo(1);
+        assertThat(result.rejectedReferences()).containsExactlyInAnyOrder("i-2", "i-3");
+        assertThat(result.entries()).isEqualTo(2);
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("30");
+        assertThat(bob.getAccountBalance()).isEqualByComparingTo("20");
+        verify(intentRepository).updateStatus(eq(List.of(11L)), eq(IntentStatus.NETTED), any(Transaction.class), isNull());
+        verify(intentRepository).updateStatus(List.of(12L), IntentStatus.REJECTED, null, NettingService.REJECT_REASON);
+        verify(intentRepository).updateStatus(List.of(13L), IntentStatus.REJECTED, null, NettingService.MOVED_REASON);
+        verify(outboxRepository).save(any(Outbox.class));
+        // Only the 20 that was netted still counts against Alice's 150.
+        assertDoesNotThrow(() -> limitsEngine.reserve(alice, new BigDecimal("130")));
+        assertThrows(LimitExceededException.class, () -> limitsEngine.reserve(alice, new BigDecimal("0.01")));
+    }
+
+    @Test
+    void shouldPostNothingWhenEveryIntentIsRejected() {
+        TransferIntent uncovered = intent(11, "i-1", alice, bob, "80");
+        when(intentRepository.findPendingForUpdate(any(), any())).thenReturn(List.of(uncovered));
+
+        NettingService.WindowResult result = underTest.closeWindow(LocalDateTime.now()).orElseThrow();
+
+        assertThat(result.transactionRef()).isNull();
+        assertThat(result.rejectedReferences()).containsExactly("i-1");
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("50");
+        verify(intentRepository).updateStatus(List.of(11L), IntentStatus.REJECTED, null, NettingService.REJECT_REASON);
+        assertDoesNotThrow(() -> limitsEngine.reserve(alice, new BigDecimal("150")));
+    }
+
+    private TransferIntent intent(long id, String reference, Account source, Account destination, String amount) {
+        // What defer reserved when the intent was recorded.
+        limitsEngine.reserve(source, new BigDecimal(amount));
+        TransferIntent intent = TransferIntent.builder()
+                .reference(reference)
+                .sourceAccount(source)
+                .destinationAccount(destination)
+                .amount(new BigDecimal(amount))
+                .build();
+        intent.setId(id);
+        intent.setCreatedAt(LocalDateTime.now());
+        return intent;
+    }
+
+    private static Account account(long id, String accountRef, AccountType type, String balance) {
+        Account account = Account.builder()
+                .accountRef(accountRef)
+                .accountType(type)
+                .build();
+        account.setId(id);
+        account.deposit(new BigDecimal(balance));
+        return account;
+    }
+}
@@ -0,0 +1,239 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.ReversalProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.LedgerEntry;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.LedgerEntryType;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.LedgerEntryRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.sharding.CrossShardTransfers;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReversalServiceTest {
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final LedgerEntryRepository ledgerEntryRepository = mock(LedgerEntryRepository.class);
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final HashChain hashChain = mock(HashChain.class);
+    private final ReversalService underTest = new ReversalService(transactionRepository, accountRepository,
+            ledgerEntryRepository, outboxRepository, ledgerService, mock(BalanceReadModel.class), hashChain,
+            mock(ShardRouter.class), mock(PlatformTransactionManager.class), new ReversalProperties(100),
+            new SimpleMeterRegistry());
+
+    private final Account alice = account(1, "user:alice:wallet", AccountType.USER_WALLET, "100");
+    private final Account bob = account(2, "user:bob:wallet", AccountType.USER_WALLET, "40");
+    private final Account revenue = account(3, "fees:revenue:NGN", AccountType.FEE_REVENUE, "0");
+
+    @BeforeEach
+    void setUp() {
+        when(ledgerService.computeIdempotencyHash(any(String[].class))).thenAnswer(invocation ->
+                Arrays.stream(invocation.getArguments()).map(String::valueOf).collect(Collectors.joining("|")));
+        when(transactionRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            for (int i = 0; i < transactions.size(); i++) {
+                transactions.get(i).setId(100L + i);
+            }
+            return transactions;
+        });
+        when(accountRepository.findAllByIdForUpdate(any())).thenReturn(List.of(alice, bob, revenue));
+    }
+
+    @Test
+    void shouldReverseInOrderUntilAWalletRunsShort() {
+        // Bob received 30 and 20 but has spent 10 since, so only the first transfer can come back.
+        Transaction first = transfer(1, "t-1", "30", bob);
+        Transaction second = transfer(2, "t-2", "20", bob);
+        when(transactionRepository.findAllByReferenceForUpdate(any())).thenReturn(List.of(first, second));
+        when(ledgerEntryRepository.findByTransactionIds(any())).thenReturn(List.of(
+                entry(first, alice, LedgerEntryType.DEBIT, "30"), entry(first, bob, LedgerEntryType.CREDIT, "30"),
+                entry(second, alice, LedgerEntryType.DEBIT, "20"), entry(second, bob, LedgerEntryType.CREDIT, "20")));
+
+        List<ReversalService.Outcome> outcomes = underTest.applyBatch(List.of(
+                ReversalService.Request.reversal("t-1", "chargeback"),
+                ReversalService.Request.reversal("t-2", "chargeback"),
+                ReversalService.Request.reversal("t-missing", "chargeback")));
+
+        assertThat(outcomes).extracting(ReversalService.Outcome::status).containsExactly(
+                ReversalService.Status.REVERSED, ReversalService.Status.REJECTED, ReversalService.Status.REJECTED);
+        assertThat(outcomes.get(0).compensationRef()).isEqualTo("reversal-1");
+        assertThat(outcomes.get(1).reason()).isEqualTo("Insufficient funds in user:bob:wallet");
+        assertThat(outcomes.get(2).reason()).isEqualTo(ReversalService.NOT_FOUND);
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("130");
+        assertThat(bob.getAccountBalance()).isEqualByComparingTo("10");
+        verify(hashChain, times(2)).link(any(LedgerEntry.class));
+        verify(transactionRepository).updateStatus(List.of(1L), TransactionStatus.REVERSED);
+        ArgumentCaptor<List<Outbox>> events = outboxCaptor();
+        verify(outboxRepository).saveAll(events.capture());
+        assertThat(events.getValue()).singleElement().satisfies(event -> {
+            assertThat(event.getEventType()).isEqualTo(EventType.TRANSACTION_REVERSED);
+            assertThat(event.getPayload()).containsEntry("originalRef", "t-1").containsEntry("reason", "chargeback");
+        });
+    }
+
+    @Test
+    void shouldRejectACompensationOnAMovedAccountAndPostTheRest() {
+        Account moved = account(4, "moved:4", AccountType.MOVED, "0");
+        when(accountRepository.findAllByIdForUpdate(any())).thenReturn(List.of(alice, bob, revenue, moved));
+        Transaction first = transfer(1, "t-1", "30", moved);
+        Transaction second = transfer(2, "t-2", "20", bob);
+        when(transactionRepository.findAllByReferenceForUpdate(any())).thenReturn(List.of(first, second));
+        when(ledgerEntryRepository.findByTransactionIds(any())).thenReturn(List.of(
+                entry(first, alice, LedgerEntryType.DEBIT, "30"), entry(first, moved, LedgerEntryType.CREDIT, "30"),
+                entry(second, alice, LedgerEntryType.DEBIT, "20"), entry(second, bob, LedgerEntryType.CREDIT, "20")));
+
+        List<ReversalService.Outcome> outcomes = underTest.applyBatch(List.of(
+                ReversalService.Request.reversal("t-1", "chargeback"),
+                ReversalService.Request.reversal("t-2", "chargeback")));
+
+        assertThat(outcomes).extracting(ReversalService.Outcome::status).containsExactly(
+                ReversalService.Status.REJECTED, ReversalService.Status.REVERSED);
+        assertThat(outcomes.get(0).reason()).isEqualTo("Account moved:4 moved to another shard");
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("120");
+        assertThat(bob.getAccountBalance()).isEqualByComparingTo("20");
+        verify(transactionRepository).updateStatus(List.of(2L), TransactionStatus.REVERSED);
+    }
+
+    @Test
+    void shouldNotCompensateEitherLegOfACrossShardTransfer() {
+        Account transit = account(5, CrossShardTransfers.TRANSIT_PREFIX + "NGN:0", AccountType.EXTERNAL, "0");
+        when(accountRepository.findAllByIdForUpdate(any())).thenReturn(List.of(alice, bob, revenue, transit));
+        Transaction debit = transfer(1, "saga-1", "30", transit);
+        Transaction credit = transfer(2, "saga-1:credit", "30", bob);
+        credit.setType(TransactionType.DEPOSIT);
+        when(transactionRepository.findAllByReferenceForUpdate(any())).thenReturn(List.of(debit, credit));
+        when(ledgerEntryRepository.findByTransactionIds(any())).thenReturn(List.of(
+                entry(debit, alice, LedgerEntryType.DEBIT, "30"), entry(debit, transit, LedgerEntryType.CREDIT, "30"),
+                entry(credit, transit, LedgerEntryType.DEBIT, "30"), entry(credit, bob, LedgerEntryType.CREDIT, "30")));
+
+        List<ReversalService.Outcome> outcomes = underTest.applyBatch(List.of(
+                ReversalService.Request.reversal("saga-1", "chargeback"),
+                ReversalService.Request.refund("saga-1:credit", "r-1", new BigDecimal("10"), null)));
+
+        assertThat(outcomes).extracting(ReversalService.Outcome::status).containsExactly(
+                ReversalService.Status.REJECTED, ReversalService.Status.REJECTED);
+        assertThat(outcomes).extracting(ReversalService.Outcome::reason)
+                .containsOnly("Transaction is a leg of a cross-shard transfer");
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("100");
+        assertThat(bob.getAccountBalance()).isEqualByComparingTo("40");
+        assertThat(transit.getAccountBalance()).isEqualByComparingTo("0");
+        verify(transactionRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void shouldRefundThePrincipalInPartsButNeverMoreThanWasPaid() {
+        Transaction paid = transfer(1, "t-1", "30", bob);
+        when(transactionRepository.findAllByReferenceForUpdate(any())).thenReturn(List.of(paid));
+        when(ledgerEntryRepository.findByTransactionIds(any())).thenReturn(List.of(
+                entry(paid, alice, LedgerEntryType.DEBIT, "30"), entry(paid, bob, LedgerEntryType.CREDIT, "30"),
+                entry(paid, alice, LedgerEntryType.DEBIT, "0.5"), entry(paid, revenue, LedgerEntryType.CREDIT, "0.5")));
+
+        List<ReversalService.Outcome> outcomes = underTest.applyBatch(List.of(
+                ReversalService.Request.refund("t-1", "r-1", new BigDecimal("20"), null),
+                ReversalService.Request.refund("t-1", "r-2", new BigDecimal("15"), null),
+                ReversalService.Request.refund("t-1", "r-3", new BigDecimal("10"), null)));
+
+        assertThat(outcomes).extracting(ReversalService.Outcome::status).containsExactly(
+                ReversalService.Status.REFUNDED, ReversalService.Status.REJECTED, ReversalService.Status.REFUNDED);
+        assertThat(outcomes.get(1).reason()).isEqualTo("Refund of 15 exceeds the 10 left to refund");
+        assertThat(alice.getAccountBalance()).isEqualByComparingTo("130");
+        assertThat(bob.getAccountBalance()).isEqualByComparingTo("10");
+        // The fee is kept.
+        assertThat(revenue.getAccountBalance()).isEqualByComparingTo("0");
+        assertThat(paid.getRefundedAmount()).isEqualByComparingTo("30");
+        assertThat(paid.getStatus()).isEqualTo(TransactionStatus.REFUNDED);
+        verify(transactionRepository, never()).updateStatus(any(), any());
+    }
+
+    @Test
+    void shouldReplayWithoutPostingAgain() {
+        Transaction reversed = transfer(1, "t-1", "30", bob);
+        reversed.setStatus(TransactionStatus.REVERSED);
+        Transaction refunded = transfer(2, "t-2", "20", bob);
+        Transaction refund = Transaction.builder()
+                .reference("r-1")
+                .type(TransactionType.REFUND)
+                .amount(new BigDecimal("5"))
+                .idempotencyHash("t-2|5|r-1")
+                .build();
+        when(transactionRepository.findAllByReferenceForUpdate(any())).thenReturn(List.of(reversed, refunded));
+        when(transactionRepository.findAllByReferenceIn(any())).thenReturn(List.of(refund));
+
+        List<ReversalService.Outcome> outcomes = underTest.applyBatch(List.of(
+                ReversalService.Request.reversal("t-1", null),
+                ReversalService.Request.refund("t-2", "r-1", new BigDecimal("5"), null),
+                ReversalService.Request.refund("t-2", "r-1", new BigDecimal("6"), null)));
+
+        assertThat(outcomes).extracting(ReversalService.Outcome::status).containsExactly(
+                ReversalService.Status.REPLAYED, ReversalService.Status.REPLAYED, ReversalService.Status.REJECTED);
+        assertThat(outcomes.get(2).reason()).contains("already used with different parameters");
+        verify(transactionRepository, never()).saveAll(anyList());
+        verify(outboxRepository, never()).saveAll(anyList());
+    }
+
+    private Transaction transfer(long id, String reference, String amount, Account destination) {
+        Transaction transaction = Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(new BigDecimal(amount))
+                .description("to " + destination.getAccountRef())
+                .build();
+        transaction.setId(id);
+        return transaction;
+    }
+
+    private static LedgerEntry entry(Transaction transaction, Account account, LedgerEntryType type, String amount) {
+        return LedgerEntry.builder()
+                .transaction(transaction)
+                .account(account)
+                .entryType(type)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+
+    private static Account account(long id, String accountRef, AccountType type, String balance) {
+        Account account = Account.builder()
+                .accountRef(accountRef)
+                .accountType(type)
+                .build();
+        account.setId(id);
+        account.deposit(new BigDecimal(balance));
+        return account;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Outbox>> outboxCaptor() {
+        return ArgumentCaptor.forClass(List.class);
+    }
+}
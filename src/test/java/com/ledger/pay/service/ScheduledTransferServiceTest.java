@@ -0,0 +1,138 @@
+package com.ledger.pay.service;
+
+import com.ledger.pay.config.ScheduleProperties;
+import com.ledger.pay.domain.ScheduledTransfer;
+import com.ledger.pay.enums.Recurrence;
+import com.ledger.pay.enums.ScheduleStatus;
+import com.ledger.pay.mailbox.MailboxFullException;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.ScheduledTransferRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import com.ledger.pay.sharding.ShardedLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScheduledTransferServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 31, 0, 0, 5);
+    private static final LocalDateTime MIDNIGHT = LocalDateTime.of(2026, 1, 31, 0, 0);
+
+    private final ScheduledTransferRepository scheduleRepository = mock(ScheduledTransferRepository.class);
+    private final ShardedLedger shardedLedger = mock(ShardedLedger.class);
+    private final ScheduledTransferService underTest = new ScheduledTransferService(scheduleRepository,
+            mock(AccountRepository.class), shardedLedger, mock(ShardRouter.class),
+            mock(PlatformTransactionManager.class),
+            new ScheduleProperties(true, 100, 8, Duration.ofMinutes(5), Duration.ofMinutes(15)),
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+    }
+
+    @Test
+    void shouldPostEachSourceAccountsOccurrencesInDueOrderWithDeterministicReferences() {
+        List<ScheduledTransfer> due = List.of(
+                schedule(1, "salary-alice", "user:employer:wallet", Recurrence.MONTHLY, 0),
+                schedule(2, "rent-bob", "user:bob:wallet", Recurrence.ONCE, 0),
+                schedule(3, "salary-carol", "user:employer:wallet", Recurrence.MONTHLY, 3));
+        when(scheduleRepository.findDueForUpdate(eq(NOW), any())).thenReturn(due);
+        Map<String, List<String>> posted = new ConcurrentHashMap<>();
+        when(shardedLedger.transfer(anyString(), anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    posted.computeIfAbsent(invocation.getArgument(0), ref -> new CopyOnWriteArrayList<>())
+                            .add(invocation.getArgument(3));
+                    return null;
+                });
+
+        assertThat(underTest.runDue(NOW)).isEqualTo(3);
+
+        assertThat(posted.get("user:employer:wallet")).containsExactly("salary-alice:0", "salary-carol:3");
+        assertThat(posted.get("user:bob:wallet")).containsExactly("rent-bob:0");
+        LocalDateTime claimedUntil = NOW.plusMinutes(5);
+        verify(scheduleRepository).claim(List.of(1L, 2L, 3L), claimedUntil);
+        // Both salaries move on to the end of February together; the one-off is done.
+        verify(scheduleRepository).advance(List.of(1L, 3L), claimedUntil, LocalDateTime.of(2026, 2, 28, 0, 0),
+                ScheduleStatus.ACTIVE, 0, null);
+        verify(scheduleRepository).advance(List.of(2L), claimedUntil, null, ScheduleStatus.COMPLETED, 0, null);
+    }
+
+    @Test
+    void shouldSkipRefusedOccurrencesAndRetryTransientFailures() {
+        List<ScheduledTransfer> due = List.of(
+                schedule(1, "gym", "user:alice:wallet", Recurrence.WEEKLY, 0),
+                schedule(2, "savings", "user:bob:wallet", Recurrence.DAILY, 0));
+        when(scheduleRepository.findDueForUpdate(eq(NOW), any())).thenReturn(due);
+        when(shardedLedger.transfer(eq("user:alice:wallet"), anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenThrow(new IllegalStateException("Insufficient funds"));
+        when(shardedLedger.transfer(eq("user:bob:wallet"), anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenThrow(new MailboxFullException("user:bob:wallet"));
+
+        underTest.runDue(NOW);
+
+        LocalDateTime claimedUntil = NOW.plusMinutes(5);
+        verify(scheduleRepository).advance(List.of(1L), claimedUntil, MIDNIGHT.plusWeeks(1), ScheduleStatus.ACTIVE,
+                1, "Insufficient funds");
+        verify(scheduleRepository).postpone(List.of(2L), claimedUntil, NOW.plusSeconds(30));
+    }
+
+    @Test
+    void shouldCompleteASchedulePastItsEnd() {
+        ScheduledTransfer schedule = schedule(1, "trial", "user:alice:wallet", Recurrence.DAILY, 1);
+        schedule.setStartsAt(MIDNIGHT);
+        schedule.setEndsAt(MIDNIGHT.plusDays(1).plusHours(12));
+
+        ScheduledTransferService.Advance advance = ScheduledTransferService.Advance.after(schedule, null);
+
+        assertThat(advance.next()).isNull();
+        assertThat(advance.status()).isEqualTo(ScheduleStatus.COMPLETED);
+    }
+
+    @Test
+    void shouldClaimNothingWhenNothingIsDue() {
+        when(scheduleRepository.findDueForUpdate(eq(NOW), any())).thenReturn(Collections.emptyList());
+
+        assertThat(underTest.runDue(NOW)).isZero();
+
+        verify(scheduleRepository, never()).claim(any(), any());
+        verify(scheduleRepository, never()).advance(any(), any(), any(), any(), anyInt(), any());
+    }
+
+    private static ScheduledTransfer schedule(long id, String reference, String sourceAccountRef,
+                                              Recurrence recurrence, int occurrence) {
+        ScheduledTransfer schedule = ScheduledTransfer.builder()
+                .reference(reference)
+                .sourceAccountRef(sourceAccountRef)
+                .destinationAccountRef("user:payee:wallet")
+                .amount(new BigDecimal("100"))
+                .recurrence(recurrence)
+                .startsAt(MIDNIGHT.minusMonths(occurrence))
+                .nextRunAt(MIDNIGHT)
+                .occurrence(occurrence)
+                .build();
+        schedule.setId(id);
+        return schedule;
+    }
+}
@@ -0,0 +1,76 @@
+package com.ledger.pay.settlement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SettlementFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldSplitIntoContiguousRangesThatOwnEachLineOnce() throws Exception {
+        StringBuilder content = new StringBuilder("reference,externalAccountRef,walletRef,amount\n");
+        for (int i = 0; i < 2000; i++) {
+            content.append("STL-").append(i).append(",bank:gtb,user:w").append(i % 7).append(":wallet,")
+                    .append(i + 1).append(".25").append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = Files.writeString(dir.resolve("settlement.csv"), content);
+
+        try (SettlementFile settlementFile = SettlementFile.open(file)) {
+            List<SettlementFile.SettlementRecord> records = parseAll(settlementFile, 0);
+
+            assertThat(records).hasSize(2000);
+            assertThat(records.get(0).reference()).isEqualTo("STL-0");
+            assertThat(records.get(1999).reference()).isEqualTo("STL-1999");
+            assertThat(records.get(41).amount()).isEqualByComparingTo("42.25");
+            assertThat(records.get(41).walletRef()).isSameAs(records.get(6).walletRef());
+            assertThat(records).allMatch(record -> record.error() == null);
+
+            long resumeAt = records.get(1000).offset();
+            List<SettlementFile.SettlementRecord> resumed = parseAll(settlementFile, resumeAt);
+            assertThat(resumed).hasSize(1000);
+            assertThat(resumed.get(0).reference()).isEqualTo("STL-1000");
+        }
+    }
+
+    @Test
+    void shouldReportInvalidLinesAndReadALastLineWithoutNewline() throws Exception {
+        Path file = Files.writeString(dir.resolve("invalid.csv"), """
+                A-1,bank:gtb,user:a:wallet,10
+                A-2,bank:gtb,user:a:wallet
+                A-3,bank:gtb,user:a:wallet,1.23456
+
+                A-4,bank:gtb,user:a:wallet,-5
+                A-5,bank:gtb,user:a:wallet,0.0001""".stripIndent());
+
+        try (SettlementFile settlementFile = SettlementFile.open(file)) {
+            List<SettlementFile.SettlementRecord> records = parseAll(settlementFile, 0);
+
+            assertThat(records).extracting(SettlementFile.SettlementRecord::error)
+                    .containsExactly(null, "expected 4 fields", "invalid amount", "invalid amount", null);
+            assertThat(records.get(4).units()).isEqualTo(1);
+            assertThat(records.get(4).end()).isEqualTo(settlementFile.size());
+        }
+    }
+
+    private List<SettlementFile.SettlementRecord> parseAll(SettlementFile file, long from) throws Exception {
+        List<SettlementFile.SettlementRecord> records = new ArrayList<>();
+        long expectedStart = from;
+        for (long[] range : file.split(from, 4096)) {
+            SettlementFile.Chunk chunk = file.parse(from, range[0], range[1]);
+            assertThat(chunk.start()).isEqualTo(expectedStart);
+            expectedStart = chunk.end();
+            records.addAll(chunk.records());
+        }
+        assertThat(expectedStart).isEqualTo(file.size());
+        return records;
+    }
+}
@@ -0,0 +1,139 @@
+package com.ledger.pay.settlement;
+
+import com.ledger.pay.config.SettlementProperties;
+import com.ledger.pay.domain.SettlementImport;
+import com.ledger.pay.enums.SettlementImportStatus;
+import com.ledger.pay.repository.SettlementImportRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.service.LedgerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SettlementIngestorTest {
+
+    @TempDir
+    Path dir;
+
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final SettlementImportRepository importRepository = mock(SettlementImportRepository.class);
+    private final List<SettlementImport> checkpoints = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(importRepository.findByFileNameAndFileSize(anyString(), any(Long.class))).thenReturn(Optional.empty());
+        when(importRepository.save(any(SettlementImport.class))).thenAnswer(inv -> {
+            SettlementImport state = inv.getArgument(0);
+            state.setId(1L);
+            checkpoints.add(copy(state));
+            return state;
+        });
+        when(transactionRepository.findExistingReferences(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void shouldResumeFromLastCommittedBatchAfterACrash() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 6; i++) {
+            content.append("ref-").append(i).append(",bank:gtb,user:").append(i % 2 == 0 ? "a" : "b")
+                    .append(":wallet,").append(i).append("0.50\n");
+        }
+        Path file = Files.writeString(dir.resolve("day-1.csv"), content);
+        doThrow(new AssertionError("simulated crash")).doReturn(null)
+                .when(ledgerService).deposit(anyString(), anyString(), any(), eq("ref-5"), anyString());
+
+        assertThrows(AssertionError.class, () -> ingestor(2).ingest(file));
+
+        SettlementImport interrupted = checkpoints.get(checkpoints.size() - 1);
+        assertThat(interrupted.getCommittedOffset()).isEqualTo(content.indexOf("ref-5"));
+        assertThat(interrupted.getApplied()).isEqualTo(4);
+        assertThat(interrupted.getStatus()).isEqualTo(SettlementImportStatus.RUNNING);
+        InOrder walletsGrouped = inOrder(ledgerService);
+        walletsGrouped.verify(ledgerService).deposit("bank:gtb", "user:a:wallet", new BigDecimal("20.5000"), "ref-2", "Settlement day-1.csv");
+        walletsGrouped.verify(ledgerService).deposit("bank:gtb", "user:b:wallet", new BigDecimal("10.5000"), "ref-1", "Settlement day-1.csv");
+
+        when(importRepository.findByFileNameAndFileSize("day-1.csv", Files.size(file))).thenReturn(Optional.of(copy(interrupted)));
+        SettlementImport completed = ingestor(2).ingest(file);
+
+        assertThat(completed.getStatus()).isEqualTo(SettlementImportStatus.COMPLETED);
+        assertThat(completed.getCommittedOffset()).isEqualTo(Files.size(file));
+        assertThat(completed.getApplied()).isEqualTo(6);
+        verify(ledgerService, times(1)).deposit(anyString(), anyString(), any(), eq("ref-1"), anyString());
+        verify(ledgerService, times(1)).deposit(anyString(), anyString(), any(), eq("ref-4"), anyString());
+        verify(ledgerService, times(2)).deposit(anyString(), anyString(), any(), eq("ref-5"), anyString());
+    }
+
+    @Test
+    void shouldSkipDuplicatesAndReportFailedLinesWithoutStopping() throws Exception {
+        Path file = Files.writeString(dir.resolve("day-2.csv"), """
+                reference,externalAccountRef,walletRef,amount
+                ref-1,bank:gtb,user:a:wallet,10
+                ref-2,bank:gtb,user:a:wallet,10
+                ref-3,bank:gtb,user:a:wallet,1.23456
+                ref-4,bank:gtb,user:missing:wallet,10
+                ref-5,bank:gtb,user:b:wallet,10
+                """);
+        when(transactionRepository.findExistingReferences(any())).thenReturn(List.of("ref-2"));
+        doThrow(new IllegalArgumentException("Destination account not found: user:missing:wallet"))
+                .when(ledgerService).deposit(anyString(), anyString(), any(), eq("ref-4"), anyString());
+
+        SettlementImport completed = ingestor(10).ingest(file);
+
+        assertThat(completed.getApplied()).isEqualTo(2);
+        assertThat(completed.getDuplicates()).isEqualTo(1);
+        assertThat(completed.getFailed()).isEqualTo(2);
+        verify(ledgerService, times(0)).deposit(anyString(), anyString(), any(), eq("ref-2"), anyString());
+        List<String> report = Files.readAllLines(dir.resolve("reports").resolve("day-2.csv.errors.csv"));
+        assertThat(report).hasSize(2);
+        assertThat(report.get(0)).contains("ref-3", "invalid amount");
+        assertThat(report.get(1)).contains("ref-4", "Destination account not found");
+    }
+
+    private SettlementIngestor ingestor(int batchSize) {
+        SettlementProperties properties = new SettlementProperties(true, dir.resolve("inbox").toString(),
+                dir.resolve("processed").toString(), dir.resolve("reports").toString(), batchSize,
+                DataSize.ofKilobytes(4), 2);
+        return new SettlementIngestor(properties, ledgerService, transactionRepository, importRepository,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+    }
+
+    private static SettlementImport copy(SettlementImport state) {
+        SettlementImport copy = SettlementImport.builder()
+                .fileName(state.getFileName())
+                .fileSize(state.getFileSize())
+                .committedOffset(state.getCommittedOffset())
+                .status(state.getStatus())
+                .applied(state.getApplied())
+                .duplicates(state.getDuplicates())
+                .failed(state.getFailed())
+                .elapsedMillis(state.getElapsedMillis())
+                .build();
+        copy.setId(state.getId());
+        return copy;
+    }
+}
@@ -0,0 +1,193 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Outbox;
+import com.ledger.pay.domain.Saga;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.EventType;
+import com.ledger.pay.enums.SagaStatus;
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.observability.LedgerMetrics;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.OutboxRepository;
+import com.ledger.pay.repository.SagaRepository;
+import com.ledger.pay.repository.TransactionRepository;
+import com.ledger.pay.service.KafkaEventPublisher;
+import com.ledger.pay.service.LedgerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the saga against a real database. The router is given no extra shards, so both legs land
+ * in the same database, but each step still commits on its own as it does across shards. Outbox
+ * events are handed back to the listener by the test instead of going through Kafka.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.transit-stripes=1",
+        "app.fx.rates-file="
+})
+@Import({TestAuditingConfig.class, SimpleMeterRegistry.class, ShardRouter.class, CrossShardTransfers.class,
+        LedgerService.class, FxRates.class, HashChain.class})
+class CrossShardTransfersTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @Autowired
+    CrossShardTransfers underTest;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    SagaRepository sagaRepository;
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @MockitoBean
+    KafkaEventPublisher kafkaEventPublisher;
+    @MockitoBean
+    LedgerMetrics metrics;
+    @MockitoBean
+    BalanceReadModel balanceReadModel;
+    @MockitoBean
+    LimitsEngine limitsEngine;
+    @MockitoBean
+    FeeEngine feeEngine;
+
+    @Test
+    void shouldMoveTheAmountThroughTransitWhenBothLegsSucceed() {
+        String source = wallet("100");
+        String destination = wallet("0");
+        String sagaId = "xs-" + UUID.randomUUID();
+        BigDecimal transitBefore = transitBalance();
+
+        Transaction debit = underTest.start(source, destination, 1, "NGN", new BigDecimal("40"), sagaId, "cross-shard");
+        assertThat(transitBalance()).isEqualByComparingTo(transitBefore.add(new BigDecimal("40")));
+
+        underTest.handleSagaEvent(lastEvent(sagaId, EventType.SAGA_STEP_REQUESTED));
+        underTest.handleSagaEvent(lastEvent(sagaId, EventType.SAGA_STEP_COMPLETED));
+
+        assertThat(debit.getReference()).isEqualTo(sagaId);
+        assertThat(balance(source)).isEqualByComparingTo("60");
+        assertThat(balance(destination)).isEqualByComparingTo("40");
+        assertThat(transitBalance()).isEqualByComparingTo(transitBefore);
+        Saga saga = sagaRepository.findBySagaId(sagaId).orElseThrow();
+        assertThat(saga.getStatus()).isEqualTo(SagaStatus.COMPLETED);
+        assertThat(saga.getCurrentStep()).isEqualTo(2);
+        assertThat(events(sagaId, EventType.SAGA_COMPLETED)).hasSize(1);
+    }
+
+    @Test
+    void shouldApplyEachLegOnceWhenRetried() {
+        String source = wallet("100");
+        String destination = wallet("0");
+        String sagaId = "xs-" + UUID.randomUUID();
+
+        Transaction first = underTest.start(source, destination, 1, "NGN", new BigDecimal("40"), sagaId, "cross-shard");
+        Transaction retried = underTest.start(source, destination, 1, "NGN", new BigDecimal("40"), sagaId, "cross-shard");
+        Map<String, Object> requested = lastEvent(sagaId, EventType.SAGA_STEP_REQUESTED);
+        underTest.handleSagaEvent(requested);
+        underTest.handleSagaEvent(requested);
+        Map<String, Object> completed = lastEvent(sagaId, EventType.SAGA_STEP_COMPLETED);
+        underTest.handleSagaEvent(completed);
+        underTest.handleSagaEvent(completed);
+
+        assertThat(retried.getId()).isEqualTo(first.getId());
+        assertThat(events(sagaId, EventType.SAGA_STEP_REQUESTED)).hasSize(1);
+        assertThat(balance(source)).isEqualByComparingTo("60");
+        assertThat(balance(destination)).isEqualByComparingTo("40");
+        assertThat(events(sagaId, EventType.SAGA_COMPLETED)).hasSize(1);
+    }
+
+    @Test
+    void shouldRefundTheSourceWhenTheCreditIsRefused() {
+        String source = wallet("100");
+        String missing = "user:" + UUID.randomUUID() + ":wallet";
+        String sagaId = "xs-" + UUID.randomUUID();
+        BigDecimal transitBefore = transitBalance();
+
+        underTest.start(source, missing, 1, "NGN", new BigDecimal("40"), sagaId, "cross-shard");
+        underTest.handleSagaEvent(lastEvent(sagaId, EventType.SAGA_STEP_REQUESTED));
+        Map<String, Object> failed = lastEvent(sagaId, EventType.SAGA_STEP_FAILED);
+        underTest.handleSagaEvent(failed);
+        underTest.handleSagaEvent(failed);
+
+        assertThat(balance(source)).isEqualByComparingTo("100");
+        assertThat(transitBalance()).isEqualByComparingTo(transitBefore);
+        assertThat(transactionRepository.findByReference(sagaId + CrossShardTransfers.CREDIT_SUFFIX)).isEmpty();
+        assertThat(transactionRepository.findByReference(sagaId + CrossShardTransfers.REFUND_SUFFIX)).isPresent();
+        Saga saga = sagaRepository.findBySagaId(sagaId).orElseThrow();
+        assertThat(saga.getStatus()).isEqualTo(SagaStatus.FAILED);
+        assertThat(saga.getFailureReason()).contains(missing);
+        assertThat(events(sagaId, EventType.SAGA_FAILED)).hasSize(1);
+    }
+
+    private String wallet(String balance) {
+        String accountRef = "user:" + UUID.randomUUID() + ":wallet";
+        BigDecimal amount = new BigDecimal(balance);
+        accountRepository.save(Account.builder()
+                .accountRef(accountRef)
+                .accountType(AccountType.USER_WALLET)
+                .currency("NGN")
+                .accountBalance(amount)
+                .totalDeposit(amount)
+                .build());
+        return accountRef;
+    }
+
+    private BigDecimal balance(String accountRef) {
+        return accountRepository.findByAccountRef(accountRef).orElseThrow().getAccountBalance();
+    }
+
+    // One stripe, so every saga in NGN goes through the same transit account.
+    private BigDecimal transitBalance() {
+        return balance(underTest.transitRef("NGN", "any"));
+    }
+
+    private List<Map<String, Object>> events(String sagaId, EventType eventType) {
+        return outboxRepository.findAll().stream()
+                .filter(event -> sagaId.equals(event.getAggregateId()) && event.getEventType() == eventType)
+                .map(Outbox::getPayload)
+                .toList();
+    }
+
+    private Map<String, Object> lastEvent(String sagaId, EventType eventType) {
+        List<Map<String, Object>> events = events(sagaId, eventType);
+        assertThat(events).isNotEmpty();
+        return events.getLast();
+    }
+}
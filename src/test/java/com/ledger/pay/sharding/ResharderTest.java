@@ -0,0 +1,153 @@
+package com.ledger.pay.sharding;
+
+import com.ledger.pay.audit.HashChain;
+import com.ledger.pay.config.TestAuditingConfig;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.Saga;
+import com.ledger.pay.domain.TransferIntent;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.enums.SagaStatus;
+import com.ledger.pay.enums.SagaType;
+import com.ledger.pay.fees.FeeEngine;
+import com.ledger.pay.fx.FxRates;
+import com.ledger.pay.limits.LimitsEngine;
+import com.ledger.pay.observability.LedgerMetrics;
+import com.ledger.pay.readmodel.BalanceReadModel;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.SagaRepository;
+import com.ledger.pay.repository.ShardAssignmentRepository;
+import com.ledger.pay.repository.TransferIntentRepository;
+import com.ledger.pay.service.KafkaEventPublisher;
+import com.ledger.pay.service.LedgerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Moves wallets against a real database. The router is given no extra shards, so the source and
+ * target shard share one database; the tombstone and the new row still live side by side, as
+ * they would on two shards.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "app.sharding.enabled=true",
+        "app.sharding.transit-stripes=1",
+        "app.fx.rates-file="
+})
+@Import({TestAuditingConfig.class, SimpleMeterRegistry.class, ShardRouter.class, CrossShardTransfers.class,
+        Resharder.class, LedgerService.class, FxRates.class, HashChain.class})
+class ResharderTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer postgreSQLContainer =
+            new PostgreSQLContainer(DockerImageName.parse("postgres:latest"));
+
+    @Autowired
+    Resharder underTest;
+    @Autowired
+    CrossShardTransfers crossShardTransfers;
+    @Autowired
+    AccountRepository accountRepository;
+    @Autowired
+    SagaRepository sagaRepository;
+    @Autowired
+    ShardAssignmentRepository assignmentRepository;
+    @Autowired
+    TransferIntentRepository intentRepository;
+
+    @MockitoBean
+    KafkaEventPublisher kafkaEventPublisher;
+    @MockitoBean
+    LedgerMetrics metrics;
+    @MockitoBean
+    BalanceReadModel balanceReadModel;
+    @MockitoBean
+    LimitsEngine limitsEngine;
+    @MockitoBean
+    FeeEngine feeEngine;
+
+    @Test
+    void shouldCarryTheBalanceToTheNewRowAndLeaveATombstone() {
+        Account original = wallet("75");
+        String accountRef = original.getAccountRef();
+        BigDecimal transitBefore = transitBalance();
+
+        assertThat(underTest.move(accountRef, 0, 1)).isTrue();
+
+        Account moved = accountRepository.findByAccountRef(accountRef).orElseThrow();
+        assertThat(moved.getId()).isNotEqualTo(original.getId());
+        assertThat(moved.getAccountType()).isEqualTo(AccountType.USER_WALLET);
+        assertThat(moved.getAccountBalance()).isEqualByComparingTo("75");
+        assertThat(moved.getVersion()).isGreaterThan(original.getVersion());
+
+        Account tombstone = accountRepository.findById(original.getId()).orElseThrow();
+        assertThat(tombstone.getAccountType()).isEqualTo(AccountType.MOVED);
+        assertThat(tombstone.getAccountRef()).isEqualTo(Resharder.MOVED_PREFIX + original.getId());
+        assertThat(tombstone.getAccountBalance()).isEqualByComparingTo("0");
+
+        assertThat(transitBalance()).isEqualByComparingTo(transitBefore);
+        assertThat(assignmentRepository.findByAccountRef(accountRef).orElseThrow().getShard()).isEqualTo(1);
+        Saga saga = sagaRepository.findAll().stream()
+                .filter(s -> s.getType() == SagaType.RESHARD && accountRef.equals(s.getContext().get("accountRef")))
+                .findFirst()
+                .orElseThrow();
+        assertThat(saga.getStatus()).isEqualTo(SagaStatus.COMPLETED);
+        assertThat(saga.getCurrentStep()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotMoveAWalletWithPendingNettingIntents() {
+        Account payer = wallet("75");
+        Account payee = wallet("0");
+        intentRepository.save(TransferIntent.builder()
+                .reference("intent-" + UUID.randomUUID())
+                .sourceAccount(payer)
+                .destinationAccount(payee)
+                .amount(new BigDecimal("10"))
+                .build());
+
+        assertThat(underTest.move(payee.getAccountRef(), 0, 1)).isFalse();
+
+        Account unchanged = accountRepository.findById(payee.getId()).orElseThrow();
+        assertThat(unchanged.getAccountType()).isEqualTo(AccountType.USER_WALLET);
+        assertThat(unchanged.getAccountRef()).isEqualTo(payee.getAccountRef());
+        assertThat(assignmentRepository.findByAccountRef(payee.getAccountRef())).isEmpty();
+    }
+
+    private Account wallet(String balance) {
+        BigDecimal amount = new BigDecimal(balance);
+        return accountRepository.save(Account.builder()
+                .accountRef("user:" + UUID.randomUUID() + ":wallet")
+                .accountType(AccountType.USER_WALLET)
+                .currency("NGN")
+                .accountBalance(amount)
+                .totalDeposit(amount)
+                .build());
+    }
+
+    private BigDecimal transitBalance() {
+        return accountRepository.findByAccountRef(crossShardTransfers.transitRef("NGN", "any")).orElseThrow()
+                .getAccountBalance();
+    }
+}
@@ -0,0 +1,64 @@
+package com.ledger.pay.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardRingTest {
+
+    private static final int ACCOUNTS = 100_000;
+
+    @Test
+    void shouldPlaceEverythingOnShardZeroWithOneShard() {
+        ShardRing ring = new ShardRing(1, 128);
+
+        assertThat(ring.shardOf("wallet-1")).isZero();
+        assertThat(ring.shardOf("")).isZero();
+        assertThatThrownBy(() -> new ShardRing(0, 128)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldPlaceAnAccountTheSameWayOnEveryRing() {
+        ShardRing first = new ShardRing(4, 128);
+        ShardRing second = new ShardRing(4, 128);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(first.shardOf("wallet-" + i)).isEqualTo(second.shardOf("wallet-" + i));
+        }
+    }
+
+    @Test
+    void shouldSpreadAccountsEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            counts[ring.shardOf("wallet-" + i)]++;
+        }
+
+        // 128 points per shard keep every shard within 20% of a fair share.
+        for (int count : counts) {
+            assertThat(count).isBetween(ACCOUNTS / 4 * 8 / 10, ACCOUNTS / 4 * 12 / 10);
+        }
+    }
+
+    @Test
+    void shouldOnlyMoveAccountsOntoTheNewShardWhenWidened() {
+        ShardRing three = new ShardRing(3, 128);
+        ShardRing four = new ShardRing(4, 128);
+        int moved = 0;
+
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountRef = "wallet-" + i;
+            int before = three.shardOf(accountRef);
+            int after = four.shardOf(accountRef);
+            if (before != after) {
+                assertThat(after).isEqualTo(3);
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(ACCOUNTS / 4 * 8 / 10, ACCOUNTS / 4 * 12 / 10);
+    }
+}
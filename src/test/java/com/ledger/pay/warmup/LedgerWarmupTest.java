@@ -0,0 +1,99 @@
+package com.ledger.pay.warmup;
+
+import com.ledger.pay.config.WarmupProperties;
+import com.ledger.pay.domain.Transaction;
+import com.ledger.pay.enums.TransactionStatus;
+import com.ledger.pay.enums.TransactionType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.service.LedgerService;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LedgerWarmupTest {
+
+    private final LedgerService ledgerService = mock(LedgerService.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRunRolledBackTransfersOnEveryShard() throws Exception {
+        List<Integer> shards = new CopyOnWriteArrayList<>();
+        routeTo(2, shards);
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        when(ledgerService.transfer(anyString(), anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenAnswer(inv -> transaction(inv.getArgument(3)));
+
+        warmup(3, 4).run(null);
+
+        verify(ledgerService, times(2 * 3 * 4)).transfer(argThat(ref -> ref.startsWith("warmup:")),
+                argThat(ref -> ref.startsWith("warmup:")), eq(new BigDecimal("1.00")), anyString(),
+                eq("warm-up"), eq(false));
+        verify(transactionManager, times(2 * 3 * 4)).commit(argThat(status -> status.isRollbackOnly()));
+        // One routed task per worker per shard; each runs all of its iterations on that shard.
+        assertThat(shards).hasSize(2 * 4);
+        assertThat(shards.stream().filter(shard -> shard == 0)).hasSize(4);
+        assertThat(shards.stream().filter(shard -> shard == 1)).hasSize(4);
+        assertThat(registry.get("ledger.warmup").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStopAWorkerOnFailureInsteadOfFailingStartup() throws Exception {
+        routeTo(1, new CopyOnWriteArrayList<>());
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        when(ledgerService.transfer(anyString(), anyString(), any(), anyString(), any(), anyBoolean()))
+                .thenThrow(new IllegalStateException("Fee revenue account not found: fees:revenue:NGN"));
+
+        warmup(5, 2).run(null);
+
+        // One failed attempt per worker, then that worker gives up.
+        verify(ledgerService, times(2)).transfer(anyString(), anyString(), any(), anyString(), any(), anyBoolean());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void routeTo(int shardCount, List<Integer> shards) {
+        when(shardRouter.shardCount()).thenReturn(shardCount);
+        when(shardRouter.on(anyInt(), any())).thenAnswer(inv -> {
+            shards.add(inv.getArgument(0));
+            return ((Supplier<Object>) inv.getArgument(1)).get();
+        });
+    }
+
+    private LedgerWarmup warmup(int iterations, int parallelism) {
+        return new LedgerWarmup(ledgerService, mock(AccountRepository.class), shardRouter, transactionManager,
+                new WarmupProperties(true, iterations, parallelism, Duration.ofSeconds(10)), registry);
+    }
+
+    private static Transaction transaction(String reference) {
+        return Transaction.builder()
+                .reference(reference)
+                .type(TransactionType.TRANSFER)
+                .status(TransactionStatus.COMPLETED)
+                .amount(new BigDecimal("1.00"))
+                .description("warm-up")
+                .build();
+    }
+}
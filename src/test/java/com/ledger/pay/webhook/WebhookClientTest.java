@@ -0,0 +1,141 @@
+package com.ledger.pay.webhook;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookClientTest {
+
+    private static final byte[] BODY = "{\"eventType\":\"TRANSFER_COMPLETED\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicInteger slowRunning = new AtomicInteger();
+    private final AtomicInteger slowPeak = new AtomicInteger();
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+    private HttpServer server;
+    private WebhookClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/fast", exchange -> respond(exchange, 204));
+        server.createContext("/failing", exchange -> respond(exchange, 500));
+        server.createContext("/slow", exchange -> {
+            slowPeak.accumulateAndGet(slowRunning.incrementAndGet(), Math::max);
+            try {
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                slowRunning.decrementAndGet();
+            }
+            respond(exchange, 200);
+        });
+        server.start();
+        client = new WebhookClient(Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseSlow.countDown();
+        client.close();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldKeepServingFastEndpointsWhileASlowOneIsAtItsLimit() throws Exception {
+        List<CompletableFuture<WebhookClient.Response>> slow = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            slow.add(client.post(1, 2, uri("/slow"), Map.of(), BODY));
+        }
+        awaitUntil(() -> slowRunning.get() == 2);
+        assertThat(client.pending(1)).isEqualTo(10);
+        assertThat(client.queued()).isEqualTo(8);
+
+        List<CompletableFuture<WebhookClient.Response>> fast = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            fast.add(client.post(2, 4, uri("/fast"), Map.of(), BODY));
+        }
+        for (CompletableFuture<WebhookClient.Response> response : fast) {
+            assertThat(response.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(204);
+        }
+        assertThat(slow).noneMatch(CompletableFuture::isDone);
+
+        releaseSlow.countDown();
+        for (CompletableFuture<WebhookClient.Response> response : slow) {
+            assertThat(response.get(5, TimeUnit.SECONDS).delivered()).isTrue();
+        }
+        assertThat(slowPeak.get()).isEqualTo(2);
+        assertThat(client.pending(1)).isZero();
+        assertThat(client.inFlight()).isZero();
+        assertThat(client.queued()).isZero();
+    }
+
+    @Test
+    void shouldReportServerErrorsAsUndelivered() throws Exception {
+        WebhookClient.Response response = client.post(3, 1, uri("/failing"), Map.of(), BODY).get(5, TimeUnit.SECONDS);
+
+        assertThat(response.statusCode()).isEqualTo(500);
+        assertThat(response.delivered()).isFalse();
+    }
+
+    @Test
+    void shouldReportTimeoutsWithoutFailingTheFuture() throws Exception {
+        try (WebhookClient impatient = new WebhookClient(Duration.ofSeconds(1), Duration.ofMillis(200))) {
+            WebhookClient.Response response = impatient.post(1, 1, uri("/slow"), Map.of(), BODY).get(5, TimeUnit.SECONDS);
+
+            assertThat(response.statusCode()).isZero();
+            assertThat(response.delivered()).isFalse();
+            assertThat(response.error()).contains("HttpTimeoutException");
+        }
+    }
+
+    @Test
+    void shouldReportSaturatedEndpoints() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            client.post(1, 1, uri("/slow"), Map.of(), BODY);
+        }
+        client.post(2, 1, uri("/slow"), Map.of(), BODY);
+        awaitUntil(() -> slowRunning.get() == 2);
+
+        assertThat(client.saturated(3)).containsExactly(1L);
+        assertThat(client.saturated(1)).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
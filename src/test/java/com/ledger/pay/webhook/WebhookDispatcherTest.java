@@ -0,0 +1,194 @@
+package com.ledger.pay.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.WebhookProperties;
+import com.ledger.pay.domain.WebhookDelivery;
+import com.ledger.pay.domain.WebhookEndpoint;
+import com.ledger.pay.enums.DeliveryStatus;
+import com.ledger.pay.repository.WebhookDeliveryRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookDispatcherTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 3, 1, 12, 0);
+    private static final LocalDateTime CLAIMED_UNTIL = NOW.plusMinutes(5);
+
+    private final WebhookService webhookService = mock(WebhookService.class);
+    private final WebhookDeliveryRepository deliveryRepository = mock(WebhookDeliveryRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BlockingQueue<Map<String, String>> received = new LinkedBlockingQueue<>();
+    private HttpServer server;
+    private WebhookDispatcher underTest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            received.add(Map.of("path", exchange.getRequestURI().getPath(),
+                    "signature", exchange.getRequestHeaders().getFirst("X-Ledger-Signature"),
+                    "body", body));
+            exchange.sendResponseHeaders(exchange.getRequestURI().getPath().equals("/ok") ? 200 : 503, -1);
+            exchange.close();
+        });
+        server.start();
+        underTest = new WebhookDispatcher(webhookService, deliveryRepository, mock(PlatformTransactionManager.class),
+                new WebhookProperties(true, 100, 4, 200, 1000, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                        3, Duration.ofSeconds(5), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+                        false),
+                new ObjectMapper(), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void shouldSignDeliveriesAndRecordSuccessesInBulk() throws Exception {
+        when(webhookService.endpoint(7)).thenReturn(endpoint(7, "/ok"));
+        when(deliveryRepository.findDueForUpdate(eq(NOW), any(), any()))
+                .thenReturn(List.of(delivery(1, 7, 0), delivery(2, 7, 0)));
+
+        assertThat(underTest.dispatch(NOW)).isEqualTo(2);
+
+        verify(deliveryRepository).claim(List.of(1L, 2L), CLAIMED_UNTIL);
+        Map<String, String> request = received.poll(5, TimeUnit.SECONDS);
+        assertThat(request.get("signature"))
+                .isEqualTo("sha256=" + WebhookDispatcher.sign("secret-7", request.get("body").getBytes(StandardCharsets.UTF_8)));
+        assertThat(received.poll(5, TimeUnit.SECONDS)).isNotNull();
+        awaitUntil(() -> registry.counter("ledger.webhooks.deliveries", "outcome", "delivered").count() == 2);
+        underTest.flush(NOW);
+        verify(deliveryRepository).markDelivered(List.of(1L, 2L), CLAIMED_UNTIL, 200, NOW);
+    }
+
+    @Test
+    void shouldRetryFailuresWithBackoffAndGiveUpAfterMaxAttempts() throws Exception {
+        when(webhookService.endpoint(8)).thenReturn(endpoint(8, "/down"));
+        when(deliveryRepository.findDueForUpdate(eq(NOW), any(), any()))
+                .thenReturn(List.of(delivery(1, 8, 0), delivery(2, 8, 2)));
+
+        underTest.dispatch(NOW);
+
+        awaitRecorded(() -> {
+            verify(deliveryRepository).markFailed(eq(1L), eq(CLAIMED_UNTIL), eq(DeliveryStatus.PENDING), eq(503),
+                    eq("HTTP 503"), any(LocalDateTime.class));
+            verify(deliveryRepository).markFailed(eq(2L), eq(CLAIMED_UNTIL), eq(DeliveryStatus.DEAD), eq(503),
+                    eq("HTTP 503"), isNull());
+        });
+        verify(deliveryRepository, never()).markDelivered(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void shouldGiveUpOnDeliveriesForDisabledEndpoints() {
+        when(deliveryRepository.findDueForUpdate(eq(NOW), any(), any())).thenReturn(List.of(delivery(1, 9, 0)));
+
+        underTest.dispatch(NOW);
+        underTest.flush(NOW);
+
+        verify(deliveryRepository).markFailed(1L, CLAIMED_UNTIL, DeliveryStatus.DEAD, null, "Endpoint disabled", null);
+        assertThat(received).isEmpty();
+    }
+
+    @Test
+    void shouldNotClaimWhenNothingIsDue() {
+        when(deliveryRepository.findDueForUpdate(eq(NOW), any(), any())).thenReturn(List.of());
+
+        assertThat(underTest.dispatch(NOW)).isZero();
+
+        verify(deliveryRepository, never()).claim(any(), any());
+        verify(deliveryRepository, never()).markFailed(anyLong(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldKeepBackoffWithinItsJitteredCeiling() {
+        Random random = new Random(42);
+        Duration base = Duration.ofSeconds(5);
+        Duration max = Duration.ofMinutes(1);
+        for (int attempts = 1; attempts <= 40; attempts++) {
+            Duration ceiling = attempts > 4 ? max : base.multipliedBy(1L << (attempts - 1));
+            for (int i = 0; i < 100; i++) {
+                assertThat(WebhookDispatcher.backoff(attempts, base, max, random)).isBetween(Duration.ZERO, ceiling);
+            }
+        }
+    }
+
+    private void awaitRecorded(Runnable verification) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            underTest.flush(NOW);
+            try {
+                verification.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private WebhookEndpoint endpoint(long id, String path) {
+        WebhookEndpoint endpoint = WebhookEndpoint.builder()
+                .accountRef("user:merchant:wallet")
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + path)
+                .secret("secret-" + id)
+                .build();
+        endpoint.setId(id);
+        return endpoint;
+    }
+
+    private static WebhookDelivery delivery(long id, long endpointId, int attempts) {
+        WebhookDelivery delivery = WebhookDelivery.builder()
+                .endpointId(endpointId)
+                .eventKey("TRANSFER_COMPLETED:tx-" + id)
+                .eventType("TRANSFER_COMPLETED")
+                .payload(Map.of("eventType", "TRANSFER_COMPLETED", "transactionRef", "tx-" + id))
+                .attempts(attempts)
+                .build();
+        delivery.setId(id);
+        delivery.setCreatedAt(NOW.minusSeconds(1));
+        return delivery;
+    }
+}
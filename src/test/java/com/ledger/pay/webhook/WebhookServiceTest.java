@@ -0,0 +1,99 @@
+package com.ledger.pay.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ledger.pay.config.WebhookProperties;
+import com.ledger.pay.domain.Account;
+import com.ledger.pay.domain.WebhookEndpoint;
+import com.ledger.pay.enums.AccountType;
+import com.ledger.pay.repository.AccountRepository;
+import com.ledger.pay.repository.WebhookDeliveryRepository;
+import com.ledger.pay.repository.WebhookEndpointRepository;
+import com.ledger.pay.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WebhookServiceTest {
+
+    private static final String ACCOUNT = "user:shop:wallet";
+
+    private final WebhookEndpointRepository endpointRepository = mock(WebhookEndpointRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+
+    @BeforeEach
+    void setUp() {
+        when(shardRouter.onShardOf(anyString(), any())).thenAnswer(invocation ->
+                invocation.<Supplier<?>>getArgument(1).get());
+        when(accountRepository.findByAccountRef(ACCOUNT)).thenReturn(Optional.of(Account.builder()
+                .accountRef(ACCOUNT)
+                .accountType(AccountType.USER_WALLET)
+                .build()));
+        when(endpointRepository.save(any(WebhookEndpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(endpointRepository.findByEnabledTrue()).thenReturn(List.of());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://127.0.0.1/hooks",
+            "http://localhost:8080/hooks",
+            "http://10.1.2.3/hooks",
+            "http://192.168.0.10/hooks",
+            "http://169.254.169.254/latest/meta-data",
+            "http://100.64.0.1/hooks",
+            "http://0.0.0.0/hooks",
+            "http://[::1]:8080/hooks",
+            "http://[fd00::1]/hooks",
+            "ftp://93.184.216.34/hooks",
+            "https:///hooks"
+    })
+    void shouldRefuseUrlsThatDoNotReachAPublicHost(String url) {
+        WebhookService underTest = service(false);
+
+        assertThatThrownBy(() -> underTest.register(ACCOUNT, url, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(endpointRepository, never()).save(any(WebhookEndpoint.class));
+    }
+
+    @Test
+    void shouldRegisterAPublicEndpoint() {
+        WebhookEndpoint endpoint = service(false).register(ACCOUNT, "https://93.184.216.34/hooks",
+                List.of("TRANSFER_COMPLETED"), 4);
+
+        assertThat(endpoint.getUrl()).isEqualTo("https://93.184.216.34/hooks");
+        assertThat(endpoint.getEventTypes()).isEqualTo("TRANSFER_COMPLETED");
+    }
+
+    @Test
+    void shouldAllowALocalReceiverWhenPrivateHostsAreAllowed() {
+        WebhookEndpoint endpoint = service(true).register(ACCOUNT, "http://127.0.0.1:9000/hooks", null, null);
+
+        assertThat(endpoint.getUrl()).isEqualTo("http://127.0.0.1:9000/hooks");
+    }
+
+    private WebhookService service(boolean allowPrivateHosts) {
+        return new WebhookService(endpointRepository, mock(WebhookDeliveryRepository.class), accountRepository,
+                shardRouter, mock(PlatformTransactionManager.class),
+                new WebhookProperties(true, 100, 4, 200, 1000, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                        3, Duration.ofSeconds(5), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+                        allowPrivateHosts),
+                new ObjectMapper(), new SimpleMeterRegistry());
+    }
+}